@@ -0,0 +1,431 @@
+/*
+ * Copyright 2012 Devoteam http://www.devoteam.com
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ *
+ * This file is part of Multi-Protocol Test Suite (MTS).
+ *
+ * Multi-Protocol Test Suite (MTS) is free software: you can redistribute
+ * it and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of the
+ * License.
+ *
+ * Multi-Protocol Test Suite (MTS) is distributed in the hope that it will
+ * be useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Multi-Protocol Test Suite (MTS).
+ * If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package com.devoteam.srit.xmlloader.asn1;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.AnnotatedElement;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.bn.annotations.ASN1Any;
+import org.bn.annotations.ASN1BitString;
+import org.bn.annotations.ASN1Boolean;
+import org.bn.annotations.ASN1BoxedType;
+import org.bn.annotations.ASN1Choice;
+import org.bn.annotations.ASN1Element;
+import org.bn.annotations.ASN1Enum;
+import org.bn.annotations.ASN1EnumItem;
+import org.bn.annotations.ASN1Integer;
+import org.bn.annotations.ASN1Null;
+import org.bn.annotations.ASN1ObjectIdentifier;
+import org.bn.annotations.ASN1OctetString;
+import org.bn.annotations.ASN1PreparedElement;
+import org.bn.annotations.ASN1Real;
+import org.bn.annotations.ASN1Sequence;
+import org.bn.annotations.ASN1SequenceOf;
+import org.bn.annotations.ASN1String;
+import org.bn.coders.ASN1PreparedElementData;
+
+/**
+ * Cache of the reflection data of the ASN.1 (BinaryNotes) generated classes.
+ *
+ * The classes, constructors, declared fields, prepared data fields, type
+ * annotations and enumeration items are looked up only once per class for
+ * the whole process instead of once per element of every message; it is used
+ * by the XML mapping of this package and by the BinaryNotes coders.
+ * The returned fields are already accessible and must not be modified.
+ */
+public class ASNClassCache
+{
+	/**
+	 * Annotations giving the ASN.1 type of a class or field, in the order
+	 * they are tested by the BinaryNotes coders
+	 */
+	private static final Class<?>[] TYPE_ANNOTATIONS =
+	{
+		ASN1SequenceOf.class, ASN1Sequence.class, ASN1Choice.class, ASN1BoxedType.class,
+		ASN1Enum.class, ASN1Boolean.class, ASN1Any.class, ASN1Integer.class, ASN1Real.class,
+		ASN1OctetString.class, ASN1BitString.class, ASN1ObjectIdentifier.class, ASN1String.class,
+		ASN1Null.class, ASN1Element.class
+	};
+
+	private static final Map<String, Class<?>> CLASSES = new ConcurrentHashMap<String, Class<?>>();
+
+	private static final Map<Class<?>, Constructor<?>> CONSTRUCTORS = new ConcurrentHashMap<Class<?>, Constructor<?>>();
+
+	private static final Map<Class<?>, Field[]> FIELDS = new ConcurrentHashMap<Class<?>, Field[]>();
+
+	private static final Map<Class<?>, Class<?>[]> MEMBER_CLASSES = new ConcurrentHashMap<Class<?>, Class<?>[]>();
+
+	private static final Map<Class<?>, Field[]> PREPARED_DATA_FIELDS = new ConcurrentHashMap<Class<?>, Field[]>();
+
+	private static final Map<Class<?>, Map<String, ASN1EnumItem>> ENUM_ITEMS = new ConcurrentHashMap<Class<?>, Map<String, ASN1EnumItem>>();
+
+	private static final Map<Class<?>, Map<String, Field>> ENUM_ITEM_FIELDS = new ConcurrentHashMap<Class<?>, Map<String, Field>>();
+
+	private static final Map<Class<?>, Map<Integer, Field>> ENUM_ITEM_FIELDS_BY_TAG = new ConcurrentHashMap<Class<?>, Map<Integer, Field>>();
+
+	/** the enumeration declared by each ASN.1 enumerated class (one element array, empty if none) */
+	private static final Map<Class<?>, Class<?>[]> ENUM_CLASSES = new ConcurrentHashMap<Class<?>, Class<?>[]>();
+
+	private static final Map<Class<?>, Field> VALUE_FIELDS = new ConcurrentHashMap<Class<?>, Field>();
+
+	private static final Map<Class<?>, String[]> FIELD_TYPE_NAMES = new ConcurrentHashMap<Class<?>, String[]>();
+
+	private static final Map<Class<?>, SortedMap<Integer, Field>> SET_ORDERS = new ConcurrentHashMap<Class<?>, SortedMap<Integer, Field>>();
+
+	private static final Map<AnnotatedElement, Class<?>> TYPE_ANNOTATION_CLASSES = new ConcurrentHashMap<AnnotatedElement, Class<?>>();
+
+	private static final Map<Class<?>, Boolean> PREPARED_ELEMENTS = new ConcurrentHashMap<Class<?>, Boolean>();
+
+	/**
+	 * Private constructor
+	 */
+	private ASNClassCache()
+	{
+		// Nothing
+	}
+
+	/**
+	 * Same as Class.forName(name) but the result is cached
+	 */
+	public static Class<?> forName(String name) throws ClassNotFoundException
+	{
+		Class<?> cl = CLASSES.get(name);
+		if (cl == null)
+		{
+			cl = Class.forName(name);
+			CLASSES.put(name, cl);
+		}
+		return cl;
+	}
+
+	/**
+	 * Create a new instance of the class with its no-arg constructor
+	 */
+	public static Object newInstance(Class<?> cl) throws Exception
+	{
+		Constructor<?> constr = CONSTRUCTORS.get(cl);
+		if (constr == null)
+		{
+			constr = cl.getDeclaredConstructor();
+			constr.setAccessible(true);
+			CONSTRUCTORS.put(cl, constr);
+		}
+		return constr.newInstance();
+	}
+
+	/**
+	 * Create a new instance of the class given by its name
+	 */
+	public static Object newInstance(String name) throws Exception
+	{
+		return newInstance(forName(name));
+	}
+
+	/**
+	 * Same as cl.getDeclaredFields() but the result is cached and the
+	 * fields are accessible; the array is shared so it must not be modified.
+	 */
+	public static Field[] getDeclaredFields(Class<?> cl)
+	{
+		Field[] fields = FIELDS.get(cl);
+		if (fields == null)
+		{
+			fields = cl.getDeclaredFields();
+			for (Field field : fields)
+			{
+				field.setAccessible(true);
+			}
+			FIELDS.put(cl, fields);
+		}
+		return fields;
+	}
+
+	/**
+	 * Get the canonical names of the types of the declared fields of the class,
+	 * in the order of getDeclaredFields(cl); the array is shared so it must not
+	 * be modified.
+	 */
+	public static String[] getFieldTypeNames(Class<?> cl)
+	{
+		String[] names = FIELD_TYPE_NAMES.get(cl);
+		if (names == null)
+		{
+			Field[] fields = getDeclaredFields(cl);
+			names = new String[fields.length];
+			for (int i = 0; i < fields.length; i++)
+			{
+				names[i] = fields[i].getType().getCanonicalName();
+			}
+			FIELD_TYPE_NAMES.put(cl, names);
+		}
+		return names;
+	}
+
+	/**
+	 * Get the "value" field of a boxed or enumerated ASN.1 class
+	 */
+	public static Field getValueField(Class<?> cl) throws NoSuchFieldException
+	{
+		Field field = VALUE_FIELDS.get(cl);
+		if (field == null)
+		{
+			field = cl.getDeclaredField("value");
+			VALUE_FIELDS.put(cl, field);
+		}
+		return field;
+	}
+
+	/**
+	 * Get the first annotation of the element giving its ASN.1 type, in the
+	 * order tested by the BinaryNotes coders : ASN1SequenceOf, ASN1Sequence,
+	 * ASN1Choice... ASN1Element; null if the element has none of them.
+	 */
+	@SuppressWarnings("unchecked")
+	public static Class<? extends Annotation> getTypeAnnotation(AnnotatedElement element)
+	{
+		if (element == null)
+		{
+			return null;
+		}
+		Class<?> annotation = TYPE_ANNOTATION_CLASSES.get(element);
+		if (annotation == null)
+		{
+			// the elements without any of the annotations are cached with the Object class
+			annotation = Object.class;
+			for (Class<?> typeAnnotation : TYPE_ANNOTATIONS)
+			{
+				if (element.isAnnotationPresent((Class<? extends Annotation>) typeAnnotation))
+				{
+					annotation = typeAnnotation;
+					break;
+				}
+			}
+			TYPE_ANNOTATION_CLASSES.put(element, annotation);
+		}
+		return (annotation == Object.class) ? null : (Class<? extends Annotation>) annotation;
+	}
+
+	/**
+	 * Same as cl.isAnnotationPresent(ASN1PreparedElement.class) but the result is cached
+	 */
+	public static boolean isPreparedElement(Class<?> cl)
+	{
+		Boolean prepared = PREPARED_ELEMENTS.get(cl);
+		if (prepared == null)
+		{
+			prepared = cl.isAnnotationPresent(ASN1PreparedElement.class);
+			PREPARED_ELEMENTS.put(cl, prepared);
+		}
+		return prepared;
+	}
+
+	/**
+	 * Get the fields of the class with the ASN1Element annotation ordered by
+	 * tag, the fields without tag first (from the last one); the map is shared
+	 * so it must not be modified.
+	 */
+	public static SortedMap<Integer, Field> getSetOrder(Class<?> cl)
+	{
+		SortedMap<Integer, Field> fieldOrder = SET_ORDERS.get(cl);
+		if (fieldOrder == null)
+		{
+			fieldOrder = new TreeMap<Integer, Field>();
+			int tagNA = -1;
+			for (Field field : getDeclaredFields(cl))
+			{
+				ASN1Element element = field.getAnnotation(ASN1Element.class);
+				if (element != null)
+				{
+					if (element.hasTag())
+					{
+						fieldOrder.put(element.tag(), field);
+					}
+					else
+					{
+						fieldOrder.put(tagNA--, field);
+					}
+				}
+			}
+			fieldOrder = Collections.unmodifiableSortedMap(fieldOrder);
+			SET_ORDERS.put(cl, fieldOrder);
+		}
+		return fieldOrder;
+	}
+
+	/**
+	 * Get the enumeration declared by the ASN.1 enumerated class, null if none
+	 */
+	public static Class<?> getEnumClass(Class<?> cl)
+	{
+		Class<?>[] enumClass = ENUM_CLASSES.get(cl);
+		if (enumClass == null)
+		{
+			enumClass = new Class<?>[1];
+			for (Class<?> declared : cl.getDeclaredClasses())
+			{
+				if (declared.isEnum())
+				{
+					enumClass[0] = declared;
+					break;
+				}
+			}
+			ENUM_CLASSES.put(cl, enumClass);
+		}
+		return enumClass[0];
+	}
+
+	/**
+	 * Get the field of the enumeration item with the given name and the
+	 * ASN1EnumItem annotation or null if not found
+	 */
+	public static Field getEnumItemField(Class<?> enumClass, String name)
+	{
+		Map<String, Field> items = ENUM_ITEM_FIELDS.get(enumClass);
+		if (items == null)
+		{
+			items = new HashMap<String, Field>();
+			for (Field enumItem : enumClass.getDeclaredFields())
+			{
+				if (enumItem.isAnnotationPresent(ASN1EnumItem.class) && !items.containsKey(enumItem.getName()))
+				{
+					items.put(enumItem.getName(), enumItem);
+				}
+			}
+			ENUM_ITEM_FIELDS.put(enumClass, items);
+		}
+		return items.get(name);
+	}
+
+	/**
+	 * Get the field of the first enumeration item whose ASN1EnumItem
+	 * annotation has the given tag or null if not found
+	 */
+	public static Field getEnumItemField(Class<?> enumClass, int tag)
+	{
+		Map<Integer, Field> items = ENUM_ITEM_FIELDS_BY_TAG.get(enumClass);
+		if (items == null)
+		{
+			items = new HashMap<Integer, Field>();
+			for (Field enumItem : enumClass.getDeclaredFields())
+			{
+				ASN1EnumItem meta = enumItem.getAnnotation(ASN1EnumItem.class);
+				if (meta != null && !items.containsKey(meta.tag()))
+				{
+					items.put(meta.tag(), enumItem);
+				}
+			}
+			ENUM_ITEM_FIELDS_BY_TAG.put(enumClass, items);
+		}
+		return items.get(tag);
+	}
+
+	/**
+	 * Same as cl.getClasses() but the result is cached;
+	 * the array is shared so it must not be modified.
+	 */
+	public static Class<?>[] getClasses(Class<?> cl)
+	{
+		Class<?>[] classes = MEMBER_CLASSES.get(cl);
+		if (classes == null)
+		{
+			classes = cl.getClasses();
+			MEMBER_CLASSES.put(cl, classes);
+		}
+		return classes;
+	}
+
+	/**
+	 * Get the value of the "preparedData" (or "preparedData_<ClassName>")
+	 * static field of the ASN.1 object or null if there is no such field
+	 */
+	public static ASN1PreparedElementData getPreparedData(Object object) throws Exception
+	{
+		Class<?> cl = object.getClass();
+		// one element array to be able to cache the classes without such field
+		Field[] preparedDataField = PREPARED_DATA_FIELDS.get(cl);
+		if (preparedDataField == null)
+		{
+			preparedDataField = new Field[1];
+			try
+			{
+				preparedDataField[0] = cl.getDeclaredField("preparedData");
+			}
+			catch (NoSuchFieldException e)
+			{
+				//nothing to do
+			}
+			if (preparedDataField[0] == null)
+			{
+				try
+				{
+					preparedDataField[0] = cl.getDeclaredField("preparedData_" + cl.getSimpleName());
+				}
+				catch (NoSuchFieldException e)
+				{
+					//nothing to do
+				}
+			}
+			if (preparedDataField[0] != null)
+			{
+				preparedDataField[0].setAccessible(true);
+			}
+			PREPARED_DATA_FIELDS.put(cl, preparedDataField);
+		}
+		if (preparedDataField[0] == null)
+		{
+			return null;
+		}
+		return (ASN1PreparedElementData) preparedDataField[0].get(object);
+	}
+
+	/**
+	 * Get the ASN1EnumItem annotation of the enumeration item with the given name
+	 * or null if not found
+	 */
+	public static ASN1EnumItem getEnumItem(Class<?> enumClass, String name)
+	{
+		Map<String, ASN1EnumItem> items = ENUM_ITEMS.get(enumClass);
+		if (items == null)
+		{
+			items = new HashMap<String, ASN1EnumItem>();
+			for (Field enumItem : enumClass.getDeclaredFields())
+			{
+				if (enumItem.isAnnotationPresent(ASN1EnumItem.class) && !items.containsKey(enumItem.getName()))
+				{
+					items.put(enumItem.getName(), enumItem.getAnnotation(ASN1EnumItem.class));
+				}
+			}
+			ENUM_ITEMS.put(enumClass, items);
+		}
+		return items.get(name);
+	}
+}
@@ -98,7 +98,7 @@ public class ASNGetParameter
 				return;
 			}
 
-			Field[] fields = objClass.getClass().getDeclaredFields();
+			Field[] fields = ASNClassCache.getDeclaredFields(objClass.getClass());
 
 			// get the XML tag
 	        String XMLTag = getSignificantXMLTag(objClass, name);	     
@@ -189,7 +189,6 @@ public class ASNGetParameter
 				for (int i = 0; i < fields.length; i++) 
 				{
 					Field f = fields[i];
-					f.setAccessible(true);
 
 					Object subObject = f.get(objClass);
 
@@ -390,17 +389,7 @@ public class ASNGetParameter
 		{
 			ASN1EnumItem enumObj = null;
 	        Class enumClass = object.getClass();
-            for(Field enumItem: enumClass.getDeclaredFields()) 
-            {
-                if(enumItem.isAnnotationPresent(ASN1EnumItem.class)) 
-                {
-                    if(enumItem.getName().equals(object.toString())) 
-                    {
-                    	enumObj = enumItem.getAnnotation(ASN1EnumItem.class);
-                        break;
-                    }
-                }
-            }
+            enumObj = ASNClassCache.getEnumItem(enumClass, object.toString());
 			return object.toString() + TAG_SEPARATOR + enumObj.tag();
 		}
 		else if (type.equals("org.bn.types.NullObject")) 
@@ -464,8 +453,7 @@ public class ASNGetParameter
 		byte[] bytesEmbedded = null;
 	    if (!type.equals("byte[]"))
 	    {
-			Field[] fields = object.getClass().getDeclaredFields();
-			fields[0].setAccessible(true);
+			Field[] fields = ASNClassCache.getDeclaredFields(object.getClass());
 			bytesEmbedded = (byte[]) fields[0].get(object);
 			// Array arraybytesEmbedded = new DefaultArray(bytesEmbedded);
 	    }
@@ -476,8 +464,8 @@ public class ASNGetParameter
 	    
 		IDecoder decoder = CoderFactory.getInstance().newDecoder("BER");
 		InputStream inputStream = new ByteArrayInputStream(bytesEmbedded);
-		Class<?> cl = Class.forName(replace);
-		Object obj = cl.newInstance();
+		Class<?> cl = ASNClassCache.forName(replace);
+		Object obj = ASNClassCache.newInstance(cl);
 		try
 		{
 			obj = decoder.decode(inputStream, cl);
@@ -129,7 +129,7 @@ public class ASNInitializer
 		// calculate the metadata for the object
 		String metadata = ASNToXMLConverter.calculateMetadata(objElementInfo, objPreparedEltData);
         
-    	Field[] fields = objClass.getClass().getDeclaredFields();
+    	Field[] fields = ASNClassCache.getDeclaredFields(objClass.getClass());
 		if (indexChoice < 0 || !metadata.contains(".Choice"))
 		{
 	        // parsing all fields 
@@ -151,8 +151,6 @@ public class ASNInitializer
     
     private void setValueField(int indexChoice, int index, Field field, String resultPath, ASNMessage message, Object parentObj, Object objClass, ASN1PreparedElementData objElementInfo) throws Exception
     {
-		field.setAccessible(true);
-		//System.out.println(f);
 		
 		String typeField = field.getType().getCanonicalName();
 		ASN1ElementMetadata subobjElementInfo = null;
@@ -233,7 +231,7 @@ public class ASNInitializer
 		if (embedded != null) 
 		{
 			String replace = embedded.getReplace();
-			Class cl = Class.forName(replace);
+			Class cl = ASNClassCache.forName(replace);
         	Object objEmbedded = getSubObject(indexChoice, index, resultPath, message, parentObj, name, obj, cl, objElementInfo);
         	
         	IEncoder<Object> encoderEmbedded = CoderFactory.getInstance().newEncoder("BER");
@@ -242,11 +240,8 @@ public class ASNInitializer
             byte[] bytesEmbedded = outputStream.toByteArray();
             // Array arraybytesEmbedded = new DefaultArray(bytesEmbedded);
             
-            Constructor constr = subClass.getConstructor();
-			constr.setAccessible(true);
-			Object subObject = constr.newInstance();
-			Field[] fields = subObject.getClass().getDeclaredFields();
-			fields[0].setAccessible(true);
+			Object subObject = ASNClassCache.newInstance(subClass);
+			Field[] fields = ASNClassCache.getDeclaredFields(subObject.getClass());
 			fields[0].set(subObject, bytesEmbedded);
             
             return subObject;
@@ -364,7 +359,7 @@ public class ASNInitializer
 		}
 		else if (type.endsWith(".EnumType"))
 		{
-			Class[] classes = obj.getClass().getClasses();
+			Class[] classes = ASNClassCache.getClasses(obj.getClass());
 			Object[] objects = null;
 			if (classes.length >= 1)
 			{
@@ -372,12 +367,11 @@ public class ASNInitializer
 				if (objects !=null && objects.length > 0)
 				{
 					int numChar = (int) Utils.randomLong(0, objects.length - 1);
-					Field[] fields = objects[numChar].getClass().getDeclaredFields();
 					return objects[numChar];
 				}
 				else
 				{
-					Class[] subClasses = classes[0].getClasses();
+					Class[] subClasses = ASNClassCache.getClasses(classes[0]);
 					objects = subClasses[0].getEnumConstants();
 					if (objects !=null && objects.length > 0)
 					{
@@ -390,9 +384,7 @@ public class ASNInitializer
 		}
 		else
 		{
-			Constructor constr = subClass.getConstructor();
-			constr.setAccessible(true);
-			Object subObj = constr.newInstance();
+			Object subObj = ASNClassCache.newInstance(subClass);
 			initValue(indexChoice, index, resultPath, message, obj, name, subObj, objElementInfo);
 			return subObj;
 		}
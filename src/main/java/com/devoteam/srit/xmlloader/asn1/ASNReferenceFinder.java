@@ -91,14 +91,11 @@ public class ASNReferenceFinder
     {
 		try 
 		{
-	        // parsing object object fields 
-	    	Field[] fields = obj.getClass().getDeclaredFields();
-	    	for (int i= 0; i < fields.length; i++)
+	        // parsing object object fields (the type names are computed once per class)
+	    	String[] typeFields = ASNClassCache.getFieldTypeNames(obj.getClass());
+	    	for (int i= 0; i < typeFields.length; i++)
 	    	{
-	    		Field f = fields[i];
-	    		f.setAccessible(true);
-
-				String typeField = f.getType().getCanonicalName();
+				String typeField = typeFields[i];
 				if (typeField != null && typeField.equals("org.bn.coders.ASN1PreparedElementData") )
 				{
 					// nothing to do
@@ -135,9 +132,9 @@ public class ASNReferenceFinder
 						String tabClassName = ((Class) typeActualTypeArg[0]).getCanonicalName();
 						for (int j = 0; j <= 1; j++)
 						{	
-							Class tabClass = Class.forName(typeField);
+							Class tabClass = ASNClassCache.forName(typeField);
 							// get an instance
-	        		        Object objClass = tabClass.newInstance();
+	        		        Object objClass = ASNClassCache.newInstance(tabClass);
 	    					f.set(objClass, objClass);
             		        findAndRemoveReferences(classes, tabClass);
 						}
@@ -159,9 +156,9 @@ public class ASNReferenceFinder
 				/*
 				else
 				{
-					Class subClass = Class.forName(typeField);
+					Class subClass = ASNClassCache.forName(typeField);
 					// get an instance
-    		        Object subObj =subClass.newInstance();
+    		        Object subObj = ASNClassCache.newInstance(subClass);
 					f.set(obj, subObj);
 					findAndRemoveReferences(classes, subClass);
    				}
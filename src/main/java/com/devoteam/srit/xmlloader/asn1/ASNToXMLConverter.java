@@ -111,7 +111,7 @@ public class ASNToXMLConverter
 				return ret;
 			}
 
-			Field[] fields = objClass.getClass().getDeclaredFields();
+			Field[] fields = ASNClassCache.getDeclaredFields(objClass.getClass());
 			int fieldsSize = fields.length - 1;
 
 			// get the XML tag
@@ -165,7 +165,6 @@ public class ASNToXMLConverter
 				for (int i = 0; i < fields.length; i++) 
 				{
 					Field f = fields[i];
-					f.setAccessible(true);
 
 					String typeField = f.getType().getCanonicalName();
 					
@@ -247,35 +246,7 @@ public class ASNToXMLConverter
 	public static ASN1PreparedElementData getASN1PreparedElementData(Object objClass) throws Exception
 	{
 		// get the preparedData coming from annotations
-		Field preparedDataField = null;
-		try
-		{
-			preparedDataField = objClass.getClass().getDeclaredField("preparedData"); 
-		}
-		catch (NoSuchFieldException e)
-		{
-			//nothing to do
-		}
-		if (preparedDataField == null)
-		{
-			try
-			{
-				String className = objClass.getClass().getSimpleName();
-				preparedDataField = objClass.getClass().getDeclaredField("preparedData_" + className);
-			}
-			catch (NoSuchFieldException e)
-			{
-				//nothing to do
-			}			
-		}
-
-		ASN1PreparedElementData objPreparedEltData = null;
-		if (preparedDataField != null)
-		{
-			preparedDataField.setAccessible(true);
-			objPreparedEltData = (ASN1PreparedElementData) preparedDataField.get(objClass);
-		}
-		return objPreparedEltData;
+		return ASNClassCache.getPreparedData(objClass);
 	}
 	
 	public static ASN1ElementMetadata getASN1PreparedElementSubData(ASN1PreparedElementData objPreparedEltData, int i) throws Exception
@@ -558,17 +529,7 @@ public class ASNToXMLConverter
 		{
 			ASN1EnumItem enumObj = null;
 	        Class enumClass = object.getClass();
-            for(Field enumItem: enumClass.getDeclaredFields()) 
-            {
-                if(enumItem.isAnnotationPresent(ASN1EnumItem.class)) 
-                {
-                    if(enumItem.getName().equals(object.toString())) 
-                    {
-                    	enumObj = enumItem.getAnnotation(ASN1EnumItem.class);
-                        break;
-                    }
-                }
-            }
+            enumObj = ASNClassCache.getEnumItem(enumClass, object.toString());
 			return object.toString() + TAG_SEPARATOR + enumObj.tag();
 		}
 		else if (type.equals("org.bn.types.NullObject")) 
@@ -602,8 +563,7 @@ public static Object processEmbeddedObject(Embedded embedded, Object object) thr
 		byte[] bytesEmbedded = null;
 	    if (!type.equals("byte[]"))
 	    {
-			Field[] fields = object.getClass().getDeclaredFields();
-			fields[0].setAccessible(true);
+			Field[] fields = ASNClassCache.getDeclaredFields(object.getClass());
 			bytesEmbedded = (byte[]) fields[0].get(object);
 			// Array arraybytesEmbedded = new DefaultArray(bytesEmbedded);
 	    }
@@ -614,8 +574,8 @@ public static Object processEmbeddedObject(Embedded embedded, Object object) thr
 	    
 		IDecoder decoder = CoderFactory.getInstance().newDecoder("BER");
 		InputStream inputStream = new ByteArrayInputStream(bytesEmbedded);
-		Class<?> cl = Class.forName(replace);
-		Object obj = cl.newInstance();
+		Class<?> cl = ASNClassCache.forName(replace);
+		Object obj = ASNClassCache.newInstance(cl);
 		try
 		{
 			obj = decoder.decode(inputStream, cl);
@@ -114,8 +114,8 @@ public class BN_ASNMessage extends ASNMessage
     		throw new ExecutionException("bad value for rule '" + rule +"'");
     	}
         InputStream inputStream = new ByteArrayInputStream(array.getBytes());
-        Class cl = Class.forName(className);
-        this.asnObject = cl.newInstance();
+        Class cl = ASNClassCache.forName(className);
+        this.asnObject = ASNClassCache.newInstance(cl);
         if (array.length > 0)
         {
         	this.asnObject = decoder.decode(inputStream, cl);
@@ -134,14 +134,14 @@ public class BN_ASNMessage extends ASNMessage
         List<Element> children = root.elements();
         for (Element element : children) 
         {
-            Class thisClass = Class.forName(className);
+            Class thisClass = ASNClassCache.forName(className);
             int pos = className.lastIndexOf('.');
             String packageName = "";
             if (pos > 0)
             {
             	packageName = className.substring(0, pos + 1);
             }
-            this.asnObject = thisClass.newInstance();
+            this.asnObject = ASNClassCache.newInstance(thisClass);
             String resultPath = "";
             XMLToASNParser.getInstance().parseFromXML(resultPath, this, this.asnObject, element, packageName);
         }
@@ -51,6 +51,7 @@ import java.io.ByteArrayOutputStream;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.Field;
 import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Modifier;
 import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
 import java.math.BigInteger;
@@ -142,8 +143,7 @@ public class XMLToASNParser
         {
             ClasseName = Classe;
         }
-        Class thisClass = Class.forName(ClasseName);
-        Object iClass = thisClass.newInstance();
+        Object iClass = ASNClassCache.newInstance(ClasseName);
         return iClass;
     }
 
@@ -156,7 +156,7 @@ public class XMLToASNParser
     		elementName = elementName.substring(0, pos);
     	}
 
-        for (Field field : objClass.getClass().getDeclaredFields()) 
+        for (Field field : ASNClassCache.getDeclaredFields(objClass.getClass())) 
         {
         	String name = field.getName(); 
         	String type = field.getType().getSimpleName();
@@ -214,8 +214,7 @@ public class XMLToASNParser
             resultPath = resultPath + "." + getSignificantXMLTag(element);
             
             String replace = embedded.getReplace();
-            Class<?> subClass = Class.forName(replace);
-            Object objEmbedded = subClass.newInstance();
+            Object objEmbedded = ASNClassCache.newInstance(replace);
                        
             if (!element.elements().isEmpty())
             {
@@ -397,7 +396,7 @@ public class XMLToASNParser
         		intVal = Integer.parseInt(value);
         	}
 
-			Class[] classes = object.getClass().getClasses();
+			Class[] classes = ASNClassCache.getClasses(object.getClass());
 			Object[] objects = null;
 			if (classes.length >= 1)
 			{
@@ -414,17 +413,7 @@ public class XMLToASNParser
 					}
 				}
 				ASN1EnumItem enumObj = null;
-	            for(Field enumItem: objFind.getClass().getDeclaredFields()) 
-	            {
-	                if(enumItem.isAnnotationPresent(ASN1EnumItem.class)) 
-	                {
-	                    if(enumItem.getName().equals(strVal)) 
-	                    {
-	                    	enumObj = enumItem.getAnnotation(ASN1EnumItem.class);
-	                        break;
-	                    }
-	                }
-	            }
+	            enumObj = ASNClassCache.getEnumItem(objFind.getClass(), strVal);
 	            if (enumObj != null && enumObj.tag() != intVal)
 	            {
 	            	GlobalLogger.instance().getApplicationLogger().warn(TextEvent.Topic.PROTOCOL, null, 
@@ -457,7 +446,7 @@ public class XMLToASNParser
 	            typeWithoutPackage = typeWithoutPackage.replace('.', '$');
 	            type = className + typeWithoutPackage;
         	}
-            obj = Class.forName(type).newInstance();
+            obj = ASNClassCache.newInstance(type);
             //Object objComplexClass = this.instanceClass(obj.getClass().getName(), className);
             parseFromXML(resultPath, message, obj, element, className);
             // not a simple value so return
@@ -487,11 +476,8 @@ public class XMLToASNParser
     public void initField(String resultPath, ASNMessage message, Object objClass, Element element, Field field, String className) throws Exception 
     {
         // si le champ est priv, pour y accder
-        field.setAccessible(true);
-		//System.out.println(f);
-        
         // pour ne pas traiter les static
-        if (field.toGenericString().contains("static")) 
+        if (Modifier.isStatic(field.getModifiers())) 
         {
             return;
         }
@@ -551,12 +537,9 @@ public class XMLToASNParser
 	    Object obj = null;
 	    if (!type.equals("byte[]"))
 	    {
-	    	Class cl = Class.forName(type);
-	    	Constructor constr = cl.getConstructor();
-			constr.setAccessible(true);
-			obj = constr.newInstance();
-			Field[] fields = cl.getDeclaredFields();
-			fields[0].setAccessible(true);
+	    	Class cl = ASNClassCache.forName(type);
+			obj = ASNClassCache.newInstance(cl);
+			Field[] fields = ASNClassCache.getDeclaredFields(cl);
 			fields[0].set(obj, bytesEmbedded);
 	    }
 	    else
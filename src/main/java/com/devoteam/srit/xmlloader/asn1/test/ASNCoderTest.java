@@ -0,0 +1,200 @@
+/* 
+ * Copyright 2012 Devoteam http://www.devoteam.com
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ * 
+ * 
+ * This file is part of Multi-Protocol Test Suite (MTS).
+ * 
+ * Multi-Protocol Test Suite (MTS) is free software: you can redistribute
+ * it and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of the
+ * License.
+ * 
+ * Multi-Protocol Test Suite (MTS) is distributed in the hope that it will
+ * be useful, but WITHOUT ANY WARRANTY; without even the implied warranty 
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with Multi-Protocol Test Suite (MTS).
+ * If not, see <http://www.gnu.org/licenses/>.
+ * 
+ */
+
+
+package com.devoteam.srit.xmlloader.asn1.test;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.dom4j.Document;
+import org.dom4j.io.SAXReader;
+
+import com.devoteam.srit.xmlloader.asn1.ASNClassCache;
+import com.devoteam.srit.xmlloader.asn1.BN_ASNMessage;
+import com.devoteam.srit.xmlloader.core.Tester;
+import com.devoteam.srit.xmlloader.core.utils.XMLLoaderEntityResolver;
+import com.devoteam.srit.xmlloader.core.utils.filesystem.LocalFSInterface;
+import com.devoteam.srit.xmlloader.core.utils.filesystem.SingletonFSInterface;
+
+import gp.utils.arrays.Array;
+import gp.utils.arrays.DefaultArray;
+
+/** 
+ * controle et mesure des codeurs ASN.1 (BinaryNotes) sur les messages XML
+ * des tutoriaux (tutorial/asn1/ap.zip decompresse) : chaque message est
+ * encode avec chaque regle puis decode et re-encode; les octets doivent etre
+ * identiques. Les octets encodes sont compares a ceux du repertoire de
+ * reference (ecrits lors du premier lancement, par exemple avec la version
+ * precedente des codeurs). On affiche ensuite le debit decodage + encodage
+ * en messages par seconde.
+ * usage : ASNCoderTest [repertoire des messages XML] [package java] [regles] [iterations] [repertoire de reference]
+ * exemple : ASNCoderTest ../tutorial/asn1/ap/tcap com.devoteam.srit.xmlloader.sigtran.ap.generated.tcap BER,PER 100 ./asn1ref
+ */
+public class ASNCoderTest {
+
+    private static Tester tester;
+
+    /**
+     * @param args
+     */
+    public static void main(String[] args) throws Exception {
+        
+        /*
+         * Set the FSInterface to LocalFS.
+         */
+        SingletonFSInterface.setInstance(new LocalFSInterface());
+        
+        if (tester == null) {
+            tester = Tester.buildInstance();
+        }
+
+        String messageDirectory = (args.length > 0) ? args[0] : "../tutorial/asn1/ap/tcap";
+        String packageName = (args.length > 1) ? args[1] : "com.devoteam.srit.xmlloader.sigtran.ap.generated.tcap";
+        String[] rules = ((args.length > 2) ? args[2] : "BER,DER,PER").split(",");
+        int maxIter = (args.length > 3) ? Integer.parseInt(args[3]) : 100;
+        File referenceDirectory = new File((args.length > 4) ? args[4] : "./asn1ref");
+        referenceDirectory.mkdirs();
+
+        String dictionaryFile = null;
+        if (packageName.endsWith(".map")) {
+            dictionaryFile = "map/dictionary_MAP.xml";
+        }
+        else if (packageName.endsWith(".tcap")) {
+            dictionaryFile = "tcap/dictionary_TCAP.xml";
+        }
+        else if (packageName.endsWith(".cap")) {
+            dictionaryFile = "cap/dictionary_CAP.xml";
+        }
+        else if (packageName.endsWith(".S1AP")) {
+            dictionaryFile = "S1AP/dictionary_S1AP.xml";
+        }
+
+        // load the messages whose file name is an ASN.1 class of the package
+        List<String> classNames = new ArrayList<String>();
+        List<Array> corpus = new ArrayList<Array>();
+        List<String> corpusRules = new ArrayList<String>();
+        int identical = 0;
+        int different = 0;
+        int recorded = 0;
+        int skipped = 0;
+        File[] files = new File(messageDirectory).listFiles();
+        Arrays.sort(files);
+        for (File file : files) {
+            String simpleName = file.getName().replace(".xml", "");
+            String className = packageName + "." + simpleName;
+            try {
+                ASNClassCache.forName(className);
+            }
+            catch (ClassNotFoundException e) {
+                skipped++;
+                continue;
+            }
+
+            InputStream in = new FileInputStream(file);
+            SAXReader reader = new SAXReader(false);
+            reader.setEntityResolver(new XMLLoaderEntityResolver());
+            Document document = reader.read(in);
+            in.close();
+
+            for (String rule : rules) {
+                try {
+                    BN_ASNMessage msgXML = new BN_ASNMessage(dictionaryFile, ASNClassCache.newInstance(className));
+                    msgXML.parseFromXML(document.getRootElement(), className);
+                    Array encoded = msgXML.encode(rule);
+
+                    // decode and encode again : the bytes must not change
+                    BN_ASNMessage msgBin = new BN_ASNMessage(dictionaryFile, ASNClassCache.newInstance(className));
+                    msgBin.decode(encoded, className, rule);
+                    boolean roundTrip = Arrays.equals(encoded.getBytes(), msgBin.encode(rule).getBytes());
+
+                    // compare with the bytes encoded by the reference version
+                    File referenceFile = new File(referenceDirectory, simpleName + "_" + rule + ".bin");
+                    boolean reference = true;
+                    if (referenceFile.exists()) {
+                        byte[] referenceBytes = new byte[(int) referenceFile.length()];
+                        InputStream inRef = new FileInputStream(referenceFile);
+                        int length = 0;
+                        while (length < referenceBytes.length) {
+                            length += inRef.read(referenceBytes, length, referenceBytes.length - length);
+                        }
+                        inRef.close();
+                        reference = Arrays.equals(referenceBytes, encoded.getBytes());
+                    }
+                    else {
+                        OutputStream out = new FileOutputStream(referenceFile, false);
+                        out.write(encoded.getBytes());
+                        out.close();
+                        recorded++;
+                    }
+
+                    if (roundTrip && reference) {
+                        identical++;
+                        classNames.add(className);
+                        corpus.add(new DefaultArray(encoded.getBytes()));
+                        corpusRules.add(rule);
+                    }
+                    else {
+                        different++;
+                        System.out.println("KO " + simpleName + " " + rule + " : round trip = " + roundTrip + ", reference = " + reference);
+                    }
+                }
+                catch (Exception e) {
+                    different++;
+                    System.out.println("KO " + simpleName + " " + rule + " : " + e);
+                }
+            }
+        }
+        System.out.println("identical = " + identical + " different = " + different + " recorded = " + recorded + " skipped files = " + skipped);
+        if (corpus.isEmpty()) {
+            System.exit(1);
+        }
+
+        // decode and encode the whole corpus (the first iteration warms up the caches and the JIT)
+        long bytes = 0;
+        long beginTT = 0;
+        for (int iter = 0; iter <= maxIter; iter++) {
+            if (iter == 1) {
+                beginTT = System.nanoTime();
+                bytes = 0;
+            }
+            for (int i = 0; i < corpus.size(); i++) {
+                BN_ASNMessage msg = new BN_ASNMessage(dictionaryFile, ASNClassCache.newInstance(classNames.get(i)));
+                msg.decode(corpus.get(i), classNames.get(i), corpusRules.get(i));
+                bytes += msg.encode(corpusRules.get(i)).length;
+            }
+        }
+        float duration = ((float) (System.nanoTime() - beginTT)) / 1000000000;
+        long number = (long) maxIter * corpus.size();
+        System.out.println(number + " messages decoded and encoded, " + bytes + " bytes.");
+        System.out.println("duration = " + duration + " s.");
+        System.out.println("flow = " + number / duration + " msg/s.");
+        System.exit(different == 0 ? 0 : 1);
+    }
+}
@@ -22,7 +22,10 @@
  */
 package com.devoteam.srit.xmlloader.core;
 
+import com.devoteam.srit.xmlloader.core.utils.CSVTable;
 import com.devoteam.srit.xmlloader.core.utils.XMLDocument;
+import com.devoteam.srit.xmlloader.rtp.flow.ParameterCache;
+import com.devoteam.srit.xmlloader.rtp.flow.PayloadLibrary;
 import java.net.URI;
 import java.util.HashMap;
 
@@ -59,5 +62,8 @@ public class Cache {
     static public void reset() {
         XML_CACHE.clear();
         SCENARIO_CACHE.clear();
+        CSVTable.reset();
+        PayloadLibrary.reset();
+        ParameterCache.clear();
     }
 }
@@ -0,0 +1,526 @@
+/* 
+ * Copyright 2012 Devoteam http://www.devoteam.com
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ * 
+ * 
+ * This file is part of Multi-Protocol Test Suite (MTS).
+ * 
+ * Multi-Protocol Test Suite (MTS) is free software: you can redistribute
+ * it and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of the
+ * License.
+ * 
+ * Multi-Protocol Test Suite (MTS) is distributed in the hope that it will
+ * be useful, but WITHOUT ANY WARRANTY; without even the implied warranty 
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with Multi-Protocol Test Suite (MTS).
+ * If not, see <http://www.gnu.org/licenses/>.
+ * 
+ */
+
+
+package com.devoteam.srit.xmlloader.core;
+
+import com.devoteam.srit.xmlloader.core.utils.Config;
+
+import java.nio.CharBuffer;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * Compact and immutable storage of the values of a large list parameter whose
+ * values are all strings : integers are kept in a long array, lowercase
+ * hexadecimal values in a byte array and the other strings in a single
+ * character array. The values are given back as strings identical to the
+ * stored ones, and they can be searched without building the strings.
+ *
+ * @see Parameter#compact()
+ */
+public abstract class CompactValues extends AbstractList<Object> implements RandomAccess {
+
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    /** minimum size of the lists stored in compact form, read on first use */
+    private static volatile int minSize = -1;
+
+    /**
+     * Get the minimum size of the lists to store in compact form (0 if the
+     * lists are never compacted)
+     */
+    public static int getMinSize() {
+        int size = minSize;
+        if (size < 0) {
+            size = Config.getConfigByName("tester.properties").getInteger("core.PARAMETER_COMPACT_SIZE", 1000);
+            minSize = size;
+        }
+        return size;
+    }
+
+    /**
+     * Get the values in compact form, or null if one of them is not a string
+     */
+    public static CompactValues of(List<Object> values) {
+        synchronized (values) {
+            int size = values.size();
+            boolean longs = true;
+            boolean hex = true;
+            boolean latin1 = true;
+            int length = 0;
+            for (int i = 0; i < size; i++) {
+                Object value = values.get(i);
+                if (!(value instanceof String)) {
+                    return null;
+                }
+                String str = (String) value;
+                length += str.length();
+                if (longs) {
+                    longs = isCanonicalLong(str);
+                }
+                if (hex) {
+                    hex = isLowerHex(str);
+                }
+                for (int j = 0; latin1 && j < str.length(); j++) {
+                    latin1 = str.charAt(j) <= 0xFF;
+                }
+            }
+
+            if (longs) {
+                long[] array = new long[size];
+                for (int i = 0; i < size; i++) {
+                    array[i] = Long.parseLong((String) values.get(i));
+                }
+                return new Longs(array, size);
+            }
+
+            int[] offsets = new int[size + 1];
+            if (hex) {
+                byte[] bytes = new byte[length / 2];
+                int offset = 0;
+                for (int i = 0; i < size; i++) {
+                    offsets[i] = offset;
+                    offset = decodeHex((String) values.get(i), bytes, offset);
+                }
+                offsets[size] = offset;
+                return new Bytes(bytes, offsets, size);
+            }
+
+            byte[] bytes = latin1 ? new byte[length] : null;
+            char[] chars = latin1 ? null : new char[length];
+            int offset = 0;
+            for (int i = 0; i < size; i++) {
+                String str = (String) values.get(i);
+                offsets[i] = offset;
+                if (latin1) {
+                    for (int j = 0; j < str.length(); j++) {
+                        bytes[offset + j] = (byte) str.charAt(j);
+                    }
+                }
+                else {
+                    str.getChars(0, str.length(), chars, offset);
+                }
+                offset += str.length();
+            }
+            offsets[size] = offset;
+            return new Strings(bytes, chars, offsets, size);
+        }
+    }
+
+    /**
+     * Get the compact form of the given integers (the size first values of the array)
+     */
+    public static CompactValues ofLongs(long[] values, int size) {
+        return new Longs(values, size);
+    }
+
+    /**
+     * Get the value at the given index as a character sequence, without
+     * building a string when possible
+     */
+    public CharSequence getCharSequence(int index) {
+        return get(index);
+    }
+
+    /**
+     * Get the index of the first value equal to the given one from the given
+     * index, or -1
+     */
+    public abstract int indexOf(String value, int from);
+
+    /**
+     * Get the values from index from (inclusive) to index to (exclusive)
+     */
+    public abstract CompactValues subValues(int from, int to);
+
+    /**
+     * Get the values of this list followed by the values of the other one,
+     * or null if they are not stored in the same form
+     */
+    public abstract CompactValues concat(CompactValues other);
+
+    @Override
+    public abstract String get(int index);
+
+    @Override
+    public int indexOf(Object value) {
+        return value instanceof String ? indexOf((String) value, 0) : -1;
+    }
+
+    @Override
+    public boolean contains(Object value) {
+        return indexOf(value) >= 0;
+    }
+
+    /**
+     * Check the string is the decimal form of a long, as given back by Long.toString()
+     */
+    private static boolean isCanonicalLong(String str) {
+        int len = str.length();
+        int start = (len > 0 && str.charAt(0) == '-') ? 1 : 0;
+        if (len == start || len - start > 19) {
+            return false;
+        }
+        if (str.charAt(start) == '0' && (len - start > 1 || start == 1)) {
+            return false;
+        }
+        for (int i = start; i < len; i++) {
+            char c = str.charAt(i);
+            if (c < '0' || c > '9') {
+                return false;
+            }
+        }
+        if (len - start == 19) {
+            try {
+                Long.parseLong(str);
+            }
+            catch (NumberFormatException e) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isLowerHex(String str) {
+        int len = str.length();
+        if (len % 2 != 0) {
+            return false;
+        }
+        for (int i = 0; i < len; i++) {
+            char c = str.charAt(i);
+            if ((c < '0' || c > '9') && (c < 'a' || c > 'f')) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int decodeHex(String str, byte[] bytes, int offset) {
+        for (int i = 0; i < str.length(); i += 2) {
+            bytes[offset++] = (byte) ((Character.digit(str.charAt(i), 16) << 4) | Character.digit(str.charAt(i + 1), 16));
+        }
+        return offset;
+    }
+
+    /**
+     * Integers in decimal form
+     */
+    private static class Longs extends CompactValues {
+
+        private final long[] values;
+        private final int size;
+
+        private Longs(long[] values, int size) {
+            this.values = values;
+            this.size = size;
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public String get(int index) {
+            if (index >= size) {
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+            }
+            return Long.toString(values[index]);
+        }
+
+        @Override
+        public int indexOf(String value, int from) {
+            if (!isCanonicalLong(value)) {
+                return -1;
+            }
+            long searched = Long.parseLong(value);
+            for (int i = Math.max(0, from); i < size; i++) {
+                if (values[i] == searched) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        @Override
+        public CompactValues subValues(int from, int to) {
+            return new Longs(Arrays.copyOfRange(values, from, to), to - from);
+        }
+
+        @Override
+        public CompactValues concat(CompactValues other) {
+            if (!(other instanceof Longs)) {
+                return null;
+            }
+            Longs longs = (Longs) other;
+            long[] array = Arrays.copyOf(values, size + longs.size);
+            System.arraycopy(longs.values, 0, array, size, longs.size);
+            return new Longs(array, array.length);
+        }
+    }
+
+    /**
+     * Lowercase hexadecimal values, stored as bytes
+     */
+    private static class Bytes extends CompactValues {
+
+        private final byte[] bytes;
+        private final int[] offsets;
+        private final int size;
+
+        private Bytes(byte[] bytes, int[] offsets, int size) {
+            this.bytes = bytes;
+            this.offsets = offsets;
+            this.size = size;
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public String get(int index) {
+            if (index >= size) {
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+            }
+            int start = offsets[index];
+            int end = offsets[index + 1];
+            char[] chars = new char[(end - start) * 2];
+            for (int i = start; i < end; i++) {
+                chars[(i - start) * 2] = HEX_DIGITS[(bytes[i] >> 4) & 0x0F];
+                chars[(i - start) * 2 + 1] = HEX_DIGITS[bytes[i] & 0x0F];
+            }
+            return new String(chars);
+        }
+
+        @Override
+        public int indexOf(String value, int from) {
+            if (!isLowerHex(value)) {
+                return -1;
+            }
+            byte[] searched = new byte[value.length() / 2];
+            decodeHex(value, searched, 0);
+            for (int i = Math.max(0, from); i < size; i++) {
+                int start = offsets[i];
+                if (offsets[i + 1] - start != searched.length) {
+                    continue;
+                }
+                int j = 0;
+                while (j < searched.length && bytes[start + j] == searched[j]) {
+                    j++;
+                }
+                if (j == searched.length) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        @Override
+        public CompactValues subValues(int from, int to) {
+            int[] subOffsets = new int[to - from + 1];
+            for (int i = from; i <= to; i++) {
+                subOffsets[i - from] = offsets[i] - offsets[from];
+            }
+            return new Bytes(Arrays.copyOfRange(bytes, offsets[from], offsets[to]), subOffsets, to - from);
+        }
+
+        @Override
+        public CompactValues concat(CompactValues other) {
+            if (!(other instanceof Bytes)) {
+                return null;
+            }
+            Bytes values = (Bytes) other;
+            int length = offsets[size];
+            byte[] array = Arrays.copyOf(bytes, length + values.offsets[values.size]);
+            System.arraycopy(values.bytes, 0, array, length, values.offsets[values.size]);
+            int[] newOffsets = Arrays.copyOf(offsets, size + values.size + 1);
+            for (int i = 0; i <= values.size; i++) {
+                newOffsets[size + i] = length + values.offsets[i];
+            }
+            return new Bytes(array, newOffsets, size + values.size);
+        }
+    }
+
+    /**
+     * Any strings, stored in a single array of ISO-8859-1 bytes when possible,
+     * of characters otherwise
+     */
+    private static class Strings extends CompactValues {
+
+        private final byte[] latin1;
+        private final char[] chars;
+        private final int[] offsets;
+        private final int size;
+
+        private Strings(byte[] latin1, char[] chars, int[] offsets, int size) {
+            this.latin1 = latin1;
+            this.chars = chars;
+            this.offsets = offsets;
+            this.size = size;
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public String get(int index) {
+            if (index >= size) {
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+            }
+            int start = offsets[index];
+            int end = offsets[index + 1];
+            if (latin1 == null) {
+                return new String(chars, start, end - start);
+            }
+            char[] value = new char[end - start];
+            for (int i = start; i < end; i++) {
+                value[i - start] = (char) (latin1[i] & 0xFF);
+            }
+            return new String(value);
+        }
+
+        @Override
+        public CharSequence getCharSequence(int index) {
+            if (index >= size) {
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+            }
+            if (latin1 == null) {
+                return CharBuffer.wrap(chars, offsets[index], offsets[index + 1] - offsets[index]);
+            }
+            return new Latin1Sequence(latin1, offsets[index], offsets[index + 1]);
+        }
+
+        @Override
+        public int indexOf(String value, int from) {
+            int len = value.length();
+            for (int i = Math.max(0, from); i < size; i++) {
+                int start = offsets[i];
+                if (offsets[i + 1] - start != len) {
+                    continue;
+                }
+                int j = 0;
+                if (latin1 == null) {
+                    while (j < len && chars[start + j] == value.charAt(j)) {
+                        j++;
+                    }
+                }
+                else {
+                    while (j < len && (char) (latin1[start + j] & 0xFF) == value.charAt(j)) {
+                        j++;
+                    }
+                }
+                if (j == len) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        @Override
+        public CompactValues subValues(int from, int to) {
+            int[] subOffsets = new int[to - from + 1];
+            for (int i = from; i <= to; i++) {
+                subOffsets[i - from] = offsets[i] - offsets[from];
+            }
+            if (latin1 == null) {
+                return new Strings(null, Arrays.copyOfRange(chars, offsets[from], offsets[to]), subOffsets, to - from);
+            }
+            return new Strings(Arrays.copyOfRange(latin1, offsets[from], offsets[to]), null, subOffsets, to - from);
+        }
+
+        @Override
+        public CompactValues concat(CompactValues other) {
+            if (!(other instanceof Strings) || (latin1 == null) != (((Strings) other).latin1 == null)) {
+                return null;
+            }
+            Strings values = (Strings) other;
+            int length = offsets[size];
+            int otherLength = values.offsets[values.size];
+            byte[] newLatin1 = null;
+            char[] newChars = null;
+            if (latin1 == null) {
+                newChars = Arrays.copyOf(chars, length + otherLength);
+                System.arraycopy(values.chars, 0, newChars, length, otherLength);
+            }
+            else {
+                newLatin1 = Arrays.copyOf(latin1, length + otherLength);
+                System.arraycopy(values.latin1, 0, newLatin1, length, otherLength);
+            }
+            int[] newOffsets = Arrays.copyOf(offsets, size + values.size + 1);
+            for (int i = 0; i <= values.size; i++) {
+                newOffsets[size + i] = length + values.offsets[i];
+            }
+            return new Strings(newLatin1, newChars, newOffsets, size + values.size);
+        }
+    }
+
+    /**
+     * View of ISO-8859-1 bytes as characters
+     */
+    private static class Latin1Sequence implements CharSequence {
+
+        private final byte[] bytes;
+        private final int start;
+        private final int end;
+
+        private Latin1Sequence(byte[] bytes, int start, int end) {
+            this.bytes = bytes;
+            this.start = start;
+            this.end = end;
+        }
+
+        public int length() {
+            return end - start;
+        }
+
+        public char charAt(int index) {
+            if (index < 0 || index >= end - start) {
+                throw new IndexOutOfBoundsException("Index: " + index + ", Length: " + (end - start));
+            }
+            return (char) (bytes[start + index] & 0xFF);
+        }
+
+        public CharSequence subSequence(int from, int to) {
+            if (from < 0 || to > end - start || from > to) {
+                throw new IndexOutOfBoundsException("Range: [" + from + ", " + to + "[, Length: " + (end - start));
+            }
+            return new Latin1Sequence(bytes, start + from, start + to);
+        }
+
+        @Override
+        public String toString() {
+            char[] value = new char[end - start];
+            for (int i = start; i < end; i++) {
+                value[i - start] = (char) (bytes[i] & 0xFF);
+            }
+            return new String(value);
+        }
+    }
+}
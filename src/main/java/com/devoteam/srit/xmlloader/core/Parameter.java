@@ -26,12 +26,15 @@ package com.devoteam.srit.xmlloader.core;
 import com.devoteam.srit.xmlloader.core.exception.ParameterException;
 import com.devoteam.srit.xmlloader.core.log.GenericLogger;
 import com.devoteam.srit.xmlloader.core.utils.Config;
+import com.devoteam.srit.xmlloader.core.utils.DocumentCache;
+import com.devoteam.srit.xmlloader.core.utils.XPathCache;
 import com.devoteam.srit.xmlloader.core.utils.XMLLoaderEntityResolver;
 import com.devoteam.srit.xmlloader.core.coding.text.Header;
 
 import java.io.ByteArrayInputStream;
 import java.io.InputStream;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.Vector;
 import java.util.regex.Matcher;
@@ -56,8 +59,19 @@ public class Parameter {
     public static Pattern pattern = Pattern.compile(EXPRESSION);
     private static Matcher matcher = pattern.matcher("");
 
-    private Vector<Object> array;
+    private static final Pattern NS_BEGIN_PATTERN = Pattern.compile("<[a-zA-Z\\.0-9_]+:");
+    private static final Pattern NS_END_PATTERN = Pattern.compile("</[a-zA-Z\\.0-9_]+:");
+    private static final Pattern DOCTYPE_PATTERN = Pattern.compile("<!DOCTYPE\\s+\\w+\\s+\\w+\\s+[^>]+>");
+
+    /** parsed documents of applyXPath() by source text */
+    private static final DocumentCache XML_DOCUMENTS = new DocumentCache();
+    private static final DocumentCache XML_DOCUMENTS_NO_NS = new DocumentCache();
+
+    /** values of the parameter : a vector, or a compact and immutable list */
+    private volatile List<Object> array;
     private long version;
+    /** the array is also used by another parameter : it is copied before the first modification */
+    private volatile boolean shared;
 
     public synchronized static boolean containsParameter(String value) {
         matcher.reset(value);
@@ -102,6 +116,11 @@ public class Parameter {
         this.array = values;
     }
 
+    /** Creates a new instance of Parameter with values in compact form */
+    public Parameter(CompactValues values) {
+        this.array = values;
+    }
+
     /** Creates a new instance of Parameter */
     public Parameter(String name) {
         this();
@@ -110,14 +129,14 @@ public class Parameter {
     public void add(Object value) {
         modified();
         if (null != value) {
-            array.add(value);
+            detach().add(value);
         }
     }
 
     public void add(Object value, int index) {
         modified();
         if (null != value) {
-            array.add(index, value);
+            detach().add(index, value);
         }
     }
 
@@ -174,6 +193,34 @@ public class Parameter {
     }
 
     public void applyXPath(String xml, String xpath, boolean deleteNS) throws Exception
+    {
+		// the same body is often queried several times : parse it only once
+		DocumentCache documents = deleteNS ? XML_DOCUMENTS_NO_NS : XML_DOCUMENTS;
+		Document document = (Document) documents.get(xml);
+		if (document == null)
+		{
+			document = parseXML(xml, deleteNS);
+			documents.put(xml, document);
+		}
+
+	    XPath xpathObject = XPathCache.getContextXPath(xpath);
+	    Object obj = xpathObject.evaluate(document.getRootElement());
+	
+	    if (obj instanceof List)
+	    {
+	        List<Node> list = (List<Node>) obj;
+	        for (Node node : list)
+	        {
+	        	addObject(node);
+	        }
+	    }
+	    else 
+	    {
+	    	addObject(obj);
+	    }
+    }
+
+    private static Document parseXML(String xml, boolean deleteNS) throws Exception
     {
 		// remove beginning to '<' character
 		int iPosBegin = xml.indexOf('<');
@@ -198,32 +245,16 @@ public class Parameter {
 		// remove the namespace because the parser does not support them if there are not declare in the root node
 		if (deleteNS)
 		{
-			xml = xml.replaceAll("<[a-zA-Z\\.0-9_]+:", "<");
-			xml = xml.replaceAll("</[a-zA-Z\\.0-9_]+:", "</");
+			xml = NS_BEGIN_PATTERN.matcher(xml).replaceAll("<");
+			xml = NS_END_PATTERN.matcher(xml).replaceAll("</");
 		}
 		// remove doctype information (dtd files for the XML syntax)
-		xml = xml.replaceAll("<!DOCTYPE\\s+\\w+\\s+\\w+\\s+[^>]+>", "");
+		xml = DOCTYPE_PATTERN.matcher(xml).replaceAll("");
 		
 		InputStream input = new ByteArrayInputStream(xml.getBytes());
 	    SAXReader reader = new SAXReader(false);
 	    reader.setEntityResolver(new XMLLoaderEntityResolver());
-	    Document document = reader.read(input);
-	    
-	    XPath xpathObject = document.createXPath(xpath);
-	    Object obj = xpathObject.evaluate(document.getRootElement());
-	
-	    if (obj instanceof List)
-	    {
-	        List<Node> list = (List<Node>) obj;
-	        for (Node node : list)
-	        {
-	        	addObject(node);
-	        }
-	    }
-	    else 
-	    {
-	    	addObject(obj);
-	    }
+	    return reader.read(input);
     }
     
     public void addObject(Object obj) 
@@ -257,17 +288,76 @@ public class Parameter {
         }
     }
 
+    /**
+     * Add all the values of another parameter
+     */
+    public void addAll(Parameter parameter) {
+        modified();
+        List<Object> values = array;
+        List<Object> otherValues = parameter.array;
+        if (otherValues instanceof CompactValues) {
+            // the compact values are immutable : use them or concatenate them without conversion
+            if (values.isEmpty()) {
+                array = otherValues;
+                shared = false;
+                return;
+            }
+            if (values instanceof CompactValues) {
+                CompactValues concat = ((CompactValues) values).concat((CompactValues) otherValues);
+                if (concat != null) {
+                    array = concat;
+                    return;
+                }
+            }
+        }
+        detach().addAll(otherValues);
+    }
+
     public Object remove(int index) {
         modified();
-        return array.remove(index);
+        return detach().remove(index);
     }
 
     public Object get(int index) throws ParameterException {
-        if (index < array.size()) {
-            return array.get(new Integer(index));
+        List<Object> values = array;
+        if (index < values.size()) {
+            return values.get(index);
         }
 
-        throw new ParameterException("Can't get element of index " + index + " in array of length " + array.size());
+        throw new ParameterException("Can't get element of index " + index + " in array of length " + values.size());
+    }
+
+    /**
+     * Get the value at the given index as a character sequence; for the values
+     * in compact form, no string is built
+     */
+    public CharSequence getCharSequence(int index) throws ParameterException {
+        List<Object> values = array;
+        if (index >= values.size()) {
+            throw new ParameterException("Can't get element of index " + index + " in array of length " + values.size());
+        }
+        if (values instanceof CompactValues) {
+            return ((CompactValues) values).getCharSequence(index);
+        }
+        return values.get(index).toString();
+    }
+
+    /**
+     * Get the index of the first value equal to the given string from the
+     * given index, or -1; for the values in compact form, no string is built
+     */
+    public int indexOf(String value, int from) {
+        List<Object> values = array;
+        if (values instanceof CompactValues) {
+            return ((CompactValues) values).indexOf(value, from);
+        }
+        int len = values.size();
+        for (int i = Math.max(0, from); i < len; i++) {
+            if (value.equals(values.get(i).toString())) {
+                return i;
+            }
+        }
+        return -1;
     }
 
     public void set(int index, Object value) throws Exception {
@@ -278,7 +368,7 @@ public class Parameter {
         else {
         	
             if (null != value) {
-                array.set(index, value);
+                detach().set(index, value);
             }
         }
     }
@@ -411,8 +501,87 @@ public class Parameter {
 	    }	    
     }
     
+    /**
+     * Get a new parameter with the values from index from (inclusive) to
+     * index to (exclusive), copied in a single pass
+     */
+    public Parameter subParameter(int from, int to) {
+        List<Object> values = array;
+        if (values instanceof CompactValues) {
+            return new Parameter(((CompactValues) values).subValues(from, to));
+        }
+        return new Parameter(new Vector<Object>(values.subList(from, to)));
+    }
+
+    /**
+     * Get a copy of this parameter; both parameters use the same values
+     * until one of them is modified (copy-on-write)
+     */
+    public Parameter share() {
+        List<Object> values = array;
+        if (values instanceof CompactValues) {
+            return new Parameter((CompactValues) values);
+        }
+        Parameter copy = new Parameter((Vector<Object>) values);
+        this.shared = true;
+        copy.shared = true;
+        return copy;
+    }
+
+    /**
+     * Store the values in compact form if the list is large enough and holds
+     * only strings (see CompactValues); the first modification converts them
+     * back into a vector
+     */
+    public void compact() {
+        List<Object> values = array;
+        int minSize = CompactValues.getMinSize();
+        if (values instanceof Vector && minSize > 0 && values.size() >= minSize) {
+            CompactValues compactValues = CompactValues.of(values);
+            if (compactValues != null) {
+                array = compactValues;
+                shared = false;
+            }
+        }
+    }
+
+    /**
+     * Get the values of the parameter for reading : they are neither copied
+     * nor converted, and the list cannot be modified
+     */
+    public List<Object> getValues() {
+        List<Object> values = array;
+        if (values instanceof CompactValues) {
+            return values;
+        }
+        return Collections.unmodifiableList(values);
+    }
+
+    /**
+     * Get the values of the parameter for modification; the values shared with
+     * other parameters or in compact form are copied first so the vector must
+     * not be kept. Use getValues() to only read them.
+     */
     public Vector<Object> getArray() {
-        return array;
+        return detach();
+    }
+
+    /**
+     * Use a private vector of the values before modifying them
+     */
+    private Vector<Object> detach() {
+        List<Object> values = array;
+        if (shared || !(values instanceof Vector)) {
+            synchronized (this) {
+                values = array;
+                if (shared || !(values instanceof Vector)) {
+                    values = new Vector<Object>(values);
+                    array = values;
+                    shared = false;
+                }
+            }
+        }
+        return (Vector<Object>) values;
     }
 
     private void modified(){
@@ -26,8 +26,10 @@ package com.devoteam.srit.xmlloader.core;
 import com.devoteam.srit.xmlloader.core.exception.ParsingException;
 import com.devoteam.srit.xmlloader.core.utils.Config;
 import com.devoteam.srit.xmlloader.core.utils.DateUtils;
+import com.devoteam.srit.xmlloader.core.utils.RandomGenerator;
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Random;
 import java.util.Vector;
 import org.dom4j.Element;
 
@@ -56,6 +58,12 @@ public class RunProfile implements Cloneable, Serializable
 
     private boolean nothingToDo = false;
 
+    // the delays between the starts are random (exponential distribution)
+    private boolean poisson = false;
+
+    // the frequency is kept until the next step instead of going linearly to it
+    private boolean step = false;
+
     /**
      * Parsing from an XML root.
      *   each "set" element must contain:
@@ -82,6 +90,34 @@ public class RunProfile implements Cloneable, Serializable
         this.points = new ArrayList();
         this.profilePeriod = PROFILE_INF;
 
+        String arrival = root.attributeValue("arrival");
+        if(null == arrival || arrival.equalsIgnoreCase("periodic"))
+        {
+            this.poisson = false;
+        }
+        else if(arrival.equalsIgnoreCase("poisson"))
+        {
+            this.poisson = true;
+        }
+        else
+        {
+            throw new ParsingException("arrival attribute of <runProfile> should be periodic or poisson, not " + arrival);
+        }
+
+        String shape = root.attributeValue("shape");
+        if(null == shape || shape.equalsIgnoreCase("ramp"))
+        {
+            this.step = false;
+        }
+        else if(shape.equalsIgnoreCase("step"))
+        {
+            this.step = true;
+        }
+        else
+        {
+            throw new ParsingException("shape attribute of <runProfile> should be ramp or step, not " + shape);
+        }
+
         Element start = root.element("start");
         if(null != start)
         {
@@ -307,14 +343,29 @@ public class RunProfile implements Cloneable, Serializable
         double currentDateDelta = computingDate - currentPoint.date;
         double completeFrequenceDelta = nextPoint.frequency - currentPoint.frequency;
 
-        double currentDelayDelta = 1000 / (currentPoint.frequency + completeFrequenceDelta * currentDateDelta / completeDateDelta);
+        double currentDelayDelta;
+        if(this.step)
+        {
+            currentDelayDelta = 1000 / currentPoint.frequency;
+        }
+        else
+        {
+            currentDelayDelta = 1000 / (currentPoint.frequency + completeFrequenceDelta * currentDateDelta / completeDateDelta);
+        }
+
+        if(this.poisson)
+        {
+            // Poisson process : exponential delay with the same mean
+            Random random = (null != context.random) ? context.random : RandomGenerator.current();
+            currentDelayDelta *= -Math.log(1 - random.nextDouble());
+        }
 
 
         Point point = points.get((context.currentPointIndex + 1) % this.profileSize);
 
         double nextDate = (point.date > computingDate) ? point.date : point.date + this.profilePeriod;
 
-        if(currentPoint.frequency < 1 && point.frequency > 1)
+        if(!this.step && currentPoint.frequency < 1 && point.frequency > 1)
         {
             double nextDateCandidate = Math.round(currentPoint.date + (nextDate - currentPoint.date) / (point.frequency - currentPoint.frequency));
             if(nextDateCandidate < nextDate) nextDate = nextDateCandidate;
@@ -329,6 +380,65 @@ public class RunProfile implements Cloneable, Serializable
         return date;
     }
 
+    /**
+     * Get the number of starts of the profile between the two dates (in
+     * milliseconds), computed from the frequencies of the steps : the mean
+     * number for the poisson arrivals. The context is not changed. Return 0
+     * if the profile has an infinite frequency.
+     */
+    synchronized public long getStartNumber(double from, double to, RunProfileContext context)
+    {
+        double start = this.getStartTime(context);
+        from = Math.max(from, start) - start;
+        to = to - start;
+        if(to <= from)
+        {
+            return 0;
+        }
+        for(Point point : this.points)
+        {
+            if(point.frequency == PROFILE_INF)
+            {
+                return 0;
+            }
+        }
+
+        double periodNumber = this.getPeriodStartNumber(this.profilePeriod);
+        double number = this.getCumulatedStartNumber(to, periodNumber) - this.getCumulatedStartNumber(from, periodNumber);
+        return Math.max(0, Math.round(number));
+    }
+
+    /**
+     * Get the number of starts from the start of the profile to the given date
+     */
+    private double getCumulatedStartNumber(double date, double periodNumber)
+    {
+        double periods = Math.floor(date / this.profilePeriod);
+        return periods * periodNumber + this.getPeriodStartNumber(date - periods * this.profilePeriod);
+    }
+
+    /**
+     * Get the number of starts from the start of the period to the given date
+     * of the period : integral of the frequency (linear or constant between two steps)
+     */
+    private double getPeriodStartNumber(double date)
+    {
+        double number = 0;
+        for(int i = 0; i + 1 < this.profileSize && this.points.get(i).date < date; i++)
+        {
+            Point currentPoint = this.points.get(i);
+            Point nextPoint = this.points.get(i + 1);
+            double endDate = Math.min(date, nextPoint.date);
+            double endFrequency = currentPoint.frequency;
+            if(!this.step)
+            {
+                endFrequency += (nextPoint.frequency - currentPoint.frequency) * (endDate - currentPoint.date) / (nextPoint.date - currentPoint.date);
+            }
+            number += (endDate - currentPoint.date) / 1000 * (currentPoint.frequency + endFrequency) / 2;
+        }
+        return number;
+    }
+
     synchronized public void add(double freq){
 
         for(Point point:this.points){
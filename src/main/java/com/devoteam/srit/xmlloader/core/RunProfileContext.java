@@ -24,6 +24,7 @@
 package com.devoteam.srit.xmlloader.core;
 
 import java.io.Serializable;
+import java.util.Random;
 
 /**
  *
@@ -36,4 +37,7 @@ public class RunProfileContext implements Serializable
     public long startTime;
 
     public long endTime;
+
+    /** generator of the random delays (Poisson), the one of the testcase runner */
+    public transient Random random;
 }
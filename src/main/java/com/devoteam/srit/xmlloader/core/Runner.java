@@ -24,8 +24,10 @@
 package com.devoteam.srit.xmlloader.core;
 
 import com.devoteam.srit.xmlloader.core.log.TextListenerKey;
+import com.devoteam.srit.xmlloader.core.utils.RandomGenerator;
 
 import gp.utils.scheduler.Scheduler;
+import java.util.Random;
 
 /**
  *
@@ -37,6 +39,7 @@ public class Runner implements TextListenerKey {
     private RunnerState _state;
     private ParameterPool _variables;
     private String _name;
+    private Random _random;
 
     public Runner(String name) {
         resetState();
@@ -62,6 +65,24 @@ public class Runner implements TextListenerKey {
         _state = new RunnerState();
     }
 
+    /**
+     * Get the random generator of the runner (created on first use)
+     */
+    final public Random getRandom() {
+        if (null == _random) {
+            _random = RandomGenerator.newRandom(getRandomName());
+        }
+        return _random;
+    }
+
+    /**
+     * Get the name the random generator is seeded from (when a seed is configured);
+     * it must be unique among the runners of the test and the same at each run
+     */
+    protected String getRandomName() {
+        return _name;
+    }
+
     final public ParameterPool getParameterPool() {
         return _variables;
     }
@@ -144,9 +144,48 @@ public class Scenario implements Serializable {
             Element finallyRoot = root.element("finally");
             root.remove(finallyRoot);
             this._operationSequenceFinally = new OperationSequence(finallyRoot, this);
+            checkLabels(finallyRoot);
         }
 
         _operationSequenceScenario = new OperationSequence(root, this);
+        checkLabels(root);
+    }
+
+    /**
+     * Check that the target label of each goto (when it does not contain parameters)
+     * is defined in one of the sequences enclosing the goto. The goto inside a function
+     * are not checked as they may branch to a label of the calling scenario.
+     */
+    private void checkLabels(Element root) throws Exception {
+        for (Object object : root.selectNodes(".//goto")) {
+            Element gotoElement = (Element) object;
+            String label = gotoElement.attributeValue("label");
+            if (null == label || Parameter.containsParameter(label)) {
+                continue;
+            }
+
+            boolean found = false;
+            Element sequence = gotoElement.getParent();
+            while (!found && null != sequence) {
+                if (sequence.getName().equals("function")) {
+                    found = true;
+                    break;
+                }
+                for (Element element : (List<Element>) sequence.elements("label")) {
+                    String name = element.attributeValue("name");
+                    // the names containing parameters are only known at run time
+                    if (label.equals(name) || (null != name && Parameter.containsParameter(name))) {
+                        found = true;
+                        break;
+                    }
+                }
+                sequence = (sequence == root) ? null : sequence.getParent();
+            }
+
+            if (!found) {
+                throw new ParsingException("Could not find label \"" + label + "\" for the operation:\n" + gotoElement.asXML());
+            }
+        }
     }
 
     /**
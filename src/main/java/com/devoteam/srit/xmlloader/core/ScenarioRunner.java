@@ -359,6 +359,16 @@ public class ScenarioRunner extends Runner
     public ScenarioReference getScenarioReference() {
         return _scenario;
     }
+
+    @Override
+    protected String getRandomName() {
+        Testcase testcase = _scenario.getTestcase();
+        if (null == testcase) {
+            return super.getRandomName();
+        }
+        // the scenarios of a testcase may have the same name
+        return _scenario.getId() + "#" + testcase.getIndex() + "#" + testcase.getChildren().indexOf(_scenario);
+    }
     
     public boolean getScenarioState() {
         return _scenario.getState();
@@ -246,6 +246,11 @@ public class Testcase implements HierarchyMember<Test, ScenarioReference>, Seria
         _runId = runId;
     }
 
+    /** position of the testcase in the test */
+    public int getIndex() {
+        return _index;
+    }
+
     public synchronized void setNumber(int value){
         _number = value;
     }
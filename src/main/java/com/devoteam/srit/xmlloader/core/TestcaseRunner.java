@@ -30,6 +30,7 @@ import com.devoteam.srit.xmlloader.core.newstats.StatPool;
 import com.devoteam.srit.xmlloader.core.newstats.StatPoolReset;
 import com.devoteam.srit.xmlloader.core.protocol.DispatcherMsg;
 import com.devoteam.srit.xmlloader.core.utils.Config;
+import com.devoteam.srit.xmlloader.core.utils.PacingWheel;
 import com.devoteam.srit.xmlloader.core.utils.hierarchy.DefaultHierarchyMember;
 import com.devoteam.srit.xmlloader.core.utils.hierarchy.HierarchyMember;
 import com.devoteam.srit.xmlloader.core.utils.notifications.DefaultNotificationSender;
@@ -37,6 +38,7 @@ import com.devoteam.srit.xmlloader.core.utils.notifications.Notification;
 import com.devoteam.srit.xmlloader.core.utils.notifications.NotificationListener;
 import com.devoteam.srit.xmlloader.core.utils.notifications.NotificationSender;
 import gp.utils.scheduler.Task;
+import java.util.ArrayDeque;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map.Entry;
@@ -50,6 +52,9 @@ public class TestcaseRunner extends Runner implements Task,
         NotificationSender<Notification<String, RunnerState>>,
         NotificationListener<Notification<String, RunnerState>> {
 
+    /** paces the arrivals of the testcases of all the tests in load mode */
+    private static final PacingWheel ARRIVAL_WHEEL = new PacingWheel("arrivals", 1000000, null);
+
     private DefaultHierarchyMember<TestRunner, ScenarioRunner> defaultHierarchyMember;
 
     public TestRunner getParent() {
@@ -141,6 +146,23 @@ public class TestcaseRunner extends Runner implements Task,
     private long start_timestamp_stats;
     private RunProfile _profile;
     private RunProfileContext _context;
+    // load mode : the starts are due at the arrivals of the run profile (open loop)
+    private boolean _executing;
+    private PacingWheel.Timeout _arrivalTimeout;
+    // the arrivals come while the previous execution runs : they are started when it ends
+    private ArrayDeque<Double> _pendingStarts = new ArrayDeque<Double>();
+    // infinite frequency : the next arrival is at the end of the execution
+    private boolean _arrivalOnEnd;
+    private boolean _arrivalsEnded;
+    private long _arrivalNumber;
+    private double _startDueDate;
+    private long _nanoBase;
+    private long _millisBase;
+    private final Runnable _arrival = new Runnable() {
+        public void run() {
+            onArrival();
+        }
+    };
     // legacy semaphores pool
     private Semaphores semaphores;
 
@@ -243,6 +265,11 @@ public class TestcaseRunner extends Runner implements Task,
 
     public void reset() {
         _stopped = false;
+        synchronized (this) {
+            cancelArrival();
+            _pendingStarts.clear();
+            _executing = false;
+        }
         _states.clear();
         resetState();
         for (ScenarioRunner runner : getChildren()) {
@@ -263,6 +290,7 @@ public class TestcaseRunner extends Runner implements Task,
              */
             _profile = _testcase.getProfile();
             _context = _profile.createContext();
+            _context.random = getRandom();
 
             getState()._executionsCurrent = 0;
             getState()._executionsEnd = Math.max(1, _testcase.getNumber());
@@ -301,6 +329,7 @@ public class TestcaseRunner extends Runner implements Task,
              */
             _profile = _testcase.getProfile();
             _context = _profile.createContext();
+            _context.random = getRandom();
             init();
 
             getState()._executionsCurrent = 0;
@@ -315,6 +344,13 @@ public class TestcaseRunner extends Runner implements Task,
             }
 
             theoricalTimestamp = _profile.getStartTime(this._context);
+            _nanoBase = System.nanoTime();
+            _millisBase = System.currentTimeMillis();
+            _executing = false;
+            _pendingStarts.clear();
+            _arrivalOnEnd = false;
+            _arrivalsEnded = false;
+            _arrivalNumber = 0;
 
             _startedLoad = true;
             _startedSingle = false;
@@ -327,8 +363,7 @@ public class TestcaseRunner extends Runner implements Task,
             else {
                 doNotifyAll();
                 synchronized (this) {
-                    _scheduled = true;
-                    _scheduler.scheduleAt(this, (long) Math.round(theoricalTimestamp));
+                    scheduleArrival();
                 }
             }
         }
@@ -347,6 +382,7 @@ public class TestcaseRunner extends Runner implements Task,
     @Override
     public synchronized void execute() {
         _scheduled = false;
+        _executing = true;
         _testcase.incRunId();
         start_timestamp_stats = System.currentTimeMillis();
 
@@ -373,6 +409,12 @@ public class TestcaseRunner extends Runner implements Task,
         StatPool.getInstance().addValue(new StatKey(StatPool.PREFIX_TESTCASE, this._testcase.getName(), "_name"), this._testcase.getName());
         StatPool.getInstance().addValue(new StatKey(StatPool.PREFIX_TESTCASE, this._testcase.getName(), "_description"), this._testcase.attributeValue("description"));
         StatPool.getInstance().addValue(new StatKey(StatPool.PREFIX_TESTCASE, this._testcase.getName(), "_startNumber"), 1);
+
+        if (_startedLoad) {
+            // offered load : the start was due at the theorical date of the run profile
+            double delay = Math.max(0, start_timestamp_stats - _startDueDate) / 1000.0;
+            StatPool.getInstance().addValue(new StatKey(StatPool.PREFIX_TESTCASE, this._testcase.getName(), "_startDelay"), delay);
+        }
     }
 
     /**
@@ -387,10 +429,14 @@ public class TestcaseRunner extends Runner implements Task,
             }
 
             if (_startedLoad) {
-                // if necessary, unschedule
-                // in any case, schedule to NOW for the scenario to stop as INTERUPTED
-                if (_scheduled) {
-                    _scheduler.unschedule(this);
+                cancelArrival();
+                _pendingStarts.clear();
+                // if waiting for the next arrival or scheduled, execute NOW
+                // for the scenario to stop as INTERUPTED
+                if (!_executing) {
+                    if (_scheduled) {
+                        _scheduler.unschedule(this);
+                    }
                     _scheduled = true;
                     _scheduler.execute(this, false);
                 }
@@ -460,38 +506,21 @@ public class TestcaseRunner extends Runner implements Task,
         }
 
 
-        // schedule the next start of this testcase.
+        // start the arrivals which came during the execution
         if (!ended && _startedLoad) {
-            // if started load mode, compute next run date according to run profile
-            long now = System.currentTimeMillis();
-
-            if (max_latency != 0 && this.theoricalTimestamp < now - max_latency) {
-                this.theoricalTimestamp = now - max_latency;
-            }
-
-
-            double nextTheoricalTimestamp = this._profile.getNextDate(this.theoricalTimestamp, _context);
-
-            if (RunProfile.PROFILE_INF == nextTheoricalTimestamp) {
-                theoricalTimestamp = now;
-            }
-            else {
-                theoricalTimestamp = nextTheoricalTimestamp;
-            }
-
-            // FIX: Check if the next start date is past the end date, if it is the case, end the test
-            if (this._profile.getEndTime(_context) > 0 && theoricalTimestamp > this._profile.getEndTime(_context)) {
-                ended = true;
-            }
-            else {
-                synchronized (this) {
-                    _scheduled = true;
-                    if (theoricalTimestamp > now) {
-                        _scheduler.scheduleAt(this, (long) Math.round(theoricalTimestamp));
-                    }
-                    else {
-                        _scheduler.execute(this, false);
-                    }
+            synchronized (this) {
+                _executing = false;
+                skipLatePendingStarts(current_time);
+                if (!_pendingStarts.isEmpty()) {
+                    startNow(_pendingStarts.poll());
+                }
+                else if (_arrivalOnEnd) {
+                    _arrivalOnEnd = false;
+                    theoricalTimestamp = current_time;
+                    onArrival();
+                }
+                else if (_arrivalsEnded) {
+                    ended = true;
                 }
             }
         }
@@ -507,15 +536,125 @@ public class TestcaseRunner extends Runner implements Task,
         if (ended) {
             GlobalLogger.instance().getApplicationLogger().debug(TextEvent.Topic.CORE, "TestcaseRunner ended");
 
+            if (_startedLoad) {
+                synchronized (this) {
+                    cancelArrival();
+                    _pendingStarts.clear();
+                }
+            }
+
             // Legacy: release the semaphore to free thread that could be waiting this testcase to finish.
             getState().setFlag(RunnerState.F_FINISHED, true);
         }
     }
 
+    /**
+     * Load mode : an arrival of the run profile is due (theoricalTimestamp).
+     * The testcase is started if it is idle, otherwise the start waits for the
+     * end of the current execution. Then the next arrival is scheduled : the
+     * arrivals follow the run profile whatever the duration of the executions.
+     */
+    private synchronized void onArrival() {
+        _arrivalTimeout = null;
+        if (_stopped || _arrivalsEnded || getState().isFinished()) {
+            return;
+        }
+        _arrivalNumber++;
+        StatPool.getInstance().addValue(new StatKey(StatPool.PREFIX_TESTCASE, _testcase.getName(), "_offeredNumber"), 1);
+        if (!_executing && !_scheduled) {
+            startNow(theoricalTimestamp);
+        }
+        else {
+            _pendingStarts.add(theoricalTimestamp);
+        }
+
+        long now = System.currentTimeMillis();
+        if (max_latency != 0 && theoricalTimestamp < now - max_latency) {
+            // the arrivals are late (the JVM has been paused) : the ones due more
+            // than max_latency ago are skipped and recorded
+            long missed = _profile.getStartNumber(theoricalTimestamp, now - max_latency, _context);
+            StatPool.getInstance().addValue(new StatKey(StatPool.PREFIX_TESTCASE, _testcase.getName(), "_offeredNumber"), missed);
+            addMissedStarts(missed);
+            _arrivalNumber += missed;
+            theoricalTimestamp = now - max_latency;
+        }
+
+        if (getState()._executionsEnd > 0 && _arrivalNumber >= getState()._executionsEnd) {
+            _arrivalsEnded = true;
+            return;
+        }
+
+        double nextTheoricalTimestamp = _profile.getNextDate(theoricalTimestamp, _context);
+        if (RunProfile.PROFILE_INF == nextTheoricalTimestamp) {
+            // no pacing : the next arrival is at the end of this execution
+            _arrivalOnEnd = true;
+            return;
+        }
+        theoricalTimestamp = nextTheoricalTimestamp;
+
+        // Check if the next start date is past the end date, if it is the case, end the test
+        if (_profile.getEndTime(_context) > 0 && theoricalTimestamp > _profile.getEndTime(_context)) {
+            _arrivalsEnded = true;
+            return;
+        }
+        scheduleArrival();
+    }
+
+    /**
+     * Schedule the arrival due at theoricalTimestamp on the arrival wheel
+     */
+    private void scheduleArrival() {
+        long deadline = _nanoBase + (long) ((theoricalTimestamp - _millisBase) * 1000000);
+        _arrivalTimeout = ARRIVAL_WHEEL.scheduleAt(_arrival, deadline);
+    }
+
+    private void cancelArrival() {
+        if (null != _arrivalTimeout) {
+            _arrivalTimeout.cancel();
+            _arrivalTimeout = null;
+        }
+    }
+
+    /**
+     * Start an execution of the testcase due at the given date
+     */
+    private void startNow(double dueDate) {
+        _startDueDate = dueDate;
+        _scheduled = true;
+        _scheduler.execute(this, false);
+    }
+
+    /**
+     * Drop the waiting starts due more than max_latency ago and record them
+     */
+    private void skipLatePendingStarts(long now) {
+        if (max_latency == 0) {
+            return;
+        }
+        long missed = 0;
+        while (!_pendingStarts.isEmpty() && _pendingStarts.peek() < now - max_latency) {
+            _pendingStarts.poll();
+            missed++;
+        }
+        addMissedStarts(missed);
+    }
+
+    private void addMissedStarts(long missed) {
+        if (missed > 0) {
+            StatPool.getInstance().addValue(new StatKey(StatPool.PREFIX_TESTCASE, _testcase.getName(), "_missedNumber"), missed);
+            GlobalLogger.instance().getApplicationLogger().debug(TextEvent.Topic.CORE, "TestcaseRunner late, skipped ", missed, " starts of the testcase ", _testcase.getName());
+        }
+    }
+
     public Testcase getTestcase() {
         return _testcase;
     }
 
+    @Override
+    protected String getRandomName() {
+        return _testcase.getId() + "#" + _testcase.getIndex();
+    }
+
     public Semaphores getSemaphores() {
         return semaphores;
     }
@@ -161,7 +161,7 @@ public class Dictionary
         return elementsMapByLabel.get(label);
     }
 
-    public void addElement(ElementAbstract elemInfo) 
+    public void addElement(ElementAbstract elemInfo) throws Exception
     {
         String eltLabel = elemInfo.getLabel();
         if (eltLabel != null)
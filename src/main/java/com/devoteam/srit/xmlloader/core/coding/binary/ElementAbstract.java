@@ -36,6 +36,8 @@ import com.devoteam.srit.xmlloader.core.coding.binary.eap.ElementEAPLengthBit;
 import com.devoteam.srit.xmlloader.core.coding.binary.q931.ElementQ931;
 import com.devoteam.srit.xmlloader.core.exception.ExecutionException;
 import com.devoteam.srit.xmlloader.core.log.GlobalLogger;
+import com.devoteam.srit.xmlloader.core.log.TextEvent;
+import com.devoteam.srit.xmlloader.core.utils.ConfigCache;
 import com.devoteam.srit.xmlloader.core.utils.Utils;
 import com.devoteam.srit.xmlloader.gtp.data.ElementTL1V;
 import com.devoteam.srit.xmlloader.gtp.data.ElementTLIV;
@@ -63,6 +65,12 @@ import org.dom4j.Element;
  */
 public abstract class ElementAbstract implements Cloneable
 {
+	/** 
+	 * lazy decoding mode : the sub-elements are kept as a view on the received 
+	 * data and decoded only when they are accessed the first time
+	 */
+	private static final ConfigCache LAZY_DECODING = new ConfigCache("tester.properties", "core.BINARY_LAZY_DECODING");
+
     protected String coding;
 	
 	protected int tag = Integer.MIN_VALUE;
@@ -84,6 +92,12 @@ public abstract class ElementAbstract implements Cloneable
 	
 	protected ElementAbstract parentElement;
 
+	/** 
+	 * dictionary to decode the sub-elements from the subelementsArray on first 
+	 * access (lazy decoding mode); null if the sub-elements are already decoded
+	 */
+	protected Dictionary lazyDictionary;
+
 	public ElementAbstract(ElementAbstract parent)
 	{
 		parentElement = parent;
@@ -401,9 +415,10 @@ public abstract class ElementAbstract implements Cloneable
      * with a description that contains a given keyword (between [] character)
      * @return
      */
-    public FieldAbstract getFieldByDescriptionKeyword(String keyword) 
+    public FieldAbstract getFieldByDescriptionKeyword(String keyword) throws Exception
     {
     	keyword = keyword.toLowerCase();
+    	List<ElementAbstract> elements = getElements();
     	if (elements.size() > 0)
     	{
     		return elements.get(0).getFieldByDescriptionKeyword(keyword);
@@ -533,20 +548,50 @@ public abstract class ElementAbstract implements Cloneable
 	        this.fieldsArray.addFirst(data);
 	    }
 	    // cas when there are some sub elements
-	    else if (!this.elements.isEmpty())
+	    else if (!getElements().isEmpty())
 	    {
 	        this.subelementsArray = new SupArray();
 	    	this.subelementsArray.addFirst(data);
-	    	this.elements = ElementAbstract.decodeTag1OctetElementsFromArray(this.subelementsArray, dictionary);
+	    	if (LAZY_DECODING.getBooleanValue(false))
+	    	{
+	    		this.lazyDictionary = dictionary;
+	    	}
+	    	else
+	    	{
+	    		this.elements = ElementAbstract.decodeTag1OctetElementsFromArray(this.subelementsArray, dictionary);
+	    	}
 	    }
 	}
 
+	/**
+	 * Get the sub-elements; in lazy decoding mode, they are decoded
+	 * from the subelementsArray on the first call
+	 * @throws ExecutionException if the received sub-elements are malformed
+	 */
+	public List<ElementAbstract> getElements() throws ExecutionException
+	{
+		Dictionary dictionary = this.lazyDictionary;
+		if (dictionary != null)
+		{
+			try
+			{
+				this.elements = ElementAbstract.decodeTag1OctetElementsFromArray(this.subelementsArray, dictionary);
+			}
+			catch (Exception e)
+			{
+				throw new ExecutionException("Error while decoding the sub-elements of the element \"" + this.label + "\"", e);
+			}
+			this.lazyDictionary = null;
+		}
+		return this.elements;
+	}
+
 	/*
      * Decode the fields and sub-element for elements not starting with the tag
      */
     public int decodeFieldsNotTagElementsFromArray(Array array, Dictionary dictionary) throws Exception
 	{
-		if (!this.elements.isEmpty())
+		if (!getElements().isEmpty())
 		{
 			int length = this.decodeNotTagElementsFromArray(array, dictionary);
 			
@@ -586,7 +631,7 @@ public abstract class ElementAbstract implements Cloneable
     public int decodeNotTagElementsFromArray(Array array, Dictionary dictionary) throws Exception
     {
 		// encode the sub-element
-		Iterator<ElementAbstract> iter = this.elements.iterator();
+		Iterator<ElementAbstract> iter = getElements().iterator();
 		int index = 0;
 		List<ElementAbstract> newElements = new ArrayList<ElementAbstract>();
 		while (iter.hasNext())
@@ -618,6 +663,11 @@ public abstract class ElementAbstract implements Cloneable
     
     public SupArray encodeToArray(Dictionary dictionary) throws Exception
     {
+    	// sub-elements not decoded (lazy mode) : copy the received bytes verbatim
+    	if (this.lazyDictionary != null)
+    	{
+    		return this.subelementsArray;
+    	}
     	SupArray sup = new SupArray();
 		// encode the sub-element
 		Iterator<ElementAbstract> iter = this.elements.iterator();
@@ -658,8 +708,9 @@ public abstract class ElementAbstract implements Cloneable
     	this.label = source.label;
     	this.fieldsArray = null;
     	this.subelementsArray = null;
+    	this.lazyDictionary = null;
 		// encode the sub-element
-		Iterator<ElementAbstract> iter = source.elements.iterator();
+		Iterator<ElementAbstract> iter = source.getElements().iterator();
 		while (iter.hasNext())
 		{
 			ElementAbstract elemOld = (ElementAbstract) iter.next();
@@ -716,7 +767,7 @@ public abstract class ElementAbstract implements Cloneable
         }    	
         else 
         {
-        	List<ElementAbstract> list = ElementAbstract.getElementsFromTag(this.elements, params[offset + 2], dictionary);
+        	List<ElementAbstract> list = ElementAbstract.getElementsFromTag(getElements(), params[offset + 2], dictionary);
         	 Iterator<ElementAbstract> iter = list.iterator();
  		    while (iter.hasNext())
  		    {
@@ -831,7 +882,20 @@ public abstract class ElementAbstract implements Cloneable
             elemString.append(field.toXml(this.fieldsArray, indent));
         }
         
-        Iterator<ElementAbstract> iterElem = this.elements.iterator();
+        List<ElementAbstract> elements;
+        try
+        {
+        	elements = getElements();
+        }
+        catch (ExecutionException e)
+        {
+        	// malformed sub-elements (lazy mode) : display them as received
+        	GlobalLogger.instance().getApplicationLogger().warn(TextEvent.Topic.PROTOCOL, e, "Exception in toXml() method for element " + this.label);
+        	elemString.append(ASNToXMLConverter.indent(indent));
+        	elemString.append("<field name=\"" + this.label + "\" value=\"" + Array.toHexString(this.subelementsArray) + "\" type=\"Binary\"/>\n");
+        	return elemString.toString();
+        }
+        Iterator<ElementAbstract> iterElem = elements.iterator();
 		while (iterElem.hasNext())
 		{
 			ElementAbstract elemInfo = (ElementAbstract) iterElem.next();
@@ -859,9 +923,10 @@ public abstract class ElementAbstract implements Cloneable
         return null;
     }
     
-    public ElementAbstract getElement(int index) 
+    public ElementAbstract getElement(int index) throws Exception
     {
-    	if (index < this.elements.size())
+    	List<ElementAbstract> elements = getElements();
+    	if (index < elements.size())
     	{
     		return elements.get(index);
     	}
@@ -898,9 +963,9 @@ public abstract class ElementAbstract implements Cloneable
 		return fieldsArray;
 	}
     
-    public boolean isEmpty() 
+    public boolean isEmpty() throws Exception
     {
-		return fields.isEmpty() && elements.isEmpty();
+		return fields.isEmpty() && getElements().isEmpty();
 	}
     
 
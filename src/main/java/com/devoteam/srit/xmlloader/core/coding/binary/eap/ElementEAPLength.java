@@ -51,7 +51,7 @@ public class ElementEAPLength extends ElementAbstract
 	{
         this.tag = new Integer08Array(array.subArray(0, 1)).getValue();
         
-        if (!this.fieldsByName.isEmpty() || !this.elements.isEmpty())
+        if (!this.fieldsByName.isEmpty() || !getElements().isEmpty())
         {
             int lengthDiv4 = new Integer08Array(array.subArray(1, 1)).getValue();
             Array elementData = array.subArray(4, (lengthDiv4 - 1) * 4);        	
@@ -88,7 +88,7 @@ public class ElementEAPLength extends ElementAbstract
         Integer08Array idArray = new Integer08Array(this.tag);
         sup.addLast(idArray);
         
-        if (!this.fieldsByName.isEmpty() || !this.elements.isEmpty())
+        if (!this.fieldsByName.isEmpty() || !getElements().isEmpty())
         {
         	int length = this.getLengthElem() / 8;
         	if (length <= 0)
@@ -83,7 +83,7 @@ public class ElementEAPLengthBit extends ElementAbstract
         Integer08Array idArray = new Integer08Array(this.tag);
         sup.addLast(idArray);
         
-        if (!this.fieldsByName.isEmpty() || !this.elements.isEmpty())
+        if (!this.fieldsByName.isEmpty() || !getElements().isEmpty())
         {
         	int length = this.getLengthElem() / 8;
         	if (length <= 0)
@@ -48,7 +48,7 @@ public class ElementQ931 extends ElementAbstract
 	{
         this.tag = new Integer08Array(array.subArray(0, 1)).getValue();
         
-        if (!this.fieldsByName.isEmpty() || !this.elements.isEmpty())
+        if (!this.fieldsByName.isEmpty() || !getElements().isEmpty())
         {
             int length = new Integer08Array(array.subArray(1, 1)).getValue();
 
@@ -72,7 +72,7 @@ public class ElementQ931 extends ElementAbstract
         Integer08Array idArray = new Integer08Array(this.tag);
         sup.addLast(idArray);
         
-        if (!this.fieldsByName.isEmpty() || !this.elements.isEmpty())
+        if (!this.fieldsByName.isEmpty() || !getElements().isEmpty())
         {
         	int length = this.fieldsArray.length + this.subelementsArray.length;
 		    Integer08Array lengthArray = new Integer08Array(length);
@@ -49,7 +49,7 @@ public class ElementQ931Big extends ElementAbstract
 	{
         this.tag = new Integer08Array(array.subArray(0, 1)).getValue();
         
-        if (!this.fieldsByName.isEmpty() || !this.elements.isEmpty())
+        if (!this.fieldsByName.isEmpty() || !getElements().isEmpty())
         {
         	int length = new Integer16Array(array.subArray(1, 2)).getValue();
         	
@@ -73,7 +73,7 @@ public class ElementQ931Big extends ElementAbstract
         Integer08Array idArray = new Integer08Array(this.tag);
         sup.addLast(idArray);
         
-        if (!this.fieldsByName.isEmpty() || !this.elements.isEmpty())
+        if (!this.fieldsByName.isEmpty() || !getElements().isEmpty())
         {
         	int length = this.fieldsArray.length + this.subelementsArray.length;
 		    Integer16Array lengthArray = new Integer16Array(length);
@@ -0,0 +1,139 @@
+/*
+ * Copyright 2012 Devoteam http://www.devoteam.com
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ *
+ * This file is part of Multi-Protocol Test Suite (MTS).
+ *
+ * Multi-Protocol Test Suite (MTS) is free software: you can redistribute
+ * it and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of the
+ * License.
+ *
+ * Multi-Protocol Test Suite (MTS) is distributed in the hope that it will
+ * be useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Multi-Protocol Test Suite (MTS).
+ * If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package com.devoteam.srit.xmlloader.core.groovy;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.codehaus.groovy.control.CompilerConfiguration;
+
+import com.devoteam.srit.xmlloader.core.Runner;
+import com.devoteam.srit.xmlloader.core.utils.Config;
+import com.devoteam.srit.xmlloader.core.utils.URIRegistry;
+
+import groovy.lang.GroovyClassLoader;
+import groovy.lang.Script;
+
+/**
+ * Cache of the compiled groovy scripts used by the groovy operation.
+ *
+ * The inline scripts are cached by their source text and the groovy files by
+ * their path, modification time and size; all of them are compiled by a single
+ * class loader shared by the whole test. When the cache is full (or when another
+ * test is loaded) the class loader is dropped with all its classes, so that the
+ * metaspace does not grow endlessly.
+ * Only the classes are cached : a new script instance is created at each execution,
+ * so the fields and properties of a script are not kept from one execution to the next.
+ */
+public class GroovyScriptCache {
+
+    private static GroovyClassLoader classLoader = null;
+
+    /** the test the class loader has been created for */
+    private static URI testHome = null;
+
+    /** compiled classes by script source or by file key */
+    private static Map<String, Class<?>> classes = new HashMap<String, Class<?>>();
+
+    /**
+     * Private constructor
+     */
+    private GroovyScriptCache() {
+        // Nothing
+    }
+
+    /**
+     * Get the compiled class of an inline groovy script
+     */
+    public static synchronized Class<?> getScriptClass(String scriptSource) {
+        String key = "text:" + scriptSource;
+        Class<?> scriptClass = classes.get(key);
+        if (scriptClass == null) {
+            scriptClass = getClassLoader().parseClass(scriptSource);
+            classes.put(key, scriptClass);
+        }
+        return scriptClass;
+    }
+
+    /**
+     * Get the compiled class of a groovy file; the file is compiled again
+     * when it has been modified
+     */
+    public static synchronized Class<?> getScriptClass(File file) throws IOException {
+        String key = "file:" + file.getAbsolutePath() + ":" + file.lastModified() + ":" + file.length();
+        Class<?> scriptClass = classes.get(key);
+        if (scriptClass == null) {
+            scriptClass = getClassLoader().parseClass(file);
+            classes.put(key, scriptClass);
+        }
+        return scriptClass;
+    }
+
+    /**
+     * Create a new instance of the script class bound to the runner with a MTSBinding
+     */
+    public static Script newScript(Runner runner, Class<?> scriptClass) throws Exception {
+        Script script = (Script) scriptClass.newInstance();
+        script.setBinding(new MTSBinding(runner));
+        return script;
+    }
+
+    /**
+     * Drop all the compiled classes and the class loader
+     */
+    public static synchronized void reset() {
+        classes = new HashMap<String, Class<?>>();
+        if (classLoader != null) {
+            classLoader.clearCache();
+            try {
+                classLoader.close();
+            } catch (IOException e) {
+                // nothing to do
+            }
+        }
+        classLoader = null;
+        testHome = null;
+    }
+
+    private static GroovyClassLoader getClassLoader() {
+        // a new test has been loaded or the cache is full : start with a new class loader
+        if (classLoader != null) {
+            boolean sameTest = (testHome == null) ? URIRegistry.MTS_TEST_HOME == null : testHome.equals(URIRegistry.MTS_TEST_HOME);
+            int maxSize = Config.getConfigByName("tester.properties").getInteger("operations.GROOVY_CACHE_SIZE", 1000);
+            if (!sameTest || classes.size() >= maxSize) {
+                reset();
+            }
+        }
+        if (classLoader == null) {
+            CompilerConfiguration compilerConfig = new CompilerConfiguration();
+            compilerConfig.setScriptBaseClass("MTSScript");
+            classLoader = new GroovyClassLoader(GroovyScriptCache.class.getClassLoader(), compilerConfig);
+            testHome = URIRegistry.MTS_TEST_HOME;
+        }
+        return classLoader;
+    }
+}
@@ -113,13 +113,27 @@ public class GenericLogger
         print(key, null, TextEvent.ERROR, null, objects);
     }
     
-    private synchronized void print(TextListenerKey key, TextEvent.Topic topic, int l, Throwable e, Object... objects)
+    /**
+     * Tell whether the messages of the given topic and level are logged;
+     * to be used to avoid building costly log arguments
+     */
+    public boolean isEnabled(TextEvent.Topic topic, int level)
+    {
+        return GlobalLogger.instance().isEnabled(topic, level);
+    }
+
+    private void print(TextListenerKey key, TextEvent.Topic topic, int l, Throwable e, Object... objects)
     {
         //
-        // Get logging level
+        // Check the logging level of the topic without taking the lock
         //
-        int level = GlobalLogger.instance().getLogLevel();
-        if (l >= level)
+        if (!GlobalLogger.instance().isEnabled(topic, l))
+        {
+            return;
+        }
+
+        // the arguments are rendered only if there is a listener to record them
+        synchronized (this)
         {
             List<TextListener> list = TextListenerProviderRegistry.instance().provide(key);
             
@@ -23,6 +23,7 @@
 
 package com.devoteam.srit.xmlloader.core.log;
 
+import com.devoteam.srit.xmlloader.core.utils.Config;
 import com.devoteam.srit.xmlloader.core.utils.ConfigCache;
 import com.devoteam.srit.xmlloader.core.utils.Utils;
 
@@ -48,14 +49,35 @@ public class GlobalLogger
     private ConfigCache logLevelCache =  new ConfigCache("tester.properties", "logs.MAXIMUM_LEVEL");
     private ConfigCache logStorageCache =  new ConfigCache("tester.properties", "logs.STORAGE_LOCATION");
 
-    private static GlobalLogger instance = null;;
+    /** Delay (in ms) before reading again the log levels from the configuration */
+    private static final long LEVELS_TIMEOUT = 1000;
 
-    public static synchronized GlobalLogger instance()
+    /** minimum level by topic (the last one is for the messages without topic) */
+    private volatile int[] topicLevels = null;
+
+    /** date until the topic levels are up to date */
+    private volatile long topicLevelsExpiry = 0;
+
+    /** date of the configuration reset the topic levels have been read after */
+    private volatile long topicLevelsReset = 0;
+
+    private static volatile GlobalLogger instance = null;
+
+    public static GlobalLogger instance()
     {
-    	if (instance == null){
-            instance = new GlobalLogger();
-    	}
-        return instance;
+        GlobalLogger result = instance;
+        if (result == null)
+        {
+            synchronized (GlobalLogger.class)
+            {
+                if (instance == null)
+                {
+                    instance = new GlobalLogger();
+                }
+                result = instance;
+            }
+        }
+        return result;
     }
         
     private GlobalLogger()
@@ -110,7 +132,42 @@ public class GlobalLogger
      * @return the log level
      */
     public int getLogLevel() {
-        String level = this.logLevelCache.getStringValue("3");
+        return parseLogLevel(this.logLevelCache.getStringValue("3"), "logs.MAXIMUM_LEVEL");
+    }
+
+    /**
+     * Tell whether a message of the given topic and level will be logged; this
+     * check does not take any lock so that the disabled logs cost almost nothing.
+     * The level of a topic is given by "logs.MAXIMUM_LEVEL.<topic>" or else by
+     * "logs.MAXIMUM_LEVEL".
+     */
+    public boolean isEnabled(TextEvent.Topic topic, int level) {
+        int[] levels = this.topicLevels;
+        long now = System.currentTimeMillis();
+        if (null == levels || now > this.topicLevelsExpiry || Config.getLastReset() != this.topicLevelsReset) {
+            this.topicLevelsReset = Config.getLastReset();
+            levels = readTopicLevels();
+            this.topicLevels = levels;
+            this.topicLevelsExpiry = now + LEVELS_TIMEOUT;
+        }
+        return level >= levels[(null == topic) ? levels.length - 1 : topic.ordinal()];
+    }
+
+    private static int[] readTopicLevels() {
+        Config config = Config.getConfigByName("tester.properties");
+        int logLevel = parseLogLevel(config.getString("logs.MAXIMUM_LEVEL", "3"), "logs.MAXIMUM_LEVEL");
+        TextEvent.Topic[] topics = TextEvent.Topic.values();
+        int[] levels = new int[topics.length + 1];
+        for (TextEvent.Topic topic : topics) {
+            String key = "logs.MAXIMUM_LEVEL." + topic.name();
+            String level = config.getString(key, "");
+            levels[topic.ordinal()] = (level.length() == 0) ? logLevel : parseLogLevel(level, key);
+        }
+        levels[topics.length] = logLevel;
+        return levels;
+    }
+
+    private static int parseLogLevel(String level, String key) {
         // changement de l'ordre des levels
         int intLevel = -1;
         if (Utils.isInteger(level)) {
@@ -129,7 +186,7 @@ public class GlobalLogger
             intLevel = TextEvent.ERROR;
         }
         else {
-            System.out.println("Config parameter \"logs.MAXIMUM_LEVEL\" + should be an integer from [0-3] or a string from the list {DEBUG, INFO, WARN, ERROR}");
+            System.out.println("Config parameter \"" + key + "\" + should be an integer from [0-3] or a string from the list {DEBUG, INFO, WARN, ERROR}");
             new Exception().printStackTrace();
             System.exit(10);
         }
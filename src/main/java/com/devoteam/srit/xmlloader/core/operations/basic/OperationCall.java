@@ -36,6 +36,7 @@ import com.devoteam.srit.xmlloader.core.operations.functions.FunctionsCache;
 import com.devoteam.srit.xmlloader.core.utils.Utils;
 import java.util.HashMap;
 import java.util.LinkedList;
+import java.util.List;
 import org.dom4j.Element;
 
 /**
@@ -46,6 +47,10 @@ import org.dom4j.Element;
  */
 public class OperationCall extends Operation {
 
+    /** the input and output arguments, selected once at parsing time */
+    private List<Element> inputElements;
+    private List<Element> outputElements;
+
     /**
      * Constructor
      * 
@@ -55,6 +60,8 @@ public class OperationCall extends Operation {
      */
     public OperationCall(Element root) {
         super(root, null);
+        this.inputElements = (List<Element>) root.selectNodes("./input/parameter");
+        this.outputElements = (List<Element>) root.selectNodes("./output/parameter");
     }
 
     /**
@@ -74,8 +81,7 @@ public class OperationCall extends Operation {
 
         // prepare input arguments (copy parameters in hashmap)
         HashMap<String, Parameter> inputs  = new HashMap();
-        for(Object object:getRootElement().selectNodes("./input/parameter")){
-            Element element = (Element) object;
+        for(Element element:this.inputElements){
             String inputName = element.attributeValue("name");
 
             if(inputName.contains("function:")){
@@ -97,8 +103,8 @@ public class OperationCall extends Operation {
 
                 Parameter inputValueParameter = runner.getParameterPool().get(ParameterPool.bracket(inputValueParsed.getFirst()));
 
-                Parameter inputParameter = new Parameter();
-                inputParameter.addAll(inputValueParameter.getArray());
+                // copy-on-write : the function does not modify the parameter of the caller
+                Parameter inputParameter = inputValueParameter.share();
                 inputs.put(inputName, inputParameter);
             }
             else{
@@ -121,8 +127,7 @@ public class OperationCall extends Operation {
         FunctionsCache.instance().freeFunction(function);
 
         // copy back output parameters to parameter pool
-        for(Object object:getRootElement().selectNodes("./output/parameter")){
-            Element element = (Element) object;
+        for(Element element:this.outputElements){
             String outputName = element.attributeValue("name");
             String outputValue = element.attributeValue("value");
 
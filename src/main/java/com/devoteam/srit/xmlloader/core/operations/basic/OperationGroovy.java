@@ -26,12 +26,12 @@ import java.io.File;
 import java.util.Map;
 import java.util.StringTokenizer;
 
-import org.codehaus.groovy.control.CompilerConfiguration;
 import org.dom4j.Element;
 
 import com.devoteam.srit.xmlloader.core.Runner;
 import com.devoteam.srit.xmlloader.core.ScenarioRunner;
 import com.devoteam.srit.xmlloader.core.exception.ExecutionException;
+import com.devoteam.srit.xmlloader.core.groovy.GroovyScriptCache;
 import com.devoteam.srit.xmlloader.core.groovy.MTSBinding;
 import com.devoteam.srit.xmlloader.core.log.GlobalLogger;
 import com.devoteam.srit.xmlloader.core.log.TextEvent;
@@ -39,7 +39,6 @@ import com.devoteam.srit.xmlloader.core.operations.Operation;
 import com.devoteam.srit.xmlloader.core.utils.URIRegistry;
 import com.devoteam.srit.xmlloader.core.utils.maps.HashMap;
 
-import groovy.lang.GroovyClassLoader;
 import groovy.lang.Script;
 
 /**
@@ -55,12 +54,6 @@ public class OperationGroovy extends Operation {
      */
     private static final long serialVersionUID = 5682007474036872606L;
 
-    /**
-     * Map which contains every groovy class instance, and the name of the
-     * property which is automaticaly added in the groovy operation
-     */
-    private Map<String, Script> injectedScripts = new HashMap<String, Script>();
-
     /**
      * Constructor
      *
@@ -95,31 +88,25 @@ public class OperationGroovy extends Operation {
         String scriptSource = getRootElement().getText();
 
         try {
-            // instantiate the binding which manage the exchange of variables
-            // between groovy scripts and MTS runner:
-            MTSBinding mtsBinding = new MTSBinding(runner);
-
-            // instantiate the classloader in charge of groovy scripts
-            CompilerConfiguration compilerConfig = new CompilerConfiguration();
-            compilerConfig.setScriptBaseClass("MTSScript");
-
-            ClassLoader mtsClassLoader = getClass().getClassLoader();
-            GroovyClassLoader groovyClassLoader = new GroovyClassLoader(mtsClassLoader, compilerConfig);
+            // Map which contains every groovy class instance, and the name of the
+            // property which is automaticaly added in the groovy operation
+            Map<String, Script> injectedScripts = new HashMap<String, Script>();
 
-            // load, instantiate and execute each groovy file,
+            // load, instantiate and execute each groovy file; the classes are
+            // compiled once and a new instance (bound to the runner with a
+            // MTSBinding) is created at each execution
             if (groovyFiles != null) {
                 StringTokenizer st = new StringTokenizer(groovyFiles, ";");
                 while (st.hasMoreTokens()) {
                     String scriptName = st.nextToken();
                     File file = new File(URIRegistry.MTS_TEST_HOME.resolve(scriptName));
                     if (file.exists() && file.getName().endsWith(".groovy")) {
-                        Class groovyClass = groovyClassLoader.parseClass(file);
-                        Object obj = groovyClass.newInstance();
-                        if (obj instanceof Script) {
-                            // add the MTS Binding and execute the run method
-                            ((Script) obj).setBinding(mtsBinding);
-                            ((Script) obj).invokeMethod("run", new Object[]{});
-                            prepareScriptProperties(runner, scriptName, (Script) obj);
+                        Class<?> groovyClass = GroovyScriptCache.getScriptClass(file);
+                        if (Script.class.isAssignableFrom(groovyClass)) {
+                            // execute the run method
+                            Script obj = GroovyScriptCache.newScript(runner, groovyClass);
+                            obj.invokeMethod("run", new Object[]{});
+                            prepareScriptProperties(runner, scriptName, obj, injectedScripts);
                         }
                     } else {
                         if (runner instanceof ScenarioRunner) {
@@ -132,16 +119,14 @@ public class OperationGroovy extends Operation {
                     }
                 }
             }
-            groovyClassLoader.close();
 
             // instantiate the groovy operation script
-            Class scriptClass = groovyClassLoader.parseClass(scriptSource);
-            Script script = (Script) scriptClass.newInstance();
-            script.setBinding(mtsBinding);
+            Class<?> scriptClass = GroovyScriptCache.getScriptClass(scriptSource);
+            Script script = GroovyScriptCache.newScript(runner, scriptClass);
 
             // inject each imported groovy class as a property of the groovy
             // operation script
-            injectScriptProperties(script);
+            injectScriptProperties(script, injectedScripts);
 
             // execute the groovy operation script
             Object result = script.run();
@@ -165,9 +150,10 @@ public class OperationGroovy extends Operation {
      *
      * @param groovyFilename
      * @param script
+     * @param injectedScripts
      * @throws ExecutionException
      */
-    private void prepareScriptProperties(Runner runner, String groovyFilename, Script script) throws ExecutionException {
+    private void prepareScriptProperties(Runner runner, String groovyFilename, Script script, Map<String, Script> injectedScripts) throws ExecutionException {
         // the property name is prefixed by "groovy_" followed by the script filename
         // without suffix
         // ie if we load Toto.groovy, the script instance property will be groovy_Toto
@@ -196,8 +182,9 @@ public class OperationGroovy extends Operation {
      * inject each groovy class in the groovy operation script
      *
      * @param script : the groovy operation script
+     * @param injectedScripts : the groovy class instances by property name
      */
-    private void injectScriptProperties(Script script) {
+    private void injectScriptProperties(Script script, Map<String, Script> injectedScripts) {
         for (Object ScriptName : injectedScripts.keySet()) {
             script.setProperty((String) ScriptName, injectedScripts.get(ScriptName));
         }
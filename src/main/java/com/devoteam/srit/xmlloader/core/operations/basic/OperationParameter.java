@@ -36,6 +36,7 @@ import com.devoteam.srit.xmlloader.core.pluggable.PluggableParameterOperator;
 import com.devoteam.srit.xmlloader.core.pluggable.ParameterOperatorRegistry;
 import com.devoteam.srit.xmlloader.core.pluggable.PluggableName;
 import com.devoteam.srit.xmlloader.core.utils.XMLElementTextOnlyParser;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
@@ -53,6 +54,14 @@ public class OperationParameter extends Operation {
     private String resultantAttribute;
     private String operatorAttribute;
 
+    /** resultant, name and index resolved at parsing time, null if it contains a parameter */
+    private String staticResultant;
+    private String staticResultantName;
+    private int staticResultantIndex;
+
+    /** operands resolved at parsing time, in the order of the attributes */
+    private Operand[] operands;
+
     /**
      * Creates a new instance of OperationParameter
      */
@@ -75,6 +84,36 @@ public class OperationParameter extends Operation {
         if (null == this.parameterOperator) {
             throw new ParsingException("Could not find any <parameter> operation named " + this.operatorAttribute);
         }
+
+        String resultant = ParameterPool.unbracket(this.resultantAttribute);
+        if (resultant.indexOf('[') == -1) {
+            try {
+                resultant = ParameterPool.bracket(resultant);
+                this.staticResultantIndex = ParameterPool.hasIndex(resultant) ? ParameterPool.getIndex(resultant) : -1;
+                this.staticResultantName = ParameterPool.getName(resultant);
+                this.staticResultant = resultant;
+            }
+            catch (Exception e) {
+                // invalid index : the error is reported at execution time
+                this.staticResultant = null;
+            }
+        }
+
+        List<Operand> operandList = new ArrayList<Operand>();
+        for (Object object : root.attributes()) {
+            Attribute attribute = (Attribute) object;
+            String attributeName = attribute.getName().toLowerCase();
+
+            if (attributeName.equals("operation")
+                    || attributeName.equals("state")
+                    || attributeName.equals("name")
+                    || attributeName.equals("editable")
+                    || attributeName.equals("description")) {
+                continue;
+            }
+            operandList.add(new Operand(attributeName, attribute.getValue()));
+        }
+        this.operands = operandList.toArray(new Operand[operandList.size()]);
     }
 
     /**
@@ -111,23 +150,32 @@ public class OperationParameter extends Operation {
             /*
              * Parse the resultant parameter in case it is in format: "[myParam([indexParam])]" to get it in format: "[myParam(10)]
              */
-            String resultant = this.resultantAttribute;
-            resultant = ParameterPool.unbracket(resultant);
-            List<String> res = runner.getParameterPool().parse(resultant);
-            if (res.size() != 1) {
-                throw new ParameterException("error parsing resultant, final size is not 1");
+            String resultant;
+            String resultantName;
+            int resultantIndex = -1;
+            if (null != this.staticResultant) {
+                resultant = this.staticResultant;
+                resultantName = this.staticResultantName;
+                resultantIndex = this.staticResultantIndex;
             }
-            resultant = res.get(0);
-            resultant = ParameterPool.bracket(resultant);
+            else {
+                resultant = this.resultantAttribute;
+                resultant = ParameterPool.unbracket(resultant);
+                List<String> res = runner.getParameterPool().parse(resultant);
+                if (res.size() != 1) {
+                    throw new ParameterException("error parsing resultant, final size is not 1");
+                }
+                resultant = res.get(0);
+                resultant = ParameterPool.bracket(resultant);
 
-            /*
-             * Extract the namen level and index (if there is one) of the resultant param - resultantName - resultantIndex (-1 if no index present, will override parameter) - resultantLevel (null if
-             * no level defined, will be current level)
-             */
-            String resultantName = ParameterPool.getName(resultant);
-            int resultantIndex = -1;
-            if (ParameterPool.hasIndex(resultant)) {
-                resultantIndex = ParameterPool.getIndex(resultant);
+                /*
+                 * Extract the namen level and index (if there is one) of the resultant param - resultantName - resultantIndex (-1 if no index present, will override parameter) - resultantLevel (null if
+                 * no level defined, will be current level)
+                 */
+                resultantName = ParameterPool.getName(resultant);
+                if (ParameterPool.hasIndex(resultant)) {
+                    resultantIndex = ParameterPool.getIndex(resultant);
+                }
             }
 
 
@@ -135,64 +183,8 @@ public class OperationParameter extends Operation {
              * Populate the HashMap of operands we will give to the ParameterOperator
              */
             HashMap<String, Parameter> operands = new HashMap<String, Parameter>();
-
-            for (Object object : this.getRootElement().attributes()) {
-                Attribute attribute = (Attribute) object;
-                String attributeName = attribute.getName().toLowerCase();
-
-                if (attributeName.equals("operation")
-                        || attributeName.equals("state")
-                        || attributeName.equals("name")
-                        || attributeName.equals("editable")
-                        || attributeName.equals("description")) {
-                    continue;
-                }
-
-                String attributeValue = attribute.getValue();
-
-                /*
-                 * The first case gets a parameter or a parameter item while trying to preserve the type of the object saved into the parameter.
-                 */
-                if (Parameter.matchesParameter(attributeValue)) {
-                    attributeValue = ParameterPool.unbracket(attributeValue);
-                    List<String> aRes = runner.getParameterPool().parse(attributeValue);
-                    if (aRes.size() != 1) {
-                        throw new ParameterException("error parsing a variable name or index in operands (" + attribute.getValue() + "), final size is not 1");
-                    }
-                    attributeValue = aRes.get(0);
-                    attributeValue = ParameterPool.bracket(attributeValue);
-
-                    String myParameterName = ParameterPool.getName(attributeValue);
-                    int myParameterIndex = -1;
-
-                    if (ParameterPool.hasIndex(attributeValue)) {
-                        myParameterIndex = ParameterPool.getIndex(attributeValue);
-                    }
-
-                    Parameter parameter;
-
-                    if (runner.getParameterPool().exists(myParameterName)) {
-                        parameter = runner.getParameterPool().get(myParameterName);
-                        if (-1 != myParameterIndex) {
-                            Object myObject = parameter.get(myParameterIndex);
-                            parameter = new Parameter();
-                            parameter.add(myObject);
-                        }
-                    }
-                    else {
-                        parameter = new Parameter();
-                        parameter.add(attributeValue);
-                    }
-                    operands.put(attributeName, parameter);
-                }
-                else {
-                    LinkedList<String> parsedValue = runner.getParameterPool().parse(attributeValue);
-                    Parameter parameter = new Parameter();
-                    for (String value : parsedValue) {
-                        parameter.add(value);
-                    }
-                    operands.put(attributeName, parameter);
-                }
+            for (Operand operand : this.operands) {
+                operands.put(operand.name, operand.getParameter(runner));
             }
 
             /*
@@ -221,6 +213,8 @@ public class OperationParameter extends Operation {
              * Go write the result
              */
             if (-1 == resultantIndex) {
+                // the large lists of strings are kept in compact form
+                result.compact();
                 runner.getParameterPool().set(resultantName, result);
             }
             else {
@@ -247,4 +241,111 @@ public class OperationParameter extends Operation {
             throw new ParameterException("Error in parameter operation : " + getRootElement().asXML(), e);
         }
     }
+
+    /**
+     * Get the parameter designated by a bracketed name with an optional index
+     * ("[myParam]" or "[myParam(2)]"), or the name itself if there is no such parameter
+     */
+    private static Parameter getReferencedParameter(Runner runner, String name, int index, String value) throws Exception {
+        Parameter parameter;
+        if (runner.getParameterPool().exists(name)) {
+            parameter = runner.getParameterPool().get(name);
+            if (-1 != index) {
+                Object myObject = parameter.get(index);
+                parameter = new Parameter();
+                parameter.add(myObject);
+            }
+        }
+        else {
+            parameter = new Parameter();
+            parameter.add(value);
+        }
+        return parameter;
+    }
+
+    /**
+     * Operand of the operation (an attribute) analysed once at parsing time
+     */
+    private static class Operand {
+
+        /** the value does not contain any parameter */
+        private static final int CONSTANT = 0;
+        /** the value is a single parameter with a constant name and index, like "[myParam(2)]" */
+        private static final int REFERENCE = 1;
+        /** the value is a single parameter whose name or index contains parameters */
+        private static final int DYNAMIC_REFERENCE = 2;
+        /** the value is a text containing parameters */
+        private static final int DYNAMIC = 3;
+
+        private final String name;
+        private final String value;
+        private int kind;
+        private String referenceName;
+        private int referenceIndex = -1;
+
+        private Operand(String name, String value) {
+            this.name = name;
+            this.value = value;
+
+            if (Parameter.matchesParameter(value)) {
+                this.kind = DYNAMIC_REFERENCE;
+                if (ParameterPool.unbracket(value).indexOf('[') == -1) {
+                    try {
+                        if (ParameterPool.hasIndex(value)) {
+                            this.referenceIndex = ParameterPool.getIndex(value);
+                        }
+                        this.referenceName = ParameterPool.getName(value);
+                        this.kind = REFERENCE;
+                    }
+                    catch (Exception e) {
+                        // invalid index : the error is reported at execution time
+                    }
+                }
+            }
+            else if (Parameter.containsParameter(value)) {
+                this.kind = DYNAMIC;
+            }
+            else {
+                this.kind = CONSTANT;
+            }
+        }
+
+        private Parameter getParameter(Runner runner) throws Exception {
+            Parameter parameter;
+            switch (this.kind) {
+                case CONSTANT:
+                    parameter = new Parameter();
+                    parameter.add(this.value);
+                    return parameter;
+
+                case REFERENCE:
+                    return getReferencedParameter(runner, this.referenceName, this.referenceIndex, this.value);
+
+                case DYNAMIC_REFERENCE:
+                    /*
+                     * The first case gets a parameter or a parameter item while trying to preserve the type of the object saved into the parameter.
+                     */
+                    String attributeValue = ParameterPool.unbracket(this.value);
+                    List<String> aRes = runner.getParameterPool().parse(attributeValue);
+                    if (aRes.size() != 1) {
+                        throw new ParameterException("error parsing a variable name or index in operands (" + this.value + "), final size is not 1");
+                    }
+                    attributeValue = ParameterPool.bracket(aRes.get(0));
+
+                    int myParameterIndex = -1;
+                    if (ParameterPool.hasIndex(attributeValue)) {
+                        myParameterIndex = ParameterPool.getIndex(attributeValue);
+                    }
+                    return getReferencedParameter(runner, ParameterPool.getName(attributeValue), myParameterIndex, attributeValue);
+
+                default:
+                    LinkedList<String> parsedValue = runner.getParameterPool().parse(this.value);
+                    parameter = new Parameter();
+                    for (String value : parsedValue) {
+                        parameter.add(value);
+                    }
+                    return parameter;
+            }
+        }
+    }
 }
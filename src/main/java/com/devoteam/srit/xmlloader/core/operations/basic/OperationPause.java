@@ -27,6 +27,8 @@ import com.devoteam.srit.xmlloader.core.Runner;
 import com.devoteam.srit.xmlloader.core.exception.ExecutionException;
 import com.devoteam.srit.xmlloader.core.log.GlobalLogger;
 import com.devoteam.srit.xmlloader.core.log.TextEvent;
+import com.devoteam.srit.xmlloader.core.newstats.StatKey;
+import com.devoteam.srit.xmlloader.core.newstats.StatPool;
 import com.devoteam.srit.xmlloader.core.operations.Operation;
 import com.devoteam.srit.xmlloader.core.utils.Utils;
 import com.devoteam.srit.xmlloader.core.utils.XMLElementDefaultParser;
@@ -42,6 +44,10 @@ import org.dom4j.Element;
  */
 public class OperationPause extends Operation
 {
+    private static final StatKey PAUSE_NUMBER_KEY = new StatKey(StatPool.PREFIX_OPERATION, "pause", "", "_pauseNumber");
+
+    private static final StatKey PAUSE_ERROR_TIME_KEY = new StatKey(StatPool.PREFIX_OPERATION, "pause", "", "_pauseErrorTime");
+
     /**
      * Constructor
      * 
@@ -80,17 +86,17 @@ public class OperationPause extends Operation
         //
         // Read attribute
         //
-        float pause ;
+        double pause ;
 
         if(null != seconds)
         {
-            pause = Float.parseFloat(seconds);
+            pause = Double.parseDouble(seconds);
             pause *= 1000;
             
         }
         else if(null != milliseconds)
         {
-            pause = Float.parseFloat(milliseconds);
+            pause = Double.parseDouble(milliseconds);
         }
         else
         {
@@ -102,7 +108,15 @@ public class OperationPause extends Operation
         //
         if (pause >= 0) 
         {
-        	Utils.pauseMilliseconds((long) pause);
+        	long duration = (long) (pause * 1000000);
+        	long actual = Utils.pauseNanoseconds(duration);
+        	// an interrupted pause is not counted : its delay error is not significant
+        	if (actual >= 0)
+        	{
+        		// delay error (actual - requested) in milliseconds
+        		StatPool.getInstance().addValue(PAUSE_NUMBER_KEY, 1);
+        		StatPool.getInstance().addValue(PAUSE_ERROR_TIME_KEY, (float) (actual - duration) / 1000000);
+        	}
         }
         else
         {
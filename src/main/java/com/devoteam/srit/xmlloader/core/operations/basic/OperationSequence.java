@@ -30,7 +30,7 @@ import com.devoteam.srit.xmlloader.core.ScenarioRunner;
 import com.devoteam.srit.xmlloader.core.exception.GotoExecutionException;
 import com.devoteam.srit.xmlloader.core.operations.Operation;
 import java.util.ArrayList;
-import java.util.HashSet;
+import java.util.HashMap;
 import java.util.List;
 import org.dom4j.Element;
 
@@ -44,11 +44,18 @@ public class OperationSequence extends Operation {
     private Scenario scenario;
     private ArrayList<Operation> operations;
 
+    /** index of the labels whose names do not contain parameters */
+    private HashMap<String, Integer> labelIndexes;
+
+    /** indexes (ascending) of the labels whose names contain parameters */
+    private int[] dynamicLabelIndexes;
+
     public OperationSequence(Element root, Scenario scenario) throws Exception {
         super(root, null);
         this.scenario = scenario;
         this.operations = new ArrayList<Operation>();
-        HashSet<String> labelNames = new HashSet();
+        this.labelIndexes = new HashMap<String, Integer>();
+        ArrayList<Integer> dynamicLabels = new ArrayList<Integer>();
         if (null != root) {
             for (Element element : (List<Element>) root.elements()) {
                 Operation operation = this.scenario.parseOperation(element);
@@ -56,17 +63,43 @@ public class OperationSequence extends Operation {
                 // check labels names unicity
                 if (operation instanceof OperationLabel) {
                     // only check unicity for labels that do not contain parameters in their names
-                    if (!Parameter.containsParameter(operation.getRootElement().attributeValue("name"))) {
-                        if (labelNames.contains(operation.getRootElement().attributeValue("name"))) {
+                    String labelName = operation.getRootElement().attributeValue("name");
+                    if (!Parameter.containsParameter(labelName)) {
+                        if (this.labelIndexes.containsKey(labelName)) {
                             throw new Exception("Duplicated label name in operations sequence:\n" + this);
                         }
-                        labelNames.add(operation.getRootElement().attributeValue("name"));
+                        this.labelIndexes.put(labelName, this.operations.size());
+                    }
+                    else {
+                        dynamicLabels.add(this.operations.size());
                     }
                 }
 
                 this.operations.add(operation);
             }
         }
+        this.dynamicLabelIndexes = new int[dynamicLabels.size()];
+        for (int i = 0; i < this.dynamicLabelIndexes.length; i++) {
+            this.dynamicLabelIndexes[i] = dynamicLabels.get(i);
+        }
+    }
+
+    /**
+     * Get the index of the label in this sequence or -1 if not found;
+     * when several labels match, the last one is used.
+     */
+    private int getLabelIndex(Runner runner, String labelName) throws Exception {
+        Integer staticIndex = this.labelIndexes.get(labelName);
+        int index = (null == staticIndex) ? -1 : staticIndex;
+
+        // the names containing parameters are only known at run time
+        for (int i = this.dynamicLabelIndexes.length - 1; i >= 0 && this.dynamicLabelIndexes[i] > index; i--) {
+            OperationLabel label = (OperationLabel) this.operations.get(this.dynamicLabelIndexes[i]);
+            if (label.getLabelName(runner).equals(labelName)) {
+                return this.dynamicLabelIndexes[i];
+            }
+        }
+        return index;
     }
 
     /**
@@ -89,13 +122,7 @@ public class OperationSequence extends Operation {
                 index++;
             }
             catch (GotoExecutionException e) {
-                index = -1;
-                String labelName = e.getLabel();
-                for (int i = 0; i < size; i++) {
-                    if ((operations.get(i) instanceof OperationLabel) && ((OperationLabel) operations.get(i)).getLabelName(runner).equals(labelName)) {
-                        index = i;
-                    }
-                }
+                index = getLabelIndex(runner, e.getLabel());
 
                 if (-1 == index) {
                     throw e;
@@ -32,9 +32,11 @@ import com.devoteam.srit.xmlloader.core.pluggable.AbstractPluggableComponent;
 
 import java.text.DecimalFormat;
 import java.text.DecimalFormatSymbols;
+import java.util.Collections;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Vector;
 
 /**
  *
@@ -92,9 +94,7 @@ abstract public class AbstractPluggableParameterOperator extends AbstractPluggab
             else if(parameter.length() == 1)
             {
                 // here, the parameter size should be either finalSize, either 0
-                Parameter myParameter = new Parameter();
-                entry.setValue(myParameter);
-                while(myParameter.length() < finalSize) myParameter.add(parameter.get(0));
+                entry.setValue(new Parameter(new Vector<Object>(Collections.nCopies(finalSize, parameter.get(0)))));
             }
         }
     }
@@ -33,14 +33,13 @@ import com.devoteam.srit.xmlloader.core.coding.binary.Dictionary;
 import com.devoteam.srit.xmlloader.core.coding.binary.ElementAbstract;
 import com.devoteam.srit.xmlloader.core.exception.ParameterException;
 import com.devoteam.srit.xmlloader.core.pluggable.PluggableName;
+import com.devoteam.srit.xmlloader.core.utils.CryptoPool;
 import com.devoteam.srit.xmlloader.core.utils.GenericWrapper;
 import com.devoteam.srit.xmlloader.core.utils.Utils;
 
 import gp.utils.arrays.Array;
 import gp.utils.arrays.CipherArray;
 import gp.utils.arrays.DefaultArray;
-import gp.utils.arrays.DigestArray;
-import gp.utils.arrays.MacArray;
 import gp.utils.arrays.RandomArray;
 import gp.utils.arrays.SupArray;
 
@@ -303,17 +302,15 @@ public class PluggableParameterOperatorBinary extends AbstractPluggableParameter
                 else if (name.equalsIgnoreCase(NAME_BIN_DIGEST))
                 {
                     Parameter algo = PluggableParameterOperatorList.assertAndGetParameter(operands, "value2");
-                    Array data = Array.fromHexString(param_1.get(i).toString());
-                    DigestArray array = new DigestArray(data, algo.get(i).toString());
-                    result.add(Array.toHexString(array));
+                    byte[] data = Array.fromHexString(param_1.get(i).toString()).getBytes();
+                    result.add(CryptoPool.toHexString(CryptoPool.digest(algo.get(i).toString(), data)));
                 }
                 else if (name.equalsIgnoreCase(NAME_BIN_HMAC))
                 {
                     Parameter algo = PluggableParameterOperatorList.assertAndGetParameter(operands, "value2");
-                    Array data = Array.fromHexString(param_1.get(i).toString());
-                    Array secret = Array.fromHexString(PluggableParameterOperatorList.assertAndGetParameter(operands, "value3").get(i).toString());
-                    MacArray array = new MacArray(data, algo.get(i).toString(), secret);
-                    result.add(Array.toHexString(array));
+                    byte[] data = Array.fromHexString(param_1.get(i).toString()).getBytes();
+                    byte[] secret = Array.fromHexString(PluggableParameterOperatorList.assertAndGetParameter(operands, "value3").get(i).toString()).getBytes();
+                    result.add(CryptoPool.toHexString(CryptoPool.hmac(algo.get(i).toString(), secret, data)));
                 }
                 else if (name.equalsIgnoreCase(NAME_BIN_ENCRYPT))
                 {
@@ -479,16 +476,8 @@ public class PluggableParameterOperatorBinary extends AbstractPluggableParameter
                 	int ROC = Integer.parseInt(param_3.get(0).toString());
                 	
 
-                	Mac hmacSha1 = Mac.getInstance("HmacSHA1");
-                	SecretKey key = new SecretKeySpec(authKey, "HMAC");
-                	try 
-                    {
-                        hmacSha1.init(key);
-                    } 
-                    catch (InvalidKeyException e) 
-                    {
-                        e.printStackTrace();
-                    }
+                	// pooled MAC object of the current thread already initialized with the key
+                	Mac hmacSha1 = CryptoPool.getMac("HmacSHA1", authKey);
                 	
                 	hmacSha1.update(data.getBytes(), 0, data.getBytes().length);
                 	byte[] rb = new byte[4];
@@ -27,6 +27,7 @@ import com.devoteam.srit.xmlloader.core.Parameter;
 import com.devoteam.srit.xmlloader.core.Runner;
 import com.devoteam.srit.xmlloader.core.exception.ParameterException;
 import com.devoteam.srit.xmlloader.core.pluggable.PluggableName;
+import com.devoteam.srit.xmlloader.core.utils.RandomGenerator;
 import com.devoteam.srit.xmlloader.core.utils.Utils;
 
 import java.util.Map;
@@ -151,7 +152,7 @@ public class PluggableParameterOperatorBoolean extends AbstractPluggableParamete
         }
         else if(name.equals(NAME_B_RAND))
         {
-            result.add(String.valueOf(Math.random() >= 0.5));
+            result.add(String.valueOf(RandomGenerator.get(runner).nextBoolean()));
         }
         else throw new RuntimeException("unsupported operation " + name);
         
@@ -29,11 +29,10 @@ import com.devoteam.srit.xmlloader.core.exception.ParameterException;
 import com.devoteam.srit.xmlloader.core.log.GlobalLogger;
 import com.devoteam.srit.xmlloader.core.log.TextEvent.Topic;
 import com.devoteam.srit.xmlloader.core.pluggable.PluggableName;
+import com.devoteam.srit.xmlloader.core.utils.CryptoPool;
 import com.devoteam.srit.xmlloader.core.utils.Utils;
-import java.security.MessageDigest;
 import java.util.Map;
 import javax.crypto.Mac;
-import javax.crypto.spec.SecretKeySpec;
 
 /**
  *
@@ -103,33 +102,15 @@ public class PluggableParameterOperatorDigest extends AbstractPluggableParameter
 
     public String executeDigest(String var1, String var2) throws Exception
     {
-        MessageDigest msgDigest = MessageDigest.getInstance(var2);
         byte[] inputs = var1.getBytes();
 
-
-        byte[] outputs = msgDigest.digest(inputs);
-        String md5 = "";
-        for (int i = 0; i < outputs.length; i++)
-        {
-            int integer = outputs[i];
-            if (integer < 0)
-            {
-                integer = outputs[i] + 256;
-            }
-            String str = Integer.toHexString(integer);
-            while (str.length() < 2)
-            {
-                str = "0" + str;
-            }
-            md5 += str;
-        }
-        return md5;
+        // pooled digest instance of the current thread
+        byte[] outputs = CryptoPool.digest(var2, inputs);
+        return CryptoPool.toHexString(outputs);
     }
 
     public String executeMD5(String var1, String var2) throws Exception
     {
-        MessageDigest msgDigest = MessageDigest.getInstance("MD5");
-
         byte[] inputs;
 
         if (var2.equalsIgnoreCase("binary"))
@@ -141,48 +122,22 @@ public class PluggableParameterOperatorDigest extends AbstractPluggableParameter
             inputs = var1.getBytes();
         }
 
-        byte[] outputs = msgDigest.digest(inputs);
-        String md5 = "";
-        for (int i = 0; i < outputs.length; i++)
-        {
-            int integer = outputs[i];
-            if (integer < 0)
-            {
-                integer = outputs[i] + 256;
-            }
-            String str = Integer.toHexString(integer);
-            while (str.length() < 2)
-            {
-                str = "0" + str;
-            }
-            md5 += str;
-        }
-
-        return md5;
+        byte[] outputs = CryptoPool.digest("MD5", inputs);
+        return CryptoPool.toHexString(outputs);
     }
     static public final String HEX_DIGITS = "0123456789abcdef";
 
     /** Creates a new instance of ListOperationAdd */
     public String executeHMacMD5(String input, String secret) throws Exception
     {
-        SecretKeySpec key = new SecretKeySpec(secret.getBytes("UTF8"), "HmacMD5");
-
-        // Create a MAC object using HMAC-MD5 and initialize with key
-        Mac mac = Mac.getInstance(key.getAlgorithm());
-        mac.init(key);
+        // get the pooled MAC object using HMAC-MD5 already initialized with the key
+        Mac mac = CryptoPool.getMac("HmacMD5", secret.getBytes("UTF8"));
 
         // Encode the string into bytes
         byte[] utf8 = Utils.parseBinaryString(input);
         // performs digest on it
         byte[] digest = mac.doFinal(utf8);
         // Convert the digest into a string
-        StringBuilder output = new StringBuilder(digest.length * 2);
-        for (int i = 0; i < digest.length; i++)
-        {
-            int b = digest[i] & 0xFF;
-            output.append(HEX_DIGITS.charAt(b >>> 4)).append(HEX_DIGITS.charAt(b & 0x0F));
-        }
-
-        return output.toString();
+        return CryptoPool.toHexString(digest);
     }
 }
@@ -28,13 +28,14 @@ import com.devoteam.srit.xmlloader.core.ParameterPool;
 import com.devoteam.srit.xmlloader.core.Runner;
 import com.devoteam.srit.xmlloader.core.exception.ParameterException;
 import com.devoteam.srit.xmlloader.core.pluggable.PluggableName;
-import com.devoteam.srit.xmlloader.core.utils.CSVReader;
+import com.devoteam.srit.xmlloader.core.utils.CSVTable;
 import com.devoteam.srit.xmlloader.core.utils.Config;
 import com.devoteam.srit.xmlloader.core.utils.URIRegistry;
 import com.devoteam.srit.xmlloader.core.utils.Utils;
 import com.devoteam.srit.xmlloader.core.utils.XMLLoaderEntityResolver;
 import com.devoteam.srit.xmlloader.core.utils.filesystem.SingletonFSInterface;
-import com.devoteam.srit.xmlloader.rtp.flow.WAVReader;
+import com.devoteam.srit.xmlloader.rtp.flow.PayloadLibrary;
+import com.devoteam.srit.xmlloader.rtp.flow.PayloadLibrary.WavMedia;
 
 import gp.utils.arrays.Array;
 import gp.utils.arrays.DefaultArray;
@@ -42,7 +43,6 @@ import gp.utils.arrays.SupArray;
 
 import java.io.File;
 import java.io.FileInputStream;
-import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.InputStream;
 import java.io.OutputStream;
@@ -50,7 +50,6 @@ import java.net.URI;
 import java.util.List;
 import java.util.Map;
 
-import javax.sound.sampled.AudioFileFormat;
 
 import org.dom4j.Document;
 import org.dom4j.Element;
@@ -74,6 +73,8 @@ public class PluggableParameterOperatorFile extends AbstractPluggableParameterOp
     final private String NAME_READPROPERTY  = "file.readproperty";
     final private String NAME_LISTPROPERTYKEYS = "file.listpropertykeys";
     final private String NAME_READCSV       = "file.readcsv";
+    final private String NAME_READCSVLINE   = "file.readcsvline";
+    final private String NAME_FINDCSV       = "file.findcsv";
     final private String NAME_REMOVE        = "file.remove";
     final private String NAME_EXISTS        = "file.exists";
     final private String NAME_CREATE        = "file.create";
@@ -93,6 +94,8 @@ public class PluggableParameterOperatorFile extends AbstractPluggableParameterOp
         this.addPluggableName(new PluggableName(NAME_READPROPERTY));
         this.addPluggableName(new PluggableName(NAME_LISTPROPERTYKEYS));
         this.addPluggableName(new PluggableName(NAME_READCSV));
+        this.addPluggableName(new PluggableName(NAME_READCSVLINE));
+        this.addPluggableName(new PluggableName(NAME_FINDCSV));
         this.addPluggableName(new PluggableName(NAME_READMEDIA));
         this.addPluggableName(new PluggableName(NAME_READWAVE));
         this.addPluggableName(new PluggableName(NAME_WRITEWAVE));
@@ -199,11 +202,9 @@ public class PluggableParameterOperatorFile extends AbstractPluggableParameterOp
             {
                 Parameter csvCol = PluggableParameterOperatorList.assertAndGetParameter(operands, "value2");
 
-                String comment = Config.getConfigByName("tester.properties").getString("operations.CSV_COMMENT_CHAR", "#");
-                String separator = Config.getConfigByName("tester.properties").getString("operations.CSV_SEPARATOR_CHAR", ";");
-                String escape = Config.getConfigByName("tester.properties").getString("operations.CSV_ESCAPE_CHAR", "\"");
-                CSVReader csvReader = new CSVReader(comment, separator, escape + escape);
-                
+                // the file is parsed once and kept in memory while it is not modified
+                CSVTable csvTable = getCSVTable(filePathURI);
+
                 String var2 = csvCol.get(0).toString();
                 int column = -1;
 
@@ -211,23 +212,15 @@ public class PluggableParameterOperatorFile extends AbstractPluggableParameterOp
                 if (Utils.isInteger(var2))
                 {
                     column = Integer.parseInt(var2);
-                    listData = csvReader.loadData(filePathURI, column, false);
+                    listData = csvTable.getColumn(column, false);
                 }
                 else
                 {
 	                // get the header line to retrieve the column number
-	                String[] listHeader = csvReader.loadHeader(filePathURI);
-	                for (int j = 0; j < listHeader.length; j++)
-	                {
-	                    if (listHeader[j].equals(var2.trim()))
-	                    {
-	                        column = j;
-	                        break;
-	                    }
-	                }
+	                column = csvTable.getColumnIndex(var2);
 	                if (column >= 0)
 	                {
-	                	listData = csvReader.loadData(filePathURI, column, true);
+	                	listData = csvTable.getColumn(column, true);
 	                }
                 }
                 if (listData != null)
@@ -235,6 +228,47 @@ public class PluggableParameterOperatorFile extends AbstractPluggableParameterOp
                 	result.addAll(listData);
                 }
             }
+            else if(name.equals(NAME_READCSVLINE))
+            {
+                Parameter csvLine = PluggableParameterOperatorList.assertAndGetParameter(operands, "value2");
+
+                CSVTable csvTable = getCSVTable(filePathURI);
+                // the lines are counted as for file.readcsv with a column index (header included)
+                int line = Integer.parseInt(csvLine.get(0).toString());
+                if (line >= 0 && line < csvTable.getLineCount())
+                {
+                    for (String value : csvTable.getLine(line))
+                    {
+                        result.add(value);
+                    }
+                }
+            }
+            else if(name.equals(NAME_FINDCSV))
+            {
+                Parameter csvKeyCol = PluggableParameterOperatorList.assertAndGetParameter(operands, "value2");
+                Parameter csvKey = PluggableParameterOperatorList.assertAndGetParameter(operands, "value3");
+                Parameter csvCol = PluggableParameterOperatorList.assertAndGetParameter(operands, "value4");
+
+                CSVTable csvTable = getCSVTable(filePathURI);
+
+                // the header line is ignored when a column is given by its title
+                String keyColName = csvKeyCol.get(0).toString();
+                String colName = csvCol.get(0).toString();
+                boolean ignoreFirst = !Utils.isInteger(keyColName) || !Utils.isInteger(colName);
+                int keyColumn = Utils.isInteger(keyColName) ? Integer.parseInt(keyColName) : csvTable.getColumnIndex(keyColName);
+                int column = Utils.isInteger(colName) ? Integer.parseInt(colName) : csvTable.getColumnIndex(colName);
+                if (keyColumn >= 0 && column >= 0)
+                {
+                    for (int line : csvTable.findLines(keyColumn, csvKey.get(0).toString(), ignoreFirst))
+                    {
+                        String[] values = csvTable.getLine(line);
+                        if (column < values.length)
+                        {
+                            result.add(values[column]);
+                        }
+                    }
+                }
+            }
             else if(name.equals(NAME_READMEDIA))
             {
                 String resultantUnbracketed = ParameterPool.unbracket(resultant);
@@ -331,73 +365,25 @@ public class PluggableParameterOperatorFile extends AbstractPluggableParameterOp
                 Parameter payloadType = new Parameter(resultantUnbracketed + ".payloadType");
                 Parameter bitRate = new Parameter(resultantUnbracketed + ".bitRate");
 
-                InputStream in = null;
-                WAVReader waveFileReader = null;
-                AudioFileFormat format = null;
-                try {
-	                in = SingletonFSInterface.instance().getInputStream(filePathURI);
-	                if (in == null)
-	                {
-	                	Exception e = new FileNotFoundException(filePathURI.toString() + " file is not found.");
-	                	throw e;
-	                }
-	                waveFileReader = new WAVReader();
-	                format = waveFileReader.getAudioFileFormat(in);
-	                in.close();
-                }
-                catch(Exception e){
-                	if (in != null) in.close();
-                    throw e;
-                }	            
-                
-                if (format != null){
-                	byte[] payload = waveFileReader.getPayload();
-
-                    //recuperation du nombre de paquets par ech a partir du fichier xml
-                    Parameter paraDeltaTimeMilliSec = PluggableParameterOperatorList.assertAndGetParameter(operands, "value2");
-                    String strDeltaTimeMilliSec = paraDeltaTimeMilliSec.get(0).toString();
-                    int deltaTimeMilliSec = Integer.parseInt(strDeltaTimeMilliSec);
-                    int nbEchPerPacket = deltaTimeMilliSec  * waveFileReader.getBitRate() / 8;
-
-                    //recuperation du nombre totale de paquets
-                    int nbPacket = payload.length / nbEchPerPacket;
-                    int nbFullPacket = nbPacket;
-                    int nbEchInLastPacket = 0;
-                    if (payload.length % nbEchPerPacket != 0){
-                        //si la division a un reste, un rajoute un paquet qui ne sera pas plein
-                        nbEchInLastPacket = payload.length - nbEchPerPacket*nbPacket;
-                        nbPacket++;
-                    }
+                //recuperation du nombre de paquets par ech a partir du fichier xml
+                Parameter paraDeltaTimeMilliSec = PluggableParameterOperatorList.assertAndGetParameter(operands, "value2");
+                String strDeltaTimeMilliSec = paraDeltaTimeMilliSec.get(0).toString();
+                int deltaTimeMilliSec = Integer.parseInt(strDeltaTimeMilliSec);
 
-                    //recuperation et decoupage du payload
-                    byte[] val;
-                    for (int j = 0; j < payload.length; j += nbEchPerPacket){
-                        DefaultArray temp;
-                        if (j < nbFullPacket*nbEchPerPacket){
-                            val = new byte[nbEchPerPacket];
-                            for (int k = j; k < j+nbEchPerPacket; k++){
-                                val[k-j] = payload[k];
-                            }
-                             temp = new DefaultArray(val);
-                            payloadList.add(Array.toHexString(temp));
-                        }
-                        else{
-                            val = new byte[nbEchInLastPacket];
-                            //on ajoute le dernier paquet qui ne sera pas plein
-                            for (int k = j; k < j+nbEchInLastPacket; k++){
-                                val[k-j] = payload[k];
-                            }
-                            temp = new DefaultArray(val);
-                            payloadList.add(Array.toHexString(temp));
-                        }
+                // the file is read and cut into packets once for all the runners
+                WavMedia media = PayloadLibrary.getWavMedia(filePathURI, deltaTimeMilliSec);
+                
+                if (media.isValid()){
+                    for (String hexPayload : media.getHexPayloads()){
+                        payloadList.add(hexPayload);
                     }
-                    int payloadTypeInt = waveFileReader.getPayloadType();
+                    int payloadTypeInt = media.getPayloadType();
                     if (!(payloadTypeInt != 0) && !(payloadTypeInt != 8)) {
                     	throw new ParameterException("The codec is not supported : " + payloadTypeInt);
                     }
                     payloadType.add(payloadTypeInt);
                     
-                    bitRate.add(waveFileReader.getBitRate());
+                    bitRate.add(media.getBitRate());
 
                     runner.getParameterPool().set("["+ resultantUnbracketed + ".payload" + "]", payloadList);
                     runner.getParameterPool().set("["+ resultantUnbracketed + ".payloadType" + "]", payloadType);
@@ -580,4 +566,15 @@ public class PluggableParameterOperatorFile extends AbstractPluggableParameterOp
         }
         return result;
     }
+
+    /**
+     * Get the in-memory content of a CSV file parsed with the configured characters
+     */
+    private CSVTable getCSVTable(URI filePathURI) throws Exception
+    {
+        String comment = Config.getConfigByName("tester.properties").getString("operations.CSV_COMMENT_CHAR", "#");
+        String separator = Config.getConfigByName("tester.properties").getString("operations.CSV_SEPARATOR_CHAR", ";");
+        String escape = Config.getConfigByName("tester.properties").getString("operations.CSV_ESCAPE_CHAR", "\"");
+        return CSVTable.getTable(filePathURI, comment, separator, escape + escape);
+    }
 }
\ No newline at end of file
@@ -29,8 +29,10 @@ import com.devoteam.srit.xmlloader.core.exception.ParameterException;
 import com.devoteam.srit.xmlloader.core.log.GlobalLogger;
 import com.devoteam.srit.xmlloader.core.log.TextEvent.Topic;
 import com.devoteam.srit.xmlloader.core.pluggable.PluggableName;
+import com.devoteam.srit.xmlloader.core.utils.RandomGenerator;
 import com.devoteam.srit.xmlloader.core.utils.Utils;
 import java.util.Map;
+import java.util.Random;
 
 /**
  *
@@ -51,6 +53,7 @@ public class PluggableParameterOperatorIdentifier extends AbstractPluggableParam
         Parameter identifierAction = PluggableParameterOperatorList.assertAndGetParameter(operands, "value");
         Parameter identifierParam = PluggableParameterOperatorList.assertAndGetParameter(operands, "value2");
         Parameter result = new Parameter();
+        Random random = RandomGenerator.get(runner);
         try
         {
             for (int i = 0; i < identifierAction.length(); i++)
@@ -67,7 +70,7 @@ public class PluggableParameterOperatorIdentifier extends AbstractPluggableParam
                 			"number.random" +
                  			"\" value=\"xxx\"/"            		
                     		);
-                    long number = (long) Math.floor(Math.random()*Integer.valueOf(var2)); // generates a new Integer between 0 and var2
+                    long number = (long) Math.floor(random.nextDouble()*Integer.valueOf(var2)); // generates a new Integer between 0 and var2
                     String res = String.valueOf(number);
                     int length = var2.length();
 
@@ -98,24 +101,7 @@ public class PluggableParameterOperatorIdentifier extends AbstractPluggableParam
                 			"string.random" +
                  			"\" value=\"xxx\"/"            		
                     		);                	
-                    StringBuilder s = new StringBuilder();
-                    for (int j = 0; j < Integer.valueOf(var2); j++)
-                    {
-                        int nextChar = (int) (Math.random() * 62);
-                        if (nextChar < 10) //0-9
-                        {
-                            s.append(nextChar);
-                        }
-                        else if (nextChar < 36) //a-z
-                        {
-                            s.append((char) (nextChar - 10 + 'a'));
-                        }
-                        else //A-Z
-                        {
-                            s.append((char) (nextChar - 36 + 'A'));
-                        }
-                    }
-                    result.add(s.toString());
+                    result.add(Utils.randomString(random, Integer.valueOf(var2)));
                 }
                 else
                 {
@@ -135,10 +121,8 @@ public class PluggableParameterOperatorIdentifier extends AbstractPluggableParam
         return result;
     }
     
-    static private long nextInteger = 0;
-    
-    public static synchronized long nextInteger()
+    public static long nextInteger()
     {
-        return nextInteger++;
+        return RandomGenerator.nextUID();
     }
 }
@@ -29,10 +29,12 @@ import com.devoteam.srit.xmlloader.core.log.GlobalLogger;
 import com.devoteam.srit.xmlloader.core.log.TextEvent;
 import com.devoteam.srit.xmlloader.core.operations.basic.operators.AbstractPluggableParameterOperator;
 import com.devoteam.srit.xmlloader.core.pluggable.PluggableName;
+import com.devoteam.srit.xmlloader.core.utils.DocumentCache;
 import com.jayway.jsonpath.Configuration;
 import com.jayway.jsonpath.JsonPath;
 
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import net.minidev.json.JSONArray;
 
@@ -44,6 +46,15 @@ public class PluggableParameterOperatorJson extends AbstractPluggableParameterOp
 {
 
     final private String NAME_JSON_JPATH = "string.jpath";
+
+    /** Maximum number of compiled paths kept in memory */
+    private static final int MAX_SIZE = 1000;
+
+    /** compiled paths by expression */
+    private static final Map<String, JsonPath> PATH_CACHE = new ConcurrentHashMap<String, JsonPath>();
+
+    /** parsed documents by source text */
+    private static final DocumentCache DOCUMENTS = new DocumentCache();
  
     public PluggableParameterOperatorJson()
     {
@@ -66,11 +77,16 @@ public class PluggableParameterOperatorJson extends AbstractPluggableParameterOp
                 String var2 = param2.get(i).toString();
                 
                 // Retrieve JSON content
-                GlobalLogger.instance().getSessionLogger().debug(TextEvent.Topic.USER, NAME_JSON_JPATH + ": JSON content is " + var1);
-                GlobalLogger.instance().getSessionLogger().debug(TextEvent.Topic.USER, NAME_JSON_JPATH + ": JSON path is " + var2);
+                GlobalLogger.instance().getSessionLogger().debug(TextEvent.Topic.USER, NAME_JSON_JPATH, ": JSON content is ", var1);
+                GlobalLogger.instance().getSessionLogger().debug(TextEvent.Topic.USER, NAME_JSON_JPATH, ": JSON path is ", var2);
                 
-    			      Object document = Configuration.defaultConfiguration().jsonProvider().parse(var1);
-                Object path_result = JsonPath.read(document, var2);
+                Object document = DOCUMENTS.get(var1);
+                if (document == null)
+                {
+                    document = Configuration.defaultConfiguration().jsonProvider().parse(var1);
+                    DOCUMENTS.put(var1, document);
+                }
+                Object path_result = getPath(var2).read(document);
                 
                 // Prepare result
                 if( path_result instanceof JSONArray && ((JSONArray) path_result).size() > 0)
@@ -81,7 +97,7 @@ public class PluggableParameterOperatorJson extends AbstractPluggableParameterOp
                 else
                 	result.add(path_result.toString());
                 
-                GlobalLogger.instance().getSessionLogger().debug(TextEvent.Topic.USER, NAME_JSON_JPATH + ": JSON result is " + result.toString());
+                GlobalLogger.instance().getSessionLogger().debug(TextEvent.Topic.USER, NAME_JSON_JPATH, ": JSON result is ", result);
             }
         }
         catch (Exception e)
@@ -90,4 +106,19 @@ public class PluggableParameterOperatorJson extends AbstractPluggableParameterOp
         }
         return result;
     }
+
+    private static JsonPath getPath(String expression)
+    {
+        JsonPath path = PATH_CACHE.get(expression);
+        if (path == null)
+        {
+            path = JsonPath.compile(expression);
+            if (PATH_CACHE.size() >= MAX_SIZE)
+            {
+                PATH_CACHE.clear();
+            }
+            PATH_CACHE.put(expression, path);
+        }
+        return path;
+    }
 }
@@ -27,6 +27,7 @@ import com.devoteam.srit.xmlloader.core.Parameter;
 import com.devoteam.srit.xmlloader.core.Runner;
 import com.devoteam.srit.xmlloader.core.exception.ParameterException;
 import com.devoteam.srit.xmlloader.core.pluggable.PluggableName;
+import com.devoteam.srit.xmlloader.core.utils.RandomGenerator;
 
 import gp.utils.arrays.Array;
 
@@ -37,6 +38,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.Random;
 import java.util.Collections;
 import java.util.Vector;
 import java.util.concurrent.LinkedBlockingQueue;
@@ -143,25 +145,22 @@ public class PluggableParameterOperatorList extends AbstractPluggableParameterOp
         }
         else if(name.equalsIgnoreCase(NAME_ADDFIRST) || name.equalsIgnoreCase(NAME_L_ADDFIRST))
         {
-            Parameter result = new Parameter();
             Parameter list1 = PluggableParameterOperatorList.assertAndGetParameter(operands, "value");
             Parameter list2 = PluggableParameterOperatorList.assertAndGetParameter(operands, "value2");
-            int len = list2.length();
-            for(int i=0; i<len; i++) result.add(list2.get(i));
-            len = list1.length();
-            for(int i=0; i<len; i++) result.add(list1.get(i));
+            Parameter result = new Parameter(new Vector<Object>(list1.length() + list2.length()));
+            result.addAll(list2);
+            result.addAll(list1);
             return result;
         }
         else if(name.equalsIgnoreCase(NAME_APPEND) || name.equalsIgnoreCase(NAME_ADDLAST) || name.equalsIgnoreCase(NAME_L_ADDLAST))
         {
-            Parameter result = new Parameter();
             Parameter list1 = PluggableParameterOperatorList.assertAndGetParameter(operands, "value");
             Parameter list2 = PluggableParameterOperatorList.assertAndGetParameter(operands, "value2");
-            int len = list1.length();
-            for(int i=0; i<len; i++) result.add(list1.get(i));
-            len = list2.length();
-            for(int i=0; i<len; i++) result.add(list2.get(i));
-            return result;        }        
+            Parameter result = new Parameter(new Vector<Object>(list1.length() + list2.length()));
+            result.addAll(list1);
+            result.addAll(list2);
+            return result;
+        }        
         else if(name.equalsIgnoreCase(NAME_GETFIRST) || name.equalsIgnoreCase(NAME_L_GETFIRST))
         {
             Parameter result = new Parameter();
@@ -178,30 +177,25 @@ public class PluggableParameterOperatorList extends AbstractPluggableParameterOp
         }
         else if(name.equalsIgnoreCase(NAME_REMOVEFIRST) || name.equalsIgnoreCase(NAME_L_REMOVEFIRST))
         {
-            Parameter result = new Parameter();
             Parameter list1 = PluggableParameterOperatorList.assertAndGetParameter(operands, "value");
             int len = list1.length();
-            for(int i=0; i<len; i++) result.add(list1.get(i));
-            if(result.length() > 0) result.remove(0);
-            return result;
+            if(len == 0) return new Parameter();
+            return list1.subParameter(1, len);
         }
         else if(name.equalsIgnoreCase(NAME_REMOVELAST) || name.equalsIgnoreCase(NAME_L_REMOVELAST))
         {
-            Parameter result = new Parameter();
             Parameter list1 = PluggableParameterOperatorList.assertAndGetParameter(operands, "value");
             int len = list1.length();
-            for(int i=0; i<len; i++) result.add(list1.get(i));
-            if(result.length() > 0) result.remove(list1.length() - 1);
-            return result;
+            if(len == 0) return new Parameter();
+            return list1.subParameter(0, len - 1);
         }
         else if(name.equalsIgnoreCase(NAME_REMOVEAT) || name.equalsIgnoreCase(NAME_L_REMOVEAT))
         {
-            Parameter result = new Parameter();
             Parameter list1 = PluggableParameterOperatorList.assertAndGetParameter(operands, "value");
             Parameter indexesParam = PluggableParameterOperatorList.assertAndGetParameter(operands, "value2");
 
-            int len = list1.length();
-            for(int i=0; i<len; i++) result.add(list1.get(i));
+            // the values are copied only once, by the first removal
+            Parameter result = list1.share();
 
             int[] indexes = new int[indexesParam.length()];
             for(int i=0; i<indexes.length; i++)
@@ -224,10 +218,10 @@ public class PluggableParameterOperatorList extends AbstractPluggableParameterOp
         }
         else if(name.equalsIgnoreCase(NAME_L_REVERT)){
         	
-        	Parameter result = new Parameter();
             Parameter list1 = PluggableParameterOperatorList.assertAndGetParameter(operands, "value");
             
             int len = list1.length();
+        	Parameter result = new Parameter(new Vector<Object>(len));
             for(int i=0; i<len; i++)
             {
                 result.add(list1.get(len-i-1));
@@ -236,17 +230,19 @@ public class PluggableParameterOperatorList extends AbstractPluggableParameterOp
         }
         else if(name.equalsIgnoreCase(NAME_L_MIXCOMPLETE)){
         	
-        	Parameter result = new Parameter();
-            Parameter list1 = PluggableParameterOperatorList.assertAndGetParameter(operands, "value");
+            // the operand is not modified : work on a copy-on-write copy
+            Parameter list1 = PluggableParameterOperatorList.assertAndGetParameter(operands, "value").share();
             
             int len = list1.length();
+        	Parameter result = new Parameter(new Vector<Object>(len));
             int len2=len;
+            Random random = RandomGenerator.get(runner);
             double d;
             int nb;
             int nb2;
             
             for (int i = 0; i < len; i++) {
-                d = Math.random();
+                d = random.nextDouble();
                 nb = (int) (d*len*1000000);
                 nb2 = nb % len2;
 				result.add(list1.get(nb2));
@@ -258,17 +254,19 @@ public class PluggableParameterOperatorList extends AbstractPluggableParameterOp
         }
         else if(name.equalsIgnoreCase(NAME_L_MIX)){
         	
-            Parameter result = PluggableParameterOperatorList.assertAndGetParameter(operands, "value");
+            // the operand is not modified : work on a copy-on-write copy
+            Parameter result = PluggableParameterOperatorList.assertAndGetParameter(operands, "value").share();
             Parameter list2 = PluggableParameterOperatorList.assertAndGetParameter(operands, "value2");
             
             int len = result.length();
             int value = Integer.valueOf(list2.get(0).toString());
             
             int d1,d2;
+            Random random = RandomGenerator.get(runner);
             
             for (int i = 0; i < value; i++) {
-            	d1 = (int)((Math.random())*len*100)%len;
-            	d2 = (int)((Math.random())*len*100)%len;
+            	d1 = (int)((random.nextDouble())*len*100)%len;
+            	d2 = (int)((random.nextDouble())*len*100)%len;
             	Object plop = result.get(d1);
             	try {
             		result.set(d1, result.get(d2));
@@ -288,13 +286,13 @@ public class PluggableParameterOperatorList extends AbstractPluggableParameterOp
         	
         	Parameter result = new Parameter();
             Parameter list1 = PluggableParameterOperatorList.assertAndGetParameter(operands, "value");
-            Vector<Object> list2 = list1.getArray();
+            double[] values = toDoubles(list1);
             int len = list1.length();
             
-            double res = Double.parseDouble(list2.get(0).toString());
+            double res = values[0];
             for (int i = 1; i < len; i++) {
-				if (res<Double.parseDouble(list2.get(i).toString())) {
-					res=Double.parseDouble(list2.get(i).toString());
+				if (res<values[i]) {
+					res=values[i];
 				}
 			}
             result.add(formatDouble(res));
@@ -305,13 +303,13 @@ public class PluggableParameterOperatorList extends AbstractPluggableParameterOp
         	
         	Parameter result = new Parameter();
             Parameter list1 = PluggableParameterOperatorList.assertAndGetParameter(operands, "value");
-            Vector<Object> list2 = list1.getArray();
+            double[] values = toDoubles(list1);
             int len = list1.length();
             
-            double res = Double.parseDouble(list2.get(0).toString());
+            double res = values[0];
             for (int i = 1; i < len; i++) {
-				if (res>Double.parseDouble(list2.get(i).toString())) {
-					res=Double.parseDouble(list2.get(i).toString());
+				if (res>values[i]) {
+					res=values[i];
 				}
 			}
             result.add(formatDouble(res));
@@ -322,12 +320,12 @@ public class PluggableParameterOperatorList extends AbstractPluggableParameterOp
         	
         	Parameter result = new Parameter();
             Parameter list1 = PluggableParameterOperatorList.assertAndGetParameter(operands, "value");
-            Vector<Object> list2 = list1.getArray();
+            double[] values = toDoubles(list1);
             double len = list1.length();
             
-            double res = Double.parseDouble(list2.get(0).toString());
+            double res = values[0];
             for (int i = 1; i < len; i++) {
-				res+=Double.parseDouble(list2.get(i).toString());
+				res+=values[i];
 			}
             res=res/len;
             result.add(formatDouble(res));
@@ -338,18 +336,18 @@ public class PluggableParameterOperatorList extends AbstractPluggableParameterOp
         	
         	Parameter result = new Parameter();
             Parameter list1 = PluggableParameterOperatorList.assertAndGetParameter(operands, "value");
-            Vector<Object> list2 = list1.getArray();
+            double[] values = toDoubles(list1);
             double len = list1.length();
             
-            double res = Double.parseDouble(list2.get(0).toString())*Double.parseDouble(list2.get(0).toString());
+            double res = values[0]*values[0];
             for (int i = 1; i < len; i++) {
-				res+=(Double.parseDouble(list2.get(i).toString()))*(Double.parseDouble(list2.get(i).toString()));
+				res+=(values[i])*(values[i]);
 			}
             res=res/len;
             
-            double moy = Double.parseDouble(list2.get(0).toString());
+            double moy = values[0];
             for (int i = 1; i < len; i++) {
-				moy+=Double.parseDouble(list2.get(i).toString());
+				moy+=values[i];
 			}
             moy=moy/len;
             moy=moy*moy;
@@ -364,17 +362,17 @@ public class PluggableParameterOperatorList extends AbstractPluggableParameterOp
         	Parameter result = new Parameter();
             Parameter list1 = PluggableParameterOperatorList.assertAndGetParameter(operands, "value");
             int len = list1.length();
-            Vector<Object> list2 = list1.getArray();
+            double[] values = toDoubles(list1);
             
-            double res = Double.parseDouble(list2.get(0).toString())*Double.parseDouble(list2.get(0).toString());
+            double res = values[0]*values[0];
             for (int i = 1; i < len; i++) {
-				res+=(Double.parseDouble(list2.get(i).toString()))*(Double.parseDouble(list2.get(i).toString()));
+				res+=(values[i])*(values[i]);
 			}
             res = res / len;
             
-            double moy = Double.parseDouble(list2.get(0).toString());
+            double moy = values[0];
             for (int i = 1; i < len; i++) {
-				moy+=Double.parseDouble(list2.get(i).toString());
+				moy+=values[i];
 			}
             moy=moy/len;
             moy=moy*moy;
@@ -391,10 +389,9 @@ public class PluggableParameterOperatorList extends AbstractPluggableParameterOp
             Parameter list1 = PluggableParameterOperatorList.assertAndGetParameter(operands, "value");
 
         	int len=list1.length();
-        	Vector<Object> list2 = list1.getArray();
         	ArrayList<Integer> list3 = new ArrayList<Integer>();
             for (int i = 0; i < len; i++) {
-            	list3.add(Integer.valueOf(list2.get(i).toString()));
+            	list3.add(Integer.valueOf(list1.get(i).toString()));
 			}
             Collections.sort(list3);
             for (int j = 0; j < len; j++) {
@@ -408,10 +405,9 @@ public class PluggableParameterOperatorList extends AbstractPluggableParameterOp
             Parameter list1 = PluggableParameterOperatorList.assertAndGetParameter(operands, "value");
 
         	int len=list1.length();
-            Vector<Object> list2 = list1.getArray();
             ArrayList<String> list3 = new ArrayList<String>();
             for (int i = 0; i < len; i++) {
-            	list3.add(list2.get(i).toString());
+            	list3.add(list1.get(i).toString());
 			}
             Collections.sort(list3);
             for (int j = 0; j < len; j++) {
@@ -465,4 +461,18 @@ public class PluggableParameterOperatorList extends AbstractPluggableParameterOp
         else throw new RuntimeException("unsupported operation " + name);
     }
 
+    /**
+     * Parse the values of the list as numbers, each one only once
+     */
+    private static double[] toDoubles(Parameter list) throws ParameterException
+    {
+        int len = list.length();
+        double[] values = new double[len];
+        for (int i = 0; i < len; i++)
+        {
+            values[i] = Double.parseDouble(list.get(i).toString());
+        }
+        return values;
+    }
+
 }
@@ -23,12 +23,14 @@
 
 package com.devoteam.srit.xmlloader.core.operations.basic.operators;
 
+import com.devoteam.srit.xmlloader.core.CompactValues;
 import com.devoteam.srit.xmlloader.core.Parameter;
 import com.devoteam.srit.xmlloader.core.Runner;
 import com.devoteam.srit.xmlloader.core.exception.ParameterException;
 import com.devoteam.srit.xmlloader.core.pluggable.PluggableName;
 import com.devoteam.srit.xmlloader.core.utils.Utils;
 
+import java.util.Arrays;
 import java.util.Map;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -65,38 +67,44 @@ public class PluggableParameterOperatorListFind extends AbstractPluggableParamet
             throw new ParameterException("operant value2 of operator Find should be of size 1, not" + param2.length());
         }
         
-        Parameter result = new Parameter();
+        // the indexes are kept as integers : the values of the list are read in place
+        long[] indexes = new long[16];
+        int number = 0;
 
         if (name.equalsIgnoreCase(NAME_FIND) || name.equalsIgnoreCase(NAME_L_FIND))
         {
         	String p = param2.get(0).toString();
-            int len = param1.length();
-            for (int i = 0; i < len; i++)
+            for (int i = param1.indexOf(p, 0); i >= 0; i = param1.indexOf(p, i + 1))
             {
-            	String str = param1.get(i).toString();
-                if(str.equals(p))
-                {
-                    result.add(String.valueOf(i));
-                }
+                indexes = add(indexes, number++, i);
             }
         }
         else if (name.equalsIgnoreCase(NAME_FINDMATCHES) || name.equalsIgnoreCase(NAME_L_FINDMATCHES))
         {
             Pattern p = Utils.compilesRegex(param2.get(0).toString());
+            Matcher matcher = p.matcher("");
             
             int len = param1.length();
             for (int i = 0; i < len; i++)
             {
-            	Matcher matcher = p.matcher(param1.get(i).toString());
-
-                if(matcher.matches())
+                if(matcher.reset(param1.getCharSequence(i)).matches())
                 {
-                    result.add(String.valueOf(i));
+                    indexes = add(indexes, number++, i);
                 }
             }
         }
         else throw new RuntimeException("unsupported operator " + name);
         
-        return result;
+        return new Parameter(CompactValues.ofLongs(indexes, number));
+    }
+
+    private static long[] add(long[] indexes, int number, int index)
+    {
+        if (number == indexes.length)
+        {
+            indexes = Arrays.copyOf(indexes, number * 2);
+        }
+        indexes[number] = index;
+        return indexes;
     }
 }
@@ -68,7 +68,8 @@ public class PluggableParameterOperatorListPool extends AbstractPluggableParamet
             }
             if (null == number)
             {
-                return value;
+                // copy-on-write : the values are copied only if one of the parameters is modified
+                return value.share();
             }
             Parameter result = new Parameter();
             for(int i=0; i<value.length(); i++)
@@ -37,6 +37,7 @@ import com.devoteam.srit.xmlloader.core.Runner;
 import com.devoteam.srit.xmlloader.core.exception.ParameterException;
 import com.devoteam.srit.xmlloader.core.pluggable.PluggableName;
 import com.devoteam.srit.xmlloader.core.utils.DateUtils;
+import com.devoteam.srit.xmlloader.core.utils.RandomGenerator;
 /**
  *
  * @author gpasquiers
@@ -193,8 +194,7 @@ public class PluggableParameterOperatorNumber extends AbstractPluggableParameter
                     Double op2 = Double.parseDouble(param2.get(i).toString());
                 	Double moyenne = op1;
                 	Double deviation = op2;
-                	Random generator;
-                	generator = new Random();
+                	Random generator = RandomGenerator.get(runner);
                 	double num = generator.nextGaussian();
                 	double num2 = ( num  * deviation ) + moyenne;
                 	result.add(String.valueOf(num2));
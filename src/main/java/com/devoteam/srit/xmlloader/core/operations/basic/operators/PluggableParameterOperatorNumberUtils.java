@@ -27,8 +27,10 @@ import com.devoteam.srit.xmlloader.core.Parameter;
 import com.devoteam.srit.xmlloader.core.Runner;
 import com.devoteam.srit.xmlloader.core.exception.ParameterException;
 import com.devoteam.srit.xmlloader.core.pluggable.PluggableName;
+import com.devoteam.srit.xmlloader.core.utils.RandomGenerator;
 import com.devoteam.srit.xmlloader.core.utils.Utils;
 import java.util.Map;
+import java.util.Random;
 
 /**
  *
@@ -69,6 +71,7 @@ public class PluggableParameterOperatorNumberUtils extends AbstractPluggablePara
 
         
         Parameter param1 = assertAndGetParameter(operands, "value");
+        Random random = RandomGenerator.get(runner);
         
         for(int i=0; i<param1.length(); i++)
         {
@@ -85,7 +88,7 @@ public class PluggableParameterOperatorNumberUtils extends AbstractPluggablePara
                 	op2 = Double.parseDouble(param2.get(i).toString());
                 }
 
-                long number = (long) Math.floor(Math.random()*(op1 - op2) + op2); // generates a new Integer between 0 and op1
+                long number = (long) Math.floor(random.nextDouble()*(op1 - op2) + op2); // generates a new Integer between 0 and op1
                 String res = String.valueOf(number);
                 int length = param1.get(i).toString().length();
 
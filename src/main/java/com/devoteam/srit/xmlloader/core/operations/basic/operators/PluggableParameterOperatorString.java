@@ -27,12 +27,12 @@ import com.devoteam.srit.xmlloader.core.Parameter;
 import com.devoteam.srit.xmlloader.core.Runner;
 import com.devoteam.srit.xmlloader.core.exception.ParameterException;
 import com.devoteam.srit.xmlloader.core.pluggable.PluggableName;
+import com.devoteam.srit.xmlloader.core.utils.CryptoPool;
+import com.devoteam.srit.xmlloader.core.utils.RandomGenerator;
 import com.devoteam.srit.xmlloader.core.utils.Utils;
 
 import gp.utils.arrays.Array;
 import gp.utils.arrays.DefaultArray;
-import gp.utils.arrays.DigestArray;
-import gp.utils.arrays.MacArray;
 
 import java.sql.Date;
 import java.text.DateFormat;
@@ -224,23 +224,21 @@ public class PluggableParameterOperatorString extends AbstractPluggableParameter
             else if (name.equalsIgnoreCase(NAME_S_RANDOM))
             {
             	int numChar = Integer.valueOf(param1.get(i).toString());
-            	String str = Utils.randomString(numChar);
+            	String str = Utils.randomString(RandomGenerator.get(runner), numChar);
             	result.add(str);
             }
             else if (name.equalsIgnoreCase(NAME_S_DIGEST))
             {
                 Parameter algo = PluggableParameterOperatorList.assertAndGetParameter(operands, "value2");
-                DefaultArray data = new DefaultArray(param1.get(i).toString().getBytes());
-                DigestArray array = new DigestArray(data, algo.get(i).toString());
-                result.add(Array.toHexString(array));
+                byte[] data = param1.get(i).toString().getBytes();
+                result.add(CryptoPool.toHexString(CryptoPool.digest(algo.get(i).toString(), data)));
             }
             else if (name.equalsIgnoreCase(NAME_S_HMAC))
             {
                 Parameter algo = PluggableParameterOperatorList.assertAndGetParameter(operands, "value2");
-                DefaultArray secret = new DefaultArray(PluggableParameterOperatorList.assertAndGetParameter(operands, "value3").get(i).toString().getBytes());
-                DefaultArray data = new DefaultArray(param1.get(i).toString().getBytes());
-                MacArray array = new MacArray(data, algo.get(i).toString(), secret);
-                result.add(Array.toHexString(array));
+                byte[] secret = PluggableParameterOperatorList.assertAndGetParameter(operands, "value3").get(i).toString().getBytes();
+                byte[] data = param1.get(i).toString().getBytes();
+                result.add(CryptoPool.toHexString(CryptoPool.hmac(algo.get(i).toString(), secret, data)));
             }
             else if (name.equalsIgnoreCase(NAME_TRIM))
             {
@@ -65,7 +65,8 @@ public class PluggableParameterOperatorStringRegex extends AbstractPluggablePara
             Parameter paramReplace = PluggableParameterOperatorList.assertAndGetParameter(operands, "value3");
             for(int i=0; i<paramData.length(); i++)
             {
-                result.add(paramData.get(i).toString().replaceAll(paramRegex.get(i).toString(), paramReplace.get(i).toString()));
+                Pattern p = Utils.getPattern(paramRegex.get(i).toString(), 0);
+                result.add(p.matcher(paramData.get(i).toString()).replaceAll(paramReplace.get(i).toString()));
             }
         }
         else if(name.equalsIgnoreCase(NAME_REGEXMATCHES) || name.equalsIgnoreCase(NAME_S_REGEXMATCHES))
@@ -33,6 +33,7 @@ import com.devoteam.srit.xmlloader.core.protocol.Msg;
 import com.devoteam.srit.xmlloader.core.utils.Utils;
 import gp.utils.arrays.Array;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map.Entry;
 import java.util.concurrent.Semaphore;
 import org.dom4j.Element;
@@ -47,11 +48,15 @@ public class Function {
     private long _version;
     private OperationSequence _do;
     private Element _root;
+    private List<Element> _inputs;
+    private List<Element> _outputs;
 
     public Function(Element root, Scenario scenario, long version) throws Exception {
         _name = root.attributeValue("name");
         _version = version;
         _root = root;
+        _inputs = (List<Element>) root.selectNodes("./input/parameter");
+        _outputs = (List<Element>) root.selectNodes("./output/parameter");
 
         // TODO : handle stopCount better (at executions and not parsing ?)
         _do = new OperationSequence(root.element("do"), scenario);
@@ -72,8 +77,7 @@ public class Function {
             // also extract the parameters from the input hashmap and put them into the pool
             ((ScenarioRunner) runner).stackFunctionParameterPool();
 
-            for (Object object : _root.selectNodes("./input/parameter")) {
-                Element element = (Element) object;
+            for (Element element : _inputs) {
                 String inputName = element.attributeValue("name");
                 String inputDefault = element.attributeValue("default");
                 String inputType = element.attributeValue("type");
@@ -112,8 +116,7 @@ public class Function {
             _do.execute(runner);
 
             // extract the parameters from the pool and put them into the output hashmap
-            for (Object object : _root.selectNodes("./output/parameter")) {
-                Element element = (Element) object;
+            for (Element element : _outputs) {
                 String outputName = element.attributeValue("name");
                 
                 if(outputName.contains("function:")){
@@ -138,7 +141,7 @@ public class Function {
      * throw an exception if it is not the expected type
      */
     private void checkType(Parameter parameter, String type) throws ExecutionException {
-        for (Object o : parameter.getArray()) {
+        for (Object o : parameter.getValues()) {
             if ("semaphore".equalsIgnoreCase(type)) {
                 if (!(o instanceof Semaphore)) {
                     throw new ExecutionException("parameter content is not a semaphore\r\n" + parameter);
@@ -59,16 +59,15 @@ public class FunctionsCache {
         Function function = null;
 
         // get the list of function instances matching the name and try to get one
-        // that has the same version as the dom tree in the functions registry
+        // that has the same version as the dom tree in the functions registry;
+        // the instance is taken out of the list until it is freed
         synchronized(this){
             Long currentVersion = FunctionsRegistry.instance().version(name);
             LinkedList<Function> list = _cache.get(name);
             while(null != list && !list.isEmpty() && null == function){
-                if(list.getFirst().getVersion() == currentVersion){
-                    function = list.getFirst();
-                }
-                else{
-                    list.removeFirst();
+                Function first = list.removeFirst();
+                if(null != currentVersion && first.getVersion() == currentVersion){
+                    function = first;
                 }
             }
         }
@@ -40,6 +40,7 @@ import com.devoteam.srit.xmlloader.ethernet.StackEthernet;
 
 import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 import org.dom4j.Element;
 import org.dom4j.tree.DefaultElement;
 import org.dom4j.tree.DefaultElementInterface;
@@ -181,26 +182,27 @@ public class OperationReceiveMessage extends Operation {
 
         Msg msg;
 
+        // in nanoseconds so that the sub-millisecond timeouts are not rounded to 0 (no timeout)
         long timeout;
         if (timeoutStr != null) {
-            timeout = (long) (Float.parseFloat(timeoutStr) * 1000);
+            timeout = (long) (Double.parseDouble(timeoutStr) * 1000000000);
         }
         else if (protocol != null) {
-            timeout = StackFactory.getStack(protocol).receiveTimeout;
+            timeout = TimeUnit.MILLISECONDS.toNanos(StackFactory.getStack(protocol).receiveTimeout);
         }
         else {
-            timeout = (long) (Config.getConfigByName("tester.properties").getDouble("operations.RECEIVE_TIMEOUT", 30) * 1000);
+            timeout = (long) (Config.getConfigByName("tester.properties").getDouble("operations.RECEIVE_TIMEOUT", 30) * 1000000000);
         }
 
         if (timeout <= 0) {
             timeout = Long.MAX_VALUE;
         }
 
-        long timestamp = System.currentTimeMillis();
+        long timestamp = System.nanoTime();
 
         Exception error = null;
         try {
-            while (null != (msg = runner.getBufferMsg().readMessageFromStack(timeout - (System.currentTimeMillis() - timestamp)))) {
+            while (null != (msg = runner.getBufferMsg().readMessageFromStack(timeout - (System.nanoTime() - timestamp), TimeUnit.NANOSECONDS))) {
                 GlobalLogger.instance().getSessionLogger().info(runner, TextEvent.Topic.PROTOCOL, "Testing message\n", msg);
                 // set the implicit message into the runner (for setFromMessage operation)
                 runner.setCurrentMsg(msg);
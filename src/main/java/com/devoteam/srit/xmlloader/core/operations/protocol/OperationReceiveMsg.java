@@ -39,6 +39,7 @@ import com.devoteam.srit.xmlloader.core.utils.XMLElementDefaultParser;
 
 import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 import org.dom4j.Element;
 import org.dom4j.tree.DefaultElement;
 import org.dom4j.tree.DefaultElementInterface;
@@ -184,16 +185,17 @@ public class OperationReceiveMsg extends Operation
         
         Msg msg ;
        
+        // in nanoseconds so that the sub-millisecond timeouts are not rounded to 0 (no timeout)
         long timeout;
         if (timeoutStr != null)
         {
-            timeout = (long) (Float.parseFloat(timeoutStr) *  1000);
+            timeout = (long) (Double.parseDouble(timeoutStr) * 1000000000);
         }
         else if (protocol != null)
         {
-            timeout = StackFactory.getStack(protocol).receiveTimeout;
+            timeout = TimeUnit.MILLISECONDS.toNanos(StackFactory.getStack(protocol).receiveTimeout);
         } else {
-        	timeout = (long) (Config.getConfigByName("tester.properties").getDouble("operations.RECEIVE_TIMEOUT", 30) * 1000);
+        	timeout = (long) (Config.getConfigByName("tester.properties").getDouble("operations.RECEIVE_TIMEOUT", 30) * 1000000000);
         }
         	
         if (timeout <=0)
@@ -201,12 +203,12 @@ public class OperationReceiveMsg extends Operation
             timeout =  Long.MAX_VALUE;
         }
         
-        long timestamp = System.currentTimeMillis();
+        long timestamp = System.nanoTime();
         
         Exception error = null;
         try
         {
-            while(null != (msg = runner.getBufferMsg().readMessageFromStack(timeout - (System.currentTimeMillis() - timestamp))))
+            while(null != (msg = runner.getBufferMsg().readMessageFromStack(timeout - (System.nanoTime() - timestamp), TimeUnit.NANOSECONDS)))
             {
                 GlobalLogger.instance().getSessionLogger().info(runner, TextEvent.Topic.PROTOCOL, "Testing message\n",  msg);
 
@@ -257,7 +259,7 @@ public class OperationReceiveMsg extends Operation
             else
             {
                 GlobalLogger.instance().getSessionLogger().error(runner, TextEvent.Topic.PROTOCOL, "<", this.getName(), " KO : ", msg.getProtocol(), " message ", msg);
-                throw new ExecutionException("Received a valid message (failedOnReceive=true) after " + (System.currentTimeMillis() - timestamp) + "" + this, error);
+                throw new ExecutionException("Received a valid message (failedOnReceive=true) after " + ((System.nanoTime() - timestamp) / 1000000) + "" + this, error);
             }
         }
         else if(this.failedOnTimeout)
@@ -265,7 +267,7 @@ public class OperationReceiveMsg extends Operation
             if(null == msg)
             {
                 GlobalLogger.instance().getSessionLogger().error(runner, TextEvent.Topic.PROTOCOL, "<", this.getName(), "> TIMEOUT (no message)");                
-                throw new ExecutionException("Error occured while waiting for a Msg (failedOnTimeout=true) after " + (System.currentTimeMillis() - timestamp) + "ms\n" + this, error);
+                throw new ExecutionException("Error occured while waiting for a Msg (failedOnTimeout=true) after " + ((System.nanoTime() - timestamp) / 1000000) + "ms\n" + this, error);
             }
             else
             {
@@ -53,6 +53,12 @@ public class BufferMsg
 
     /** Reads and returns a message from the scenario's Msg stack, throws exception if timeout occurs */
     public Msg readMessageFromStack(long timeout) throws ExecutionException
+    {
+        return readMessageFromStack(timeout, TimeUnit.MILLISECONDS);
+    }
+
+    /** Same as readMessageFromStack(long) with a timeout in the given unit */
+    public Msg readMessageFromStack(long timeout, TimeUnit unit) throws ExecutionException
     {
         if (timeout <= 0)
         {
@@ -75,7 +81,7 @@ public class BufferMsg
                 return msg;
             }
 
-            Msg msg = this.newMessagesQueue.poll(timeout, TimeUnit.MILLISECONDS);
+            Msg msg = this.newMessagesQueue.poll(timeout, unit);
             if(null == msg)
             {
                 return null;
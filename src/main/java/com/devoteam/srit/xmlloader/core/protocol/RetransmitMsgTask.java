@@ -23,8 +23,6 @@
 
 package com.devoteam.srit.xmlloader.core.protocol;
 
-import java.util.TimerTask;
-
 import com.devoteam.srit.xmlloader.core.ScenarioRunner;
 
 import com.devoteam.srit.xmlloader.core.log.GlobalLogger;
@@ -35,7 +33,7 @@ import com.devoteam.srit.xmlloader.core.log.TextEvent;
  * Should be inherited by protocol-specific messages.
  * @author fhenry
  */
-public class RetransmitMsgTask extends TimerTask
+public class RetransmitMsgTask implements Runnable
 {
     
     /** the msg to differ */
@@ -27,8 +27,6 @@ import com.devoteam.srit.xmlloader.core.ScenarioRunner;
 import com.devoteam.srit.xmlloader.core.log.GlobalLogger;
 import com.devoteam.srit.xmlloader.core.log.TextEvent;
 
-import java.util.TimerTask;
-
 import com.devoteam.srit.xmlloader.core.newstats.StatKey;
 import com.devoteam.srit.xmlloader.core.newstats.StatPool;
 
@@ -38,7 +36,7 @@ import com.devoteam.srit.xmlloader.core.newstats.StatPool;
  * Should be inherited by protocol-specific messages.
  * @author fhenry
  */
-public class RetransmitTransTask extends TimerTask
+public class RetransmitTransTask implements Runnable
 {
     
     /** the transaction to retransmit */
@@ -35,6 +35,7 @@ import com.devoteam.srit.xmlloader.core.newstats.StatKey;
 import com.devoteam.srit.xmlloader.core.newstats.StatPool;
 import com.devoteam.srit.xmlloader.core.protocol.Msg.ParseFromXmlContext;
 import com.devoteam.srit.xmlloader.core.utils.Config;
+import com.devoteam.srit.xmlloader.core.utils.TimerWheel;
 import com.devoteam.srit.xmlloader.core.utils.XMLElementTextMsgParser;
 import com.devoteam.srit.xmlloader.core.utils.expireshashmap.ExpireHashMap;
 import com.devoteam.srit.xmlloader.core.utils.XMLElementReplacer;
@@ -57,7 +58,6 @@ import java.util.Iterator;
 import java.util.Map;
 import java.util.HashMap;
 import java.util.Set;
-import java.util.Timer;
 import java.util.concurrent.LinkedBlockingQueue;
 
 
@@ -116,8 +116,9 @@ public abstract class Stack
     public boolean routeDefaultSubsequent = false;
     public float[] retransmitTimes = null;
     
-    /** Timer to schedule the retransaction */
-    public Timer retransmissionTimer = new Timer();
+    /** Counters of the timers (retransmissions, delayed sendings) of this stack */
+    private final StatKey timerNumberKey = createTimerKey("_timerNumber");
+    private final StatKey timerLatenessKey = createTimerKey("_timerLateness");
     
     /**
      * constructor configuration
@@ -314,7 +315,21 @@ public abstract class Stack
         channels.clear();
         listenpoints.clear();
         probes.clear();
-        retransmissionTimer.cancel();
+    }
+
+    private StatKey createTimerKey(String counter)
+    {
+    	String protocol = this.getClass().getSimpleName().substring(5).toUpperCase();
+    	return new StatKey(StatPool.PREFIX_PROTOCOL, "Timer", "-", protocol, counter);
+    }
+
+    /**
+     * Schedule an automatic retransmission or a delayed sending (in milliseconds)
+     * on the timer wheel shared by all the stacks
+     */
+    public TimerWheel.Timeout scheduleTimer(Runnable task, long delay)
+    {
+    	return TimerWheel.getInstance().schedule(task, delay, timerNumberKey, timerLatenessKey);
     }
 
     /** 
@@ -722,7 +737,7 @@ public abstract class Stack
             long delay = msg.getTimestamp() - System.currentTimeMillis();
             if (delay > 0) {
                 RetransmitMsgTask retransmitTask = new RetransmitMsgTask(this, msg, srcRunner, destRunner, answerHandler);
-                retransmissionTimer.schedule(retransmitTask, delay);
+                scheduleTimer(retransmitTask, delay);
             }
             else
             {
@@ -1397,7 +1412,7 @@ public abstract class Stack
     public void processLogsMsgSending(Msg msg, ScenarioRunner srcRunner, String action) throws Exception
     {
         if (TextListenerProviderRegistry.instance().getTextListenerProviderCount() > 0 &&
-            GlobalLogger.instance().getLogLevel() <= GlobalLogger.LOG_LEVEL_CONFIG_INFO)
+            GlobalLogger.instance().isEnabled(TextEvent.Topic.CALLFLOW, TextEvent.INFO))
         {
             action += " ";
             if (msg.getRetransNumber() > 0)
@@ -1410,7 +1425,7 @@ public abstract class Stack
             	GlobalLogger.instance().getSessionLogger().info(srcRunner, TextEvent.Topic.CALLFLOW, action, msg.toShortString());
             }
 
-            if (GlobalLogger.instance().getLogLevel() <= GlobalLogger.LOG_LEVEL_CONFIG_DEBUG)
+            if (GlobalLogger.instance().isEnabled(TextEvent.Topic.CALLFLOW, TextEvent.DEBUG))
             {
                 GlobalLogger.instance().getApplicationLogger().debug(TextEvent.Topic.CALLFLOW, action, msg);
                 if (srcRunner != null)
@@ -30,6 +30,7 @@ import com.devoteam.srit.xmlloader.core.coding.binary.Dictionary;
 import com.devoteam.srit.xmlloader.core.log.GlobalLogger;
 import com.devoteam.srit.xmlloader.core.log.TextEvent;
 import com.devoteam.srit.xmlloader.core.utils.Config;
+import com.devoteam.srit.xmlloader.core.utils.TimerWheel;
 import com.devoteam.srit.xmlloader.core.utils.system.OSValidator;
 
 /**
@@ -169,6 +170,7 @@ public class StackFactory {
         }
 
         listStack.clear();
+        TimerWheel.reset();
         Dictionary.reset();
     }
 
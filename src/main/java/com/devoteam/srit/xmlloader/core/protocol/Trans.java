@@ -31,6 +31,7 @@ import com.devoteam.srit.xmlloader.core.log.TextEvent;
 import com.devoteam.srit.xmlloader.core.log.TextEvent.Topic;
 import com.devoteam.srit.xmlloader.core.newstats.StatKey;
 import com.devoteam.srit.xmlloader.core.newstats.StatPool;
+import com.devoteam.srit.xmlloader.core.utils.TimerWheel;
 import com.devoteam.srit.xmlloader.core.utils.Utils;
 
 /**
@@ -41,6 +42,9 @@ public class Trans extends GroupMsg<Msg>
 {
 	
 	private Sess session = null;
+
+	/** pending automatic retransmission of the begin message */
+	private volatile TimerWheel.Timeout retransmitTimeout = null;
 	
     /** Creates a new instance of Transaction */
     public Trans(Stack stack, Msg beginMsg) throws Exception
@@ -52,6 +56,12 @@ public class Trans extends GroupMsg<Msg>
     public boolean addEndMessage(Msg msg) throws Exception
     {
     	boolean ret = super.addEndMessage(msg);
+    	// no need to keep the retransmission in the timer until it expires
+    	TimerWheel.Timeout timeout = this.retransmitTimeout;
+    	if (timeout != null && msg.shallStopRetransmit())
+    	{
+    		timeout.cancel();
+    	}
     	if (msg.endTransaction())
     	{
     		this.active = false;
@@ -122,7 +132,7 @@ public class Trans extends GroupMsg<Msg>
         if (beginMsg.shallBeRetransmitted() && (retransNumber < stack.retransmitTimes.length))
         {
             RetransmitTransTask retransmitTask = new RetransmitTransTask(stack, this, scRunner);
-            stack.retransmissionTimer.schedule(retransmitTask, (long) (stack.retransmitTimes[retransNumber] * 1000));
+            retransmitTimeout = stack.scheduleTimer(retransmitTask, (long) (stack.retransmitTimes[retransNumber] * 1000));
         }
         return true;
     }
@@ -0,0 +1,159 @@
+/* 
+ * Copyright 2012 Devoteam http://www.devoteam.com
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ * 
+ * 
+ * This file is part of Multi-Protocol Test Suite (MTS).
+ * 
+ * Multi-Protocol Test Suite (MTS) is free software: you can redistribute
+ * it and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of the
+ * License.
+ * 
+ * Multi-Protocol Test Suite (MTS) is distributed in the hope that it will
+ * be useful, but WITHOUT ANY WARRANTY; without even the implied warranty 
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with Multi-Protocol Test Suite (MTS).
+ * If not, see <http://www.gnu.org/licenses/>.
+ * 
+ */
+
+package com.devoteam.srit.xmlloader.core.test;
+
+import java.security.MessageDigest;
+
+import com.devoteam.srit.xmlloader.core.Tester;
+import com.devoteam.srit.xmlloader.core.utils.CryptoPool;
+import com.devoteam.srit.xmlloader.core.utils.filesystem.LocalFSInterface;
+import com.devoteam.srit.xmlloader.core.utils.filesystem.SingletonFSInterface;
+
+/** 
+ * mesure du debit de calcul des reponses d'authentification digest (RFC 2617,
+ * qop=auth : 3 MD5 par reponse comme dans les scenarios SIP/HTTP) avec une
+ * instance MessageDigest creee a chaque calcul et conversion hexadecimale par
+ * concatenation (ancien operateur digest), puis avec les instances du
+ * CryptoPool; les deux resultats sont compares et verifies sur l'exemple de
+ * la RFC 2617.
+ * usage : DigestAuthTest [nombre de reponses] [nombre de threads]
+ */
+public class DigestAuthTest {
+
+    private static Tester tester;
+
+    /**
+     * @param args
+     */
+    public static void main(String[] args) throws Exception {
+        
+        /*
+         * Set the FSInterface to LocalFS.
+         */
+        SingletonFSInterface.setInstance(new LocalFSInterface());
+        
+        if (tester == null) {
+            tester = Tester.buildInstance();
+        }
+
+        final int maxIter = (args.length > 0) ? Integer.parseInt(args[0]) : 1000000;
+        int threadNumber = (args.length > 1) ? Integer.parseInt(args[1]) : 1;
+
+        // example of the RFC 2617 (section 3.5)
+        String expected = "6629fae49393a05397450978507c4ef1";
+        String response = responsePooled("Mufasa", "testrealm@host.com", "Circle Of Life", "GET", "/dir/index.html", "dcd98b7102dd2f0e8b11d0f600bfb0c093", "00000001", "0a4f113b");
+        String responseOld = responseOld("Mufasa", "testrealm@host.com", "Circle Of Life", "GET", "/dir/index.html", "dcd98b7102dd2f0e8b11d0f600bfb0c093", "00000001", "0a4f113b");
+        if (!expected.equals(response) || !expected.equals(responseOld)) {
+            System.out.println("bad response : " + response + " / " + responseOld + " instead of " + expected);
+            System.exit(1);
+        }
+
+        for (final boolean pooled : new boolean[] {false, true, false, true}) {
+            final int[] mismatches = new int[threadNumber];
+            Thread[] threads = new Thread[threadNumber];
+            for (int t = 0; t < threadNumber; t++) {
+                final int index = t;
+                threads[t] = new Thread() {
+                    @Override
+                    public void run() {
+                        try {
+                            for (int i = 0; i < maxIter; i++) {
+                                String nonce = Integer.toHexString(i * 31 + index);
+                                String nc = String.format("%08x", i & 0xff);
+                                String result;
+                                if (pooled) {
+                                    result = responsePooled("user" + index, "mts.devoteam.com", "secret", "REGISTER", "sip:mts.devoteam.com", nonce, nc, "0a4f113b");
+                                }
+                                else {
+                                    result = responseOld("user" + index, "mts.devoteam.com", "secret", "REGISTER", "sip:mts.devoteam.com", nonce, nc, "0a4f113b");
+                                }
+                                // check one response out of 1000 against the other implementation
+                                if (i % 1000 == 0) {
+                                    String other = pooled ? responseOld("user" + index, "mts.devoteam.com", "secret", "REGISTER", "sip:mts.devoteam.com", nonce, nc, "0a4f113b")
+                                                          : responsePooled("user" + index, "mts.devoteam.com", "secret", "REGISTER", "sip:mts.devoteam.com", nonce, nc, "0a4f113b");
+                                    if (!result.equals(other)) {
+                                        mismatches[index]++;
+                                    }
+                                }
+                            }
+                        }
+                        catch (Exception e) {
+                            e.printStackTrace();
+                        }
+                    }
+                };
+            }
+            long beginTT = System.nanoTime();
+            for (Thread thread : threads) {
+                thread.start();
+            }
+            for (Thread thread : threads) {
+                thread.join();
+            }
+            float duration = ((float) (System.nanoTime() - beginTT)) / 1000000000;
+            int mismatch = 0;
+            for (int number : mismatches) {
+                mismatch += number;
+            }
+            long total = (long) maxIter * threadNumber;
+            System.out.println((pooled ? "pooled" : "getInstance") + " : duration = " + duration + " s. flow = " + total / duration + " responses/s. mismatches = " + mismatch);
+            if (mismatch > 0) {
+                System.exit(1);
+            }
+        }
+        System.exit(0);
+    }
+
+    /** response computed with the instances of the CryptoPool */
+    private static String responsePooled(String user, String realm, String password, String method, String uri, String nonce, String nc, String cnonce) throws Exception {
+        String ha1 = CryptoPool.toHexString(CryptoPool.digest("MD5", (user + ":" + realm + ":" + password).getBytes()));
+        String ha2 = CryptoPool.toHexString(CryptoPool.digest("MD5", (method + ":" + uri).getBytes()));
+        return CryptoPool.toHexString(CryptoPool.digest("MD5", (ha1 + ":" + nonce + ":" + nc + ":" + cnonce + ":auth:" + ha2).getBytes()));
+    }
+
+    /** response computed as the digest operator did before the CryptoPool */
+    private static String responseOld(String user, String realm, String password, String method, String uri, String nonce, String nc, String cnonce) throws Exception {
+        String ha1 = md5Old(user + ":" + realm + ":" + password);
+        String ha2 = md5Old(method + ":" + uri);
+        return md5Old(ha1 + ":" + nonce + ":" + nc + ":" + cnonce + ":auth:" + ha2);
+    }
+
+    private static String md5Old(String value) throws Exception {
+        MessageDigest msgDigest = MessageDigest.getInstance("MD5");
+        byte[] outputs = msgDigest.digest(value.getBytes());
+        String md5 = "";
+        for (int i = 0; i < outputs.length; i++) {
+            int integer = outputs[i];
+            if (integer < 0) {
+                integer = outputs[i] + 256;
+            }
+            String str = Integer.toHexString(integer);
+            while (str.length() < 2) {
+                str = "0" + str;
+            }
+            md5 += str;
+        }
+        return md5;
+    }
+}
@@ -0,0 +1,105 @@
+/* 
+ * Copyright 2012 Devoteam http://www.devoteam.com
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ * 
+ * 
+ * This file is part of Multi-Protocol Test Suite (MTS).
+ * 
+ * Multi-Protocol Test Suite (MTS) is free software: you can redistribute
+ * it and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of the
+ * License.
+ * 
+ * Multi-Protocol Test Suite (MTS) is distributed in the hope that it will
+ * be useful, but WITHOUT ANY WARRANTY; without even the implied warranty 
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with Multi-Protocol Test Suite (MTS).
+ * If not, see <http://www.gnu.org/licenses/>.
+ * 
+ */
+
+package com.devoteam.srit.xmlloader.core.test;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+
+import com.devoteam.srit.xmlloader.core.Tester;
+import com.devoteam.srit.xmlloader.core.utils.PacingWheel;
+import com.devoteam.srit.xmlloader.core.utils.filesystem.LocalFSInterface;
+import com.devoteam.srit.xmlloader.core.utils.filesystem.SingletonFSInterface;
+
+/** 
+ * mesure de la precision de la roue de pacing : des taches sont programmees
+ * avec des delais aleatoires (jusqu'a 3 s, soit plusieurs niveaux de la roue),
+ * une sur 10 est annulee; on affiche les percentiles du retard d'execution.
+ * usage : PacingWheelTest [nombre de taches] [tick en nanosecondes]
+ */
+public class PacingWheelTest {
+
+    private static Tester tester;
+
+    /**
+     * @param args
+     */
+    public static void main(String[] args) throws Exception {
+        
+        /*
+         * Set the FSInterface to LocalFS.
+         */
+        SingletonFSInterface.setInstance(new LocalFSInterface());
+        
+        if (tester == null) {
+            tester = Tester.buildInstance();
+        }
+
+        int maxIter = (args.length > 0) ? Integer.parseInt(args[0]) : 100000;
+        long tickNanos = (args.length > 1) ? Long.parseLong(args[1]) : 1000000;
+        
+        PacingWheel wheel = new PacingWheel("test", tickNanos, null);
+        final long[] lateness = new long[maxIter];
+        Random random = new Random(1);
+        int cancelled = 0;
+        final CountDownLatch latch = new CountDownLatch(maxIter);
+
+        long beginTT = System.nanoTime();
+        for (int i = 0; i < maxIter; i++) {
+            final int index = i;
+            final long deadline = System.nanoTime() + (long) (Math.pow(random.nextDouble(), 3) * 3e9);
+            PacingWheel.Timeout timeout = wheel.scheduleAt(new Runnable() {
+                public void run() {
+                    lateness[index] = System.nanoTime() - deadline;
+                    latch.countDown();
+                }
+            }, deadline);
+            if (i % 10 == 0 && timeout.cancel()) {
+                lateness[index] = -1;
+                cancelled++;
+                latch.countDown();
+            }
+        }
+        float scheduleDuration = ((float) (System.nanoTime() - beginTT)) / 1000000000;
+        System.out.println("schedule duration = " + scheduleDuration + " s.");
+        System.out.println("schedule flow = " + maxIter / scheduleDuration + " tasks/s.");
+
+        latch.await();
+        wheel.stop();
+
+        long[] sorted = new long[maxIter - cancelled];
+        int number = 0;
+        for (long late : lateness) {
+            if (late >= 0) {
+                sorted[number++] = late;
+            }
+        }
+        Arrays.sort(sorted);
+        System.out.println("executed = " + number + " cancelled = " + cancelled);
+        System.out.println("lateness p50 = " + sorted[number / 2] / 1000 + " us.");
+        System.out.println("lateness p99 = " + sorted[number * 99 / 100] / 1000 + " us.");
+        System.out.println("lateness max = " + sorted[number - 1] / 1000 + " us.");
+        System.exit(0);
+    }
+}
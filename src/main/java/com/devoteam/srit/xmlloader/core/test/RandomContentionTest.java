@@ -0,0 +1,171 @@
+/* 
+ * Copyright 2012 Devoteam http://www.devoteam.com
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ * 
+ * 
+ * This file is part of Multi-Protocol Test Suite (MTS).
+ * 
+ * Multi-Protocol Test Suite (MTS) is free software: you can redistribute
+ * it and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of the
+ * License.
+ * 
+ * Multi-Protocol Test Suite (MTS) is distributed in the hope that it will
+ * be useful, but WITHOUT ANY WARRANTY; without even the implied warranty 
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with Multi-Protocol Test Suite (MTS).
+ * If not, see <http://www.gnu.org/licenses/>.
+ * 
+ */
+
+package com.devoteam.srit.xmlloader.core.test;
+
+/** 
+ * mesure de la contention des generateurs aleatoires et des identifiants
+ * uniques avec de plus en plus de threads (comme les runners d'un test de
+ * charge) : Math.random() partage et un Random cree a chaque tirage (anciens
+ * operateurs) contre le generateur propre a chaque thread (RandomGenerator);
+ * compteur synchronise (ancien number.uid) contre RandomGenerator.nextUID(),
+ * dont on verifie l'unicite des valeurs.
+ * usage : RandomContentionTest [nombre de tirages par thread] [nombres de threads]
+ */
+
+import java.util.Arrays;
+import java.util.Random;
+
+import com.devoteam.srit.xmlloader.core.Tester;
+import com.devoteam.srit.xmlloader.core.utils.RandomGenerator;
+import com.devoteam.srit.xmlloader.core.utils.filesystem.LocalFSInterface;
+import com.devoteam.srit.xmlloader.core.utils.filesystem.SingletonFSInterface;
+
+
+public class RandomContentionTest {
+
+    private static Tester tester;
+
+    private static long synchronizedCounter = 0;
+
+    /**
+     * @param args
+     */
+    public static void main(String[] args) throws Exception {
+        
+        /*
+         * Set the FSInterface to LocalFS.
+         */
+        SingletonFSInterface.setInstance(new LocalFSInterface());
+        
+        if (tester == null) {
+            tester = Tester.buildInstance();
+        }
+
+        int maxIter = (args.length > 0) ? Integer.parseInt(args[0]) : 1000000;
+        String[] threadNumbers = ((args.length > 1) ? args[1] : "1,2,4,8").split(",");
+
+        // warm up the compiler before the measures
+        for (int method = 0; method < 5; method++) {
+            run(method, 1, maxIter, new long[1][]);
+        }
+
+        System.out.println("processors = " + Runtime.getRuntime().availableProcessors());
+        boolean unique = true;
+        for (String threadNumberStr : threadNumbers) {
+            int threadNumber = Integer.parseInt(threadNumberStr.trim());
+            System.out.println("threads = " + threadNumber);
+            for (int method = 0; method < 5; method++) {
+                long[][] values = new long[threadNumber][];
+                float duration = run(method, threadNumber, maxIter, values);
+                System.out.println("  " + getName(method) + " : flow = " + ((long) maxIter * threadNumber) / duration + " /s.");
+                if (method == 4) {
+                    unique &= checkUnique(values);
+                }
+            }
+        }
+        System.out.println("uids unique = " + unique);
+        System.exit(unique ? 0 : 1);
+    }
+
+    private static String getName(int method) {
+        switch (method) {
+            case 0: return "Math.random()          ";
+            case 1: return "new Random() per draw  ";
+            case 2: return "RandomGenerator        ";
+            case 3: return "synchronized uid       ";
+            default: return "RandomGenerator.nextUID";
+        }
+    }
+
+    /** run the method on all the threads at the same time, return the duration in seconds */
+    private static float run(final int method, int threadNumber, final int maxIter, final long[][] values) throws Exception {
+        Thread[] threads = new Thread[threadNumber];
+        final double[] sums = new double[threadNumber];
+        for (int t = 0; t < threadNumber; t++) {
+            final int index = t;
+            threads[t] = new Thread() {
+                @Override
+                public void run() {
+                    double sum = 0;
+                    long[] uids = (method == 4) ? new long[maxIter] : null;
+                    for (int i = 0; i < maxIter; i++) {
+                        switch (method) {
+                            case 0:
+                                sum += Math.random();
+                                break;
+                            case 1:
+                                sum += new Random().nextDouble();
+                                break;
+                            case 2:
+                                sum += RandomGenerator.current().nextDouble();
+                                break;
+                            case 3:
+                                sum += nextSynchronizedUID();
+                                break;
+                            default:
+                                uids[i] = RandomGenerator.nextUID();
+                                break;
+                        }
+                    }
+                    // keep the result so that the draws are not optimized out
+                    sums[index] = sum;
+                    values[index] = uids;
+                }
+            };
+        }
+        long beginTT = System.nanoTime();
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        return ((float) (System.nanoTime() - beginTT)) / 1000000000;
+    }
+
+    /** the number.uid operation before RandomGenerator */
+    private static synchronized long nextSynchronizedUID() {
+        return synchronizedCounter++;
+    }
+
+    private static boolean checkUnique(long[][] values) {
+        int length = 0;
+        for (long[] uids : values) {
+            length += uids.length;
+        }
+        long[] all = new long[length];
+        int position = 0;
+        for (long[] uids : values) {
+            System.arraycopy(uids, 0, all, position, uids.length);
+            position += uids.length;
+        }
+        Arrays.sort(all);
+        for (int i = 1; i < all.length; i++) {
+            if (all[i] == all[i - 1]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
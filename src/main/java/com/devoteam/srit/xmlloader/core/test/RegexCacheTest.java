@@ -0,0 +1,144 @@
+/* 
+ * Copyright 2012 Devoteam http://www.devoteam.com
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ * 
+ * 
+ * This file is part of Multi-Protocol Test Suite (MTS).
+ * 
+ * Multi-Protocol Test Suite (MTS) is free software: you can redistribute
+ * it and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of the
+ * License.
+ * 
+ * Multi-Protocol Test Suite (MTS) is distributed in the hope that it will
+ * be useful, but WITHOUT ANY WARRANTY; without even the implied warranty 
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with Multi-Protocol Test Suite (MTS).
+ * If not, see <http://www.gnu.org/licenses/>.
+ * 
+ */
+
+package com.devoteam.srit.xmlloader.core.test;
+
+import java.util.regex.Pattern;
+
+import com.devoteam.srit.xmlloader.core.Tester;
+import com.devoteam.srit.xmlloader.core.utils.Utils;
+import com.devoteam.srit.xmlloader.core.utils.filesystem.LocalFSInterface;
+import com.devoteam.srit.xmlloader.core.utils.filesystem.SingletonFSInterface;
+
+/** 
+ * mesure du cache des expressions regulieres compilees (Utils.compilesRegex
+ * et Utils.getPattern) : debit de recherche d'expressions usuelles des
+ * scenarios avec et sans le cache, puis verification que le cache reste borne
+ * quand les expressions sont construites dynamiquement (une par valeur de
+ * parametre) et que les expressions restent correctes apres son vidage.
+ * usage : RegexCacheTest [nombre de recherches] [nombre d'expressions dynamiques]
+ */
+public class RegexCacheTest {
+
+    private static Tester tester;
+
+    /** maximum number of compiled expressions of each cache (see Utils) */
+    private static final int PATTERN_CACHE_SIZE = 1000;
+
+    private static final String[] REGEXES = {
+        "^INVITE sip:[[:alnum:]._-]+@[[:alnum:].-]+ SIP/2\\.0",
+        "Call-ID: *([^\\r\\n]+)",
+        "branch=z9hG4bK[[:alnum:]]+",
+        "^SIP/2\\.0 (1|2)[[:digit:]]{2} ",
+        "tag=([[:xdigit:]]+)",
+        "[[:space:]]+",
+        "m=audio ([0-9]+) RTP/AVP",
+        "<sip:([^>@]+)@",
+    };
+
+    private static final String[] VALUES = {
+        "INVITE sip:bob.smith@biloxi.example.com SIP/2.0",
+        "Call-ID: a84b4c76e66710@pc33.atlanta.example.com",
+        "Via: SIP/2.0/UDP pc33.atlanta.example.com;branch=z9hG4bK776asdhds",
+        "SIP/2.0 180 Ringing",
+        "From: Alice <sip:alice@atlanta.example.com>;tag=1928301774",
+        "a b\tc",
+        "m=audio 49170 RTP/AVP 0",
+        "To: Bob <sip:bob@biloxi.example.com>",
+    };
+
+    /**
+     * @param args
+     */
+    public static void main(String[] args) throws Exception {
+        
+        /*
+         * Set the FSInterface to LocalFS.
+         */
+        SingletonFSInterface.setInstance(new LocalFSInterface());
+        
+        if (tester == null) {
+            tester = Tester.buildInstance();
+        }
+
+        int maxIter = (args.length > 0) ? Integer.parseInt(args[0]) : 1000000;
+        int dynamicNumber = (args.length > 1) ? Integer.parseInt(args[1]) : 100000;
+
+        // search without the cache : the expression is compiled for each search
+        int found = 0;
+        long beginTT = System.nanoTime();
+        for (int i = 0; i < maxIter; i++) {
+            int index = i % REGEXES.length;
+            if (Pattern.compile(replacePosix(REGEXES[index])).matcher(VALUES[index]).find()) {
+                found++;
+            }
+        }
+        float duration = ((float) (System.nanoTime() - beginTT)) / 1000000000;
+        System.out.println("without cache : duration = " + duration + " s. flow = " + maxIter / duration + " searches/s. found = " + found);
+
+        // search with the cache
+        found = 0;
+        beginTT = System.nanoTime();
+        for (int i = 0; i < maxIter; i++) {
+            int index = i % REGEXES.length;
+            if (Utils.compilesRegex(REGEXES[index]).matcher(VALUES[index]).find()) {
+                found++;
+            }
+        }
+        float durationCache = ((float) (System.nanoTime() - beginTT)) / 1000000000;
+        System.out.println("with cache : duration = " + durationCache + " s. flow = " + maxIter / durationCache + " searches/s. found = " + found);
+        System.out.println("speedup = " + duration / durationCache);
+
+        // expressions built dynamically from parameter values : the caches must stay bounded
+        int maxCached = 0;
+        int errors = 0;
+        for (int i = 0; i < dynamicNumber; i++) {
+            String user = "user" + i;
+            if (!Utils.compilesRegex("^sip:" + user + "@[[:alnum:].]+$").matcher("sip:" + user + "@example.com").find()) {
+                errors++;
+            }
+            if (!Utils.containsRegex("To: <sip:" + user + "@example.com>", user + "@")) {
+                errors++;
+            }
+            if (Utils.getPattern("^" + user + "$", Pattern.CASE_INSENSITIVE).matcher("USER" + (i + 1)).find()) {
+                errors++;
+            }
+            maxCached = Math.max(maxCached, Utils.getCachedPatternNumber());
+        }
+        System.out.println("dynamic expressions = " + dynamicNumber * 3 + " max cached = " + maxCached + " errors = " + errors);
+        boolean bounded = (maxCached <= 2 * PATTERN_CACHE_SIZE);
+        if (!bounded) {
+            System.out.println("the pattern caches are not bounded (limit " + 2 * PATTERN_CACHE_SIZE + ")");
+        }
+        System.exit((bounded && errors == 0) ? 0 : 1);
+    }
+
+    /** same replacements of the POSIX classes as Utils.compilesRegex */
+    private static String replacePosix(String regex) {
+        regex = regex.replace("[:alnum:]", "[A-Za-z0-9]");
+        regex = regex.replace("[:digit:]", "[0-9]");
+        regex = regex.replace("[:space:]", "[ \\t\\r\\n\\v\\f]");
+        regex = regex.replace("[:xdigit:]", "[A-Fa-f0-9]");
+        return regex;
+    }
+}
@@ -0,0 +1,233 @@
+/*
+ * Copyright 2012 Devoteam http://www.devoteam.com
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ *
+ * This file is part of Multi-Protocol Test Suite (MTS).
+ *
+ * Multi-Protocol Test Suite (MTS) is free software: you can redistribute
+ * it and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of the
+ * License.
+ *
+ * Multi-Protocol Test Suite (MTS) is distributed in the hope that it will
+ * be useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Multi-Protocol Test Suite (MTS).
+ * If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package com.devoteam.srit.xmlloader.core.utils;
+
+import java.io.File;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Read-only content of a CSV file kept in memory and shared by all the runners.
+ *
+ * The file is parsed only once (it is parsed again when it has been modified);
+ * the lines are accessed by their index and the columns and the indexes on a
+ * key column are built on first use.
+ * The lines are the not blank and not commented lines of the file : the
+ * first one is the header line when the columns have a title.
+ */
+public class CSVTable
+{
+    /** Maximum number of tables kept in memory */
+    private static final int MAX_TABLES = 100;
+
+    /** Tables by file and by parsing characters, dropped when a test starts */
+    private static final Map<String, CSVTable> TABLES = new ConcurrentHashMap<String, CSVTable>();
+
+    private final long lastModified;
+
+    private final long length;
+
+    private final String[][] lines;
+
+    /** cached values of the columns */
+    private final Map<String, List<String>> columns = new ConcurrentHashMap<String, List<String>>();
+
+    /** cached indexes of the lines by the values of a key column */
+    private final Map<String, Map<String, int[]>> indexes = new ConcurrentHashMap<String, Map<String, int[]>>();
+
+    private CSVTable(List<String[]> lines, long lastModified, long length)
+    {
+        this.lines = lines.toArray(new String[lines.size()][]);
+        this.lastModified = lastModified;
+        this.length = length;
+    }
+
+    /**
+     * Get the table of the CSV file; the file is parsed again only if it has
+     * been modified since the previous call.
+     */
+    public static CSVTable getTable(URI uri, String comment, String separator, String quote) throws Exception
+    {
+        String key = uri + "|" + comment + "|" + separator + "|" + quote;
+        long lastModified = 0;
+        long length = 0;
+        if ("file".equals(uri.getScheme()))
+        {
+            File file = new File(uri);
+            lastModified = file.lastModified();
+            length = file.length();
+        }
+
+        CSVTable table = TABLES.get(key);
+        if (table == null || table.lastModified != lastModified || table.length != length)
+        {
+            synchronized (TABLES)
+            {
+                table = TABLES.get(key);
+                if (table == null || table.lastModified != lastModified || table.length != length)
+                {
+                    CSVReader csvReader = new CSVReader(comment, separator, quote);
+                    table = new CSVTable(csvReader.loadAllData(uri), lastModified, length);
+                    if (TABLES.size() >= MAX_TABLES)
+                    {
+                        TABLES.clear();
+                    }
+                    TABLES.put(key, table);
+                }
+            }
+        }
+        return table;
+    }
+
+    /**
+     * Drop all the tables (when a test starts : the files which are not on
+     * the file system are read again)
+     */
+    public static void reset()
+    {
+        TABLES.clear();
+    }
+
+    /**
+     * Get the number of lines (header included)
+     */
+    public int getLineCount()
+    {
+        return this.lines.length;
+    }
+
+    /**
+     * Get the values of a line; the array must not be modified
+     */
+    public String[] getLine(int index)
+    {
+        return this.lines[index];
+    }
+
+    /**
+     * Get the index of the column given by its title (in the first line)
+     * or -1 if not found
+     */
+    public int getColumnIndex(String title)
+    {
+        if (this.lines.length == 0)
+        {
+            return -1;
+        }
+        String[] header = this.lines[0];
+        for (int j = 0; j < header.length; j++)
+        {
+            if (header[j].equals(title.trim()))
+            {
+                return j;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Get the values of a column (same as CSVReader.loadData()); the lines
+     * which are too short are skipped. The returned list must not be modified.
+     */
+    public List<String> getColumn(int column, boolean ignoreFirst)
+    {
+        String key = column + "|" + ignoreFirst;
+        List<String> result = this.columns.get(key);
+        if (result == null)
+        {
+            ArrayList<String> values = new ArrayList<String>(this.lines.length);
+            for (int i = ignoreFirst ? 1 : 0; i < this.lines.length; i++)
+            {
+                if (column < this.lines[i].length)
+                {
+                    values.add(this.lines[i][column]);
+                }
+            }
+            result = Collections.unmodifiableList(values);
+            this.columns.put(key, result);
+        }
+        return result;
+    }
+
+    /**
+     * Find the indexes of the lines having the given value in the key column;
+     * the index on the key column is built on first use.
+     */
+    public int[] findLines(int keyColumn, String value, boolean ignoreFirst)
+    {
+        String key = keyColumn + "|" + ignoreFirst;
+        Map<String, int[]> index = this.indexes.get(key);
+        if (index == null)
+        {
+            // first pass to count the lines of each value, then fill the arrays
+            HashMap<String, int[]> counts = new HashMap<String, int[]>();
+            for (int i = ignoreFirst ? 1 : 0; i < this.lines.length; i++)
+            {
+                if (keyColumn < this.lines[i].length)
+                {
+                    int[] count = counts.get(this.lines[i][keyColumn]);
+                    if (count == null)
+                    {
+                        counts.put(this.lines[i][keyColumn], new int[]{1});
+                    }
+                    else
+                    {
+                        count[0]++;
+                    }
+                }
+            }
+            HashMap<String, int[]> map = new HashMap<String, int[]>(counts.size() * 2);
+            for (int i = ignoreFirst ? 1 : 0; i < this.lines.length; i++)
+            {
+                if (keyColumn < this.lines[i].length)
+                {
+                    String cell = this.lines[i][keyColumn];
+                    int[] found = map.get(cell);
+                    int[] count = counts.get(cell);
+                    if (found == null)
+                    {
+                        found = new int[count[0]];
+                        map.put(cell, found);
+                        // reused as the number of lines already put in the array
+                        count[0] = 0;
+                    }
+                    found[count[0]++] = i;
+                }
+            }
+            index = map;
+            this.indexes.put(key, index);
+        }
+        int[] found = index.get(value);
+        if (found == null)
+        {
+            return new int[0];
+        }
+        return found;
+    }
+}
@@ -0,0 +1,188 @@
+/*
+ * Copyright 2012 Devoteam http://www.devoteam.com
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ *
+ * This file is part of Multi-Protocol Test Suite (MTS).
+ *
+ * Multi-Protocol Test Suite (MTS) is free software: you can redistribute
+ * it and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of the
+ * License.
+ *
+ * Multi-Protocol Test Suite (MTS) is distributed in the hope that it will
+ * be useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Multi-Protocol Test Suite (MTS).
+ * If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package com.devoteam.srit.xmlloader.core.utils;
+
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * Per-thread pool of the MessageDigest and Mac instances.
+ *
+ * The provider lookup (getInstance) is done once per thread and algorithm and
+ * the HMAC instances are kept already initialized with their key, so that
+ * computing a digest costs only the digest itself. The instances are never
+ * shared between threads.
+ */
+public class CryptoPool
+{
+    /** Maximum number of HMAC keys kept per thread */
+    private static final int MAX_MACS = 64;
+
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    private static final ThreadLocal<Map<String, MessageDigest>> DIGESTS = new ThreadLocal<Map<String, MessageDigest>>()
+    {
+        @Override
+        protected Map<String, MessageDigest> initialValue()
+        {
+            return new HashMap<String, MessageDigest>();
+        }
+    };
+
+    private static final ThreadLocal<Map<MacKey, Mac>> MACS = new ThreadLocal<Map<MacKey, Mac>>()
+    {
+        @Override
+        protected Map<MacKey, Mac> initialValue()
+        {
+            return new HashMap<MacKey, Mac>();
+        }
+    };
+
+    /**
+     * Private constructor
+     */
+    private CryptoPool()
+    {
+        // Nothing
+    }
+
+    /**
+     * Get the MessageDigest of the current thread for the algorithm, ready to use
+     */
+    public static MessageDigest getMessageDigest(String algorithm) throws GeneralSecurityException
+    {
+        Map<String, MessageDigest> digests = DIGESTS.get();
+        MessageDigest digest = digests.get(algorithm);
+        if (digest == null)
+        {
+            digest = MessageDigest.getInstance(algorithm);
+            digests.put(algorithm, digest);
+        }
+        else
+        {
+            digest.reset();
+        }
+        return digest;
+    }
+
+    /**
+     * Get the Mac of the current thread for the algorithm, initialized with the key
+     * and ready to use
+     */
+    public static Mac getMac(String algorithm, byte[] key) throws GeneralSecurityException
+    {
+        Map<MacKey, Mac> macs = MACS.get();
+        MacKey macKey = new MacKey(algorithm, key);
+        Mac mac = macs.get(macKey);
+        if (mac == null)
+        {
+            mac = Mac.getInstance(algorithm);
+            mac.init(new SecretKeySpec(key, algorithm));
+            // the keys may be computed by the scenarios : bound the pool
+            if (macs.size() >= MAX_MACS)
+            {
+                macs.clear();
+            }
+            macs.put(new MacKey(algorithm, key.clone()), mac);
+        }
+        else
+        {
+            mac.reset();
+        }
+        return mac;
+    }
+
+    /**
+     * Compute the digest of the data
+     */
+    public static byte[] digest(String algorithm, byte[] data) throws GeneralSecurityException
+    {
+        return getMessageDigest(algorithm).digest(data);
+    }
+
+    /**
+     * Compute the HMAC of the data with the key
+     */
+    public static byte[] hmac(String algorithm, byte[] key, byte[] data) throws GeneralSecurityException
+    {
+        return getMac(algorithm, key).doFinal(data);
+    }
+
+    /**
+     * Convert bytes to a lower case hexadecimal string without separator
+     */
+    public static String toHexString(byte[] bytes)
+    {
+        char[] chars = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++)
+        {
+            int b = bytes[i] & 0xFF;
+            chars[2 * i] = HEX_DIGITS[b >>> 4];
+            chars[2 * i + 1] = HEX_DIGITS[b & 0x0F];
+        }
+        return new String(chars);
+    }
+
+    /**
+     * Key of the Mac pool : the algorithm and the secret key
+     */
+    private static class MacKey
+    {
+        private final String algorithm;
+
+        private final byte[] key;
+
+        private final int hash;
+
+        private MacKey(String algorithm, byte[] key)
+        {
+            this.algorithm = algorithm;
+            this.key = key;
+            this.hash = 31 * algorithm.hashCode() + Arrays.hashCode(key);
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return this.hash;
+        }
+
+        @Override
+        public boolean equals(Object object)
+        {
+            if (!(object instanceof MacKey))
+            {
+                return false;
+            }
+            MacKey other = (MacKey) object;
+            return this.algorithm.equals(other.algorithm) && Arrays.equals(this.key, other.key);
+        }
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright 2012 Devoteam http://www.devoteam.com
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ *
+ * This file is part of Multi-Protocol Test Suite (MTS).
+ *
+ * Multi-Protocol Test Suite (MTS) is free software: you can redistribute
+ * it and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of the
+ * License.
+ *
+ * Multi-Protocol Test Suite (MTS) is distributed in the hope that it will
+ * be useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Multi-Protocol Test Suite (MTS).
+ * If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+
+package com.devoteam.srit.xmlloader.core.utils;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Short-lived per-thread cache of parsed documents (XML or JSON) keyed by
+ * their source text.
+ *
+ * A runner executes its operations on a single thread, so extracting several
+ * fields from the same message body parses the body only once. Only the last
+ * few documents are kept (operations.DOCUMENT_CACHE_SIZE); the cached documents
+ * are shared between the operations of the thread so they must not be modified.
+ */
+public class DocumentCache
+{
+    private final ThreadLocal<LinkedHashMap<String, Object>> documents = new ThreadLocal<LinkedHashMap<String, Object>>()
+    {
+        @Override
+        protected LinkedHashMap<String, Object> initialValue()
+        {
+            final int maxSize = Config.getConfigByName("tester.properties").getInteger("operations.DOCUMENT_CACHE_SIZE", 4);
+            // access ordered map : the least recently used document is dropped
+            return new LinkedHashMap<String, Object>(16, 0.75f, true)
+            {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, Object> eldest)
+                {
+                    return size() > maxSize;
+                }
+            };
+        }
+    };
+
+    /**
+     * Get the document parsed from the given source text by the current thread
+     * or null if it is not in the cache
+     */
+    public Object get(String source)
+    {
+        return this.documents.get().get(source);
+    }
+
+    /**
+     * Keep the document parsed from the given source text for the current thread
+     */
+    public void put(String source, Object document)
+    {
+        this.documents.get().put(source, document);
+    }
+
+    /**
+     * Drop the documents of the current thread
+     */
+    public void clear()
+    {
+        this.documents.get().clear();
+    }
+}
@@ -0,0 +1,473 @@
+/*
+ * Copyright 2012 Devoteam http://www.devoteam.com
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ *
+ * This file is part of Multi-Protocol Test Suite (MTS).
+ *
+ * Multi-Protocol Test Suite (MTS) is free software: you can redistribute
+ * it and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of the
+ * License.
+ *
+ * Multi-Protocol Test Suite (MTS) is distributed in the hope that it will
+ * be useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Multi-Protocol Test Suite (MTS).
+ * If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+
+package com.devoteam.srit.xmlloader.core.utils;
+
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+import com.devoteam.srit.xmlloader.core.ThreadPool;
+import com.devoteam.srit.xmlloader.core.log.GlobalLogger;
+import com.devoteam.srit.xmlloader.core.log.TextEvent;
+import com.devoteam.srit.xmlloader.core.newstats.StatKey;
+import com.devoteam.srit.xmlloader.core.newstats.StatPool;
+
+/**
+ * Hierarchical timing wheel with nanosecond pacing : the tasks are kept in
+ * 4 levels of buckets (256 ticks, then 64 buckets of 256 ticks, of 16384
+ * ticks and of 1048576 ticks), so scheduling is done in constant time whatever
+ * the number and the delay of the pending tasks. When the tick of a task is
+ * reached, it is ordered by its deadline (in nanoseconds) and the thread is
+ * parked until this exact deadline, so the pacing is not rounded to the tick.
+ *
+ * A single thread advances the wheel and executes the tasks itself : they
+ * must be short and must not block (they usually hand the work to another
+ * thread or send a packet). The thread only wakes up for the ticks which hold
+ * tasks and for the cascades of the upper levels, and sleeps while the wheel
+ * is empty. The delay between the deadline and the actual execution of each
+ * task (in milliseconds) is added to the lateness counter.
+ *
+ * Unlike TimerWheel, which fires blocking tasks on several threads at the
+ * tick accuracy, this wheel is meant for the precise pacing of many short tasks.
+ */
+public class PacingWheel
+{
+    private static final int LEVEL0_BITS = 8;
+    private static final int LEVEL_BITS = 6;
+    private static final int LEVEL0_SIZE = 1 << LEVEL0_BITS;
+    private static final int LEVEL_SIZE = 1 << LEVEL_BITS;
+    private static final int LEVEL_NUMBER = 4;
+    /** largest delay (in ticks) kept by the wheel : the later tasks are cascaded again */
+    private static final long MAX_DELTA = 1L << (LEVEL0_BITS + (LEVEL_NUMBER - 1) * LEVEL_BITS);
+
+    private static final int STATE_INIT = 0;
+    private static final int STATE_CANCELLED = 1;
+    private static final int STATE_EXPIRED = 2;
+
+    private final String name;
+
+    private final long tickNanos;
+
+    private final StatKey latenessKey;
+
+    /** executed after the tasks due, before waiting for the next ones */
+    private volatile Runnable flushTask;
+
+    /** buckets of each level, only used by the wheel thread */
+    private final Bucket[][] levels = new Bucket[LEVEL_NUMBER][];
+
+    /** tasks whose tick is reached, ordered by deadline; only used by the wheel thread */
+    private final PriorityQueue<Timeout> ready = new PriorityQueue<Timeout>();
+
+    private final ConcurrentLinkedQueue<Timeout> pendingTimeouts = new ConcurrentLinkedQueue<Timeout>();
+
+    /** number of tasks scheduled and not yet executed or dropped */
+    private final AtomicInteger size = new AtomicInteger();
+
+    /** start of the wheel (nano time) : the ticks are counted from it */
+    private final long startTime = System.nanoTime();
+
+    /** next tick to process, only used by the wheel thread */
+    private long currentTick = 0;
+
+    /** date (nano time) until which the wheel thread is parked */
+    private volatile long wakeUpTime = Long.MIN_VALUE;
+
+    private volatile Thread thread;
+
+    private volatile boolean started = false;
+
+    private volatile boolean stopped = false;
+
+    /**
+     * Create a pacing wheel; the lateness counter may be null
+     *
+     * @param name name of the wheel (used in the logs)
+     * @param tickNanos duration of a tick of the wheel in nanoseconds
+     */
+    public PacingWheel(String name, long tickNanos, StatKey latenessKey)
+    {
+        this.name = name;
+        this.tickNanos = Math.max(1000, tickNanos);
+        this.latenessKey = latenessKey;
+        for (int level = 0; level < LEVEL_NUMBER; level++)
+        {
+            int levelSize = (level == 0) ? LEVEL0_SIZE : LEVEL_SIZE;
+            this.levels[level] = new Bucket[levelSize];
+            for (int i = 0; i < levelSize; i++)
+            {
+                this.levels[level][i] = new Bucket();
+            }
+        }
+    }
+
+    /**
+     * Set the task executed by the wheel thread each time it has executed the
+     * tasks due, before waiting for the next ones : the tasks may batch their
+     * work (the packets to send for instance) and let this one flush it.
+     */
+    public void setFlushTask(Runnable flushTask)
+    {
+        this.flushTask = flushTask;
+    }
+
+    /**
+     * Schedule the task to be executed at the given date (nano time, as given
+     * by System.nanoTime())
+     */
+    public Timeout scheduleAt(Runnable task, long deadline)
+    {
+        if (this.stopped)
+        {
+            throw new IllegalStateException("Pacing wheel " + this.name + " already stopped.");
+        }
+        start();
+        Timeout timeout = new Timeout(task, deadline);
+        this.size.incrementAndGet();
+        this.pendingTimeouts.add(timeout);
+        // wake the thread up if it sleeps beyond this deadline
+        long wakeUp = this.wakeUpTime;
+        if (wakeUp != Long.MIN_VALUE && deadline - wakeUp < 0)
+        {
+            LockSupport.unpark(this.thread);
+        }
+        return timeout;
+    }
+
+    /**
+     * Schedule the task to be executed after the delay (in nanoseconds)
+     */
+    public Timeout schedule(Runnable task, long delay)
+    {
+        return scheduleAt(task, System.nanoTime() + Math.max(0, delay));
+    }
+
+    /**
+     * Stop the wheel : the pending tasks are discarded
+     */
+    public void stop()
+    {
+        this.stopped = true;
+        Thread wheelThread = this.thread;
+        if (wheelThread != null)
+        {
+            LockSupport.unpark(wheelThread);
+        }
+    }
+
+    private void start()
+    {
+        if (this.started)
+        {
+            return;
+        }
+        synchronized (this)
+        {
+            if (!this.started && !this.stopped)
+            {
+                ThreadPool.reserve().start(new WheelWorker());
+                this.started = true;
+            }
+        }
+    }
+
+    private long tickOf(long time)
+    {
+        return Math.max(0, time - this.startTime) / this.tickNanos;
+    }
+
+    /**
+     * Put a timeout in the bucket of its tick, or in the ready queue if its
+     * tick is already reached; only called by the wheel thread
+     */
+    private void insert(Timeout timeout)
+    {
+        long expiration = tickOf(timeout.deadline);
+        long delta = expiration - this.currentTick;
+        if (delta <= 0)
+        {
+            this.ready.add(timeout);
+            return;
+        }
+        if (delta >= MAX_DELTA)
+        {
+            // too far : kept in the last level and cascaded again later
+            expiration = this.currentTick + MAX_DELTA - 1;
+            delta = MAX_DELTA - 1;
+        }
+        int level = 0;
+        int shift = 0;
+        long levelDelta = LEVEL0_SIZE;
+        while (delta >= levelDelta)
+        {
+            level++;
+            shift = LEVEL0_BITS + (level - 1) * LEVEL_BITS;
+            levelDelta = 1L << (shift + LEVEL_BITS);
+        }
+        Bucket[] buckets = this.levels[level];
+        buckets[(int) ((expiration >>> shift) & (buckets.length - 1))].add(timeout);
+    }
+
+    /**
+     * Move the timeouts of the current tick to the ready queue, after having
+     * cascaded the buckets of the upper levels which start at this tick
+     */
+    private void processTick()
+    {
+        long tick = this.currentTick;
+        if ((tick & (LEVEL0_SIZE - 1)) == 0)
+        {
+            // the upper levels are cascaded from the highest one
+            int levelNumber = 1;
+            while (levelNumber < LEVEL_NUMBER - 1
+                   && ((tick >>> (LEVEL0_BITS + (levelNumber - 1) * LEVEL_BITS)) & (LEVEL_SIZE - 1)) == 0)
+            {
+                levelNumber++;
+            }
+            for (int level = levelNumber; level >= 1; level--)
+            {
+                int shift = LEVEL0_BITS + (level - 1) * LEVEL_BITS;
+                Timeout timeout = this.levels[level][(int) ((tick >>> shift) & (LEVEL_SIZE - 1))].clear();
+                while (timeout != null)
+                {
+                    Timeout next = timeout.next;
+                    timeout.next = null;
+                    insert(timeout);
+                    timeout = next;
+                }
+            }
+        }
+        Timeout timeout = this.levels[0][(int) (tick & (LEVEL0_SIZE - 1))].clear();
+        while (timeout != null)
+        {
+            Timeout next = timeout.next;
+            timeout.next = null;
+            this.ready.add(timeout);
+            timeout = next;
+        }
+        this.currentTick++;
+    }
+
+    /**
+     * Get the first tick after the current one which may hold timeouts : a
+     * non empty bucket of the level 0, or the next cascade
+     */
+    private long nextTick()
+    {
+        Bucket[] buckets = this.levels[0];
+        long tick = this.currentTick;
+        if ((tick & (LEVEL0_SIZE - 1)) == 0)
+        {
+            // the cascade of this tick is not done yet
+            return tick;
+        }
+        do
+        {
+            if (buckets[(int) (tick & (LEVEL0_SIZE - 1))].head != null)
+            {
+                return tick;
+            }
+            tick++;
+        }
+        while ((tick & (LEVEL0_SIZE - 1)) != 0);
+        return tick;
+    }
+
+    private void fire(Timeout timeout, long now)
+    {
+        this.size.decrementAndGet();
+        if (!timeout.state.compareAndSet(STATE_INIT, STATE_EXPIRED))
+        {
+            return;
+        }
+        if (this.latenessKey != null)
+        {
+            StatPool.getInstance().addValue(this.latenessKey, Math.max(0, now - timeout.deadline) / 1000000.0);
+        }
+        try
+        {
+            timeout.task.run();
+        }
+        catch (Exception e)
+        {
+            GlobalLogger.instance().getApplicationLogger().warn(TextEvent.Topic.CORE, e, "Error while executing a task of the pacing wheel ", this.name);
+        }
+    }
+
+    /**
+     * Advance the wheel and execute the tasks at their deadline
+     */
+    private class WheelWorker implements Runnable
+    {
+        public void run()
+        {
+            thread = Thread.currentThread();
+            while (!stopped)
+            {
+                Timeout timeout;
+                while ((timeout = pendingTimeouts.poll()) != null)
+                {
+                    if (timeout.state.get() == STATE_INIT)
+                    {
+                        insert(timeout);
+                    }
+                    else
+                    {
+                        size.decrementAndGet();
+                    }
+                }
+
+                long now = System.nanoTime();
+                long nowTick = tickOf(now);
+                while (currentTick <= nowTick)
+                {
+                    processTick();
+                }
+
+                Timeout first = ready.peek();
+                boolean fired = false;
+                while (first != null && first.deadline - now <= 0)
+                {
+                    ready.poll();
+                    fire(first, now);
+                    fired = true;
+                    now = System.nanoTime();
+                    first = ready.peek();
+                }
+                Runnable flush = flushTask;
+                if (fired && flush != null)
+                {
+                    try
+                    {
+                        flush.run();
+                    }
+                    catch (Exception e)
+                    {
+                        GlobalLogger.instance().getApplicationLogger().warn(TextEvent.Topic.CORE, e, "Error while flushing the tasks of the pacing wheel ", name);
+                    }
+                }
+
+                // park until the next deadline, the next tick holding timeouts or a new timeout
+                long wakeUp;
+                if (first != null)
+                {
+                    wakeUp = first.deadline;
+                }
+                else if (size.get() > 0)
+                {
+                    wakeUp = startTime + nextTick() * tickNanos;
+                }
+                else
+                {
+                    wakeUp = now + Long.MAX_VALUE / 2;
+                }
+                wakeUpTime = wakeUp;
+                if (pendingTimeouts.isEmpty() && !stopped)
+                {
+                    long delay = wakeUp - System.nanoTime();
+                    if (delay > 0)
+                    {
+                        LockSupport.parkNanos(this, delay);
+                    }
+                }
+                wakeUpTime = Long.MIN_VALUE;
+            }
+        }
+    }
+
+    /**
+     * Singly linked list of the timeouts of a bucket; only used by the wheel thread
+     */
+    private static class Bucket
+    {
+        private Timeout head;
+
+        private void add(Timeout timeout)
+        {
+            timeout.next = this.head;
+            this.head = timeout;
+        }
+
+        /** empty the bucket and return its timeouts */
+        private Timeout clear()
+        {
+            Timeout timeouts = this.head;
+            this.head = null;
+            return timeouts;
+        }
+    }
+
+    /**
+     * Handle of a scheduled task
+     */
+    public static class Timeout implements Comparable<Timeout>
+    {
+        private final Runnable task;
+
+        /** expiration date (nano time) */
+        private final long deadline;
+
+        private final AtomicInteger state = new AtomicInteger(STATE_INIT);
+
+        /** next timeout of the bucket, only used by the wheel thread */
+        private Timeout next;
+
+        private Timeout(Runnable task, long deadline)
+        {
+            this.task = task;
+            this.deadline = deadline;
+        }
+
+        public long getDeadline()
+        {
+            return this.deadline;
+        }
+
+        /**
+         * Cancel the task; return false if it has already been executed
+         * or cancelled. The cancelled task is dropped when its deadline is reached.
+         */
+        public boolean cancel()
+        {
+            return this.state.compareAndSet(STATE_INIT, STATE_CANCELLED);
+        }
+
+        public boolean isCancelled()
+        {
+            return this.state.get() == STATE_CANCELLED;
+        }
+
+        public boolean isExpired()
+        {
+            return this.state.get() == STATE_EXPIRED;
+        }
+
+        public int compareTo(Timeout timeout)
+        {
+            return Long.compare(this.deadline, timeout.deadline);
+        }
+    }
+}
@@ -0,0 +1,136 @@
+/*
+ * Copyright 2012 Devoteam http://www.devoteam.com
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ *
+ * This file is part of Multi-Protocol Test Suite (MTS).
+ *
+ * Multi-Protocol Test Suite (MTS) is free software: you can redistribute
+ * it and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of the
+ * License.
+ *
+ * Multi-Protocol Test Suite (MTS) is distributed in the hope that it will
+ * be useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Multi-Protocol Test Suite (MTS).
+ * If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+
+package com.devoteam.srit.xmlloader.core.utils;
+
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.devoteam.srit.xmlloader.core.Runner;
+
+/**
+ * Random generators and unique identifiers without shared lock.
+ *
+ * Each runner has its own generator and each thread has another one for the
+ * code which does not know its runner, so the runners never contend on a
+ * common generator as with Math.random(). When "operations.RANDOM_SEED" is set,
+ * the generator of a runner is seeded from it, from the node ("operations.UID_NODE")
+ * and from a name unique to the runner in the test (testcase, index and position
+ * of the scenario), so that a test can be replayed with the same random values
+ * while the runners still draw different sequences.
+ * The unique identifiers come from a single lock-free counter; the optional
+ * "operations.UID_NODE" makes them unique across the slaves of a master.
+ */
+public class RandomGenerator
+{
+    /** Range of the identifiers of a node */
+    private static final long NODE_RANGE = 1000000000000L;
+
+    private static final AtomicLong UID_COUNTER = new AtomicLong();
+
+    private static volatile long uidOffset = -1;
+
+    private static volatile long uidOffsetReset = 0;
+
+    private static final ThreadLocal<Random> THREAD_RANDOMS = new ThreadLocal<Random>()
+    {
+        @Override
+        protected Random initialValue()
+        {
+            return newRandom(Thread.currentThread().getName());
+        }
+    };
+
+    /**
+     * Private constructor
+     */
+    private RandomGenerator()
+    {
+        // Nothing
+    }
+
+    /**
+     * Create a new generator; it is seeded from the name if a seed is configured
+     */
+    public static Random newRandom(String name)
+    {
+        String seed = Config.getConfigByName("tester.properties").getString("operations.RANDOM_SEED", "");
+        if (seed.length() == 0)
+        {
+            return new Random();
+        }
+        int node = Config.getConfigByName("tester.properties").getInteger("operations.UID_NODE", 0);
+        return new Random(hash64(seed + "|" + node + "|" + name));
+    }
+
+    /**
+     * 64 bits FNV-1a hash of the string : less collisions between the runner
+     * names than String.hashCode()
+     */
+    private static long hash64(String string)
+    {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < string.length(); i++)
+        {
+            hash ^= string.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    /**
+     * Get the generator of the current thread; it must not be shared with other threads
+     */
+    public static Random current()
+    {
+        return THREAD_RANDOMS.get();
+    }
+
+    /**
+     * Get the generator of the runner or the one of the current thread if there is no runner
+     */
+    public static Random get(Runner runner)
+    {
+        if (null == runner)
+        {
+            return current();
+        }
+        return runner.getRandom();
+    }
+
+    /**
+     * Get the next unique identifier
+     */
+    public static long nextUID()
+    {
+        long offset = uidOffset;
+        if (offset < 0 || Config.getLastReset() != uidOffsetReset)
+        {
+            uidOffsetReset = Config.getLastReset();
+            offset = NODE_RANGE * Config.getConfigByName("tester.properties").getInteger("operations.UID_NODE", 0);
+            uidOffset = offset;
+        }
+        return offset + UID_COUNTER.getAndIncrement();
+    }
+}
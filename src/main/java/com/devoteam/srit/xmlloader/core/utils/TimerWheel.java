@@ -0,0 +1,455 @@
+/*
+ * Copyright 2012 Devoteam http://www.devoteam.com
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ *
+ * This file is part of Multi-Protocol Test Suite (MTS).
+ *
+ * Multi-Protocol Test Suite (MTS) is free software: you can redistribute
+ * it and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of the
+ * License.
+ *
+ * Multi-Protocol Test Suite (MTS) is distributed in the hope that it will
+ * be useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Multi-Protocol Test Suite (MTS).
+ * If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package com.devoteam.srit.xmlloader.core.utils;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.devoteam.srit.xmlloader.core.ThreadPool;
+import com.devoteam.srit.xmlloader.core.log.GlobalLogger;
+import com.devoteam.srit.xmlloader.core.log.TextEvent;
+import com.devoteam.srit.xmlloader.core.newstats.StatKey;
+import com.devoteam.srit.xmlloader.core.newstats.StatPool;
+
+/**
+ * Hashed timing wheel : the timeouts are put in the bucket of their expiration
+ * tick, so scheduling and cancelling a task is done in constant time whatever
+ * the number of pending tasks, and the cancelled tasks are removed at once.
+ *
+ * A single wheel is shared by all the stacks (getInstance()) : one thread
+ * advances it every tick and hands the expired tasks to several firing
+ * threads. The threads are started on the first schedule and stopped by the
+ * final reset. The delay between the expected and the actual firing time of
+ * each task (in milliseconds) is added to the lateness counter given with
+ * the task.
+ */
+public class TimerWheel
+{
+    /** number of buckets (power of 2) */
+    private static final int WHEEL_SIZE = 512;
+
+    /** maximum number of new timeouts put in the wheel at each tick */
+    private static final int MAX_TRANSFER = 100000;
+
+    private static final int STATE_INIT = 0;
+    private static final int STATE_CANCELLED = 1;
+    private static final int STATE_EXPIRED = 2;
+
+    /** wheel shared by all the stacks */
+    private static TimerWheel instance = null;
+
+    /** when a firing thread takes this timeout, it stops */
+    private final Timeout STOP = new Timeout(null, null, 0, null, null);
+
+    private final long tickMillis;
+
+    private final int firingThreadNumber;
+
+    private final Bucket[] wheel = new Bucket[WHEEL_SIZE];
+
+    private final ConcurrentLinkedQueue<Timeout> pendingTimeouts = new ConcurrentLinkedQueue<Timeout>();
+
+    private final ConcurrentLinkedQueue<Timeout> cancelledTimeouts = new ConcurrentLinkedQueue<Timeout>();
+
+    private final LinkedBlockingQueue<Timeout> expiredTimeouts = new LinkedBlockingQueue<Timeout>();
+
+    private volatile boolean started = false;
+
+    private volatile boolean stopped = false;
+
+    /** start of the wheel (nano time) : the deadlines are relative to it */
+    private volatile long startTime;
+
+    /** current tick, only used by the wheel thread */
+    private long tick = 0;
+
+    /**
+     * Create a timer wheel
+     */
+    public TimerWheel(long tickMillis, int firingThreadNumber)
+    {
+        this.tickMillis = Math.max(1, tickMillis);
+        this.firingThreadNumber = Math.max(1, firingThreadNumber);
+        for (int i = 0; i < WHEEL_SIZE; i++)
+        {
+            this.wheel[i] = new Bucket();
+        }
+    }
+
+    /**
+     * Get the wheel shared by all the stacks, created with the tick and the
+     * number of firing threads given in the configuration
+     */
+    public static synchronized TimerWheel getInstance()
+    {
+        if (instance == null)
+        {
+            instance = new TimerWheel(Config.getConfigByName("tester.properties").getInteger("core.TIMER_TICK", 1),
+                                      Config.getConfigByName("tester.properties").getInteger("core.TIMER_THREAD_NUMBER", 2));
+        }
+        return instance;
+    }
+
+    /**
+     * Stop the shared wheel and its threads : the pending tasks are discarded
+     * and a new wheel is created on the next use
+     */
+    public static synchronized void reset()
+    {
+        if (instance != null)
+        {
+            instance.cancel();
+            instance = null;
+        }
+    }
+
+    /**
+     * Schedule the task to be executed after the delay (in milliseconds)
+     */
+    public Timeout schedule(Runnable task, long delay)
+    {
+        return schedule(task, delay, null, null);
+    }
+
+    /**
+     * Schedule the task to be executed after the delay (in milliseconds); the
+     * counters are updated with the number of fired tasks and their lateness,
+     * they may be null.
+     */
+    public Timeout schedule(Runnable task, long delay, StatKey numberKey, StatKey latenessKey)
+    {
+        if (this.stopped)
+        {
+            throw new IllegalStateException("Timer already cancelled.");
+        }
+        start();
+        long deadline = elapsedMillis() + Math.max(0, delay);
+        Timeout timeout = new Timeout(this, task, deadline, numberKey, latenessKey);
+        this.pendingTimeouts.add(timeout);
+        return timeout;
+    }
+
+    /**
+     * Stop the timer : the pending tasks are discarded
+     */
+    public void cancel()
+    {
+        synchronized (this)
+        {
+            this.stopped = true;
+            if (!this.started)
+            {
+                return;
+            }
+        }
+        for (int i = 0; i < this.firingThreadNumber; i++)
+        {
+            this.expiredTimeouts.add(STOP);
+        }
+    }
+
+    private void start()
+    {
+        if (this.started)
+        {
+            return;
+        }
+        synchronized (this)
+        {
+            if (!this.started && !this.stopped)
+            {
+                this.startTime = System.nanoTime();
+                ThreadPool.reserve().start(new WheelWorker());
+                for (int i = 0; i < this.firingThreadNumber; i++)
+                {
+                    ThreadPool.reserve().start(new FiringWorker());
+                }
+                this.started = true;
+            }
+        }
+    }
+
+    private long elapsedMillis()
+    {
+        return (System.nanoTime() - this.startTime) / 1000000;
+    }
+
+    /**
+     * Advance the wheel every tick
+     */
+    private class WheelWorker implements Runnable
+    {
+        public void run()
+        {
+            final int mask = WHEEL_SIZE - 1;
+            while (!stopped)
+            {
+                long now = waitForNextTick();
+                removeCancelledTimeouts();
+                transferPendingTimeouts();
+                wheel[(int) (tick & mask)].expireTimeouts(now);
+                tick++;
+            }
+        }
+
+        private long waitForNextTick()
+        {
+            long deadline = tickMillis * (tick + 1);
+            while (true)
+            {
+                long now = elapsedMillis();
+                long sleep = deadline - now;
+                if (sleep <= 0)
+                {
+                    return now;
+                }
+                try
+                {
+                    Thread.sleep(sleep);
+                }
+                catch (InterruptedException e)
+                {
+                    // continue
+                }
+            }
+        }
+
+        private void transferPendingTimeouts()
+        {
+            for (int i = 0; i < MAX_TRANSFER; i++)
+            {
+                Timeout timeout = pendingTimeouts.poll();
+                if (timeout == null)
+                {
+                    break;
+                }
+                if (timeout.state.get() != STATE_INIT)
+                {
+                    continue;
+                }
+                long calculated = timeout.deadline / tickMillis;
+                timeout.remainingRounds = (calculated - tick) / WHEEL_SIZE;
+                // the timeouts already late expire at the current tick
+                long ticks = Math.max(calculated, tick);
+                wheel[(int) (ticks & (WHEEL_SIZE - 1))].add(timeout);
+            }
+        }
+
+        private void removeCancelledTimeouts()
+        {
+            while (true)
+            {
+                Timeout timeout = cancelledTimeouts.poll();
+                if (timeout == null)
+                {
+                    break;
+                }
+                if (timeout.bucket != null)
+                {
+                    timeout.bucket.remove(timeout);
+                }
+            }
+        }
+    }
+
+    /**
+     * Execute the expired tasks
+     */
+    private class FiringWorker implements Runnable
+    {
+        public void run()
+        {
+            while (true)
+            {
+                Timeout timeout;
+                try
+                {
+                    timeout = expiredTimeouts.take();
+                }
+                catch (InterruptedException e)
+                {
+                    return;
+                }
+                if (timeout == STOP)
+                {
+                    return;
+                }
+                if (timeout.numberKey != null)
+                {
+                    StatPool.getInstance().addValue(timeout.numberKey, 1);
+                }
+                if (timeout.latenessKey != null)
+                {
+                    StatPool.getInstance().addValue(timeout.latenessKey, Math.max(0, elapsedMillis() - timeout.deadline));
+                }
+                try
+                {
+                    timeout.task.run();
+                }
+                catch (Exception e)
+                {
+                    GlobalLogger.instance().getApplicationLogger().warn(TextEvent.Topic.CORE, e, "Error while executing a timer task");
+                }
+            }
+        }
+    }
+
+    /**
+     * Doubly linked list of the timeouts of one tick of the wheel;
+     * only used by the wheel thread
+     */
+    private class Bucket
+    {
+        private Timeout head;
+
+        private Timeout tail;
+
+        private void add(Timeout timeout)
+        {
+            timeout.bucket = this;
+            if (this.head == null)
+            {
+                this.head = timeout;
+                this.tail = timeout;
+            }
+            else
+            {
+                this.tail.next = timeout;
+                timeout.prev = this.tail;
+                this.tail = timeout;
+            }
+        }
+
+        private void remove(Timeout timeout)
+        {
+            if (timeout.prev != null)
+            {
+                timeout.prev.next = timeout.next;
+            }
+            else
+            {
+                this.head = timeout.next;
+            }
+            if (timeout.next != null)
+            {
+                timeout.next.prev = timeout.prev;
+            }
+            else
+            {
+                this.tail = timeout.prev;
+            }
+            timeout.prev = null;
+            timeout.next = null;
+            timeout.bucket = null;
+        }
+
+        private void expireTimeouts(long now)
+        {
+            Timeout timeout = this.head;
+            while (timeout != null)
+            {
+                Timeout next = timeout.next;
+                if (timeout.remainingRounds <= 0)
+                {
+                    remove(timeout);
+                    if (timeout.state.compareAndSet(STATE_INIT, STATE_EXPIRED))
+                    {
+                        expiredTimeouts.add(timeout);
+                    }
+                }
+                else if (timeout.state.get() == STATE_CANCELLED)
+                {
+                    remove(timeout);
+                }
+                else
+                {
+                    timeout.remainingRounds--;
+                }
+                timeout = next;
+            }
+        }
+    }
+
+    /**
+     * Handle of a scheduled task
+     */
+    public static class Timeout
+    {
+        private final TimerWheel timer;
+
+        private final Runnable task;
+
+        /** expiration time in milliseconds since the start of the wheel */
+        private final long deadline;
+
+        private final StatKey numberKey;
+
+        private final StatKey latenessKey;
+
+        private final AtomicInteger state = new AtomicInteger(STATE_INIT);
+
+        /** fields only used by the wheel thread */
+        private long remainingRounds;
+
+        private Bucket bucket;
+
+        private Timeout prev;
+
+        private Timeout next;
+
+        private Timeout(TimerWheel timer, Runnable task, long deadline, StatKey numberKey, StatKey latenessKey)
+        {
+            this.timer = timer;
+            this.task = task;
+            this.deadline = deadline;
+            this.numberKey = numberKey;
+            this.latenessKey = latenessKey;
+        }
+
+        /**
+         * Cancel the task; return false if it has already been executed
+         * or cancelled
+         */
+        public boolean cancel()
+        {
+            if (!this.state.compareAndSet(STATE_INIT, STATE_CANCELLED))
+            {
+                return false;
+            }
+            this.timer.cancelledTimeouts.add(this);
+            return true;
+        }
+
+        public boolean isCancelled()
+        {
+            return this.state.get() == STATE_CANCELLED;
+        }
+
+        public boolean isExpired()
+        {
+            return this.state.get() == STATE_EXPIRED;
+        }
+    }
+}
@@ -32,9 +32,7 @@ import com.devoteam.srit.xmlloader.core.log.TextEvent.Topic;
 import com.devoteam.srit.xmlloader.core.utils.filesystem.SingletonFSInterface;
 import com.devoteam.srit.xmlloader.core.utils.system.OSValidator;
 
-import gp.utils.arrays.Array;
 import gp.utils.arrays.DefaultArray;
-import gp.utils.arrays.RandomArray;
 import gp.utils.arrays.SupArray;
 
 import java.awt.Container;
@@ -59,6 +57,15 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Enumeration;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -73,10 +80,22 @@ public class Utils
 {
 
     public static InetAddress localAddress;
-    private static int UIDIndex = 0;
+    private static final AtomicInteger UIDIndex = new AtomicInteger();
     private static DecimalFormat df = new DecimalFormat("##,###,###,###,###,##0.####");    
     private static DecimalFormat dfMicro = new DecimalFormat("0.####E0");    
 
+    /** Maximum number of compiled regular expressions kept in memory */
+    private static final int PATTERN_CACHE_SIZE = 1000;
+
+    /** Compiled regular expressions of compilesRegex() by expression (before the posix replacements) */
+    private static final ConcurrentHashMap<String, Pattern> REGEX_CACHE = new ConcurrentHashMap<String, Pattern>();
+
+    /** Timer shared by all the precise pauses : it wakes up the paused threads */
+    private static final ScheduledThreadPoolExecutor PAUSE_TIMER = createPauseTimer();
+
+    /** Compiled regular expressions of getPattern() by flags and expression */
+    private static final ConcurrentHashMap<String, Pattern> PATTERN_CACHE = new ConcurrentHashMap<String, Pattern>();
+
     static
     {
         DecimalFormatSymbols decimalFormatSymbols = new DecimalFormatSymbols();
@@ -256,6 +275,59 @@ public class Utils
         }
     }
 
+    /**
+     * Make a precise pause : the wake-up of the thread is scheduled on a timer
+     * shared by all the pauses, and the thread is parked until it fires, so the
+     * pause is not rounded to the millisecond and no CPU is used meanwhile.
+     * The pause ends at once when the thread is interrupted.
+     *
+     * @param duration Duration in nanoseconds
+     * @return the actual duration of the pause in nanoseconds, or -1 if the
+     * pause has been interrupted
+     */
+    public static long pauseNanoseconds(long duration)
+    {
+        long start = System.nanoTime();
+        if (duration > 0)
+        {
+            final Thread thread = Thread.currentThread();
+            final AtomicBoolean fired = new AtomicBoolean(false);
+            ScheduledFuture<?> wakeUp = PAUSE_TIMER.schedule(new Runnable()
+            {
+                public void run()
+                {
+                    fired.set(true);
+                    LockSupport.unpark(thread);
+                }
+            }, duration, TimeUnit.NANOSECONDS);
+            while (!fired.get())
+            {
+                if (thread.isInterrupted())
+                {
+                    wakeUp.cancel(false);
+                    return -1;
+                }
+                LockSupport.park(PAUSE_TIMER);
+            }
+        }
+        return System.nanoTime() - start;
+    }
+
+    private static ScheduledThreadPoolExecutor createPauseTimer()
+    {
+        ScheduledThreadPoolExecutor timer = new ScheduledThreadPoolExecutor(1, new ThreadFactory()
+        {
+            public Thread newThread(Runnable runnable)
+            {
+                Thread thread = new Thread(runnable, "PauseTimer");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        timer.setRemoveOnCancelPolicy(true);
+        return timer;
+    }
+
     /**
      * Compile a regular expression given by a string 
      * and returns a Pattern object
@@ -264,6 +336,12 @@ public class Utils
      */
     public static Pattern compilesRegex(String regexp)
     {
+    	Pattern p = REGEX_CACHE.get(regexp);
+    	if (null != p)
+    	{
+    		return p;
+    	}
+    	String key = regexp;
     	if ((regexp.indexOf("[:") > 0) || (regexp.indexOf(":]") > 0))
     	{
     		regexp = Utils.replaceNoRegex(regexp, "[:alnum:]", "[A-Za-z0-9]");
@@ -281,10 +359,46 @@ public class Utils
     		regexp = Utils.replaceNoRegex(regexp, "[:xdigit:]", "[A-Fa-f0-9]");
     	}
     	
-        Pattern p = Pattern.compile(regexp);
+        p = Pattern.compile(regexp);
+        putPattern(REGEX_CACHE, key, p);
+        return p;
+    }
+
+    /**
+     * Same as Pattern.compile(regex, flags) but the compiled pattern is cached
+     * for the whole process (the Pattern objects are thread safe)
+     */
+    public static Pattern getPattern(String regex, int flags)
+    {
+        String key = flags + ":" + regex;
+        Pattern p = PATTERN_CACHE.get(key);
+        if (null == p)
+        {
+            p = Pattern.compile(regex, flags);
+            putPattern(PATTERN_CACHE, key, p);
+        }
         return p;
     }
 
+    private static void putPattern(ConcurrentHashMap<String, Pattern> cache, String key, Pattern p)
+    {
+        // the expressions may be built dynamically from parameters : bound the cache
+        if (cache.size() >= PATTERN_CACHE_SIZE)
+        {
+            cache.clear();
+        }
+        cache.put(key, p);
+    }
+
+    /**
+     * Number of compiled regular expressions currently kept in memory
+     * (compilesRegex() and getPattern() caches)
+     */
+    public static int getCachedPatternNumber()
+    {
+        return REGEX_CACHE.size() + PATTERN_CACHE.size();
+    }
+
     
     /**
      * Returns true if the regex can be found in the value
@@ -296,7 +410,7 @@ public class Utils
             return false;
         }
 
-        Pattern p = Pattern.compile(regex);
+        Pattern p = getPattern(regex, 0);
         Matcher m = p.matcher(value);
         return m.find();
     }
@@ -1263,10 +1377,9 @@ public class Utils
         return sb.toString();
     }
 
-    synchronized public static String newUID()
+    public static String newUID()
     {
-        UIDIndex++;
-        return "UID{" + UIDIndex + "}";
+        return "UID{" + UIDIndex.incrementAndGet() + "}";
     }
 
     public static String getParentDir(String path)
@@ -1508,10 +1621,15 @@ public class Utils
 
 	public static String randomString(int numChar)
 	{
-	    StringBuilder s = new StringBuilder();
+	    return randomString(RandomGenerator.current(), numChar);
+	}
+
+	public static String randomString(Random random, int numChar)
+	{
+	    StringBuilder s = new StringBuilder(numChar);
 	    for (int j = 0; j < numChar; j++)
 	    {
-	        int nextChar = (int) (Math.random() * 62);
+	        int nextChar = random.nextInt(62);
 	        if (nextChar < 10) //0-9
 	        {
 	            s.append(nextChar);
@@ -1545,14 +1663,15 @@ public class Utils
 
 	public static byte[] randomBytes(int numByte)
 	{	
-		Array data = new RandomArray(numByte);
-		return data.getBytes();
+		byte[] data = new byte[numByte];
+		RandomGenerator.current().nextBytes(data);
+		return data;
 	}
 
 	public static long randomLong(long min, long max)
 	{	
 		
-		double d = Math.random() * (max - min) + min;
+		double d = RandomGenerator.current().nextDouble() * (max - min) + min;
 		return Math.round(d);
 	}
 
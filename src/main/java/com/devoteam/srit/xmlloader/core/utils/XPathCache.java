@@ -0,0 +1,379 @@
+/*
+ * Copyright 2012 Devoteam http://www.devoteam.com
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ *
+ * This file is part of Multi-Protocol Test Suite (MTS).
+ *
+ * Multi-Protocol Test Suite (MTS) is free software: you can redistribute
+ * it and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of the
+ * License.
+ *
+ * Multi-Protocol Test Suite (MTS) is distributed in the hope that it will
+ * be useful, but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Multi-Protocol Test Suite (MTS).
+ * If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package com.devoteam.srit.xmlloader.core.utils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.dom4j.Document;
+import org.dom4j.DocumentHelper;
+import org.dom4j.Element;
+import org.dom4j.Node;
+import org.dom4j.XPath;
+
+/**
+ * Process-wide cache of compiled XPath expressions.
+ *
+ * Simple absolute paths made only of child steps (name, *, name[n],
+ * name[child=value], text()) are evaluated by walking the dom4j tree
+ * directly without going through the XPath engine; this is the case for
+ * the ASN.1 based messages (S1AP, NGAP) where the IEs are selected by id.
+ */
+public class XPathCache
+{
+    /** Maximum number of compiled expressions kept in memory */
+    private static final int MAX_SIZE = 1000;
+
+    private static final ConcurrentHashMap<String, XPath> XPATH_CACHE = new ConcurrentHashMap<String, XPath>();
+
+    private static final ConcurrentHashMap<String, Step[]> STEPS_CACHE = new ConcurrentHashMap<String, Step[]>();
+
+    /** expressions using the namespaces of the context node : they are modified at each evaluation */
+    private static final ThreadLocal<Map<String, XPath>> CONTEXT_XPATH_CACHE = new ThreadLocal<Map<String, XPath>>()
+    {
+        @Override
+        protected Map<String, XPath> initialValue()
+        {
+            return new HashMap<String, XPath>();
+        }
+    };
+
+    /** marker for the expressions which can not be handled by the fast path */
+    private static final Step[] NO_STEPS = new Step[0];
+
+    private static final Pattern STEP_PATTERN = Pattern.compile(
+            "(\\*|[A-Za-z_][A-Za-z0-9_\\-]*)(?:\\[(?:([1-9][0-9]*)|([A-Za-z_][A-Za-z0-9_\\-]*)=(?:'([^']*)'|\"([^\"]*)\"|([0-9]+)))\\])?");
+
+    private static final Pattern INTEGER_PATTERN = Pattern.compile("[0-9]+");
+
+    private static final Pattern NUMBER_PATTERN = Pattern.compile("-?([0-9]+(\\.[0-9]*)?|\\.[0-9]+)");
+
+    /**
+     * Private constructor
+     */
+    private XPathCache()
+    {
+        // Nothing
+    }
+
+    /**
+     * Get the compiled XPath expression for the given string; the
+     * expression is compiled only once for the whole process.
+     * The returned expression does not use any namespace.
+     */
+    public static XPath getXPath(String expression)
+    {
+        XPath xpath = XPATH_CACHE.get(expression);
+        if (null == xpath)
+        {
+            xpath = DocumentHelper.createXPath(expression);
+            // set the namespace context now so that the expression is never
+            // modified later while being evaluated by several threads
+            xpath.setNamespaceURIs(Collections.<String, String>emptyMap());
+            if (XPATH_CACHE.size() >= MAX_SIZE)
+            {
+                XPATH_CACHE.clear();
+            }
+            XPATH_CACHE.put(expression, xpath);
+        }
+        return xpath;
+    }
+
+    /**
+     * Get the compiled XPath expression for the given string; the namespace
+     * prefixes are resolved with the declarations in scope of the context node
+     * (same as Document.createXPath()). Such an expression is updated at each
+     * evaluation so it is compiled only once per thread.
+     */
+    public static XPath getContextXPath(String expression)
+    {
+        Map<String, XPath> cache = CONTEXT_XPATH_CACHE.get();
+        XPath xpath = cache.get(expression);
+        if (null == xpath)
+        {
+            xpath = DocumentHelper.createXPath(expression);
+            if (cache.size() >= MAX_SIZE)
+            {
+                cache.clear();
+            }
+            cache.put(expression, xpath);
+        }
+        return xpath;
+    }
+
+    /**
+     * Select the nodes matching the given absolute path in the document.
+     * Simple child paths are resolved directly on the tree, the other ones
+     * through the cached XPath expression.
+     */
+    public static List<Node> selectNodes(Document document, String expression)
+    {
+        Step[] steps = getSteps(expression);
+        if (steps != NO_STEPS)
+        {
+            return walk(document, steps);
+        }
+        return getXPath(expression).selectNodes(document);
+    }
+
+    /**
+     * Reset the caches
+     */
+    public static void reset()
+    {
+        XPATH_CACHE.clear();
+        STEPS_CACHE.clear();
+        CONTEXT_XPATH_CACHE.get().clear();
+    }
+
+    private static Step[] getSteps(String expression)
+    {
+        Step[] steps = STEPS_CACHE.get(expression);
+        if (null == steps)
+        {
+            steps = parseSteps(expression);
+            if (STEPS_CACHE.size() >= MAX_SIZE)
+            {
+                STEPS_CACHE.clear();
+            }
+            STEPS_CACHE.put(expression, steps);
+        }
+        return steps;
+    }
+
+    private static Step[] parseSteps(String expression)
+    {
+        if (!expression.startsWith("/") || expression.startsWith("//") || expression.endsWith("/"))
+        {
+            return NO_STEPS;
+        }
+        String[] parts = expression.substring(1).split("/");
+        Step[] steps = new Step[parts.length];
+        for (int i = 0; i < parts.length; i++)
+        {
+            String part = parts[i];
+            if ("text()".equals(part))
+            {
+                if (i != parts.length - 1 || i == 0)
+                {
+                    return NO_STEPS;
+                }
+                steps[i] = new Step(true);
+                continue;
+            }
+            Matcher matcher = STEP_PATTERN.matcher(part);
+            if (!matcher.matches())
+            {
+                return NO_STEPS;
+            }
+            String name = "*".equals(matcher.group(1)) ? null : matcher.group(1);
+            int position = 0;
+            if (matcher.group(2) != null)
+            {
+                position = Integer.parseInt(matcher.group(2));
+            }
+            String child = matcher.group(3);
+            String value = null;
+            boolean numeric = false;
+            if (matcher.group(4) != null)
+            {
+                value = matcher.group(4);
+            }
+            else if (matcher.group(5) != null)
+            {
+                value = matcher.group(5);
+            }
+            else if (matcher.group(6) != null)
+            {
+                value = matcher.group(6);
+                numeric = true;
+            }
+            steps[i] = new Step(name, position, child, value, numeric);
+        }
+        return steps;
+    }
+
+    private static List<Node> walk(Document document, Step[] steps)
+    {
+        List<Node> current = new ArrayList<Node>(1);
+        Element root = document.getRootElement();
+        if (null == root || !steps[0].matches(root, 1))
+        {
+            return current;
+        }
+        current.add(root);
+        for (int i = 1; i < steps.length; i++)
+        {
+            Step step = steps[i];
+            List<Node> next = new ArrayList<Node>();
+            for (Node node : current)
+            {
+                Element parent = (Element) node;
+                if (step.isText())
+                {
+                    for (Node content : parent.content())
+                    {
+                        if (content.getNodeType() == Node.TEXT_NODE)
+                        {
+                            next.add(content);
+                        }
+                    }
+                    continue;
+                }
+                int index = 0;
+                for (Element element : parent.elements())
+                {
+                    if (step.name == null || hasName(element, step.name))
+                    {
+                        index++;
+                        if (step.matches(element, index))
+                        {
+                            next.add(element);
+                        }
+                    }
+                }
+            }
+            if (next.isEmpty())
+            {
+                return next;
+            }
+            current = next;
+        }
+        return current;
+    }
+
+    /**
+     * XPath name test without prefix : only matches the elements in no namespace
+     */
+    private static boolean hasName(Element element, String name)
+    {
+        return name.equals(element.getName()) && element.getNamespaceURI().length() == 0;
+    }
+
+    /**
+     * One location step of a simple path on the child axis
+     */
+    private static class Step
+    {
+        /** element name, null for "*" or for text() */
+        private final String name;
+
+        /** 1-based position predicate, 0 if none */
+        private final int position;
+
+        /** child element name for the [child=value] predicate */
+        private final String child;
+
+        private final String value;
+
+        /** the value has been given without quotes : numeric comparison */
+        private final boolean numeric;
+
+        private final boolean text;
+
+        private Step(String name, int position, String child, String value, boolean numeric)
+        {
+            this.name = name;
+            this.position = position;
+            this.child = child;
+            this.value = value;
+            this.numeric = numeric;
+            this.text = false;
+        }
+
+        private Step(boolean text)
+        {
+            this.name = null;
+            this.position = 0;
+            this.child = null;
+            this.value = null;
+            this.numeric = false;
+            this.text = text;
+        }
+
+        private boolean isText()
+        {
+            return text;
+        }
+
+        private boolean matches(Element element, int index)
+        {
+            if (name != null && !hasName(element, name))
+            {
+                return false;
+            }
+            if (position > 0 && position != index)
+            {
+                return false;
+            }
+            if (child != null)
+            {
+                for (Element sub : element.elements())
+                {
+                    if (hasName(sub, child) && equalsValue(sub.getStringValue()))
+                    {
+                        return true;
+                    }
+                }
+                return false;
+            }
+            return true;
+        }
+
+        private boolean equalsValue(String string)
+        {
+            if (!numeric)
+            {
+                return value.equals(string);
+            }
+            // XPath compares unquoted literals as numbers
+            String trimmed = string.trim();
+            if (INTEGER_PATTERN.matcher(trimmed).matches())
+            {
+                return stripZeros(trimmed).equals(stripZeros(value));
+            }
+            if (NUMBER_PATTERN.matcher(trimmed).matches())
+            {
+                return Double.parseDouble(trimmed) == Double.parseDouble(value);
+            }
+            return false;
+        }
+
+        private static String stripZeros(String digits)
+        {
+            int i = 0;
+            while (i < digits.length() - 1 && digits.charAt(i) == '0')
+            {
+                i++;
+            }
+            return digits.substring(i);
+        }
+    }
+}
@@ -23,14 +23,16 @@
 
 package com.devoteam.srit.xmlloader.diameter;
 
+import java.util.concurrent.atomic.AtomicInteger;
+
 /**
  *
  * @author gpasquiers
  */
 public class IDProvider {
-    private static int id = (int) (Math.random() * Integer.MAX_VALUE + Math.random() * Integer.MIN_VALUE);
+    private static final AtomicInteger id = new AtomicInteger((int) (Math.random() * Integer.MAX_VALUE + Math.random() * Integer.MIN_VALUE));
 
-    public synchronized static int nextId(){
-        return id++;
+    public static int nextId(){
+        return id.getAndIncrement();
     }
 }
@@ -4,13 +4,13 @@ import com.devoteam.srit.xmlloader.core.Parameter;
 import com.devoteam.srit.xmlloader.core.ParameterKey;
 import com.devoteam.srit.xmlloader.core.Runner;
 import com.devoteam.srit.xmlloader.core.protocol.*;
+import com.devoteam.srit.xmlloader.core.utils.XPathCache;
 import com.devoteam.srit.xmlloader.sctp.MsgTransportInfosSctp;
 import com.ericsson.mts.asn1.BitArray;
 import com.ericsson.mts.asn1.XMLFormatReader;
 import com.ericsson.mts.asn1.XMLFormatWriter;
 import org.dom4j.DocumentHelper;
 import org.dom4j.Element;
-import org.dom4j.XPath;
 import org.w3c.dom.Document;
 import org.w3c.dom.Node;
 import org.xml.sax.InputSource;
@@ -29,6 +29,7 @@ import java.util.List;
 
 public class MsgNgap extends Msg {
     private Element dom4jNode;
+    private org.dom4j.Document dom4jDocument;
     private byte[] binaryData;
     private final String XMLRootNodeName = "NGAP-PDU";
     private String NGAPPDUType;
@@ -228,6 +229,21 @@ public class MsgNgap extends Msg {
     // method for the "setFromMessage" <parameter> operation
     //------------------------------------------------------
 
+    /**
+     * Get the document rooted on the PDU element; it is built only once
+     * per message and shared by all the getParameter() calls
+     */
+    private org.dom4j.Document getDocument() {
+        if (dom4jDocument == null) {
+            if (dom4jNode.getDocument() != null && dom4jNode.getDocument().getRootElement() == dom4jNode) {
+                dom4jDocument = dom4jNode.getDocument();
+            } else {
+                dom4jDocument = DocumentHelper.createDocument(dom4jNode.createCopy());
+            }
+        }
+        return dom4jDocument;
+    }
+
 
     /**
      * Get a parameter from the message
@@ -251,9 +267,7 @@ public class MsgNgap extends Msg {
 
         if (params[0].equalsIgnoreCase(XMLRootNodeName)) {
             path = String.format("/%s", path.replaceAll("\\.", "/"));
-            org.dom4j.Document document = DocumentHelper.parseText(dom4jNode.asXML());
-            XPath xpath = DocumentHelper.createXPath(path);
-            List<org.dom4j.Node> nodeList = xpath.selectNodes(document);
+            List<org.dom4j.Node> nodeList = XPathCache.selectNodes(getDocument(), path);
 
             for (int i = 0; i < nodeList.size(); i++) {
                 org.dom4j.Node node = nodeList.get(i);
@@ -24,6 +24,11 @@
 package com.devoteam.srit.xmlloader.radius;
 
 
+import java.net.InetSocketAddress;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
 import org.dom4j.Element;
 
 import com.devoteam.srit.xmlloader.core.Runner;
@@ -45,11 +50,33 @@ import gp.utils.arrays.ReadOnlyDefaultArray;
 
 public class ChannelRadius extends Channel implements Runnable
 {
-    private RadiusSocket radiusSocket;
+    /** the sockets of the pool; the first one is bound to the channel local port */
+    private RadiusSocket[] radiusSockets;
 
     private Array secret;
 
-    private IdentifierHandler identifierHandler;
+    /** one identifier space per socket of the pool */
+    private IdentifierHandler[] identifierHandlers;
+
+    private AtomicInteger nextSocket = new AtomicInteger();
+
+    /** maximum number of received requests whose socket is remembered */
+    private static final int MAX_REQUEST_SOCKETS = 10000;
+
+    /**
+     * socket of the pool which has received the requests, by remote address and
+     * identifier : the responses are sent back from the same port. The entry is
+     * removed when the response is sent; the requests never answered are dropped
+     * from the oldest one when the map is full.
+     */
+    private final Map<String, Integer> requestSockets = new LinkedHashMap<String, Integer>()
+    {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Integer> eldest)
+        {
+            return size() > MAX_REQUEST_SOCKETS;
+        }
+    };
 
     /** Creates a new instance of Channel */
     public ChannelRadius(Stack stack)
@@ -64,27 +91,129 @@ public class ChannelRadius extends Channel implements Runnable
 
     public IdentifierHandler getIdentifierHandler()
     {
-        return this.identifierHandler;
+        return this.identifierHandlers[0];
+    }
+
+    public IdentifierHandler getIdentifierHandler(int socketIndex)
+    {
+        return this.identifierHandlers[socketIndex];
+    }
+
+    /**
+     * Choose the socket of the pool used to send the next request (round robin)
+     */
+    public int nextSocketIndex()
+    {
+        return (this.nextSocket.getAndIncrement() & Integer.MAX_VALUE) % this.identifierHandlers.length;
+    }
+
+    /**
+     * Get the socket of the pool which has received the request with the given
+     * remote address and identifier, the first one if not found
+     */
+    public int getRequestSocketIndex(InetSocketAddress remoteAddress, int identifier)
+    {
+        if (this.identifierHandlers.length <= 1 || null == remoteAddress)
+        {
+            return 0;
+        }
+        Integer socketIndex;
+        synchronized (this.requestSockets)
+        {
+            socketIndex = this.requestSockets.get(getRequestKey(remoteAddress, identifier));
+        }
+        return (null == socketIndex) ? 0 : socketIndex;
+    }
+
+    /**
+     * Remember the socket of the pool which has received a request; a retransmitted
+     * request becomes the most recent one
+     */
+    private void putRequestSocketIndex(InetSocketAddress remoteAddress, int identifier, int socketIndex)
+    {
+        String key = getRequestKey(remoteAddress, identifier);
+        synchronized (this.requestSockets)
+        {
+            this.requestSockets.remove(key);
+            this.requestSockets.put(key, socketIndex);
+        }
+    }
+
+    /** Forget the socket of a request once it has been answered */
+    private void removeRequestSocketIndex(InetSocketAddress remoteAddress, int identifier)
+    {
+        synchronized (this.requestSockets)
+        {
+            this.requestSockets.remove(getRequestKey(remoteAddress, identifier));
+        }
+    }
+
+    private static String getRequestKey(InetSocketAddress remoteAddress, int identifier)
+    {
+        return remoteAddress.getAddress().getHostAddress() + ":" + remoteAddress.getPort() + ":" + identifier;
+    }
+
+    /** Get the local port of the socket of the pool */
+    public int getLocalPort(int socketIndex)
+    {
+        RadiusSocket[] sockets = this.radiusSockets;
+        if (null == sockets)
+        {
+            return this.getLocalPort();
+        }
+        return sockets[socketIndex].getLocalPort();
     }
 
     /** Open a channel */
     @Override
     public synchronized boolean open() throws Exception
     {
-        if(null == this.getLocalHost())
+        int bufferSize = this.stack.getConfig().getInteger("radius.RECEIVE_BUFFER_LENGTH", 4096);
+        RadiusSocket[] sockets = new RadiusSocket[this.identifierHandlers.length];
+        try
         {
-            this.radiusSocket = new RadiusSocket(this.getLocalPort());
+            for (int i = 0; i < sockets.length; i++)
+            {
+                // the other sockets of the pool are bound to any free port
+                int port = (i == 0) ? this.getLocalPort() : 0;
+                if(null == this.getLocalHost())
+                {
+                    sockets[i] = new RadiusSocket(port);
+                }
+                else
+                {
+                    sockets[i] = new RadiusSocket(this.getLocalHost(), port);
+                }
+                sockets[i].setBufferSize(bufferSize);
+            }
         }
-        else
+        catch (Exception e)
         {
-            this.radiusSocket = new RadiusSocket(this.getLocalHost(), this.getLocalPort());
+            for (RadiusSocket socket : sockets)
+            {
+                if (null != socket)
+                {
+                    socket.close();
+                }
+            }
+            throw e;
         }
+        this.radiusSockets = sockets;
+        this.localPort = sockets[0].getLocalPort();
 
-        this.localPort = this.radiusSocket.getLocalPort();
-        int bufferSize = this.stack.getConfig().getInteger("radius.RECEIVE_BUFFER_LENGTH", 4096);
-        this.radiusSocket.setBufferSize(bufferSize);
-
+        // one receiving thread per socket
         ThreadPool.reserve().start(this);
+        for (int i = 1; i < sockets.length; i++)
+        {
+            final int socketIndex = i;
+            ThreadPool.reserve().start(new Runnable()
+            {
+                public void run()
+                {
+                    receive(socketIndex);
+                }
+            });
+        }
         return true;
     }
 
@@ -92,17 +221,20 @@ public class ChannelRadius extends Channel implements Runnable
     @Override
     public synchronized boolean close()
     {
-        if(null != radiusSocket)
+        if(null != radiusSockets)
         {
-            this.radiusSocket.close();
-            this.radiusSocket = null;
+            for (RadiusSocket socket : this.radiusSockets)
+            {
+                socket.close();
+            }
+            this.radiusSockets = null;
         }
         return true;
     }
 
     /** Send a Msg through the channel */
     @Override
-    public synchronized boolean sendMessage(Msg msg) throws Exception
+    public boolean sendMessage(Msg msg) throws Exception
     {
         MsgRadius msgRadius = (MsgRadius) msg;
         RadiusMessage radiusMessage = msgRadius.getRadiusMessage();
@@ -112,7 +244,21 @@ public class ChannelRadius extends Channel implements Runnable
         // use the message remote address if present, else, the channel's one.
         if (null != radiusMessage.getRemoteAddress())
         {
-            this.radiusSocket.send(radiusMessage);
+            RadiusSocket[] sockets = this.radiusSockets;
+            if (null == sockets)
+            {
+                throw new ExecutionException("ChannelRadius : the channel " + this.getName() + " is closed");
+            }
+            RadiusSocket socket = sockets[msgRadius.getSocketIndex()];
+            // the sockets can be shared by several scenarios
+            synchronized (socket)
+            {
+                socket.send(radiusMessage);
+            }
+            if (!msgRadius.isRequest() && this.identifierHandlers.length > 1)
+            {
+                removeRequestSocketIndex(radiusMessage.getRemoteAddress(), radiusMessage.getIdentifier());
+            }
         }
         else
         {
@@ -144,7 +290,27 @@ public class ChannelRadius extends Channel implements Runnable
     	
     	String secret     = root.attributeValue("secret");
     	this.secret = new ReadOnlyDefaultArray(secret.getBytes());
-    	this.identifierHandler = new IdentifierHandler();
+
+    	// number of local UDP ports used to send the requests
+    	int socketPoolSize;
+    	String socketPool = root.attributeValue("socketPool");
+    	if (socketPool != null)
+    	{
+    		socketPoolSize = Integer.parseInt(socketPool);
+    	}
+    	else
+    	{
+    		socketPoolSize = this.stack.getConfig().getInteger("radius.SOCKET_POOL_SIZE", 1);
+    	}
+    	if (socketPoolSize < 1)
+    	{
+    		throw new ExecutionException("ChannelRadius : the socket pool size must be at least 1 : " + socketPoolSize);
+    	}
+    	this.identifierHandlers = new IdentifierHandler[socketPoolSize];
+    	for (int i = 0; i < socketPoolSize; i++)
+    	{
+    		this.identifierHandlers[i] = new IdentifierHandler();
+    	}
     	
     	// DEPRECATED begin
     	String name = root.attributeValue("socketName");
@@ -157,24 +323,61 @@ public class ChannelRadius extends Channel implements Runnable
 
     public void run()
     {
-        while (this.radiusSocket != null && this.radiusSocket.isOpen())
+        receive(0);
+    }
+
+    /**
+     * The channel without remote address sends to the first peer it receives
+     * from, as the stack does for the first message sent
+     */
+    private synchronized void setDefaultRemoteAddress(InetSocketAddress remoteAddress)
+    {
+        if (null == this.remoteHost || 0 == this.remotePort)
+        {
+            this.remoteHost = remoteAddress.getAddress().getHostAddress();
+            this.remotePort = remoteAddress.getPort();
+        }
+    }
+
+    /**
+     * Receive the messages of a socket of the pool, each socket has its own thread
+     * so the decoding and the authenticator check are done in parallel.
+     */
+    private void receive(int socketIndex)
+    {
+        RadiusSocket[] sockets = this.radiusSockets;
+        if (null == sockets)
+        {
+            return;
+        }
+        RadiusSocket radiusSocket = sockets[socketIndex];
+        while (this.radiusSockets != null && radiusSocket.isOpen())
         {
             try
             {
-                RadiusMessage radiusMessage = this.radiusSocket.receive();
+                RadiusMessage radiusMessage = radiusSocket.receive();
                 GlobalLogger.instance().getApplicationLogger().debug(TextEvent.Topic.PROTOCOL, "ChannelRadius, received a radius message");
 
                 radiusMessage.setSecret(this.secret);
 
                 MsgRadius msgRadius = new MsgRadius(this.stack, radiusMessage);
-                this.remoteHost = radiusMessage.getRemoteAddress().getAddress().getHostAddress();
-                this.remotePort = radiusMessage.getRemoteAddress().getPort();
+                // the sockets of the pool receive in parallel : the remote address is the one of the message
+                InetSocketAddress remoteAddress = radiusMessage.getRemoteAddress();
+                msgRadius.setRemoteHost(remoteAddress.getAddress().getHostAddress());
+                msgRadius.setRemotePort(remoteAddress.getPort());
+                setDefaultRemoteAddress(remoteAddress);
                 msgRadius.setChannel(this);
+                msgRadius.setSocketIndex(socketIndex);
 
-                if (!msgRadius.isRequest())
+                if (msgRadius.isRequest() && this.identifierHandlers.length > 1)
+                {
+                    // the identifier of a remote address is reused by its next requests
+                    putRequestSocketIndex(remoteAddress, radiusMessage.getIdentifier(), socketIndex);
+                }
+                else if (!msgRadius.isRequest())
                 {
                     GlobalLogger.instance().getApplicationLogger().debug(TextEvent.Topic.PROTOCOL, "ChannelRadius, free identifier ", radiusMessage.getIdentifier());
-                    this.identifierHandler.freeIdentifier(radiusMessage.getIdentifier());
+                    this.identifierHandlers[socketIndex].freeIdentifier(radiusMessage.getIdentifier());
                 }
 
                 if (1 == radiusMessage.getCode())
@@ -202,7 +405,7 @@ public class ChannelRadius extends Channel implements Runnable
         {
             synchronized(this)
             {
-                if(null != this.radiusSocket)
+                if(null != this.radiusSockets)
                 {
                     GlobalLogger.instance().getApplicationLogger().debug(TextEvent.Topic.PROTOCOL, "ChannelRadius : closing ", this.getName());
                     this.stack.closeChannel(this.getName());
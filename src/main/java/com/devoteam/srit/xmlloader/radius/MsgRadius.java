@@ -61,6 +61,9 @@ public class MsgRadius extends Msg
     private RadiusMessage radiusMessage;
     private RadiusDictionary radiusDictionary;
 
+    /** index of the socket of the channel pool used to send or receive the message */
+    private int socketIndex = 0;
+
     /** Creates a new instance */
     public MsgRadius(Stack stack) throws Exception
     {
@@ -113,6 +116,16 @@ public class MsgRadius extends Msg
         return this.radiusMessage;
     }
 
+    protected int getSocketIndex()
+    {
+        return this.socketIndex;
+    }
+
+    protected void setSocketIndex(int socketIndex)
+    {
+        this.socketIndex = socketIndex;
+    }
+
     private RadiusDictionary getRadiusDictionary() throws Exception
     {
         if(null == this.radiusDictionary)
@@ -424,6 +437,14 @@ public class MsgRadius extends Msg
     @Override
     public Parameter getParameter(String path) throws Exception
     {
+        // with a socket pool, the local port is the one of the socket used by the message
+        if (this.getChannel() instanceof ChannelRadius && path.trim().equalsIgnoreCase("channel.localPort"))
+        {
+            Parameter var = new Parameter();
+            var.add(Integer.toString(((ChannelRadius) this.getChannel()).getLocalPort(this.socketIndex)));
+            return var;
+        }
+
         Parameter var = super.getParameter(path);
         if ((null != var) && (var.length() > 0))
         {
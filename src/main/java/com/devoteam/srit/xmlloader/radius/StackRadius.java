@@ -291,7 +291,10 @@ public class StackRadius extends Stack
             {
                 throw new ExecutionException("StackRadius: The channel " + name + " does not exist");
             }
-            if(radiusMessage.getIdentifier() == 0) radiusMessage.setIdentifier(channel.getIdentifierHandler().getIdentifier());
+            // the requests are spread over the sockets of the pool, the responses are
+            // sent from the socket which has received the request (set below)
+            if(msgRadius.isRequest()) msgRadius.setSocketIndex(channel.nextSocketIndex());
+            if(radiusMessage.getIdentifier() == 0) radiusMessage.setIdentifier(channel.getIdentifierHandler(msgRadius.getSocketIndex()).getIdentifier());
             msgRadius.setChannel(channel);
         }
         // DEPRECATED end
@@ -321,6 +324,10 @@ public class StackRadius extends Stack
             	channel.setRemoteHost(radiusMessage.getRemoteAddress().getAddress().getHostAddress());
             	channel.setRemotePort(radiusMessage.getRemoteAddress().getPort());
             }
+            if (!msgRadius.isRequest())
+            {
+            	msgRadius.setSocketIndex(channel.getRequestSocketIndex(radiusMessage.getRemoteAddress(), radiusMessage.getIdentifier()));
+            }
 
         }// deprecated part //
 
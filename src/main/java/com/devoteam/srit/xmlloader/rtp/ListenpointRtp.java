@@ -111,12 +111,14 @@ public class ListenpointRtp extends Listenpoint
 		if (isSecured && this.cipherSender != null)
 		{
 			// Compute RTP datas through Cryptographic context algorithm, add authentication tag at the end of datas and put them back into MsgRtp msg
-			byte[] msgData = msg.encode();
-			RawPacket rp = new RawPacket(msgData, 0, msgData.length);
+			// the message is encoded with room for the authentication tag, so it is ciphered in place
+			int tagLength = this.cipherSender.getEngine().getSRTPPolicy().getAuthTagLength();
+			byte[] msgData = ((MsgRtp) msg).encodeForProtection(tagLength);
+			RawPacket rp = new RawPacket(msgData, 0, msgData.length - tagLength);
 			
 			rp = this.cipherSender.transform(rp);
 			
-			byte[] cipheredMsgData = rp.getBuffer();						
+			byte[] cipheredMsgData = rp.toByteArray();						
 			((MsgRtp) msg).cipherThisMessage(cipheredMsgData);
 		}
 		
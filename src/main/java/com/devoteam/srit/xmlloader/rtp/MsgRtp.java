@@ -61,6 +61,13 @@ public class MsgRtp extends Msg implements Comparable<MsgRtp> {
     private Array data = new DefaultArray(0);
     private SupArray msgArray = new SupArray();
     private SupArray headerArray = null;
+    /** bytes of msgArray, computed once and then patched for each packet of the flow */
+    private byte[] encodedBytes = null;
+    /** encoded bytes followed by the room for the SRTP authentication tag, protected in place */
+    private byte[] protectedBytes = null;
+    private int protectedRoom = 0;
+    /** protectedBytes holds the plain bytes of the current packet (not yet protected) */
+    private boolean protectedPatched = false;
     Integer32Array timestampArray = null;
     Integer16Array seqnumArray = null;
     Array markArray = null;
@@ -241,10 +248,39 @@ public class MsgRtp extends Msg implements Comparable<MsgRtp> {
         //markArray.setValue(marker);
         markArray.setBit(0, marker);
 
+        int headerLength = headerArray.length;
+        if (protectedBytes != null && protectedBytes.length - protectedRoom == headerLength + data.length) {
+            //secured flow : only the buffer given to the SRTP context is patched, the
+            //plain encoded bytes are built again if they are asked
+            patchEncoded(protectedBytes, headerLength);
+            protectedPatched = true;
+            msgArray = null;
+            encodedBytes = null;
+            return;
+        }
+        if (encodedBytes != null && encodedBytes.length == headerLength + data.length) {
+            patchEncoded(encodedBytes, headerLength);
+            return;
+        }
+
         //recreate new msg array based on changed header and new data
         msgArray = new SupArray();
         msgArray.addFirst(headerArray);
         msgArray.addLast(data);
+        encodedBytes = null;
+        protectedPatched = false;
+    }
+
+    /** patch the encoded packet in place : marker, sequence number, timestamp and data */
+    private void patchEncoded(byte[] bytes, int headerLength) {
+        bytes[1] = (byte) ((bytes[1] & 0x7f) | ((marker & 1) << 7));
+        bytes[2] = (byte) (sequenceNumber >> 8);
+        bytes[3] = (byte) sequenceNumber;
+        bytes[4] = (byte) (timestamp >> 24);
+        bytes[5] = (byte) (timestamp >> 16);
+        bytes[6] = (byte) (timestamp >> 8);
+        bytes[7] = (byte) timestamp;
+        data.getBytes(0, bytes, headerLength, data.length);
     }
 
     public boolean isSilence() {
@@ -261,7 +297,9 @@ public class MsgRtp extends Msg implements Comparable<MsgRtp> {
     //-------------------------------------------------
 
     /** 
-     * encode the message to binary data 
+     * encode the message to binary data; the bytes are patched in place for
+     * the next packet of the flow so the returned array must be neither
+     * modified nor kept
      */
     @Override
     public byte[] encode() throws Exception
@@ -313,7 +351,50 @@ public class MsgRtp extends Msg implements Comparable<MsgRtp> {
             //data
             msgArray.addLast(data);
         }
-        return msgArray.getBytes();
+        if (msgArray == null) {
+            msgArray = new SupArray();
+            msgArray.addFirst(headerArray);
+            msgArray.addLast(data);
+        }
+        if (encodedBytes == null) {
+            encodedBytes = msgArray.getBytes();
+        }
+        return encodedBytes;
+    }
+
+    /**
+     * encode the message into a buffer followed by room for the SRTP
+     * authentication tag, so that it is protected in place without copy; for
+     * a flow the buffer is patched for the next packet, so it must be neither
+     * modified (except by the protection) nor kept
+     */
+    public byte[] encodeForProtection(int room) throws Exception
+    {
+        if (protectedPatched && room == protectedRoom) {
+            protectedPatched = false;
+            return protectedBytes;
+        }
+        if (headerArray == null) {
+            encode();
+        }
+        if (msgArray == null) {
+            msgArray = new SupArray();
+            msgArray.addFirst(headerArray);
+            msgArray.addLast(data);
+        }
+        int length = msgArray.length;
+        if (protectedBytes == null || protectedBytes.length != length + room) {
+            protectedBytes = new byte[length + room];
+        }
+        if (encodedBytes != null) {
+            System.arraycopy(encodedBytes, 0, protectedBytes, 0, length);
+        }
+        else {
+            msgArray.getBytes(0, protectedBytes, 0, length);
+        }
+        protectedRoom = room;
+        protectedPatched = false;
+        return protectedBytes;
     }
 
     /** 
@@ -570,10 +651,10 @@ public class MsgRtp extends Msg implements Comparable<MsgRtp> {
     	return this.cipheredMessage != null;
     }
     
+    /** the array is kept by the message : it must not be modified afterwards */
     public void cipherThisMessage(byte[] cipheredMessage)
     {
-    	this.cipheredMessage = new byte[cipheredMessage.length];
-    	System.arraycopy(cipheredMessage, 0, this.cipheredMessage, 0, cipheredMessage.length);
+    	this.cipheredMessage = cipheredMessage;
     }
 
     public byte[] getCipheredMessage()
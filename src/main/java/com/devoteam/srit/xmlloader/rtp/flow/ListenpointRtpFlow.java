@@ -23,6 +23,8 @@
 
 package com.devoteam.srit.xmlloader.rtp.flow;
 
+import java.util.HashMap;
+
 import gp.utils.arrays.Array;
 
 import com.devoteam.srit.xmlloader.core.Runner;
@@ -52,7 +54,8 @@ import com.devoteam.srit.xmlloader.rtp.srtp.SRTPTransformer;
 public class ListenpointRtpFlow extends Listenpoint 
 {
 
-    protected MsgRtpFlow _currentMessage = null;
+    /** flow being received, only modified by the receive worker */
+    protected volatile MsgRtpFlow _currentMessage = null;
     protected float endTimerNoPacket;
     protected float endTimerSilentFlow;
     protected float endTimerPeriodic;
@@ -64,9 +67,18 @@ public class ListenpointRtpFlow extends Listenpoint
 	private SRTPTransformer cipherSender = null;
     private SRTPTransformer cipherReceiver = null;
 
-    private RtpFlowEndTask _endOfFlowTask = null;
+    /** the end of flow detection has been started, only used by the receive worker */
+    private boolean _endDetectionStarted = false;
+
+    private volatile boolean _removed = false;
 
-    private boolean _removed = false;
+    /** worker owning the received flows of this listenpoint */
+    private RtpFlowReceiveWorker receiveWorker = null;
+
+    /** transport counters by payload type, aggregated by the receive worker and flushed periodically */
+    private HashMap<Integer, TransportCounter> transportCounters = new HashMap<Integer, TransportCounter>();
+    private long lastTransportFlush = 0;
+    private static final long TRANSPORT_FLUSH_INTERVAL = 1000;
         
 	/** Creates a new instance of Listenpoint */
     public ListenpointRtpFlow(Stack stack) throws Exception
@@ -110,20 +122,50 @@ public class ListenpointRtpFlow extends Listenpoint
         return super.remove();
     }
 
-    protected synchronized void receiveMessage(MsgRtp message) throws Exception {
-        // get the stack now (simpler)
-        // StackRtpFlow stack = (StackRtpFlow) StackFactory.getStack(StackFactory.PROTOCOL_RTPFLOW);
+    /** Hand the packet over to the receive worker of the listenpoint */
+    protected void receiveMessage(final MsgRtp message) throws Exception {
+        getReceiveWorker().execute(new Runnable() {
+            public void run() {
+                try {
+                    handleMessage(message);
+                }
+                catch (Exception e) {
+                    throw new RuntimeException(e);
+                }
+            }
+        });
+    }
 
-        // create and start the endOfFlow task only when receiving the very first message
-        if(null == _endOfFlowTask){
-            _endOfFlowTask = new RtpFlowEndTask(this);
-            // this task should remove itself once listenpoint is removed
-            ((StackRtpFlow) this.stack).scheduler.execute(_endOfFlowTask, false);
+    /** Get the receive worker of the listenpoint, chosen when the first packet is received */
+    protected RtpFlowReceiveWorker getReceiveWorker() {
+        RtpFlowReceiveWorker worker = receiveWorker;
+        if (worker == null) {
+            synchronized (this) {
+                if (receiveWorker == null) {
+                    receiveWorker = ((StackRtpFlow) this.stack).getReceiveWorker();
+                }
+                worker = receiveWorker;
+            }
+        }
+        return worker;
+    }
+
+    /** Handle a received packet; called by the receive worker only */
+    private void handleMessage(MsgRtp message) throws Exception {
+        if (_removed) {
+            return;
+        }
+
+        // start the end of flow detection only when receiving the very first message
+        if(!_endDetectionStarted){
+            _endDetectionStarted = true;
+            // the listenpoint is dropped by the detector once it is removed
+            ((StackRtpFlow) this.stack).endDetector.register(this);
         }
 
         // check if the packet is silent or not if necessary (endTimerSilentFlow "actif")
         if(endTimerSilentFlow >= 0){
-            message.setIsSilence(((StackRtpFlow) this.stack).isSilentPacket(message.getData()));
+            message.setIsSilence(((StackRtpFlow) this.stack).isSilentPacket(message));
         }
 
         // if we must handle the packet (received at least one packet, silent filtering disabled, or packet is not silence)
@@ -143,6 +185,11 @@ public class ListenpointRtpFlow extends Listenpoint
             // add the rtp message to the rtpflow message
             _currentMessage.addReceivedPacket(message);
 
+            // update the audio level of the flow if necessary
+            if (null != _currentMessage.getAudioLevel()) {
+                _currentMessage.getAudioLevel().add(message.getData(), message.getPayloadType());
+            }
+
             // update the timestamp and counter for last non-silence received packet
             if(!message.isSilence()){
                 _currentMessage.updateLastNonSilencePacketTimestamp();
@@ -150,28 +197,80 @@ public class ListenpointRtpFlow extends Listenpoint
             }
 
             // update statistics
-            StatPool.getInstance().addValue(new StatKey(StatPool.PREFIX_TRANSPORT, _currentMessage.getTransport(), StackFactory.PROTOCOL_RTP, message.getTypeComplete() + StackFactory.PREFIX_INCOMING, "_transportNumber"), 1);
-            StatPool.getInstance().addValue(new StatKey(StatPool.PREFIX_TRANSPORT, _currentMessage.getTransport(), StackFactory.PROTOCOL_RTP, message.getTypeComplete() + StackFactory.PREFIX_INCOMING, "_transportBytes"), (float) message.getLength() / 1024 / 1024);
+            TransportCounter counter = transportCounters.get(message.getPayloadType());
+            if (counter == null) {
+                counter = new TransportCounter(_currentMessage.getTransport(), message.getTypeComplete());
+                transportCounters.put(message.getPayloadType(), counter);
+            }
+            counter.number++;
+            counter.bytes += message.getLength();
+            long now = System.currentTimeMillis();
+            if (now - lastTransportFlush >= TRANSPORT_FLUSH_INTERVAL) {
+                flushTransportCounters();
+                lastTransportFlush = now;
+            }
+        }
+    }
+
+    /** End the flow being received if it is still the given one; called by the receive worker only */
+    void endCurrentMessage(MsgRtpFlow msg) throws Exception {
+        if (msg == null || _currentMessage != msg) {
+            return;
+        }
+        _currentMessage = null;
+        flushTransportCounters();
+        ((StackRtpFlow) this.stack).receiveMsgRtpFlow(msg);
+    }
+
+    private void flushTransportCounters() {
+        for (TransportCounter counter : transportCounters.values()) {
+            if (counter.number > 0) {
+                StatPool.getInstance().addValue(counter.numberKey, counter.number);
+                StatPool.getInstance().addValue(counter.bytesKey, (float) counter.bytes / 1024 / 1024);
+                counter.number = 0;
+                counter.bytes = 0;
+            }
+        }
+    }
+
+    /** received packets and bytes of one payload type since the last flush */
+    private static class TransportCounter {
+        private final StatKey numberKey;
+        private final StatKey bytesKey;
+        private long number = 0;
+        private long bytes = 0;
+
+        private TransportCounter(String transport, String typeComplete) {
+            numberKey = new StatKey(StatPool.PREFIX_TRANSPORT, transport, StackFactory.PROTOCOL_RTP, typeComplete + StackFactory.PREFIX_INCOMING, "_transportNumber");
+            bytesKey = new StatKey(StatPool.PREFIX_TRANSPORT, transport, StackFactory.PROTOCOL_RTP, typeComplete + StackFactory.PREFIX_INCOMING, "_transportBytes");
         }
     }
     
     /** Send a Msg to Listenpoint */
     @Override
-    public synchronized boolean sendMessage(Msg msg, String remoteHost, int remotePort, String transport) throws Exception
+    public boolean sendMessage(Msg msg, String remoteHost, int remotePort, String transport) throws Exception
     {
-    	if (this.isSecured && this.cipherSender != null)
+    	// only the SRTP context needs the lock, the UDP listenpoint is synchronized itself
+    	SRTPTransformer cipher = this.cipherSender;
+    	if (this.isSecured && cipher != null)
     	{
-    		byte[] msgData = msg.encode();
-			
-			RawPacket rp = new RawPacket(msgData, 0, msgData.length);
-			rp = this.cipherSender.transform(rp);
-			
-			byte[] cipheredMsgData = rp.getBuffer();
-			
-			MsgRtp tmpMsg = (MsgRtp) msg;
-			tmpMsg.cipherThisMessage(cipheredMsgData);
-			
-			msg = tmpMsg;
+    		synchronized (this)
+    		{
+	    		// the message is encoded with room for the authentication tag (and
+	    		// patched there for the next packets), so it is ciphered in place
+	    		int tagLength = cipher.getEngine().getSRTPPolicy().getAuthTagLength();
+	    		byte[] msgData = ((MsgRtp) msg).encodeForProtection(tagLength);
+				
+				RawPacket rp = new RawPacket(msgData, 0, msgData.length - tagLength);
+				rp = cipher.transform(rp);
+				
+				byte[] cipheredMsgData = rp.toByteArray();
+				
+				MsgRtp tmpMsg = (MsgRtp) msg;
+				tmpMsg.cipherThisMessage(cipheredMsgData);
+				
+				msg = tmpMsg;
+    		}
     	}
     	return super.sendMessage(msg, remoteHost, remotePort, transport);
     }
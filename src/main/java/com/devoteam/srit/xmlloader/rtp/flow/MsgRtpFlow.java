@@ -33,6 +33,7 @@ import com.devoteam.srit.xmlloader.core.protocol.Stack;
 import com.devoteam.srit.xmlloader.core.protocol.StackFactory;
 import com.devoteam.srit.xmlloader.core.protocol.TransactionId;
 import com.devoteam.srit.xmlloader.core.utils.Config;
+import com.devoteam.srit.xmlloader.core.utils.RandomGenerator;
 import com.devoteam.srit.xmlloader.core.utils.Utils;
 import com.devoteam.srit.xmlloader.rtp.MsgRtp;
 import com.devoteam.srit.xmlloader.rtp.StackRtp;
@@ -40,7 +41,6 @@ import com.devoteam.srit.xmlloader.rtp.srtp.RawPacket;
 import com.devoteam.srit.xmlloader.rtp.srtp.SRTPTransformer;
 
 import gp.utils.arrays.Array;
-import gp.utils.arrays.DefaultArray;
 import gp.utils.arrays.ReadOnlyDefaultArray;
 import gp.utils.arrays.SupArray;
 
@@ -86,6 +86,8 @@ public class MsgRtpFlow extends Msg {
     private List<Integer> markList;
     // Qos Information
     private QoSRtpFlow QoSinfo;
+    // audio level of the received flow, null if not computed
+    private SilenceDetector.AudioLevel audioLevel = null;
     private CodecDictionary dico = null;
     // specific variable for sequence number to have continuous sequence number
     // even if it loop from 65535 to 0
@@ -101,12 +103,20 @@ public class MsgRtpFlow extends Msg {
         {
             QoSinfo = new QoSRtpFlow(this.dico);
         }
+        if (((StackRtpFlow) stack).audioLevel)
+        {
+            audioLevel = new SilenceDetector.AudioLevel();
+        }
     }
 
     public QoSRtpFlow getQoSinfo() {
         return QoSinfo;
     }
 
+    public SilenceDetector.AudioLevel getAudioLevel() {
+        return audioLevel;
+    }
+
     public float getBitRate() {
         return bitRate;
     }
@@ -205,6 +215,11 @@ public class MsgRtpFlow extends Msg {
 
         if (!((ListenpointRtpFlow) getListenpoint()).ignoreReceivedMessages) {
             packetsList.add(aPacket);
+            // keep only the most recent packets if the retention is bounded
+            int maxReceivedPackets = ((StackRtpFlow) this.stack).maxReceivedPackets;
+            if (maxReceivedPackets > 0 && packetsList.size() > maxReceivedPackets) {
+                packetsList.removeFirst();
+            }
         }
 
         packetNumber++;
@@ -337,7 +352,7 @@ public class MsgRtpFlow extends Msg {
     public void setPacketToBeLost() {
         int nbPacketLost = (int) (packetNumber * percentagePacketLost / 100);
         int i = 0;
-        Random rand = new Random();
+        Random rand = RandomGenerator.current();
         listPacketLost = new HashSet<Integer>();
 
         while (listPacketLost.size() < nbPacketLost) {
@@ -349,7 +364,7 @@ public class MsgRtpFlow extends Msg {
     public int calculJitter() {
         int jitter = 0;
         if (jitterDelay != 0) {
-            Random rand = new Random();
+            Random rand = RandomGenerator.current();
             jitter = rand.nextInt((int) (2 * jitterDelay));
             boolean sign = rand.nextBoolean();
             if (!sign)//true for +; false for -
@@ -452,8 +467,9 @@ public class MsgRtpFlow extends Msg {
         return this.ssrc;
     }
     // temp modif gpasquiers; may become final
-    private long lastPacketTimestamp = 0;
-    private long lastNonSilencePacketTimestamp = 0;
+    // written by the receive worker and read by the end of flow detector
+    private volatile long lastPacketTimestamp = 0;
+    private volatile long lastNonSilencePacketTimestamp = 0;
     private long creationTimestamp = System.currentTimeMillis();
 
     public void updateLastPacketTimestamp() {
@@ -741,10 +757,10 @@ public class MsgRtpFlow extends Msg {
                 // optimisation, use cache
                 Parameter parameter = runner.getParameterPool().get(text);
                 if (format.equalsIgnoreCase("text")) {
-                    listPayloadData = (ArrayList<Array>) ParameterCache.getAsAsciiArrayList(parameter);
+                    listPayloadData = PayloadLibrary.getTextPayloads(parameter);
                 }
                 else if (format.equalsIgnoreCase("binary")) {
-                    listPayloadData = (ArrayList<Array>)  ParameterCache.getAsHexArrayList(parameter);
+                    listPayloadData = PayloadLibrary.getHexPayloads(parameter);
                 }
                 else {
                     throw new Exception("format of payload <" + format + "> is unknown");
@@ -754,12 +770,12 @@ public class MsgRtpFlow extends Msg {
                 listPayload = runner.getParameterPool().parse(text);
                 if (format.equalsIgnoreCase("text")) {
                     for (Iterator<String> it = listPayload.iterator(); it.hasNext();) {
-                        listPayloadData.add(new DefaultArray(it.next().getBytes()));
+                        listPayloadData.add(PayloadLibrary.getTextPayload(it.next()));
                     }
                 }
                 else if (format.equalsIgnoreCase("binary")) {
                     for (Iterator<String> it = listPayload.iterator(); it.hasNext();) {
-                        listPayloadData.add(Array.fromHexString(it.next()));
+                        listPayloadData.add(PayloadLibrary.getHexPayload(it.next()));
                     }
                 }
                 else {
@@ -878,6 +894,12 @@ public class MsgRtpFlow extends Msg {
             else if (params[1].equalsIgnoreCase("deltaTimeMean")) {
                 var.add(QoSinfo.getMeanDelta());
             }
+            else if (params[1].equalsIgnoreCase("deltaTimePercentile") && params.length >= 3) {
+                // qos.deltaTimePercentile.<n> : the percentile may have decimals (99.9) so it is the whole end of the path
+                int pos = path.toLowerCase().indexOf("deltatimepercentile") + "deltaTimePercentile".length() + 1;
+                String percent = path.substring(pos);
+                var.add(QoSinfo.getDeltaPercentile(Double.parseDouble(percent)));
+            }
             else if (params[1].equalsIgnoreCase("packetSpacing")) {
                 var.addAll(QoSinfo.getPacketSpacing());
             }
@@ -24,168 +24,106 @@
 package com.devoteam.srit.xmlloader.rtp.flow;
 
 import com.devoteam.srit.xmlloader.core.Parameter;
-import com.devoteam.srit.xmlloader.core.utils.expireshashmap.ExpireHashMap;
-import com.devoteam.srit.xmlloader.core.utils.expireshashmap.Removable;
+import com.devoteam.srit.xmlloader.core.exception.ParameterException;
 import gp.utils.arrays.Array;
-import gp.utils.arrays.DefaultArray;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
+ * Values of the parameters converted into numbers, cached for each version of
+ * the parameter; the lookups are lock-free as all the flows of a load test
+ * read the same parameters. The lists are shared so they must not be modified.
  *
  * @author gpasquiers
  */
 public class ParameterCache {
-    static private Map<Parameter, ExpirableObject<Long>> _paramToVersion = new ExpireHashMap("versions", 30);
-    static private Map<Parameter, ExpirableObject<List<Array>>> _paramToAsciiArrayList = new ExpireHashMap("ascii", 30);
-    static private Map<Parameter, ExpirableObject<List<Array>>> _paramToHexArrayList = new ExpireHashMap("hexa", 30);
-    static private Map<Parameter, ExpirableObject<List<Float>>> _paramToFloatList = new ExpireHashMap("float", 30);
-    static private Map<Parameter, ExpirableObject<List<Long>>> _paramToLongList = new ExpireHashMap("long", 30);
-    static private Map<Parameter, ExpirableObject<List<Integer>>> _paramToIntegerList = new ExpireHashMap("integer", 30);
-    
-    static synchronized public List<Array> getAsHexArrayList(Parameter parameter){
-        Long version = null;
-        ExpirableObject<Long> versionObject = _paramToVersion.get(parameter);
-        if(versionObject != null){
-            version = versionObject.getObject();
-        }
+    /** Maximum number of parameters kept by type of list */
+    private static final int MAX_PARAMETERS = 10000;
 
-        List<Array> list = null;
-        ExpirableObject<List<Array>> listObject = _paramToHexArrayList.get(parameter);
-        if(listObject != null){
-            list = listObject.getObject();
-        }
-                
-        if(version != null && list != null && version == parameter.getVersion()){
-            // already present in cache; return it
-            _paramToHexArrayList.put(parameter, listObject);
-            return list;
-        }
-        else{
-            // not in cache or wrong version (parameter changed); parse, add to cache, then return it
-            list = new ArrayList<Array>(parameter.length());
-            for(Object object:parameter.getArray()){
-                list.add(Array.fromHexString(object.toString()));
-            }
-            _paramToVersion.put(parameter, new ExpirableObject<Long>(parameter.getVersion()));
-            _paramToHexArrayList.put(parameter, new ExpirableObject<List<Array>>(list));
-            return list;
-        }
-    }
+    static private Map<Parameter, VersionedList<Float>> _paramToFloatList = new ConcurrentHashMap<Parameter, VersionedList<Float>>();
+    static private Map<Parameter, VersionedList<Long>> _paramToLongList = new ConcurrentHashMap<Parameter, VersionedList<Long>>();
+    static private Map<Parameter, VersionedList<Integer>> _paramToIntegerList = new ConcurrentHashMap<Parameter, VersionedList<Integer>>();
     
-    static synchronized public List<Array> getAsAsciiArrayList(Parameter parameter){
-        Long version = null;
-        ExpirableObject<Long> versionObject = _paramToVersion.get(parameter);
-        if(versionObject != null){
-            version = versionObject.getObject();
-        }
-
-        List<Array> list = null;
-        ExpirableObject<List<Array>> listObject = _paramToAsciiArrayList.get(parameter);
-        if(listObject != null){
-            list = listObject.getObject();
-        }
-                
-        if(version != null && list != null && version == parameter.getVersion()){
-            // already present in cache; return it
-            _paramToAsciiArrayList.put(parameter, listObject);
-            return list;
-        }
-        else{
-            // not in cache or wrong version (parameter changed); parse, add to cache, then return it
-            list = new ArrayList<Array>(parameter.length());
-            for(Object object:parameter.getArray()){
-                list.add(new DefaultArray(object.toString().getBytes()));
-            }
-            _paramToVersion.put(parameter, new ExpirableObject<Long>(parameter.getVersion()));
-            _paramToAsciiArrayList.put(parameter, new ExpirableObject<List<Array>>(list));
-            return list;
-        }
+    /** the payloads are shared by all the flows through the PayloadLibrary */
+    static public List<Array> getAsHexArrayList(Parameter parameter) throws ParameterException {
+        return PayloadLibrary.getHexPayloads(parameter);
     }
     
+    static public List<Array> getAsAsciiArrayList(Parameter parameter) throws ParameterException {
+        return PayloadLibrary.getTextPayloads(parameter);
+    }
     
-    static synchronized public List<Long> getAsLongList(Parameter parameter){
-        Long version = null;
-        ExpirableObject<Long> versionObject = _paramToVersion.get(parameter);
-        if(versionObject != null){
-            version = versionObject.getObject();
-        }
-
-        List<Long> list = null;
-        ExpirableObject<List<Long>> listObject = _paramToLongList.get(parameter);
-        if(listObject != null){
-            list = listObject.getObject();
-        }
-
-        if(version != null && list != null && version == parameter.getVersion()){
+    static public List<Float> getAsFloatList(Parameter parameter){
+        VersionedList<Float> cached = _paramToFloatList.get(parameter);
+        long version = parameter.getVersion();
+        if(cached != null && cached.version == version){
             // already present in cache; return it
-            _paramToLongList.put(parameter, listObject);
-            return list;
+            return cached.list;
         }
-        else{
-            // not in cache or wrong version (parameter changed); parse, add to cache, then return it
-            list = new ArrayList<Long>(parameter.length());
-            for(Object object:parameter.getArray()){
-                list.add(Long.parseLong(object.toString()));
-            }
-            _paramToVersion.put(parameter, new ExpirableObject<Long>(parameter.getVersion()));
-            _paramToLongList.put(parameter, new ExpirableObject<List<Long>>(list));
-            return list;
+        // not in cache or wrong version (parameter changed); parse, add to cache, then return it
+        ArrayList<Float> list = new ArrayList<Float>(parameter.length());
+        for(Object object:parameter.getValues()){
+            list.add(Float.parseFloat(object.toString()));
         }
+        put(_paramToFloatList, parameter, new VersionedList<Float>(version, list));
+        return list;
     }
 
-    static synchronized public List<Integer> getAsIntegerList(Parameter parameter){
-        Long version = null;
-        ExpirableObject<Long> versionObject = _paramToVersion.get(parameter);
-        if(versionObject != null){
-            version = versionObject.getObject();
+    static public List<Long> getAsLongList(Parameter parameter){
+        VersionedList<Long> cached = _paramToLongList.get(parameter);
+        long version = parameter.getVersion();
+        if(cached != null && cached.version == version){
+            // already present in cache; return it
+            return cached.list;
         }
-
-        List<Integer> list = null;
-        ExpirableObject<List<Integer>> listObject = _paramToIntegerList.get(parameter);
-        if(listObject != null){
-            list = listObject.getObject();
+        // not in cache or wrong version (parameter changed); parse, add to cache, then return it
+        ArrayList<Long> list = new ArrayList<Long>(parameter.length());
+        for(Object object:parameter.getValues()){
+            list.add(Long.parseLong(object.toString()));
         }
+        put(_paramToLongList, parameter, new VersionedList<Long>(version, list));
+        return list;
+    }
 
-        if(version != null && list != null && version == parameter.getVersion()){
+    static public List<Integer> getAsIntegerList(Parameter parameter){
+        VersionedList<Integer> cached = _paramToIntegerList.get(parameter);
+        long version = parameter.getVersion();
+        if(cached != null && cached.version == version){
             // already present in cache; return it
-            _paramToIntegerList.put(parameter, listObject);
-            return list;
+            return cached.list;
         }
-        else{
-            // not in cache or wrong version (parameter changed); parse, add to cache, then return it
-            list = new ArrayList<Integer>(parameter.length());
-            for(Object object:parameter.getArray()){
-                list.add(Integer.parseInt(object.toString()));
-            }
-            _paramToVersion.put(parameter, new ExpirableObject<Long>(parameter.getVersion()));
-            _paramToIntegerList.put(parameter, new ExpirableObject<List<Integer>>(list));
-            return list;
+        // not in cache or wrong version (parameter changed); parse, add to cache, then return it
+        ArrayList<Integer> list = new ArrayList<Integer>(parameter.length());
+        for(Object object:parameter.getValues()){
+            list.add(Integer.parseInt(object.toString()));
         }
+        put(_paramToIntegerList, parameter, new VersionedList<Integer>(version, list));
+        return list;
     }
 
-    static synchronized public void clear(){
-        _paramToVersion.clear();
+    static public void clear(){
         _paramToFloatList.clear();
         _paramToLongList.clear();
-        _paramToAsciiArrayList.clear();
-        _paramToHexArrayList.clear();
+        _paramToIntegerList.clear();
     }
 
-    static public class ExpirableObject<T> implements Removable{
-        private T _object;
-        
-        public ExpirableObject(T object){
-            _object = object;
-        }
-
-        public T getObject(){
-            return _object;
+    private static <T> void put(Map<Parameter, VersionedList<T>> map, Parameter parameter, VersionedList<T> value) {
+        if (map.size() >= MAX_PARAMETERS) {
+            map.clear();
         }
+        map.put(parameter, value);
+    }
 
-        public void onRemove() throws Exception {
+    /** list of the values of one version of a parameter; the version is read before the values */
+    static private class VersionedList<T> {
+        private final long version;
+        private final ArrayList<T> list;
 
+        private VersionedList(long version, ArrayList<T> list) {
+            this.version = version;
+            this.list = list;
         }
     }
 }
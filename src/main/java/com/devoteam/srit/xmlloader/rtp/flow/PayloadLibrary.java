@@ -0,0 +1,289 @@
+/* 
+ * Copyright 2012 Devoteam http://www.devoteam.com
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ * 
+ * 
+ * This file is part of Multi-Protocol Test Suite (MTS).
+ * 
+ * Multi-Protocol Test Suite (MTS) is free software: you can redistribute
+ * it and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of the
+ * License.
+ * 
+ * Multi-Protocol Test Suite (MTS) is distributed in the hope that it will
+ * be useful, but WITHOUT ANY WARRANTY; without even the implied warranty 
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with Multi-Protocol Test Suite (MTS).
+ * If not, see <http://www.gnu.org/licenses/>.
+ * 
+ */
+
+package com.devoteam.srit.xmlloader.rtp.flow;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.InputStream;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.sound.sampled.AudioFileFormat;
+
+import com.devoteam.srit.xmlloader.core.Parameter;
+import com.devoteam.srit.xmlloader.core.exception.ParameterException;
+import com.devoteam.srit.xmlloader.core.utils.filesystem.SingletonFSInterface;
+
+import gp.utils.arrays.Array;
+import gp.utils.arrays.DefaultArray;
+
+/**
+ * Process-wide library of the RTP payloads shared by all the flows.
+ *
+ * The WAV files are read and cut into packets only once per packet duration
+ * (they are read again when modified) and the payloads given as hexadecimal
+ * or text strings are converted only once per string value; the flows playing
+ * the same media use the same arrays, which must never be modified. The lists
+ * of the payloads of a parameter are kept for each version of the parameter.
+ */
+public class PayloadLibrary {
+
+    /** Maximum number of converted payloads kept in memory */
+    private static final int MAX_PAYLOADS = 100000;
+
+    /** Maximum number of WAV medias kept in memory */
+    private static final int MAX_MEDIAS = 100;
+
+    /** Maximum number of parameters whose payload lists are kept in memory */
+    private static final int MAX_PARAMETERS = 10000;
+
+    private static final Map<String, Array> HEX_PAYLOADS = new ConcurrentHashMap<String, Array>();
+
+    private static final Map<String, Array> TEXT_PAYLOADS = new ConcurrentHashMap<String, Array>();
+
+    /** payload lists of the parameters given as hexadecimal strings, with the version of the parameter */
+    private static final Map<Parameter, PayloadList> HEX_PAYLOAD_LISTS = new ConcurrentHashMap<Parameter, PayloadList>();
+
+    /** payload lists of the parameters given as text strings, with the version of the parameter */
+    private static final Map<Parameter, PayloadList> TEXT_PAYLOAD_LISTS = new ConcurrentHashMap<Parameter, PayloadList>();
+
+    /** WAV medias by file and packet duration */
+    private static final Map<String, WavMedia> WAV_MEDIAS = new ConcurrentHashMap<String, WavMedia>();
+
+    /**
+     * Private constructor
+     */
+    private PayloadLibrary() {
+        // Nothing
+    }
+
+    /**
+     * Get the payload given as an hexadecimal string
+     */
+    public static Array getHexPayload(String hex) {
+        Array payload = HEX_PAYLOADS.get(hex);
+        if (payload == null) {
+            payload = Array.fromHexString(hex);
+            put(HEX_PAYLOADS, hex, payload);
+        }
+        return payload;
+    }
+
+    /**
+     * Get the payload given as a text string
+     */
+    public static Array getTextPayload(String text) {
+        Array payload = TEXT_PAYLOADS.get(text);
+        if (payload == null) {
+            payload = new DefaultArray(text.getBytes());
+            put(TEXT_PAYLOADS, text, payload);
+        }
+        return payload;
+    }
+
+    /**
+     * Get the payloads of the values of the parameter given as hexadecimal strings;
+     * the list is built once per version of the parameter and must not be modified
+     */
+    public static ArrayList<Array> getHexPayloads(Parameter parameter) throws ParameterException {
+        PayloadList cached = HEX_PAYLOAD_LISTS.get(parameter);
+        long version = parameter.getVersion();
+        if (cached != null && cached.version == version) {
+            return cached.payloads;
+        }
+        int length = parameter.length();
+        ArrayList<Array> list = new ArrayList<Array>(length);
+        for (int i = 0; i < length; i++) {
+            list.add(getHexPayload(parameter.get(i).toString()));
+        }
+        put(HEX_PAYLOAD_LISTS, parameter, new PayloadList(version, list));
+        return list;
+    }
+
+    /**
+     * Get the payloads of the values of the parameter given as text strings;
+     * the list is built once per version of the parameter and must not be modified
+     */
+    public static ArrayList<Array> getTextPayloads(Parameter parameter) throws ParameterException {
+        PayloadList cached = TEXT_PAYLOAD_LISTS.get(parameter);
+        long version = parameter.getVersion();
+        if (cached != null && cached.version == version) {
+            return cached.payloads;
+        }
+        int length = parameter.length();
+        ArrayList<Array> list = new ArrayList<Array>(length);
+        for (int i = 0; i < length; i++) {
+            list.add(getTextPayload(parameter.get(i).toString()));
+        }
+        put(TEXT_PAYLOAD_LISTS, parameter, new PayloadList(version, list));
+        return list;
+    }
+
+    /**
+     * Get the media of the WAV file cut into packets of the given duration;
+     * the file is read only if it has been modified since the previous call.
+     */
+    public static WavMedia getWavMedia(URI uri, int deltaTimeMilliSec) throws Exception {
+        String key = uri + "|" + deltaTimeMilliSec;
+        long lastModified = 0;
+        long length = 0;
+        if ("file".equals(uri.getScheme())) {
+            File file = new File(uri);
+            lastModified = file.lastModified();
+            length = file.length();
+        }
+
+        WavMedia media = WAV_MEDIAS.get(key);
+        if (media == null || media.lastModified != lastModified || media.length != length) {
+            synchronized (WAV_MEDIAS) {
+                media = WAV_MEDIAS.get(key);
+                if (media == null || media.lastModified != lastModified || media.length != length) {
+                    media = readWavMedia(uri, deltaTimeMilliSec, lastModified, length);
+                    put(WAV_MEDIAS, key, media);
+                }
+            }
+        }
+        return media;
+    }
+
+    /**
+     * Drop all the payloads and medias
+     */
+    public static void reset() {
+        HEX_PAYLOADS.clear();
+        TEXT_PAYLOADS.clear();
+        HEX_PAYLOAD_LISTS.clear();
+        TEXT_PAYLOAD_LISTS.clear();
+        WAV_MEDIAS.clear();
+    }
+
+    private static <K, T> void put(Map<K, T> map, K key, T value) {
+        int maxSize = MAX_PAYLOADS;
+        if (map == WAV_MEDIAS) {
+            maxSize = MAX_MEDIAS;
+        }
+        else if (map == HEX_PAYLOAD_LISTS || map == TEXT_PAYLOAD_LISTS) {
+            maxSize = MAX_PARAMETERS;
+        }
+        if (map.size() >= maxSize) {
+            map.clear();
+        }
+        map.put(key, value);
+    }
+
+    private static WavMedia readWavMedia(URI uri, int deltaTimeMilliSec, long lastModified, long length) throws Exception {
+        InputStream in = null;
+        WAVReader waveFileReader = new WAVReader();
+        AudioFileFormat format = null;
+        try {
+            in = SingletonFSInterface.instance().getInputStream(uri);
+            if (in == null) {
+                throw new FileNotFoundException(uri.toString() + " file is not found.");
+            }
+            format = waveFileReader.getAudioFileFormat(in);
+        }
+        finally {
+            if (in != null) {
+                in.close();
+            }
+        }
+
+        List<String> packets = new ArrayList<String>();
+        if (format != null) {
+            byte[] payload = waveFileReader.getPayload();
+            int nbEchPerPacket = deltaTimeMilliSec * waveFileReader.getBitRate() / 8;
+            if (nbEchPerPacket <= 0) {
+                throw new IllegalArgumentException("Invalid packet duration for the WAV file : " + deltaTimeMilliSec);
+            }
+
+            // the last packet is not full if the payload is not a multiple of the packet size
+            for (int j = 0; j < payload.length; j += nbEchPerPacket) {
+                byte[] val = new byte[Math.min(nbEchPerPacket, payload.length - j)];
+                System.arraycopy(payload, j, val, 0, val.length);
+                Array packet = new DefaultArray(val);
+                String hex = Array.toHexString(packet);
+                // the flows sending the media get the array without converting the string
+                put(HEX_PAYLOADS, hex, packet);
+                packets.add(hex);
+            }
+        }
+        return new WavMedia(format != null, Collections.unmodifiableList(packets), waveFileReader.getPayloadType(), waveFileReader.getBitRate(), lastModified, length);
+    }
+
+    /**
+     * Payloads of one version of a parameter
+     */
+    private static class PayloadList {
+        private final long version;
+        private final ArrayList<Array> payloads;
+
+        private PayloadList(long version, ArrayList<Array> payloads) {
+            this.version = version;
+            this.payloads = payloads;
+        }
+    }
+
+    /**
+     * Content of a WAV file cut into packets, read-only
+     */
+    public static class WavMedia {
+        private final boolean valid;
+        private final List<String> hexPayloads;
+        private final int payloadType;
+        private final int bitRate;
+        private final long lastModified;
+        private final long length;
+
+        private WavMedia(boolean valid, List<String> hexPayloads, int payloadType, int bitRate, long lastModified, long length) {
+            this.valid = valid;
+            this.hexPayloads = hexPayloads;
+            this.payloadType = payloadType;
+            this.bitRate = bitRate;
+            this.lastModified = lastModified;
+            this.length = length;
+        }
+
+        /** the file has been recognized as a WAV file */
+        public boolean isValid() {
+            return valid;
+        }
+
+        /** the payload of each packet as an hexadecimal string; the list must not be modified */
+        public List<String> getHexPayloads() {
+            return hexPayloads;
+        }
+
+        public int getPayloadType() {
+            return payloadType;
+        }
+
+        public int getBitRate() {
+            return bitRate;
+        }
+    }
+}
@@ -23,36 +23,53 @@
 
 package com.devoteam.srit.xmlloader.rtp.flow;
 
-import java.util.TreeSet;
-
+import com.devoteam.srit.xmlloader.core.utils.Config;
 import com.devoteam.srit.xmlloader.rtp.MsgRtp;
-import java.util.LinkedList;
-import java.util.SortedSet;
-import java.util.Collections;
 
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * QoS of a RTP flow computed incrementally at each packet.
+ *
+ * The sequence numbers are tracked in a sliding bitmap of the last
+ * SEQUENCE_WINDOW sequence numbers and the delays in a fixed histogram, so
+ * the memory does not depend on the duration of the flow; only the per packet
+ * values (delta, spacing, jitter) are kept, as primitive arrays, and they
+ * can be limited to the most recent ones with qos.HISTORY_SIZE.
+ * The packets are checked by the thread of the stack while the values are
+ * read by the scenarios, so all the accesses are synchronized on the instance.
+ */
 public class QoSRtpFlow {
 
+    /** number of sequence numbers tracked behind the highest one (power of 2) */
+    private static final int SEQUENCE_WINDOW = 8192;
+    /** the deltas of the histogram have a 1 ms resolution up to this value (in ms); the greater ones are counted apart */
+    private static final int DELTA_HISTOGRAM_MAX = 500;
+
 	//parameter calculate to the flow receipt
-	private int lastSequenceNumber = -1;//sequence number of the last packet
-	private SortedSet missingSequenceNumber;//list of the packets that have yet to arrive
-	private SortedSet receivedSequenceNumber;//list of the arrived packets
+	private int lastSequence = 0;//sequence number of the last arrived packet
+	private long[] receivedSequence = new long[SEQUENCE_WINDOW / 64];//bitmap of the arrived packets
+	private long[] missingSequence = new long[SEQUENCE_WINDOW / 64];//bitmap of the packets that have yet to arrive
+	private boolean started = false;
 	private int packetLost = 0;//number of lost packets
 	private int duplicated = 0;//number of duplicated packets
-	private boolean isDuplicated = false;
     private int packetMissSequence = 0;//number of unexpected arrived packets
-	private SortedSet unexpectedPackets;//explicit
-	private int topSequence = 0;//used for packetMissSequence computation
+	private int topSequence = 0;//highest sequence number received
 
     private float currentDelta = 0;//time between the last packet arrival and this one
-    private LinkedList<Float> deltaList;//list of delta for each packet received
+    private FloatHistory deltaList;//delta for each packet received
     private float meanDelta = 0;//explicit
+    private int[] deltaHistogram = new int[DELTA_HISTOGRAM_MAX];//number of deltas by millisecond (rounded down)
+    private int deltaOverflow = 0;//number of deltas greater than or equal to DELTA_HISTOGRAM_MAX
+    private float maxDelta = 0;//greatest delta, given as percentile when it falls among the overflowed ones
 
     private float currentPacketSpacing = 0;//instant spacing between the last packet and this one
-    private LinkedList<Float> packetSpacingList;//list of packetSpacing for each packet received
+    private FloatHistory packetSpacingList;//packetSpacing for each packet received
     private float meanPacketSpacing = 0;//explicit
 
-    private float currentJitter = 0;//instant jitter of the packet
-    private LinkedList<Float> jitterList;//list of jitter for each packet received
+    private float currentJitter = 0;//instant jitter of the packet (RFC 3550)
+    private FloatHistory jitterList;//jitter for each packet received
     private float meanJitter = 0;//explicit
 
     private float currentBitRate = 0;//instant bitRate of the flow
@@ -70,42 +87,58 @@ public class QoSRtpFlow {
 
 	public QoSRtpFlow(CodecDictionary dico) {
         this.dico = dico;
-		missingSequenceNumber = Collections.synchronizedSortedSet(new TreeSet<Integer>());//use this encapsulation to automatically synchronized the treeset access
-		receivedSequenceNumber = Collections.synchronizedSortedSet(new TreeSet<Integer>());
-		unexpectedPackets = Collections.synchronizedSortedSet(new TreeSet<Integer>());
-        deltaList = new LinkedList<Float>();
-        packetSpacingList = new LinkedList<Float>();
-        jitterList = new LinkedList<Float>();
+        int historySize = Config.getConfigByName("rtpflow.properties").getInteger("qos.HISTORY_SIZE", 8192);
+        deltaList = new FloatHistory(historySize);
+        packetSpacingList = new FloatHistory(historySize);
+        jitterList = new FloatHistory(historySize);
         eModele = new EModele();
 	}
 
-	public void checkPacket(MsgRtp msg)
+	public synchronized void checkPacket(MsgRtp msg)
 	{
 		//for all packets
 		int seqnum = msg.getInternalSequenceNumber();
 		arrivedTime = msg.getTimestamp();
-		isDuplicated = false;
 
-		if(lastSequenceNumber == -1) //for the first message
+		if(!started) //for the first message
         {
 			//initialisation
-			lastSequenceNumber = seqnum;
+			started = true;
 			topSequence = seqnum;
 			lastTimestampRTP = msg.getTimestampRTP();
 			lastArrivedTime = arrivedTime;
 		}
+		else if (seqnum <= topSequence - SEQUENCE_WINDOW)
+        {
+            //too late to be tracked : it remains counted as lost
+            packetMissSequence++;
+        }
 		else
         {
+            int previousTop = topSequence;
+            if (seqnum > topSequence)
+            {
+                // the bits of the sequence numbers leaving the window are reused
+                for (int i = Math.max(topSequence + 1, seqnum - SEQUENCE_WINDOW + 1); i <= seqnum; i++)
+                {
+                    clearBit(receivedSequence, i);
+                    clearBit(missingSequence, i);
+                }
+                topSequence = seqnum;
+            }
+
             //if the packet is contained in the list of the missing (or present) packets
             boolean found = false;
+            boolean isDuplicated = false;
             //search in the missing list
-            if (missingSequenceNumber.contains(seqnum))
+            if (getBit(missingSequence, seqnum))
             {
-                missingSequenceNumber.remove(seqnum);
+                clearBit(missingSequence, seqnum);
+                packetLost--;
                 found = true;
             }
             //search in the list of arrived packet to find duplicated packets
-            if (receivedSequenceNumber.contains(seqnum) && !found)
+            if (!found && getBit(receivedSequence, seqnum))
             {
                 duplicated++;
                 found = true;
@@ -113,69 +146,73 @@ public class QoSRtpFlow {
             }
 
             //if the packet do not arrive in good order and was not found in the previous list research
-			if((seqnum != (lastSequenceNumber + 1)) && !found) 
+            if ((seqnum != (lastSequence + 1)) && !found)
             {
                 //add the interval of packet missing
-                int seqNumToadd = lastSequenceNumber;
-                int seqNumToTest = seqnum;
-
-                if (seqnum < lastSequenceNumber)
+                int from = Math.min(lastSequence, seqnum) + 1;
+                int to = Math.max(lastSequence, seqnum);
+                int windowStart = topSequence - SEQUENCE_WINDOW + 1;
+                if (from < windowStart)
                 {
-                    seqNumToadd = seqnum;
-                    seqNumToTest = lastSequenceNumber;
+                    //out of the window : counted without being tracked
+                    packetLost += Math.min(to, windowStart) - from;
+                    from = windowStart;
                 }
-
-                seqNumToadd++;
-                while (seqNumToadd != seqNumToTest)
+                for (int i = from; i < to; i++)
                 {
-                    missingSequenceNumber.add(seqNumToadd++);
+                    if (!getBit(missingSequence, i))
+                    {
+                        setBit(missingSequence, i);
+                        packetLost++;
+                    }
                 }
-			}
-			//if packetMissSequence, possibility to fill some missing packets in the sequence
-			if (!isDuplicated)
+            }
+            if (!isDuplicated && seqnum < previousTop)
             {
-				if (seqnum < topSequence)
-                {
-					packetMissSequence++;
-				}
-                else
-                {
-					topSequence = seqnum;
-					if (!isDuplicated || !found)
-                    {
-                        unexpectedPackets.add(seqnum);
-					}
-				}
-			}
+                packetMissSequence++;
+            }
 		}
-		
-		//preparation for the next packet
-		receivedSequenceNumber.add(seqnum);
-		lastSequenceNumber = seqnum;
 
-		packetLost = missingSequenceNumber.size();//update in real time
-		packetNumber = receivedSequenceNumber.size();//update in real time
+		//preparation for the next packet
+		if (seqnum > topSequence - SEQUENCE_WINDOW)
+        {
+            if (!getBit(receivedSequence, seqnum))
+            {
+                setBit(receivedSequence, seqnum);
+                packetNumber++;
+            }
+            lastSequence = seqnum;
+        }
 
 		/**time counters computing**/
 
 		currentDelta = (arrivedTime - lastArrivedTime);
         deltaList.add(currentDelta);
+        if (currentDelta < DELTA_HISTOGRAM_MAX) {
+            deltaHistogram[(int) Math.max(0, currentDelta)]++;
+        }
+        else {
+            deltaOverflow++;
+        }
+        maxDelta = Math.max(maxDelta, currentDelta);
+		int dataLength = msg.getData().length * 8;
 		if (currentDelta != 0)
         {
 			currentBitRate = ((float)data) / (currentDelta / 1000);
 			currentBitRate = currentBitRate / 1024;
-			data = msg.getData().getBytes().length * 8;
+			data = dataLength;
 		}
 		else
         {
-			data = data + msg.getData().getBytes().length * 8;
+			data = data + dataLength;
 		}
 
 		meanBitRate = ((meanBitRate * oldPacketNumber) + currentBitRate) / packetNumber;
 
-		if(dico.getClockRate(msg.getPayloadType()) != -1)//check if the payload is known to compute jitter and other Qos parameter
+		int clockRate = dico.getClockRate(msg.getPayloadType());
+		if(clockRate != -1)//check if the payload is known to compute jitter and other Qos parameter
 		{
-			currentPacketSpacing = currentDelta - (((msg.getTimestampRTP() - lastTimestampRTP) * 1000) / dico.getClockRate(msg.getPayloadType()));
+			currentPacketSpacing = currentDelta - (((msg.getTimestampRTP() - lastTimestampRTP) * 1000) / clockRate);
             packetSpacingList.add(currentPacketSpacing);
 
             currentJitter = currentJitter + (Math.abs(currentPacketSpacing) - currentJitter)/16;
@@ -192,7 +229,22 @@ public class QoSRtpFlow {
 		lastArrivedTime = arrivedTime;
     }
 
-    public void calculMOS(){
+    private static boolean getBit(long[] bitmap, int seqnum) {
+        int index = seqnum & (SEQUENCE_WINDOW - 1);
+        return (bitmap[index >>> 6] & (1L << index)) != 0;
+    }
+
+    private static void setBit(long[] bitmap, int seqnum) {
+        int index = seqnum & (SEQUENCE_WINDOW - 1);
+        bitmap[index >>> 6] |= 1L << index;
+    }
+
+    private static void clearBit(long[] bitmap, int seqnum) {
+        int index = seqnum & (SEQUENCE_WINDOW - 1);
+        bitmap[index >>> 6] &= ~(1L << index);
+    }
+
+    public synchronized void calculMOS(){
         int nbPacketTotal = this.getPacketNumber() - this.getDuplicated() + this.getPacketLost();
         float ppl = (float) this.getPacketLost() / (float) nbPacketTotal * 100;
 
@@ -217,38 +269,58 @@ public class QoSRtpFlow {
     }
     */
 
-	public int getDuplicated() {
+	public synchronized int getDuplicated() {
 		return duplicated;
 	}
-	public int getPacketMissSequence() {
+	public synchronized int getPacketMissSequence() {
 		return packetMissSequence;
 	}
-	public int getPacketLost() {
+	public synchronized int getPacketLost() {
 		return packetLost;
 	}
-    public LinkedList<Float> getDelta() {
-		return deltaList;
+    public synchronized List<Float> getDelta() {
+		return deltaList.toList();
 	}
-    public float getMeanDelta() {
+    public synchronized float getMeanDelta() {
 		return meanDelta;
 	}
-	public LinkedList<Float> getPacketSpacing() {
-		return packetSpacingList;
+    /**
+     * Get the delta (in ms) below which are the given percentage of the deltas;
+     * the result has a 1 ms resolution (rounded down) up to DELTA_HISTOGRAM_MAX,
+     * beyond the greatest delta of the flow is returned.
+     */
+    public synchronized float getDeltaPercentile(double percent) {
+        int count = deltaOverflow;
+        for (int value : deltaHistogram) {
+            count += value;
+        }
+        long rank = (long) Math.ceil(percent / 100 * count);
+        int sum = 0;
+        for (int i = 0; i < deltaHistogram.length; i++) {
+            sum += deltaHistogram[i];
+            if (sum >= rank && sum > 0) {
+                return i;
+            }
+        }
+        return (deltaOverflow > 0) ? maxDelta : 0;
+    }
+	public synchronized List<Float> getPacketSpacing() {
+		return packetSpacingList.toList();
 	}
-    public float getMeanPacketSpacing() {
+    public synchronized float getMeanPacketSpacing() {
 		return meanPacketSpacing;
 	}
-    public LinkedList<Float> getJitter() {
-		return jitterList;
+    public synchronized List<Float> getJitter() {
+		return jitterList.toList();
 	}
-	public float getMeanJitter() {
+	public synchronized float getMeanJitter() {
 		return meanJitter;
 	}
-	public float getMeanBitRate() {
+	public synchronized float getMeanBitRate() {
 		return meanBitRate;
 	}
 
-    public int getPacketNumber(){
+    public synchronized int getPacketNumber(){
         return this.packetNumber;
     }
 
@@ -256,7 +328,52 @@ public class QoSRtpFlow {
         return this.eModele;
     }
 
-    public void setPayloadType(int payloadType) {
+    public synchronized void setPayloadType(int payloadType) {
         this.payloadType = payloadType;
     }
-}
\ No newline at end of file
+
+    /**
+     * Values of a flow kept in a float array; only the most recent ones are
+     * kept if there is a maximum size
+     */
+    private static class FloatHistory {
+
+        private final int maxSize;
+        private float[] values;
+        private int start = 0;
+        private int size = 0;
+
+        private FloatHistory(int maxSize) {
+            this.maxSize = maxSize;
+            // the array reaches exactly maxSize before being used as a circular buffer
+            this.values = new float[(maxSize > 0) ? Math.min(64, maxSize) : 64];
+        }
+
+        private void add(float value) {
+            if (maxSize > 0 && size == maxSize) {
+                // circular buffer : replace the oldest value
+                values[start] = value;
+                start = (start + 1) % maxSize;
+                return;
+            }
+            if (size == values.length) {
+                int length = values.length * 2;
+                if (maxSize > 0) {
+                    length = Math.min(length, maxSize);
+                }
+                float[] newValues = new float[length];
+                System.arraycopy(values, 0, newValues, 0, size);
+                values = newValues;
+            }
+            values[size++] = value;
+        }
+
+        private List<Float> toList() {
+            List<Float> list = new ArrayList<Float>(size);
+            for (int i = 0; i < size; i++) {
+                list.add(values[(start + i) % values.length]);
+            }
+            return list;
+        }
+    }
+}
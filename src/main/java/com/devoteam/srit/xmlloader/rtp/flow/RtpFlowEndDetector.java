@@ -0,0 +1,223 @@
+/* 
+ * Copyright 2012 Devoteam http://www.devoteam.com
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ * 
+ * 
+ * This file is part of Multi-Protocol Test Suite (MTS).
+ * 
+ * Multi-Protocol Test Suite (MTS) is free software: you can redistribute
+ * it and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of the
+ * License.
+ * 
+ * Multi-Protocol Test Suite (MTS) is distributed in the hope that it will
+ * be useful, but WITHOUT ANY WARRANTY; without even the implied warranty 
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with Multi-Protocol Test Suite (MTS).
+ * If not, see <http://www.gnu.org/licenses/>.
+ * 
+ */
+
+package com.devoteam.srit.xmlloader.rtp.flow;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.devoteam.srit.xmlloader.core.ThreadPool;
+import com.devoteam.srit.xmlloader.core.log.GlobalLogger;
+import com.devoteam.srit.xmlloader.core.log.TextEvent;
+import com.devoteam.srit.xmlloader.core.utils.Utils;
+
+/**
+ * Detects the end of the received RTP flows of all the listenpoints of the stack
+ * (no packet, silent flow and periodic timers).
+ *
+ * Each listenpoint has one check time in a set ordered by time; a single thread
+ * takes the listenpoints whose check time is over, computes the end of their
+ * current flow from its last packet timestamps and either checks them again
+ * later or ends the flow. The ended flows are handed over to the receive
+ * workers in one job per worker, after the packets already queued.
+ */
+public class RtpFlowEndDetector implements Runnable {
+
+    private final ConcurrentSkipListSet<Check> checks = new ConcurrentSkipListSet<Check>();
+
+    /** to order the checks having the same time */
+    private final AtomicLong sequence = new AtomicLong();
+
+    /** interval between two passes of the detection thread (in milliseconds) */
+    private final long checkInterval;
+
+    private volatile boolean stopped = false;
+
+    public RtpFlowEndDetector(long checkInterval) {
+        this.checkInterval = Math.max(1, checkInterval);
+    }
+
+    public void start() {
+        ThreadPool.reserve().start(this);
+    }
+
+    public void stop() {
+        stopped = true;
+        checks.clear();
+    }
+
+    /** start the detection for the listenpoint, when it receives its first packet */
+    public void register(ListenpointRtpFlow listenpoint) {
+        long interval = getMinimumInterval(listenpoint);
+        if (interval != Long.MAX_VALUE) {
+            schedule(listenpoint, System.currentTimeMillis() + interval);
+        }
+    }
+
+    private void schedule(ListenpointRtpFlow listenpoint, long time) {
+        checks.add(new Check(time, sequence.getAndIncrement(), listenpoint));
+    }
+
+    public void run() {
+        while (!stopped) {
+            Utils.pauseMilliseconds(checkInterval);
+            try {
+                detect(System.currentTimeMillis());
+            }
+            catch (Exception e) {
+                GlobalLogger.instance().getApplicationLogger().error(TextEvent.Topic.PROTOCOL, e, "Error while detecting the end of the RTP flows");
+            }
+        }
+    }
+
+    /** check the listenpoints whose check time is over */
+    private void detect(long now) {
+        Map<RtpFlowReceiveWorker, List<FlowEnd>> batches = null;
+        Check check;
+        while (null != (check = checks.pollFirst())) {
+            if (check.time > now) {
+                // the first check not over yet : put it back and wait
+                checks.add(check);
+                break;
+            }
+
+            ListenpointRtpFlow listenpoint = check.listenpoint;
+            if (listenpoint.removed()) {
+                continue;
+            }
+
+            long interval = getMinimumInterval(listenpoint);
+            MsgRtpFlow msg = listenpoint._currentMessage;
+            if (null == msg) {
+                // will try again in the minimum interval if there is currently no flow to handle
+                schedule(listenpoint, now + interval);
+                continue;
+            }
+
+            long end = getEnd(listenpoint, msg);
+            if (end > now) {
+                schedule(listenpoint, end);
+                continue;
+            }
+
+            if (null == batches) {
+                batches = new HashMap<RtpFlowReceiveWorker, List<FlowEnd>>();
+            }
+            RtpFlowReceiveWorker worker = listenpoint.getReceiveWorker();
+            List<FlowEnd> batch = batches.get(worker);
+            if (null == batch) {
+                batch = new ArrayList<FlowEnd>();
+                batches.put(worker, batch);
+            }
+            batch.add(new FlowEnd(listenpoint, msg));
+            // the next flow (if any) can not end before the minimum interval
+            schedule(listenpoint, now + interval);
+        }
+
+        if (null != batches) {
+            for (Map.Entry<RtpFlowReceiveWorker, List<FlowEnd>> entry : batches.entrySet()) {
+                final List<FlowEnd> batch = entry.getValue();
+                entry.getKey().execute(new Runnable() {
+                    public void run() {
+                        for (FlowEnd flowEnd : batch) {
+                            try {
+                                flowEnd.listenpoint.endCurrentMessage(flowEnd.msg);
+                            }
+                            catch (Exception e) {
+                                GlobalLogger.instance().getApplicationLogger().error(TextEvent.Topic.PROTOCOL, e, "Error while ending the flow RTP:");
+                            }
+                        }
+                    }
+                });
+            }
+        }
+    }
+
+    /** the smallest end timer of the listenpoint (in milliseconds) or Long.MAX_VALUE if none */
+    private static long getMinimumInterval(ListenpointRtpFlow listenpoint) {
+        long interval = Long.MAX_VALUE;
+        if (listenpoint.endTimerNoPacket > 0) {
+            interval = Math.min(interval, (long) (listenpoint.endTimerNoPacket * 1000));
+        }
+        if (listenpoint.endTimerPeriodic > 0) {
+            interval = Math.min(interval, (long) (listenpoint.endTimerPeriodic * 1000));
+        }
+        if (listenpoint.endTimerSilentFlow > 0) {
+            interval = Math.min(interval, (long) (listenpoint.endTimerSilentFlow * 1000));
+        }
+        return interval;
+    }
+
+    /** the time the flow ends if no more packet is received */
+    private static long getEnd(ListenpointRtpFlow listenpoint, MsgRtpFlow msg) {
+        long end = Long.MAX_VALUE;
+        if (listenpoint.endTimerNoPacket > 0) {
+            end = Math.min(end, msg.getLastPacketTimestamp() + (long) (listenpoint.endTimerNoPacket * 1000));
+        }
+        if (listenpoint.endTimerSilentFlow > 0) {
+            end = Math.min(end, msg.getLastNonSilencePacketTimestamp() + (long) (listenpoint.endTimerSilentFlow * 1000));
+        }
+        if (listenpoint.endTimerPeriodic > 0) {
+            end = Math.min(end, msg.getCreationTimestamp() + (long) (listenpoint.endTimerPeriodic * 1000));
+        }
+        return end;
+    }
+
+    /** next check of a listenpoint */
+    private static class Check implements Comparable<Check> {
+        private final long time;
+        private final long sequence;
+        private final ListenpointRtpFlow listenpoint;
+
+        private Check(long time, long sequence, ListenpointRtpFlow listenpoint) {
+            this.time = time;
+            this.sequence = sequence;
+            this.listenpoint = listenpoint;
+        }
+
+        public int compareTo(Check other) {
+            if (time != other.time) {
+                return time < other.time ? -1 : 1;
+            }
+            if (sequence != other.sequence) {
+                return sequence < other.sequence ? -1 : 1;
+            }
+            return 0;
+        }
+    }
+
+    /** flow to end by the receive worker of its listenpoint */
+    private static class FlowEnd {
+        private final ListenpointRtpFlow listenpoint;
+        private final MsgRtpFlow msg;
+
+        private FlowEnd(ListenpointRtpFlow listenpoint, MsgRtpFlow msg) {
+            this.listenpoint = listenpoint;
+            this.msg = msg;
+        }
+    }
+}
@@ -0,0 +1,177 @@
+/* 
+ * Copyright 2012 Devoteam http://www.devoteam.com
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ * 
+ * 
+ * This file is part of Multi-Protocol Test Suite (MTS).
+ * 
+ * Multi-Protocol Test Suite (MTS) is free software: you can redistribute
+ * it and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of the
+ * License.
+ * 
+ * Multi-Protocol Test Suite (MTS) is distributed in the hope that it will
+ * be useful, but WITHOUT ANY WARRANTY; without even the implied warranty 
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with Multi-Protocol Test Suite (MTS).
+ * If not, see <http://www.gnu.org/licenses/>.
+ * 
+ */
+
+
+package com.devoteam.srit.xmlloader.rtp.flow;
+
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.devoteam.srit.xmlloader.core.log.GlobalLogger;
+import com.devoteam.srit.xmlloader.core.log.TextEvent;
+import com.devoteam.srit.xmlloader.core.utils.PacingWheel;
+import com.devoteam.srit.xmlloader.udp.nio.SocketUdpNIO;
+
+/**
+ * Media engine pacing the packets of all the RTP flows of the stack.
+ *
+ * The flows are spread over pacers, each one being a pacing wheel with its own
+ * thread (one per processor by default) : a flow only costs a timeout in the
+ * wheel between two packets, so a pacer serves thousands of flows. The date of
+ * each packet is computed from the start of the flow with a nanosecond
+ * accuracy, the wheel ticks every millisecond (a 20 ms packet time spreads the
+ * flows over 20 ticks).
+ *
+ * The packets of the flows sent through an UDP NIO socket are copied in a batch
+ * per socket, which is sent when the pacer has executed all the flows due : the
+ * lock of the socket is taken once per batch instead of once per packet.
+ */
+public class RtpFlowEngine {
+
+    /** duration of a tick of the wheels (in nanoseconds) */
+    private static final long TICK_NANOS = 1000000;
+
+    private final Pacer[] pacers;
+
+    private final AtomicInteger nextPacer = new AtomicInteger();
+
+    /** Creates a new instance with the given number of pacing threads (0 means one per processor) */
+    public RtpFlowEngine(int threadNumber) {
+        if (threadNumber <= 0) {
+            threadNumber = Runtime.getRuntime().availableProcessors();
+        }
+        pacers = new Pacer[threadNumber];
+        for (int i = 0; i < threadNumber; i++) {
+            pacers[i] = new Pacer("rtpflow-" + i);
+        }
+    }
+
+    /** get the pacer of a new flow (round robin) */
+    public Pacer getPacer() {
+        int index = (nextPacer.getAndIncrement() & Integer.MAX_VALUE) % pacers.length;
+        return pacers[index];
+    }
+
+    /** stop the pacing threads : the flows being sent are dropped */
+    public void stop() {
+        for (Pacer pacer : pacers) {
+            pacer.wheel.stop();
+        }
+    }
+
+    /**
+     * A pacing thread with the batches of the packets to send per socket;
+     * the batches are only used by the thread of the wheel
+     */
+    public static class Pacer implements Runnable {
+
+        private final PacingWheel wheel;
+
+        /** batches by socket, dropped with their socket */
+        private final Map<SocketUdpNIO, SocketBatch> batches = new WeakHashMap<SocketUdpNIO, SocketBatch>();
+
+        /** sockets whose batch holds packets to send */
+        private final ArrayList<SocketUdpNIO> pendingSockets = new ArrayList<SocketUdpNIO>();
+
+        private Pacer(String name) {
+            wheel = new PacingWheel(name, TICK_NANOS, null);
+            wheel.setFlushTask(this);
+        }
+
+        /** schedule the task at the given date (nano time) on the thread of the pacer */
+        public void scheduleAt(Runnable task, long deadline) {
+            wheel.scheduleAt(task, deadline);
+        }
+
+        /**
+         * Add a packet to the batch of the socket; the data is copied so it may be
+         * modified when this method returns. Only called by the tasks of the pacer.
+         */
+        public void send(SocketUdpNIO socket, byte[] data, InetSocketAddress remoteAddress) {
+            SocketBatch batch = batches.get(socket);
+            if (batch == null) {
+                batch = new SocketBatch();
+                batches.put(socket, batch);
+            }
+            if (batch.number == 0) {
+                pendingSockets.add(socket);
+            }
+            batch.add(data, remoteAddress);
+        }
+
+        /** send the batches, executed by the wheel after the flows due */
+        public void run() {
+            for (SocketUdpNIO socket : pendingSockets) {
+                SocketBatch batch = batches.get(socket);
+                try {
+                    socket.send(batch.datagrams, batch.remoteAddresses, batch.number);
+                }
+                catch (Exception e) {
+                    GlobalLogger.instance().getApplicationLogger().error(TextEvent.Topic.PROTOCOL, e, "Error while sending RTP flow packets");
+                }
+                batch.clear();
+            }
+            pendingSockets.clear();
+        }
+    }
+
+    /** packets to send through a socket; the buffers are kept from a batch to the next one */
+    private static class SocketBatch {
+
+        private ByteBuffer[] datagrams = new ByteBuffer[16];
+        private InetSocketAddress[] remoteAddresses = new InetSocketAddress[16];
+        private int number = 0;
+
+        private void add(byte[] data, InetSocketAddress remoteAddress) {
+            if (number == datagrams.length) {
+                ByteBuffer[] newDatagrams = new ByteBuffer[number * 2];
+                System.arraycopy(datagrams, 0, newDatagrams, 0, number);
+                datagrams = newDatagrams;
+                InetSocketAddress[] newRemoteAddresses = new InetSocketAddress[number * 2];
+                System.arraycopy(remoteAddresses, 0, newRemoteAddresses, 0, number);
+                remoteAddresses = newRemoteAddresses;
+            }
+            ByteBuffer datagram = datagrams[number];
+            if (datagram == null || datagram.capacity() < data.length) {
+                datagram = ByteBuffer.allocate(Math.max(data.length, 256));
+                datagrams[number] = datagram;
+            }
+            datagram.clear();
+            datagram.put(data);
+            datagram.flip();
+            remoteAddresses[number] = remoteAddress;
+            number++;
+        }
+
+        private void clear() {
+            for (int i = 0; i < number; i++) {
+                remoteAddresses[i] = null;
+            }
+            number = 0;
+        }
+    }
+}
@@ -0,0 +1,81 @@
+/* 
+ * Copyright 2012 Devoteam http://www.devoteam.com
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ * 
+ * 
+ * This file is part of Multi-Protocol Test Suite (MTS).
+ * 
+ * Multi-Protocol Test Suite (MTS) is free software: you can redistribute
+ * it and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of the
+ * License.
+ * 
+ * Multi-Protocol Test Suite (MTS) is distributed in the hope that it will
+ * be useful, but WITHOUT ANY WARRANTY; without even the implied warranty 
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with Multi-Protocol Test Suite (MTS).
+ * If not, see <http://www.gnu.org/licenses/>.
+ * 
+ */
+
+package com.devoteam.srit.xmlloader.rtp.flow;
+
+import java.util.concurrent.LinkedBlockingQueue;
+
+import com.devoteam.srit.xmlloader.core.ThreadPool;
+import com.devoteam.srit.xmlloader.core.log.GlobalLogger;
+import com.devoteam.srit.xmlloader.core.log.TextEvent;
+
+/**
+ * Receive worker of the RTP flows : each listenpoint is owned by one worker
+ * which handles its packets and the end of its flows in their arrival order,
+ * so the state of a flow is only modified by this thread and needs no lock.
+ */
+public class RtpFlowReceiveWorker implements Runnable {
+
+    /** when the worker takes this job, it stops */
+    private static final Runnable STOP = new Runnable() {
+        public void run() {
+            // nothing to do
+        }
+    };
+
+    private final LinkedBlockingQueue<Runnable> jobs = new LinkedBlockingQueue<Runnable>();
+
+    public void start() {
+        ThreadPool.reserve().start(this);
+    }
+
+    public void stop() {
+        jobs.add(STOP);
+    }
+
+    /** queue a job, it is executed by the worker thread */
+    public void execute(Runnable job) {
+        jobs.add(job);
+    }
+
+    public void run() {
+        while (true) {
+            Runnable job;
+            try {
+                job = jobs.take();
+            }
+            catch (InterruptedException e) {
+                return;
+            }
+            if (job == STOP) {
+                return;
+            }
+            try {
+                job.run();
+            }
+            catch (Exception e) {
+                GlobalLogger.instance().getApplicationLogger().error(TextEvent.Topic.PROTOCOL, e, "Error while receiving flow RTP:");
+            }
+        }
+    }
+}
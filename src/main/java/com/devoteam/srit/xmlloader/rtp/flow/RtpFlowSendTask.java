@@ -21,71 +21,111 @@
  * 
  */
 
+
 package com.devoteam.srit.xmlloader.rtp.flow;
 
+import java.net.InetSocketAddress;
+
 import com.devoteam.srit.xmlloader.core.exception.ExecutionException;
 import com.devoteam.srit.xmlloader.core.log.GlobalLogger;
 import com.devoteam.srit.xmlloader.core.log.TextEvent;
 import com.devoteam.srit.xmlloader.core.newstats.StatKey;
 import com.devoteam.srit.xmlloader.core.newstats.StatPool;
+import com.devoteam.srit.xmlloader.core.protocol.Channel;
 import com.devoteam.srit.xmlloader.core.protocol.Listenpoint;
 import com.devoteam.srit.xmlloader.core.protocol.StackFactory;
 import com.devoteam.srit.xmlloader.rtp.MsgRtp;
+import com.devoteam.srit.xmlloader.udp.nio.ChannelUdpNIO;
+import com.devoteam.srit.xmlloader.udp.nio.SocketUdpNIO;
 
-import gp.utils.scheduler.Scheduler;
-import gp.utils.scheduler.Task;
+public class RtpFlowSendTask implements Runnable {
 
-public class RtpFlowSendTask implements Task {
+    private static final long STAT_FLUSH_INTERVAL = 1000;
 
     private MsgRtpFlow msgRtpFlow;
     private Listenpoint listenpoint;
-    private Scheduler scheduler;
+    private RtpFlowEngine.Pacer pacer;
     private int cptPacket = 0;
-    private long lastScheduledTimestamp = 0;
-
-    public RtpFlowSendTask(MsgRtpFlow aRtpFlow, Scheduler aScheduler)
+    private int deltaTime;
+    // date (nano time) of the next packet, without the jitter
+    private long nextPacketTime = 0;
+    private boolean qosMeasurment;
+    // socket and remote address of the flow once its packets can be batched
+    private SocketUdpNIO socket;
+    private InetSocketAddress remoteAddress;
+    // the counters of the flow, created with the first packet and flushed periodically
+    private StatKey statKeyNumber;
+    private StatKey statKeyBytes;
+    private long sentNumber = 0;
+    private long sentBytes = 0;
+    private long lastStatFlush = 0;
+
+    public RtpFlowSendTask(MsgRtpFlow aRtpFlow, RtpFlowEngine.Pacer aPacer) throws Exception
     {
         msgRtpFlow = aRtpFlow;
         listenpoint = msgRtpFlow.getListenpoint();
-        scheduler = aScheduler;
+        pacer = aPacer;
+        deltaTime = msgRtpFlow.getDeltaTime();
+        qosMeasurment = ((StackRtpFlow) StackFactory.getStack(StackFactory.PROTOCOL_RTPFLOW)).qosMeasurment;
     }
 
-    //execute the task
-    @Override
-    public void execute()
+    /** start the flow : the first packet is sent after the delay (in milliseconds) */
+    public void start(long delay)
+    {
+        nextPacketTime = System.nanoTime() + delay * 1000000;
+        pacer.scheduleAt(this, nextPacketTime);
+    }
+
+    //send a packet, executed by the pacer
+    public void run()
     {
     	try
         {
             //register timestamp of the send
             long currentTimestamp = System.currentTimeMillis();
-            if(lastScheduledTimestamp == 0)
-                lastScheduledTimestamp = currentTimestamp;
 
             //sendMessageRTP
             if(msgRtpFlow.isPacketToBeSend())
             {
-                msgRtpFlow.getPacket().setTimestamp(currentTimestamp);//set timestamp of message to be used for jitter calculation at the send
+                MsgRtp msgRtp = msgRtpFlow.getPacket();
+                msgRtp.setTimestamp(currentTimestamp);//set timestamp of message to be used for jitter calculation at the send
 
-                if (listenpoint != null)
+                if (listenpoint == null)
+                {
+                    throw new ExecutionException("No listenpoint to transport the message : \r\n" + msgRtpFlow.toString());
+                }
+                if (socket != null)
+                {
+                    pacer.send(socket, msgRtp.encode(), remoteAddress);
+                }
+                else
                 {
-                	MsgRtp msgRtp = ((MsgRtpFlow)msgRtpFlow).getPacket();
                     listenpoint.sendMessage(msgRtp, msgRtpFlow.getRemoteHost(), msgRtpFlow.getRemotePort(), msgRtpFlow.getTransport());
                     if (msgRtpFlow.getChannel() == null)
                     {
                     	msgRtpFlow.setChannel(msgRtp.getChannel());
+                        prepareBatch(msgRtp.getChannel());
                     }
-                    msgRtpFlow.firstMsgSent.release(); 
+                    msgRtpFlow.firstMsgSent.release();
                 }
-                else
+
+                if (statKeyNumber == null)
                 {
-                    throw new ExecutionException("No listenpoint to transport the message : \r\n" + msgRtpFlow.toString());
+                    String type = msgRtp.getTypeComplete() + StackFactory.PREFIX_OUTGOING;
+                    statKeyNumber = new StatKey(StatPool.PREFIX_TRANSPORT, msgRtpFlow.getTransport(), StackFactory.PROTOCOL_RTP, type, "_transportNumber");
+                    statKeyBytes = new StatKey(StatPool.PREFIX_TRANSPORT, msgRtpFlow.getTransport(), StackFactory.PROTOCOL_RTP, type, "_transportBytes");
+                    lastStatFlush = currentTimestamp;
+                }
+                sentNumber++;
+                sentBytes += msgRtp.getLength();
+                if (currentTimestamp - lastStatFlush >= STAT_FLUSH_INTERVAL)
+                {
+                    flushStats();
+                    lastStatFlush = currentTimestamp;
                 }
 
-                StatPool.getInstance().addValue(new StatKey(StatPool.PREFIX_TRANSPORT, msgRtpFlow.getTransport(), StackFactory.PROTOCOL_RTP, msgRtpFlow.getPacket().getTypeComplete() + StackFactory.PREFIX_OUTGOING, "_transportNumber"), 1);
-                StatPool.getInstance().addValue(new StatKey(StatPool.PREFIX_TRANSPORT, msgRtpFlow.getTransport(), StackFactory.PROTOCOL_RTP, msgRtpFlow.getPacket().getTypeComplete() + StackFactory.PREFIX_OUTGOING, "_transportBytes"), (float) msgRtpFlow.getPacket().getLength() / 1024 / 1024);
-
-                if (((StackRtpFlow)StackFactory.getStack(StackFactory.PROTOCOL_RTPFLOW)).qosMeasurment)
-                    msgRtpFlow.getQoSinfo().checkPacket(msgRtpFlow.getPacket());//calculate Qos Information at the send
+                if (qosMeasurment)
+                    msgRtpFlow.getQoSinfo().checkPacket(msgRtp);//calculate Qos Information at the send
             }
             cptPacket++;
 
@@ -93,28 +133,16 @@ public class RtpFlowSendTask implements Task {
             {
                 //prepare the next send
                 msgRtpFlow.prepareNextMessage();
-                
-                long nextSend = msgRtpFlow.getDeltaTime() - (currentTimestamp - lastScheduledTimestamp);
 
-                //calcul of next send
-                lastScheduledTimestamp = currentTimestamp + nextSend;
+                //the dates of the packets are computed from the start of the flow, so that they do not drift
+                nextPacketTime += deltaTime * 1000000L;
 
-                //insert jitter if there is
-                nextSend += msgRtpFlow.calculJitter();
-
-                if(nextSend > 0)//in case next send is programmed in 1 milliseconds minimum
-                {
-                    //wait in the timer up to the next wake up at the date to send message
-                    scheduler.scheduleIn(this, nextSend);
-                }
-                else//in case we are late, send it as urgent task into the scheduler
-                {
-                    // this call to execute is done on the scheduler, so it is not recursive call
-                    scheduler.execute(this, true);//true mean urgent task
-                }
+                //insert jitter if there is; a late packet is sent as soon as possible
+                pacer.scheduleAt(this, nextPacketTime + msgRtpFlow.calculJitter() * 1000000L);
             }
             else
             {
+                flushStats();
                 //release mutex for the synchronous wait
                 msgRtpFlow.getSynchronousSemaphore().release();
             }
@@ -125,4 +153,34 @@ public class RtpFlowSendTask implements Task {
             GlobalLogger.instance().getApplicationLogger().error(TextEvent.Topic.CORE, e, "Error while trying to send flow RTP:");
         }
     }
+
+    /**
+     * Send the next packets in the batches of the pacer if the flow goes
+     * through an UDP NIO socket without SRTP : the channel does not change
+     * for the whole flow
+     */
+    private void prepareBatch(Channel channel)
+    {
+        if (!(channel instanceof ChannelUdpNIO) || !(listenpoint instanceof ListenpointRtpFlow) || ((ListenpointRtpFlow) listenpoint).isSecured())
+        {
+            return;
+        }
+        SocketUdpNIO channelSocket = ((ChannelUdpNIO) channel).getSocketUdp();
+        if (channelSocket != null && channel.getRemoteHost() != null && channel.getRemotePort() > 0)
+        {
+            remoteAddress = new InetSocketAddress(channel.getRemoteHost(), channel.getRemotePort());
+            socket = channelSocket;
+        }
+    }
+
+    private void flushStats()
+    {
+        if (sentNumber > 0)
+        {
+            StatPool.getInstance().addValue(statKeyNumber, sentNumber);
+            StatPool.getInstance().addValue(statKeyBytes, (float) sentBytes / 1024 / 1024);
+            sentNumber = 0;
+            sentBytes = 0;
+        }
+    }
 }
@@ -0,0 +1,277 @@
+/* 
+ * Copyright 2012 Devoteam http://www.devoteam.com
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ * 
+ * 
+ * This file is part of Multi-Protocol Test Suite (MTS).
+ * 
+ * Multi-Protocol Test Suite (MTS) is free software: you can redistribute
+ * it and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of the
+ * License.
+ * 
+ * Multi-Protocol Test Suite (MTS) is distributed in the hope that it will
+ * be useful, but WITHOUT ANY WARRANTY; without even the implied warranty 
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with Multi-Protocol Test Suite (MTS).
+ * If not, see <http://www.gnu.org/licenses/>.
+ * 
+ */
+
+package com.devoteam.srit.xmlloader.rtp.flow;
+
+import gp.utils.arrays.Array;
+
+/**
+ * Silence detection of the received RTP packets : a packet is silent if its
+ * payload contains the silent pattern, if its most popular byte is more
+ * frequent than the threshold or (for the G.711 codecs) if its level is below
+ * the level threshold.
+ *
+ * The payload is scanned as bytes without any conversion to a string; the
+ * buffers are kept per thread since the packets are checked by several
+ * receive workers.
+ */
+public class SilenceDetector {
+
+    /** G.711 payload types */
+    private static final int PCMU = 0;
+    private static final int PCMA = 8;
+
+    /** linear samples of the G.711 code words */
+    private static final short[] PCMU_TO_LINEAR = new short[256];
+    private static final short[] PCMA_TO_LINEAR = new short[256];
+
+    /** minimum level returned in dBov (level of a null signal) */
+    private static final float MIN_LEVEL = -100;
+
+    static {
+        for (int i = 0; i < 256; i++) {
+            int u = ~i & 0xFF;
+            int t = (((u & 0x0F) << 3) + 0x84) << ((u & 0x70) >> 4);
+            PCMU_TO_LINEAR[i] = (short) ((u & 0x80) != 0 ? 0x84 - t : t - 0x84);
+
+            int a = i ^ 0x55;
+            int segment = (a & 0x70) >> 4;
+            int s = (a & 0x0F) << 4;
+            if (segment == 0) {
+                s += 8;
+            }
+            else {
+                s = (s + 0x108) << (segment - 1);
+            }
+            PCMA_TO_LINEAR[i] = (short) ((a & 0x80) != 0 ? s : -s);
+        }
+    }
+
+    private static final ThreadLocal<Workspace> WORKSPACES = new ThreadLocal<Workspace>() {
+        @Override
+        protected Workspace initialValue() {
+            return new Workspace();
+        }
+    };
+
+    private final byte[] pattern;
+
+    /** the pattern is made of a single repeated byte (the default one is all zeros) */
+    private final boolean uniformPattern;
+
+    private final float frequencyThreshold;
+
+    /** mean square of the samples under which a G.711 packet is silent, 0 if disabled */
+    private final double levelThreshold;
+
+    /**
+     * @param pattern silent pattern
+     * @param frequencyThreshold maximum frequency of the most popular byte (between 0 and 1)
+     * @param levelThreshold level in dBov under which a G.711 packet is silent, 0 to disable
+     */
+    public SilenceDetector(byte[] pattern, float frequencyThreshold, float levelThreshold) {
+        this.pattern = pattern;
+        boolean uniform = pattern.length > 0;
+        for (int i = 1; i < pattern.length && uniform; i++) {
+            uniform = pattern[i] == pattern[0];
+        }
+        this.uniformPattern = uniform;
+        this.frequencyThreshold = frequencyThreshold;
+        if (levelThreshold < 0) {
+            double rms = 32768 * Math.pow(10, levelThreshold / 20);
+            this.levelThreshold = rms * rms;
+        }
+        else {
+            this.levelThreshold = 0;
+        }
+    }
+
+    /** check whether the payload of the packet is silent */
+    public boolean isSilent(Array data, int payloadType) {
+        Workspace workspace = WORKSPACES.get();
+        int length = data.length;
+        byte[] bytes = workspace.getBuffer(length);
+        data.getBytes(0, bytes, 0, length);
+
+        // search the silent pattern
+        if (containsPattern(bytes, length)) {
+            return true;
+        }
+
+        // compare the level to the threshold
+        if (levelThreshold > 0 && length > 0) {
+            short[] table = getTable(payloadType);
+            if (table != null) {
+                long sum = 0;
+                for (int i = 0; i < length; i++) {
+                    int sample = table[bytes[i] & 0xFF];
+                    sum += sample * sample;
+                }
+                if ((double) sum / length < levelThreshold) {
+                    return true;
+                }
+            }
+        }
+
+        // compare the frequency of the most popular byte to the threshold
+        return hasPopularByte(bytes, length, workspace.histogram);
+    }
+
+    private boolean containsPattern(byte[] bytes, int length) {
+        int n = pattern.length;
+        if (n == 0) {
+            return true;
+        }
+        if (uniformPattern) {
+            // search a run of n bytes : the last byte of the window is checked
+            // first, so that the windows without the pattern byte are skipped at once
+            byte b = pattern[0];
+            int end = n - 1;
+            while (end < length) {
+                if (bytes[end] != b) {
+                    end += n;
+                    continue;
+                }
+                int start = end;
+                while (start > end - n + 1 && bytes[start - 1] == b) {
+                    start--;
+                }
+                if (start == end - n + 1) {
+                    return true;
+                }
+                end = start + n - 1;
+            }
+            return false;
+        }
+        byte first = pattern[0];
+        for (int i = 0; i <= length - n; i++) {
+            if (bytes[i] != first) {
+                continue;
+            }
+            int j = 1;
+            while (j < n && bytes[i + j] == pattern[j]) {
+                j++;
+            }
+            if (j == n) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** the histogram is left cleared */
+    private boolean hasPopularByte(byte[] bytes, int length, int[] histogram) {
+        float limit = length * frequencyThreshold;
+        boolean popular = false;
+        int i = 0;
+        for (; i < length; i++) {
+            if (++histogram[bytes[i] & 0xFF] > limit) {
+                // the counts only grow : no need to go further
+                popular = true;
+                i++;
+                break;
+            }
+        }
+        for (int j = 0; j < i; j++) {
+            histogram[bytes[j] & 0xFF] = 0;
+        }
+        return popular;
+    }
+
+    private static short[] getTable(int payloadType) {
+        if (payloadType == PCMU) {
+            return PCMU_TO_LINEAR;
+        }
+        if (payloadType == PCMA) {
+            return PCMA_TO_LINEAR;
+        }
+        return null;
+    }
+
+    /**
+     * Audio level of a received flow computed packet by packet
+     * (for the G.711 codecs only, the other packets are ignored)
+     */
+    public static class AudioLevel {
+        private long samples = 0;
+        private double sumSquares = 0;
+        private long clipped = 0;
+
+        /** add the samples of a packet payload */
+        public void add(Array data, int payloadType) {
+            short[] table = getTable(payloadType);
+            if (table == null) {
+                return;
+            }
+            int length = data.length;
+            byte[] bytes = WORKSPACES.get().getBuffer(length);
+            data.getBytes(0, bytes, 0, length);
+            // the extreme code words of the table are the clipped samples
+            int max = table[payloadType == PCMU ? 0x80 : 0xAA];
+            long sum = 0;
+            for (int i = 0; i < length; i++) {
+                int sample = table[bytes[i] & 0xFF];
+                sum += sample * sample;
+                if (sample >= max || sample <= -max) {
+                    clipped++;
+                }
+            }
+            sumSquares += sum;
+            samples += length;
+        }
+
+        public boolean isEmpty() {
+            return samples == 0;
+        }
+
+        /** RMS level of the flow in dBov */
+        public float getLevel() {
+            if (samples == 0 || sumSquares == 0) {
+                return MIN_LEVEL;
+            }
+            double rms = Math.sqrt(sumSquares / samples);
+            return (float) Math.max(MIN_LEVEL, 20 * Math.log10(rms / 32768));
+        }
+
+        /** percentage of the clipped samples */
+        public float getClipping() {
+            if (samples == 0) {
+                return 0;
+            }
+            return (float) clipped * 100 / samples;
+        }
+    }
+
+    /** buffers of a thread */
+    private static class Workspace {
+        private byte[] buffer = new byte[2048];
+        private final int[] histogram = new int[256];
+
+        private byte[] getBuffer(int length) {
+            if (buffer.length < length) {
+                buffer = new byte[length];
+            }
+            return buffer;
+        }
+    }
+}
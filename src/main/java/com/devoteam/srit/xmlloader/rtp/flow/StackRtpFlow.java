@@ -25,7 +25,6 @@ package com.devoteam.srit.xmlloader.rtp.flow;
 
 import com.devoteam.srit.xmlloader.core.newstats.StatKey;
 import com.devoteam.srit.xmlloader.core.newstats.StatPool;
-import com.devoteam.srit.xmlloader.core.operations.basic.operators.PluggableParameterOperatorBinary;
 import com.devoteam.srit.xmlloader.core.protocol.*;
 import com.devoteam.srit.xmlloader.core.utils.Config;
 import com.devoteam.srit.xmlloader.core.utils.XMLElementRTPFLOWParser;
@@ -33,26 +32,34 @@ import com.devoteam.srit.xmlloader.core.utils.XMLElementReplacer;
 import com.devoteam.srit.xmlloader.rtp.MsgRtp;
 import com.devoteam.srit.xmlloader.rtp.StackRtp;
 import gp.utils.arrays.Array;
-import gp.utils.scheduler.Scheduler;
-import gp.utils.scheduler.Task;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class StackRtpFlow extends StackRtp 
 {
 
-    protected Scheduler scheduler;
+    // paces the packets of all the sent flows
+    protected RtpFlowEngine engine;
     protected CodecDictionary dico = new CodecDictionary();//dictionary of all codec associated with their information (payloadType, frequence...)
     protected float endTimerNoPacket;
     protected float endTimerSilentFlow;
     protected float endTimerPeriodic;
     protected boolean qosMeasurment;
-    protected String silentPattern;
-    protected float silentFrequencyThreshold;
+    protected SilenceDetector silenceDetector;
+    boolean audioLevel;
     boolean silentFiltering;
+    protected int maxReceivedPackets;
     private HashMap <String, ListenpointRtpFlow> ssrcAndListenpointName;
 
+    // the received packets of a listenpoint are all handled by the same worker
+    private RtpFlowReceiveWorker[] receiveWorkers;
+    private AtomicInteger nextReceiveWorker = new AtomicInteger();
+
+    // detects the end of the received flows of all the listenpoints
+    RtpFlowEndDetector endDetector;
+
     // for capture reassembling RTP packet mechanism
     Map<String, ListenpointRtpFlow> capture_point = null;
     
@@ -62,8 +69,21 @@ public class StackRtpFlow extends StackRtp
     {
         super();
         this.ssrcAndListenpointName = new HashMap<String, ListenpointRtpFlow>();
-        int nbThreads = getConfig().getInteger("SCHEDULER_THREAD_NUMBER", 2);
-        scheduler = new Scheduler(nbThreads);
+        // 0 means one pacing thread per core
+        engine = new RtpFlowEngine(getConfig().getInteger("SCHEDULER_THREAD_NUMBER", 0));
+
+        int nbReceiveThreads = getConfig().getInteger("RECEIVE_THREAD_NUMBER", 2);
+        if (nbReceiveThreads <= 0) {
+            nbReceiveThreads = Runtime.getRuntime().availableProcessors();
+        }
+        receiveWorkers = new RtpFlowReceiveWorker[nbReceiveThreads];
+        for (int i = 0; i < nbReceiveThreads; i++) {
+            receiveWorkers[i] = new RtpFlowReceiveWorker();
+            receiveWorkers[i].start();
+        }
+
+        endDetector = new RtpFlowEndDetector(getConfig().getInteger("endtimer.CHECK_INTERVAL", 10));
+        endDetector.start();
 
         try {
             // deprecated
@@ -77,6 +97,7 @@ public class StackRtpFlow extends StackRtp
         endTimerPeriodic = (float) getConfig().getDouble("endtimer.PERIODIC", 0);
         qosMeasurment = getConfig().getBoolean("QOS_MEASURMENT", true);
         ignoreReceivedMessages = getConfig().getBoolean("IGNORE_RECEIVED_MESSAGES", false);
+        maxReceivedPackets = getConfig().getInteger("MAX_RECEIVED_PACKETS", 8192);
 
         String defaultPattern = "00000000000000000000";
         String silentPatternHexa = getConfig().getString("qos.PATTERN");
@@ -87,14 +108,33 @@ public class StackRtpFlow extends StackRtp
             silentPatternHexa = defaultPattern;
         }
         Array motif = Array.fromHexString(silentPatternHexa);
-        silentPattern = motif.toString();
-        silentFrequencyThreshold = (float) getConfig().getDouble("silent.FREQUENCY_THRESHOLD", 0.2);
+        float silentFrequencyThreshold = (float) getConfig().getDouble("silent.FREQUENCY_THRESHOLD", 0.2);
+        float silentLevelThreshold = (float) getConfig().getDouble("silent.LEVEL_THRESHOLD", 0);
+        silenceDetector = new SilenceDetector(motif.getBytes(), silentFrequencyThreshold, silentLevelThreshold);
+        audioLevel = getConfig().getBoolean("qos.AUDIO_LEVEL", false);
         silentFiltering = getConfig().getBoolean("silent.FILTERING", true);
         
         capture_point = new HashMap<String, ListenpointRtpFlow>();
         
     }
 
+    /** get the worker of a listenpoint receiving its first packet (round robin) */
+    RtpFlowReceiveWorker getReceiveWorker() {
+        int index = (nextReceiveWorker.getAndIncrement() & Integer.MAX_VALUE) % receiveWorkers.length;
+        return receiveWorkers[index];
+    }
+
+    /** reset the instance of this stack */
+    @Override
+    public void reset() {
+        super.reset();
+        engine.stop();
+        endDetector.stop();
+        for (RtpFlowReceiveWorker worker : receiveWorkers) {
+            worker.stop();
+        }
+    }
+
     public void addSSRCAndListenpointName(String key, ListenpointRtpFlow value)
     {
     	this.ssrcAndListenpointName.put(key, value);
@@ -103,9 +143,9 @@ public class StackRtpFlow extends StackRtp
     /** override method for the possibility to send a flow */
     @Override
     public boolean sendMessage(Msg msg) throws Exception {
-        RtpFlowSendTask task = new RtpFlowSendTask((MsgRtpFlow) msg, scheduler);
+        RtpFlowSendTask task = new RtpFlowSendTask((MsgRtpFlow) msg, engine.getPacer());
 
-        scheduler.scheduleIn(task, ((MsgRtpFlow) msg).getDeltaTime());
+        task.start(((MsgRtpFlow) msg).getDeltaTime());
 
         ((MsgRtpFlow) msg).firstMsgSent.acquire();
         
@@ -162,7 +202,7 @@ public class StackRtpFlow extends StackRtp
                     // endTimerSilentFlow was not active, so the isSilent flag must be computed
                     if(listenpoint.endTimerSilentFlow <= 0){
                         MsgRtp packet = msgRtpFlow.getPacketList().getLast();
-                        packet.setIsSilence(this.isSilentPacket(packet.getData()));
+                        packet.setIsSilence(this.isSilentPacket(packet));
                     }
 
                     if(msgRtpFlow.getPacketList().getLast().isSilence()){
@@ -191,6 +231,13 @@ public class StackRtpFlow extends StackRtp
                 StatPool.getInstance().addValue(new StatKey(StatPool.PREFIX_RTPFLOW, msgRtpFlow.getType() + StackFactory.PREFIX_INCOMING, "_mos"), msgRtpFlow.getQoSinfo().getEModele().getMos());
             }
 
+            SilenceDetector.AudioLevel level = msgRtpFlow.getAudioLevel();
+            if (level != null && !level.isEmpty()) {
+                StatPool.getInstance().addValue(new StatKey(StatPool.PREFIX_RTPFLOW, msgRtpFlow.getType() + StackFactory.PREFIX_INCOMING, "_nbAudioFlow"), 1);
+                StatPool.getInstance().addValue(new StatKey(StatPool.PREFIX_RTPFLOW, msgRtpFlow.getType() + StackFactory.PREFIX_INCOMING, "_audioLevel"), level.getLevel());
+                StatPool.getInstance().addValue(new StatKey(StatPool.PREFIX_RTPFLOW, msgRtpFlow.getType() + StackFactory.PREFIX_INCOMING, "_audioClipping"), level.getClipping());
+            }
+
             if (msgRtpFlow.getProbe() != null)
             {
             	msgRtpFlow.setListenpoint(null);
@@ -204,27 +251,8 @@ public class StackRtpFlow extends StackRtp
     }
 
     /*this function is just used by the rtpflow protocol*/
-    protected boolean isSilentPacket(Array array) throws Exception {
-        // search the silent pattern
-        if (array.toString().contains(this.silentPattern)) {
-            return true;
-        }
-
-        // calculate the most popular frequency
-        float freqMax = PluggableParameterOperatorBinary.calculePopular(array.getBytes(), true);
-        // compare the frequency to the threshold
-        if (freqMax > array.length * this.silentFrequencyThreshold) {
-            return true;
-        }
-        return false;
-    }
-
-    public void scheduleTask(Task task, long delay) {
-        scheduler.scheduleIn(task, delay);
-    }
-
-    public void unscheduleTask(Task task) {
-        scheduler.unschedule(task);
+    protected boolean isSilentPacket(MsgRtp packet) throws Exception {
+        return silenceDetector.isSilent(packet.getData(), packet.getPayloadType());
     }
 
     public CodecDictionary getCodecDict() {
@@ -185,6 +185,14 @@ public class RawPacket {
             return;
         }
         
+        // the buffer has been allocated with room for the appended data
+        if (this.offset + this.length + len <= this.buffer.length)
+        {
+            System.arraycopy(data, 0, this.buffer, this.offset + this.length, len);
+            this.length = this.length + len;
+            return;
+        }
+
         byte[] newBuffer = new byte[this.length + len];
         System.arraycopy(this.buffer, this.offset, newBuffer, 0, this.length);
         System.arraycopy(data, 0, newBuffer, this.length, len);
@@ -193,6 +201,23 @@ public class RawPacket {
         this.buffer = newBuffer;
        
     }
+
+    /**
+     * Get the data of this packet as an array of its exact length : the
+     * buffer itself when the packet fills it, a copy otherwise
+     *
+     * @return the data of this packet
+     */
+    public byte[] toByteArray()
+    {
+        if (this.offset == 0 && this.length == this.buffer.length)
+        {
+            return this.buffer;
+        }
+        byte[] data = new byte[this.length];
+        System.arraycopy(this.buffer, this.offset, data, 0, this.length);
+        return data;
+    }
     /**
      * Shrink the buffer of this packet by specified length
      *
@@ -67,19 +67,55 @@ public class SRTPCipherCTR {
      */
     public static void process(Cipher aesCipher, byte[] data, int off, int len, byte[] iv)
     {
-        if (off + len > data.length)
+        if (off < 0 || len < 0 || off + len > data.length)
         {
-            // TODO this is invalid, need error handling
-            return;
+            throw new IllegalArgumentException("SRTP cipher range [" + off + ", " + (off + len) + "[ is out of the data of " + data.length + " bytes");
         }
 
-        byte[] cipherStream = new byte[len];
+        process(aesCipher, data, off, len, iv.clone(), new byte[16]);
+    }
 
-        getCipherStream(aesCipher, cipherStream, len, iv);
+    /**
+     * Process (encrypt / decrypt) a byte stream in place, using the supplied
+     * initial vector. The cipher stream is produced block by block into the
+     * given buffer and never stored entirely, so nothing is allocated.
+     *
+     * @param aesCipher the AESCihper object we use to do basic AES encryption / decryption
+     * @param data byte array containing the byte stream to be processed
+     * @param off byte stream star offset with data byte array
+     * @param len byte stream length in bytes
+     * @param iv initial vector for this operation, its 2 last bytes are used as the block counter
+     * @param block buffer of one AES block (16 bytes) receiving the cipher stream
+     */
+    public static void process(Cipher aesCipher, byte[] data, int off, int len, byte[] iv, byte[] block)
+    {
+        final int BLKLEN = 16;
 
-        for (int i = 0; i < len; i++)
+        if (off < 0 || len < 0 || off + len > data.length)
+        {
+            throw new IllegalArgumentException("SRTP cipher range [" + off + ", " + (off + len) + "[ is out of the data of " + data.length + " bytes");
+        }
+
+        try
+        {
+            for (int ctr = 0; ctr * BLKLEN < len; ctr++)
+            {
+                iv[14] = (byte) ((ctr & 0xFF00) >> 8);
+                iv[15] = (byte) ((ctr & 0x00FF));
+
+                aesCipher.update(iv, 0, BLKLEN, block, 0);
+
+                int start = off + ctr * BLKLEN;
+                int end = Math.min(start + BLKLEN, off + len);
+                for (int i = start; i < end; i++)
+                {
+                    data[i] ^= block[i - start];
+                }
+            }
+        }
+        catch (GeneralSecurityException e)
         {
-            data[i + off] ^= cipherStream[i];
+            throw new IllegalArgumentException("Error while computing the SRTP cipher stream, the key or the IV is invalid", e);
         }
     }
 
@@ -123,7 +159,7 @@ public class SRTPCipherCTR {
         }
         catch (GeneralSecurityException e)
         {
-            e.printStackTrace();
+            throw new IllegalArgumentException("Error while computing the SRTP cipher stream, the key or the IV is invalid", e);
         }
     }
 }
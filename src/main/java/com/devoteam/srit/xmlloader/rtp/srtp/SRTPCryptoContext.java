@@ -149,6 +149,26 @@ public class SRTPCryptoContext {
      */
     private Cipher AEScipherF8 = null;
 
+    /**
+     * Beginning of the counter mode IV (salt and SSRC), which only depends
+     * on the session salting key and the SSRC of this context
+     */
+    private byte[] ivPrefix = new byte[8];
+
+    /**
+     * SSRC the IV prefix has been computed for, -1 if not computed
+     */
+    private long ivPrefixSsrc = -1;
+
+    /**
+     * Buffers reused for each packet : initial vector, cipher stream block,
+     * ROC and authentication tag
+     */
+    private byte[] ivBuffer = new byte[16];
+    private byte[] blockBuffer = new byte[16];
+    private byte[] rocBuffer = new byte[4];
+    private byte[] tagBuffer = null;
+
     /**
      * Construct an empty SRTPCryptoContext using ssrc.
      * The other parameters are set to default null value.
@@ -346,7 +366,7 @@ public class SRTPCryptoContext {
         /* Authenticate the packet */
         if (this.policy.getAuthType() == SRTPPolicy.HMACSHA1_AUTHENTICATION)
         {
-            byte[] tag = authenticatePacketHMCSHA1(pkt);
+            byte[] tag = authenticatePacketHMCSHA1(pkt, this.roc);
             pkt.append(tag, policy.getAuthTagLength());
         }
 
@@ -378,28 +398,41 @@ public class SRTPCryptoContext {
      */
     public boolean reverseTransformPacket(RawPacket pkt)
     {
+        int seqNum = PacketManipulator.GetRTPSequenceNumber(pkt);
+
+        /* The packet is authenticated and decrypted with its own ROC, guessed
+         * from its sequence number (RFC 3711 3.3.1), so that the packets
+         * following a wrap of the sequence number are accepted */
+        guessIndex(seqNum);
+        int packetROC = this.guessedROC;
+
         /* Authenticate the packet */
         if (this.policy.getAuthType() == SRTPPolicy.HMACSHA1_AUTHENTICATION)
         {
             int tagLength = this.policy.getAuthTagLength();
+            if (pkt.getLength() < tagLength)
+            {
+                return false;
+            }
 
-            byte[] originalTag =
-                pkt.readRegion(pkt.getLength() - tagLength, tagLength);
+            // the received tag stays in the buffer after the shrink
+            int tagOffset = pkt.getOffset() + pkt.getLength() - tagLength;
             
             pkt.shrink(tagLength);
             
-            byte[] calculatedTag = authenticatePacketHMCSHA1(pkt);
+            byte[] calculatedTag = authenticatePacketHMCSHA1(pkt, packetROC);
 
+            byte[] buffer = pkt.getBuffer();
+            int diff = 0;
             for (int i = 0; i < tagLength; i++) {
-                if ((originalTag[i]&0xff) == (calculatedTag[i]&0xff))
-                    continue;
-                else 
-                    return false;
+                diff |= buffer[tagOffset + i] ^ calculatedTag[i];
+            }
+            if (diff != 0)
+            {
+                return false;
             }
         }
 
-        int seqNum = PacketManipulator.GetRTPSequenceNumber(pkt);
-
         /* Replay control */
         if (!checkReplay(seqNum))
         {
@@ -409,13 +442,13 @@ public class SRTPCryptoContext {
         /* Decrypt the packet using Counter Mode encryption*/
         if (this.policy.getEncType() == SRTPPolicy.AESCM_ENCRYPTION)
         {
-            processPacketAESCM(pkt);
+            processPacketAESCM(pkt, packetROC);
         }
 
         /* Decrypt the packet using F8 Mode encryption*/
         else if (this.policy.getEncType() == SRTPPolicy.AESF8_ENCRYPTION)
         {
-            processPacketAESF8(pkt);
+            processPacketAESF8(pkt, packetROC);
         }
 
         update(seqNum);
@@ -429,19 +462,30 @@ public class SRTPCryptoContext {
      */
     public void processPacketAESCM(RawPacket pkt)
     {
-        long  ssrc   = PacketManipulator.GetRTPSSRC(pkt);
-        int   seqNum = PacketManipulator.GetRTPSequenceNumber(pkt);
-        long  index  = ((long) this.roc << 16) | (long) seqNum;
+        processPacketAESCM(pkt, this.roc);
+    }
 
-        byte[] iv = new byte[16];
-        System.arraycopy(this.saltKey, 0, iv, 0, 4);
+    /**
+     * Perform Counter Mode AES encryption / decryption with the given ROC
+     * @param pkt the RTP packet to be encrypted / decrypted
+     * @param roc the Roll-Over-Counter of the packet
+     */
+    private void processPacketAESCM(RawPacket pkt, int roc)
+    {
+        int   seqNum = PacketManipulator.GetRTPSequenceNumber(pkt);
+        long  index  = ((long) roc << 16) | (long) seqNum;
 
-        int i;
-        for (i = 4; i < 8; i++)
+        // the keystream depends on the packet index so it is never reused,
+        // only the salt and SSRC part of the IV is computed once
+        byte[] iv = this.ivBuffer;
+        long ssrc = PacketManipulator.GetRTPSSRC(pkt);
+        if (ssrc != this.ivPrefixSsrc)
         {
-            iv[i] = (byte)((0xFF & (ssrc >> ((7 - i) * 8))) ^ this.saltKey[i]);
+            computeIvPrefix(ssrc);
         }
+        System.arraycopy(this.ivPrefix, 0, iv, 0, 8);
 
+        int i;
         for (i = 8; i < 14; i++)
         {
             iv[i] =
@@ -454,7 +498,22 @@ public class SRTPCryptoContext {
         final int payloadLength = PacketManipulator.GetRTPPayloadLength(pkt);
         
         SRTPCipherCTR.process(AEScipher, pkt.getBuffer(), pkt.getOffset() + payloadOffset,
-                              payloadLength, iv);
+                              payloadLength, iv, this.blockBuffer);
+    }
+
+    /**
+     * Compute the beginning of the counter mode IV for the SSRC
+     *
+     * @param ssrc the SSRC of the packets
+     */
+    private void computeIvPrefix(long ssrc)
+    {
+        this.ivPrefixSsrc = ssrc;
+        System.arraycopy(this.saltKey, 0, this.ivPrefix, 0, 4);
+        for (int i = 4; i < 8; i++)
+        {
+            this.ivPrefix[i] = (byte)((0xFF & (ssrc >> ((7 - i) * 8))) ^ this.saltKey[i]);
+        }
     }
     
     /**
@@ -463,6 +522,17 @@ public class SRTPCryptoContext {
      * @param pkt the RTP packet to be encrypted / decrypted
      */
     public void processPacketAESF8(RawPacket pkt)
+    {
+        processPacketAESF8(pkt, this.roc);
+    }
+
+    /**
+     * Perform F8 Mode AES encryption / decryption with the given ROC
+     *
+     * @param pkt the RTP packet to be encrypted / decrypted
+     * @param roc the Roll-Over-Counter of the packet
+     */
+    private void processPacketAESF8(RawPacket pkt, int roc)
     {
         //long    ssrc     = PacketManipulator.GetRTPSSRC(pkt);
         //boolean isMarked = PacketManipulator.IsPacketMarked(pkt);
@@ -493,10 +563,10 @@ public class SRTPCryptoContext {
         System.arraycopy(pkt.getBuffer(), pkt.getOffset(), iv, 0, 12);
         iv[0] = 0;
         
-        iv[12] = (byte) (this.roc >> 24);
-        iv[13] = (byte) (this.roc >> 16);
-        iv[14] = (byte) (this.roc >>  8);
-        iv[15] = (byte) this.roc;
+        iv[12] = (byte) (roc >> 24);
+        iv[13] = (byte) (roc >> 16);
+        iv[14] = (byte) (roc >>  8);
+        iv[15] = (byte) roc;
         
         final int payloadOffset = PacketManipulator.GetRTPHeaderLength(pkt);
         final int payloadLength = PacketManipulator.GetRTPPayloadLength(pkt);
@@ -507,22 +577,37 @@ public class SRTPCryptoContext {
 
     /**
      * Authenticate a packet using HMC SHA1 method.
-     * Calculated authentication tag is returned.
+     * Calculated authentication tag is returned; the array is reused by
+     * the next packet.
      *
      * @param pkt the RTP packet to be authenticated
+     * @param roc the Roll-Over-Counter of the packet
      * @return authentication tag of pkt
      */
-    private byte[] authenticatePacketHMCSHA1(RawPacket pkt)
+    private byte[] authenticatePacketHMCSHA1(RawPacket pkt, int roc)
     {
-        hmacSha1.update(pkt.getBuffer(), 0, pkt.getLength());
-        byte[] rb = new byte[4];
-        rb[0] = (byte) (this.roc >> 24);
-        rb[1] = (byte) (this.roc >> 16);
-        rb[2] = (byte) (this.roc >> 8);
-        rb[3] = (byte) this.roc;
+        hmacSha1.update(pkt.getBuffer(), pkt.getOffset(), pkt.getLength());
+        byte[] rb = this.rocBuffer;
+        rb[0] = (byte) (roc >> 24);
+        rb[1] = (byte) (roc >> 16);
+        rb[2] = (byte) (roc >> 8);
+        rb[3] = (byte) roc;
         hmacSha1.update(rb);
         
-        return hmacSha1.doFinal();
+        if (this.tagBuffer == null)
+        {
+            this.tagBuffer = new byte[hmacSha1.getMacLength()];
+        }
+        try
+        {
+            hmacSha1.doFinal(this.tagBuffer, 0);
+        }
+        catch (ShortBufferException e)
+        {
+            // cannot happen : the buffer has the length of the MAC
+            throw new IllegalStateException("SRTP : the authentication tag buffer is too short", e);
+        }
+        return this.tagBuffer;
     }
     
     /**
@@ -551,7 +636,7 @@ public class SRTPCryptoContext {
         }
 
         long guessedIndex = guessIndex( seqNum );
-        long localIndex = (((long)this.roc) << 16 & 0xFFFF) | this.seqNum;
+        long localIndex = (((long)this.roc) << 16) | this.seqNum;
 
         long delta = guessedIndex - localIndex;
         if (delta > 0)
@@ -675,6 +760,7 @@ public class SRTPCryptoContext {
         computeIv(iv, label, index, this.keyDerivationRate, this.masterSalt);
         
         SRTPCipherCTR.getCipherStream(AEScipher, saltKey, policy.getSaltKeyLength(), iv);
+        this.ivPrefixSsrc = -1;
         
         // As last step: initialize AES cipher with derived encryption key.
         encryptionKey = new SecretKeySpec(encKey, 0, policy.getEncKeyLength(), "AES");
@@ -51,6 +51,11 @@ private SRTPTransformEngine engine;
  */
 private Hashtable<Long, SRTPCryptoContext> contexts;
 
+/**
+ * The context of the last packet : a flow uses always the same SSRC
+ */
+private SRTPCryptoContext lastContext = null;
+
 /**
  * Construct a SRTPTransformer
  *
@@ -70,8 +75,7 @@ public RawPacket transform(RawPacket pkt)
 {
     long ssrc = PacketManipulator.GetRTPSSRC(pkt);
 
-    SRTPCryptoContext context =
-        (SRTPCryptoContext) this.contexts.get(new Long(ssrc));
+    SRTPCryptoContext context = getContext(ssrc);
     
     if (context == null)
     {
@@ -99,8 +103,7 @@ public RawPacket reverseTransform(RawPacket pkt)
 {
     long ssrc  = PacketManipulator.GetRTPSSRC(pkt);
     int seqNum = PacketManipulator.GetRTPSequenceNumber(pkt);
-    SRTPCryptoContext context =
-        (SRTPCryptoContext) this.contexts.get(new Long(ssrc));
+    SRTPCryptoContext context = getContext(ssrc);
 
     if (context == null)
     {
@@ -126,6 +129,26 @@ public RawPacket reverseTransform(RawPacket pkt)
     return pkt;
 }
 
+/**
+ * Get the context of the SSRC or null if not yet derived
+ *
+ * @param ssrc the SSRC of the packet
+ * @return the context of the SSRC
+ */
+private SRTPCryptoContext getContext(long ssrc)
+{
+    SRTPCryptoContext context = this.lastContext;
+    if (context == null || context.getSSRC() != ssrc)
+    {
+        context = this.contexts.get(ssrc);
+        if (context != null)
+        {
+            this.lastContext = context;
+        }
+    }
+    return context;
+}
+
 /**
  * Getter to use in derived classes.
  * (Could modify the member variable to protected instead for direct access)  
@@ -0,0 +1,238 @@
+/* 
+ * Copyright 2012 Devoteam http://www.devoteam.com
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ * 
+ * 
+ * This file is part of Multi-Protocol Test Suite (MTS).
+ * 
+ * Multi-Protocol Test Suite (MTS) is free software: you can redistribute
+ * it and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of the
+ * License.
+ * 
+ * Multi-Protocol Test Suite (MTS) is distributed in the hope that it will
+ * be useful, but WITHOUT ANY WARRANTY; without even the implied warranty 
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with Multi-Protocol Test Suite (MTS).
+ * If not, see <http://www.gnu.org/licenses/>.
+ * 
+ */
+
+package com.devoteam.srit.xmlloader.rtp.test;
+
+/** 
+ * mesure de la precision de la detection de fin des flux RTP recus (timer
+ * endTimerNoPacket) avec de nombreux flux simultanes : chaque flux recoit un
+ * paquet G.711 toutes les 20 ms puis s'arrete, les arrets etant etales sur une
+ * seconde ; on mesure l'ecart entre la fin attendue (dernier paquet + timer) et
+ * la fin constatee de chaque flux, et les fins prematurees.
+ * usage : RtpFlowEndDetectorTest [nombre de flux] [endTimerNoPacket en s] [duree d'emission en s]
+ */
+
+import com.devoteam.srit.xmlloader.core.Tester;
+import com.devoteam.srit.xmlloader.core.protocol.Stack;
+import com.devoteam.srit.xmlloader.core.protocol.StackFactory;
+import com.devoteam.srit.xmlloader.core.utils.Utils;
+import com.devoteam.srit.xmlloader.core.utils.filesystem.LocalFSInterface;
+import com.devoteam.srit.xmlloader.core.utils.filesystem.SingletonFSInterface;
+import com.devoteam.srit.xmlloader.rtp.MsgRtp;
+import com.devoteam.srit.xmlloader.rtp.flow.ListenpointRtpFlow;
+import com.devoteam.srit.xmlloader.rtp.flow.MsgRtpFlow;
+import com.devoteam.srit.xmlloader.rtp.flow.PayloadLibrary;
+
+
+public class RtpFlowEndDetectorTest {
+
+    private static Tester tester;
+
+    private static final long PTIME_MILLIS = 20;
+
+    /** resolution of the lateness histogram : 1 ms, up to 1 s */
+    private static final int HISTOGRAM_SIZE = 1000;
+
+    private static final String PAYLOAD = 
+        "e7e4e2e7e2dfe0dedddfe1e0dee0dfdedcdde0dfdedfe0e5e6dfdfe3eae4de" +
+        "dedfdddde0dfdfdde2e0dddee0e6e3dfe2e5e3dfdddddfdddedee0e0dfdfdcdcdedfdfdcdbdbdfdcdcdde4" +
+        "e2dddbdddfdcdcdededcdcdededcdadbdfdddadcdfdddcdde1e0dddcdddad8dadddcdbd9d8dbd9d9dadedb" +
+        "d8dbdfdbd9dbdcdad9dddfdcdededbd8dcdedad8dbded9d7dbdfddd9dde4dedbdededad7dadedcd9dadd";
+
+    /**
+     * @param args
+     */
+    public static void main(String[] args) throws Exception {
+        
+        /*
+         * Set the FSInterface to LocalFS.
+         */
+        SingletonFSInterface.setInstance(new LocalFSInterface());
+        
+        if (tester == null) {
+            tester = Tester.buildInstance();
+        }
+
+        int flowNumber = (args.length > 0) ? Integer.parseInt(args[0]) : 10000;
+        float endTimer = (args.length > 1) ? Float.parseFloat(args[1]) : 1;
+        long sendDuration = (args.length > 2) ? (long) (Double.parseDouble(args[2]) * 1000) : 2000;
+        long endTimerMillis = (long) (endTimer * 1000);
+
+        Stack stack = StackFactory.getStack(StackFactory.PROTOCOL_RTPFLOW);
+
+        // encoded G.711 packet shared by all the flows
+        MsgRtp packet = new MsgRtp(stack);
+        packet.setPayloadType(0);
+        packet.setData(PayloadLibrary.getHexPayload(PAYLOAD));
+        byte[] packetBytes = packet.encode();
+
+        TestListenpoint[] listenpoints = new TestListenpoint[flowNumber];
+        for (int i = 0; i < flowNumber; i++) {
+            listenpoints[i] = new TestListenpoint(stack, i, endTimer);
+        }
+
+        // the flows stop one after the other during the last second of emission
+        long start = System.currentTimeMillis();
+        long[] stopTimes = new long[flowNumber];
+        for (int i = 0; i < flowNumber; i++) {
+            stopTimes[i] = start + sendDuration - 1000 + i * 1000L / flowNumber;
+        }
+        Sender sender = new Sender(stack, listenpoints, stopTimes, packetBytes);
+        sender.start();
+
+        // follow the end of each flow every millisecond
+        long[] expectedEnds = new long[flowNumber];
+        long[] histogram = new long[HISTOGRAM_SIZE + 1];
+        int ended = 0;
+        int early = 0;
+        long maxLateness = 0;
+        long deadline = start + sendDuration + endTimerMillis + 2000;
+        boolean[] done = new boolean[flowNumber];
+        while (ended < flowNumber && System.currentTimeMillis() < deadline) {
+            long now = System.currentTimeMillis();
+            for (int i = 0; i < flowNumber; i++) {
+                if (done[i]) {
+                    continue;
+                }
+                long lastPacket = listenpoints[i].getLastPacketTimestamp();
+                if (lastPacket > 0) {
+                    expectedEnds[i] = Math.max(expectedEnds[i], lastPacket + endTimerMillis);
+                }
+                else if (expectedEnds[i] > 0) {
+                    // the flow has ended
+                    done[i] = true;
+                    ended++;
+                    if (now < stopTimes[i] || now < expectedEnds[i]) {
+                        early++;
+                    }
+                    else {
+                        long lateness = now - expectedEnds[i];
+                        histogram[(int) Math.min(lateness, HISTOGRAM_SIZE)]++;
+                        maxLateness = Math.max(maxLateness, lateness);
+                    }
+                }
+            }
+            Utils.pauseMilliseconds(1);
+        }
+
+        System.out.println("flows = " + flowNumber + " ended = " + ended + " early = " + early + " packets = " + sender.packetNumber);
+        System.out.println("lateness p50 = " + getPercentile(histogram, 0.5) + " ms. p99 = " + getPercentile(histogram, 0.99) + " ms. max = " + maxLateness + " ms.");
+        System.exit((ended == flowNumber && early == 0) ? 0 : 1);
+    }
+
+    /** percentile of the lateness in ms */
+    private static int getPercentile(long[] histogram, double percentile) {
+        long total = 0;
+        for (long number : histogram) {
+            total += number;
+        }
+        long rank = (long) Math.ceil(total * percentile);
+        long count = 0;
+        for (int i = 0; i < histogram.length; i++) {
+            count += histogram[i];
+            if (count >= rank && count > 0) {
+                return i;
+            }
+        }
+        return 0;
+    }
+
+    /** a listenpoint receiving a flow without socket, with only the no packet end timer */
+    private static class TestListenpoint extends ListenpointRtpFlow {
+
+        private TestListenpoint(Stack stack, int index, float endTimer) throws Exception {
+            super(stack, "endDetectorTest" + index, "127.0.0.1", 10000 + index);
+            this.endTimerNoPacket = endTimer;
+            this.endTimerSilentFlow = -1;
+            this.endTimerPeriodic = 0;
+            this.qosMeasurment = false;
+        }
+
+        private void receive(MsgRtp msg) throws Exception {
+            msg.setListenpoint(this);
+            receiveMessage(msg);
+        }
+
+        /** the time of the last packet of the current flow or 0 if there is no flow */
+        private long getLastPacketTimestamp() {
+            MsgRtpFlow msg = this._currentMessage;
+            return (msg != null) ? msg.getLastPacketTimestamp() : 0;
+        }
+    }
+
+    /** sends a packet to each flow every 20 ms until its stop time */
+    private static class Sender extends Thread {
+
+        private final Stack stack;
+        private final TestListenpoint[] listenpoints;
+        private final long[] stopTimes;
+        private final byte[] packetBytes;
+        private final boolean[] stopped;
+        private volatile long packetNumber = 0;
+
+        private Sender(Stack stack, TestListenpoint[] listenpoints, long[] stopTimes, byte[] packetBytes) {
+            this.stack = stack;
+            this.listenpoints = listenpoints;
+            this.stopTimes = stopTimes;
+            this.packetBytes = packetBytes;
+            this.stopped = new boolean[listenpoints.length];
+            setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            try {
+                int sequenceNumber = 0;
+                long next = System.currentTimeMillis();
+                int remaining = listenpoints.length;
+                while (remaining > 0) {
+                    long now = System.currentTimeMillis();
+                    for (int i = 0; i < listenpoints.length; i++) {
+                        if (stopped[i]) {
+                            continue;
+                        }
+                        if (now >= stopTimes[i]) {
+                            stopped[i] = true;
+                            remaining--;
+                            continue;
+                        }
+                        MsgRtp msg = (MsgRtp) stack.readFromDatas(packetBytes, packetBytes.length);
+                        msg.setSsrc(i);
+                        msg.setSequenceNumber(sequenceNumber);
+                        listenpoints[i].receive(msg);
+                        packetNumber++;
+                    }
+                    sequenceNumber++;
+                    next += PTIME_MILLIS;
+                    long sleep = next - System.currentTimeMillis();
+                    if (sleep > 0) {
+                        Thread.sleep(sleep);
+                    }
+                }
+            }
+            catch (Exception e) {
+                e.printStackTrace();
+            }
+        }
+    }
+}
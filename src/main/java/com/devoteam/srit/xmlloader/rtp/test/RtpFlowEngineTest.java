@@ -0,0 +1,257 @@
+/* 
+ * Copyright 2012 Devoteam http://www.devoteam.com
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ * 
+ * 
+ * This file is part of Multi-Protocol Test Suite (MTS).
+ * 
+ * Multi-Protocol Test Suite (MTS) is free software: you can redistribute
+ * it and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of the
+ * License.
+ * 
+ * Multi-Protocol Test Suite (MTS) is distributed in the hope that it will
+ * be useful, but WITHOUT ANY WARRANTY; without even the implied warranty 
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with Multi-Protocol Test Suite (MTS).
+ * If not, see <http://www.gnu.org/licenses/>.
+ * 
+ */
+
+
+package com.devoteam.srit.xmlloader.rtp.test;
+
+/** 
+ * mesure du nombre de flux RTP simultanes tenus par le moteur de media sur
+ * la boucle locale : des flux G.711 (paquets de 172 octets toutes les 20 ms)
+ * de plus en plus nombreux sont envoyes par le moteur et recus par une socket
+ * locale qui mesure l'ecart de chaque paquet a 20 ms apres le precedent du
+ * meme flux (gigue d'arrivee) et les pertes.
+ * usage : RtpFlowEngineTest [nombres de flux] [duree d'un palier en s] [gigue max en ms]
+ */
+
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.devoteam.srit.xmlloader.core.Tester;
+import com.devoteam.srit.xmlloader.core.protocol.Stack;
+import com.devoteam.srit.xmlloader.core.protocol.StackFactory;
+import com.devoteam.srit.xmlloader.core.utils.filesystem.LocalFSInterface;
+import com.devoteam.srit.xmlloader.core.utils.filesystem.SingletonFSInterface;
+import com.devoteam.srit.xmlloader.rtp.MsgRtp;
+import com.devoteam.srit.xmlloader.rtp.flow.PayloadLibrary;
+import com.devoteam.srit.xmlloader.rtp.flow.RtpFlowEngine;
+import com.devoteam.srit.xmlloader.udp.nio.DatagramReactor;
+import com.devoteam.srit.xmlloader.udp.nio.SocketUdpNIO;
+
+import gp.utils.arrays.Array;
+
+
+public class RtpFlowEngineTest {
+
+    private static Tester tester;
+
+    private static final long PTIME_NANOS = 20000000;
+
+    /** number of flows sharing a sending socket */
+    private static final int FLOWS_PER_SOCKET = 100;
+
+    /** resolution of the jitter histogram : 0.1 ms, up to 100 ms */
+    private static final int HISTOGRAM_SIZE = 1000;
+
+    private static final String PAYLOAD = 
+        "e7e4e2e7e2dfe0dedddfe1e0dee0dfdedcdde0dfdedfe0e5e6dfdfe3eae4de" +
+        "dedfdddde0dfdfdde2e0dddee0e6e3dfe2e5e3dfdddddfdddedee0e0dfdfdcdcdedfdfdcdbdbdfdcdcdde4" +
+        "e2dddbdddfdcdcdededcdcdededcdadbdfdddadcdfdddcdde1e0dddcdddad8dadddcdbd9d8dbd9d9dadedb" +
+        "d8dbdfdbd9dbdcdad9dddfdcdededbd8dcdedad8dbded9d7dbdfddd9dde4dedbdededad7dadedcd9dadd";
+
+    /**
+     * @param args
+     */
+    public static void main(String[] args) throws Exception {
+        
+        /*
+         * Set the FSInterface to LocalFS.
+         */
+        SingletonFSInterface.setInstance(new LocalFSInterface());
+        
+        if (tester == null) {
+            tester = Tester.buildInstance();
+        }
+
+        String[] flowNumbers = ((args.length > 0) ? args[0] : "500,1000,2000,5000,10000").split(",");
+        int stepDuration = (args.length > 1) ? Integer.parseInt(args[1]) : 10;
+        double maxJitter = (args.length > 2) ? Double.parseDouble(args[2]) : 5;
+
+        Stack stack = StackFactory.getStack(StackFactory.PROTOCOL_RTP);
+        RtpFlowEngine engine = new RtpFlowEngine(0);
+        Receiver receiver = new Receiver();
+        receiver.start();
+
+        int sustained = 0;
+        for (String flowNumberStr : flowNumbers) {
+            int flowNumber = Integer.parseInt(flowNumberStr.trim());
+            receiver.reset(flowNumber);
+
+            SocketUdpNIO[] sockets = new SocketUdpNIO[(flowNumber + FLOWS_PER_SOCKET - 1) / FLOWS_PER_SOCKET];
+            for (int i = 0; i < sockets.length; i++) {
+                sockets[i] = new SocketUdpNIO();
+                DatagramReactor.instance().open(new InetSocketAddress("127.0.0.1", 0), sockets[i]);
+            }
+
+            // the flows start spread over a packet time
+            AtomicLong sentNumber = new AtomicLong();
+            long start = System.nanoTime() + 100000000;
+            long end = start + stepDuration * 1000000000L;
+            for (int i = 0; i < flowNumber; i++) {
+                LoopbackFlow flow = new LoopbackFlow(stack, i, engine.getPacer(), sockets[i / FLOWS_PER_SOCKET], receiver.address, end, sentNumber);
+                flow.start(start + i * PTIME_NANOS / flowNumber);
+            }
+            Thread.sleep((end - System.nanoTime()) / 1000000 + 500);
+
+            for (SocketUdpNIO socket : sockets) {
+                socket.close();
+            }
+
+            double p99 = receiver.getJitterPercentile(0.99);
+            double max = receiver.getJitterPercentile(1);
+            long received = receiver.receivedNumber;
+            long lost = sentNumber.get() - received;
+            System.out.println("flows = " + flowNumber + " sent = " + sentNumber.get() + " received = " + received + " lost = " + lost);
+            System.out.println("jitter p99 = " + p99 + " ms. max = " + max + " ms.");
+            if (p99 > maxJitter || lost > 0) {
+                break;
+            }
+            sustained = flowNumber;
+        }
+        System.out.println("sustained flows = " + sustained + " (jitter p99 <= " + maxJitter + " ms. without loss)");
+        engine.stop();
+        System.exit(0);
+    }
+
+    /** a G.711 flow sending its packets through the engine */
+    private static class LoopbackFlow implements Runnable {
+
+        private final MsgRtp msg;
+        private final RtpFlowEngine.Pacer pacer;
+        private final SocketUdpNIO socket;
+        private final InetSocketAddress remoteAddress;
+        private final long end;
+        private final AtomicLong sentNumber;
+        private long nextPacketTime;
+        private int sequenceNumber = 0;
+
+        private LoopbackFlow(Stack stack, int ssrc, RtpFlowEngine.Pacer pacer, SocketUdpNIO socket, InetSocketAddress remoteAddress, long end, AtomicLong sentNumber) throws Exception {
+            this.msg = new MsgRtp(stack);
+            this.msg.setSsrc(ssrc);
+            this.msg.setPayloadType(0);
+            // the payload is shared by all the flows
+            Array payload = PayloadLibrary.getHexPayload(PAYLOAD);
+            this.msg.setData(payload);
+            this.msg.encode();
+            this.pacer = pacer;
+            this.socket = socket;
+            this.remoteAddress = remoteAddress;
+            this.end = end;
+            this.sentNumber = sentNumber;
+        }
+
+        private void start(long time) {
+            nextPacketTime = time;
+            pacer.scheduleAt(this, nextPacketTime);
+        }
+
+        public void run() {
+            try {
+                msg.setSequenceNumber(sequenceNumber++);
+                msg.setTimestampRTP(msg.getTimestampRTP() + 160);
+                msg.modifyMsgForFlow();
+                pacer.send(socket, msg.encode(), remoteAddress);
+                sentNumber.incrementAndGet();
+                nextPacketTime += PTIME_NANOS;
+                if (nextPacketTime < end) {
+                    pacer.scheduleAt(this, nextPacketTime);
+                }
+            }
+            catch (Exception e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /** receives the packets of all the flows and measures their arrival jitter */
+    private static class Receiver extends Thread {
+
+        private final DatagramChannel channel;
+        private final InetSocketAddress address;
+        private volatile long[] lastArrivals = new long[0];
+        private final long[] histogram = new long[HISTOGRAM_SIZE + 1];
+        private volatile long receivedNumber = 0;
+
+        private Receiver() throws Exception {
+            channel = DatagramChannel.open();
+            channel.socket().setReceiveBufferSize(16 * 1024 * 1024);
+            channel.socket().bind(new InetSocketAddress("127.0.0.1", 0));
+            address = (InetSocketAddress) channel.socket().getLocalSocketAddress();
+            setDaemon(true);
+        }
+
+        private synchronized void reset(int flowNumber) {
+            lastArrivals = new long[flowNumber];
+            for (int i = 0; i < histogram.length; i++) {
+                histogram[i] = 0;
+            }
+            receivedNumber = 0;
+        }
+
+        @Override
+        public void run() {
+            ByteBuffer buffer = ByteBuffer.allocate(1500);
+            try {
+                while (true) {
+                    buffer.clear();
+                    channel.receive(buffer);
+                    long now = System.nanoTime();
+                    int ssrc = buffer.getInt(8);
+                    synchronized (this) {
+                        if (ssrc < 0 || ssrc >= lastArrivals.length) {
+                            continue;
+                        }
+                        receivedNumber++;
+                        long last = lastArrivals[ssrc];
+                        lastArrivals[ssrc] = now;
+                        if (last != 0) {
+                            long jitter = Math.abs(now - last - PTIME_NANOS) / 100000;
+                            histogram[(int) Math.min(jitter, HISTOGRAM_SIZE)]++;
+                        }
+                    }
+                }
+            }
+            catch (Exception e) {
+                e.printStackTrace();
+            }
+        }
+
+        /** percentile of the jitter in ms (100 ms if it is out of the histogram) */
+        private synchronized double getJitterPercentile(double percentile) {
+            long total = 0;
+            for (long number : histogram) {
+                total += number;
+            }
+            long rank = (long) Math.ceil(total * percentile);
+            long count = 0;
+            for (int i = 0; i < histogram.length; i++) {
+                count += histogram[i];
+                if (count >= rank && count > 0) {
+                    return i / 10.0;
+                }
+            }
+            return 0;
+        }
+    }
+}
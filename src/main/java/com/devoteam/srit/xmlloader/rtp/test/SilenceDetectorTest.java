@@ -0,0 +1,186 @@
+/* 
+ * Copyright 2012 Devoteam http://www.devoteam.com
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ * 
+ * 
+ * This file is part of Multi-Protocol Test Suite (MTS).
+ * 
+ * Multi-Protocol Test Suite (MTS) is free software: you can redistribute
+ * it and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of the
+ * License.
+ * 
+ * Multi-Protocol Test Suite (MTS) is distributed in the hope that it will
+ * be useful, but WITHOUT ANY WARRANTY; without even the implied warranty 
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with Multi-Protocol Test Suite (MTS).
+ * If not, see <http://www.gnu.org/licenses/>.
+ * 
+ */
+
+
+package com.devoteam.srit.xmlloader.rtp.test;
+
+/** 
+ * comparaison de la detection des paquets RTP silencieux par SilenceDetector
+ * avec l'ancienne detection (recherche du motif dans la chaine hexadecimale
+ * du payload puis calculePopular) sur des payloads aleatoires, avec ou sans
+ * motif de silence et avec un octet plus ou moins frequent, puis mesure du
+ * debit des deux detections.
+ * seule difference admise : l'ancienne recherche ratait un motif coupe par un
+ * retour a la ligne de Array.toString() (tous les 16 octets).
+ * usage : SilenceDetectorTest [nombre de paquets par configuration]
+ */
+
+import java.util.Random;
+
+import com.devoteam.srit.xmlloader.core.operations.basic.operators.PluggableParameterOperatorBinary;
+import com.devoteam.srit.xmlloader.rtp.flow.SilenceDetector;
+
+import gp.utils.arrays.Array;
+import gp.utils.arrays.DefaultArray;
+
+
+public class SilenceDetectorTest {
+
+    /** silent patterns : the default one, the example of rtpflow.properties and a short one */
+    private static final String[] PATTERNS = {"00000000000000000000", "000102030405060708090A0B0C0D0E0F10", "FFFF"};
+
+    private static final float[] FREQUENCY_THRESHOLDS = {0.2f, 0.5f};
+
+    /**
+     * @param args
+     */
+    public static void main(String[] args) throws Exception {
+        int maxIter = (args.length > 0) ? Integer.parseInt(args[0]) : 100000;
+
+        boolean ok = true;
+        for (String patternHexa : PATTERNS) {
+            for (float threshold : FREQUENCY_THRESHOLDS) {
+                ok &= compare(patternHexa, threshold, maxIter);
+            }
+        }
+        System.out.println(ok ? "OK : same detection" : "KO : different detection");
+        System.exit(ok ? 0 : 1);
+    }
+
+    private static boolean compare(String patternHexa, float threshold, int maxIter) throws Exception {
+        Array motif = Array.fromHexString(patternHexa);
+        byte[] pattern = motif.getBytes();
+        String silentPattern = motif.toString();
+        SilenceDetector detector = new SilenceDetector(pattern, threshold, 0);
+
+        Random random = new Random(maxIter);
+        Array[] payloads = new Array[maxIter];
+        for (int i = 0; i < maxIter; i++) {
+            payloads[i] = new DefaultArray(newPayload(random, i % 4, pattern));
+        }
+
+        int silentNumber = 0;
+        int lineBreakNumber = 0;
+        int errorNumber = 0;
+        for (Array payload : payloads) {
+            boolean before = isSilentBefore(payload, silentPattern, threshold);
+            boolean after = detector.isSilent(payload, 0);
+            if (after) {
+                silentNumber++;
+            }
+            if (before == after) {
+                continue;
+            }
+            if (!before && contains(payload.getBytes(), pattern)) {
+                // the pattern crosses a line break of the string
+                lineBreakNumber++;
+                continue;
+            }
+            if (errorNumber++ < 10) {
+                System.out.println("  different detection (before = " + before + ") : " + Array.toHexString(payload));
+            }
+        }
+
+        long beginTT = System.nanoTime();
+        for (Array payload : payloads) {
+            isSilentBefore(payload, silentPattern, threshold);
+        }
+        float durationBefore = ((float) (System.nanoTime() - beginTT)) / 1000000000;
+        beginTT = System.nanoTime();
+        for (Array payload : payloads) {
+            detector.isSilent(payload, 0);
+        }
+        float durationAfter = ((float) (System.nanoTime() - beginTT)) / 1000000000;
+
+        System.out.println("pattern = " + patternHexa + " threshold = " + threshold + " silent = " + silentNumber + "/" + maxIter
+                + " line break = " + lineBreakNumber + " errors = " + errorNumber);
+        System.out.println("  before : duration = " + durationBefore + " s. flow = " + maxIter / durationBefore + " packets/s.");
+        System.out.println("  after  : duration = " + durationAfter + " s. flow = " + maxIter / durationAfter + " packets/s.");
+        return errorNumber == 0;
+    }
+
+    /** the detection of StackRtpFlow.isSilentPacket() before SilenceDetector */
+    private static boolean isSilentBefore(Array array, String silentPattern, float silentFrequencyThreshold) {
+        // search the silent pattern
+        if (array.toString().contains(silentPattern)) {
+            return true;
+        }
+
+        // calculate the most popular frequency
+        float freqMax = PluggableParameterOperatorBinary.calculePopular(array.getBytes(), true);
+        // compare the frequency to the threshold
+        if (freqMax > array.length * silentFrequencyThreshold) {
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * kind 0 : random bytes, 1 : with a whole or truncated pattern, 
+     * 2 : with a popular byte, 3 : G.711 (PCMU) low noise
+     */
+    private static byte[] newPayload(Random random, int kind, byte[] pattern) {
+        int length = (random.nextInt(4) == 0) ? 20 + random.nextInt(300) : 160;
+        byte[] bytes = new byte[length];
+        random.nextBytes(bytes);
+        switch (kind) {
+            case 1:
+                int patternLength = Math.min(length, pattern.length - 1 + random.nextInt(2));
+                int position = random.nextInt(length - patternLength + 1);
+                for (int i = 0; i < patternLength; i++) {
+                    bytes[position + i] = pattern[i % pattern.length];
+                }
+                break;
+            case 2:
+                byte popular = (byte) random.nextInt(256);
+                double probability = 0.1 + 0.5 * random.nextDouble();
+                for (int i = 0; i < length; i++) {
+                    if (random.nextDouble() < probability) {
+                        bytes[i] = popular;
+                    }
+                }
+                break;
+            case 3:
+                for (int i = 0; i < length; i++) {
+                    bytes[i] = (byte) (0xFF - random.nextInt(4) + ((random.nextInt(2) == 0) ? 0 : -0x80));
+                }
+                break;
+            default:
+                break;
+        }
+        return bytes;
+    }
+
+    private static boolean contains(byte[] bytes, byte[] pattern) {
+        for (int i = 0; i <= bytes.length - pattern.length; i++) {
+            int j = 0;
+            while (j < pattern.length && bytes[i + j] == pattern[j]) {
+                j++;
+            }
+            if (j == pattern.length) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,167 @@
+/* 
+ * Copyright 2012 Devoteam http://www.devoteam.com
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ * 
+ * 
+ * This file is part of Multi-Protocol Test Suite (MTS).
+ * 
+ * Multi-Protocol Test Suite (MTS) is free software: you can redistribute
+ * it and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of the
+ * License.
+ * 
+ * Multi-Protocol Test Suite (MTS) is distributed in the hope that it will
+ * be useful, but WITHOUT ANY WARRANTY; without even the implied warranty 
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with Multi-Protocol Test Suite (MTS).
+ * If not, see <http://www.gnu.org/licenses/>.
+ * 
+ */
+
+
+package com.devoteam.srit.xmlloader.rtp.test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.SecretKeySpec;
+
+import com.devoteam.srit.xmlloader.core.Tester;
+import com.devoteam.srit.xmlloader.core.utils.filesystem.LocalFSInterface;
+import com.devoteam.srit.xmlloader.core.utils.filesystem.SingletonFSInterface;
+import com.devoteam.srit.xmlloader.rtp.srtp.RawPacket;
+import com.devoteam.srit.xmlloader.rtp.srtp.SRTPCipherCTR;
+import com.devoteam.srit.xmlloader.rtp.srtp.SRTPPolicy;
+import com.devoteam.srit.xmlloader.rtp.srtp.SRTPTransformEngine;
+import com.devoteam.srit.xmlloader.rtp.srtp.SRTPTransformer;
+
+/** 
+ * controle et mesure du SRTP (AES_CM_128_HMAC_SHA1_80 par defaut) :
+ * - le chiffrement en place bloc par bloc doit donner le meme flux de cle que
+ *   le calcul du flux complet (getCipherStream) pour des longueurs de 0 a 333
+ *   octets;
+ * - les paquets proteges puis deprotege par un second contexte doivent etre
+ *   identiques aux paquets initiaux;
+ * - on affiche le nombre de paquets G.711 (160 octets de charge) proteges et
+ *   deprotege par seconde.
+ * usage : SrtpTest [nombre de paquets] [algorithme]
+ */
+public class SrtpTest {
+
+    private static Tester tester;
+
+    private static final int PAYLOAD_LENGTH = 160;
+
+    private static final int BATCH = 1024;
+
+    /**
+     * @param args
+     */
+    public static void main(String[] args) throws Exception {
+        
+        /*
+         * Set the FSInterface to LocalFS.
+         */
+        SingletonFSInterface.setInstance(new LocalFSInterface());
+        
+        if (tester == null) {
+            tester = Tester.buildInstance();
+        }
+
+        int maxIter = (args.length > 0) ? Integer.parseInt(args[0]) : 1000000;
+        String algorithm = (args.length > 1) ? args[1] : "AES_CM_128_HMAC_SHA1_80";
+        Random random = new Random(1);
+        int errors = 0;
+
+        // keystream equivalence
+        byte[] key = new byte[16];
+        random.nextBytes(key);
+        Cipher aesCipher = Cipher.getInstance("AES/ECB/NoPadding");
+        aesCipher.init(Cipher.ENCRYPT_MODE, new SecretKeySpec(key, "AES"));
+        byte[] iv = new byte[16];
+        byte[] block = new byte[16];
+        int keystreamErrors = 0;
+        for (int length = 0; length <= 333; length++) {
+            random.nextBytes(iv);
+            byte[] stream = new byte[length];
+            SRTPCipherCTR.getCipherStream(aesCipher, stream, length, iv);
+            // the keystream is the cipher of zeroes, here after a 5 bytes offset
+            byte[] data = new byte[length + 5];
+            SRTPCipherCTR.process(aesCipher, data, 5, length, iv.clone(), block);
+            if (!Arrays.equals(stream, Arrays.copyOfRange(data, 5, length + 5))) {
+                keystreamErrors++;
+            }
+        }
+        errors += keystreamErrors;
+        System.out.println("keystream : " + ((keystreamErrors == 0) ? "OK" : "KO " + keystreamErrors + " lengths"));
+
+        // protection and unprotection with the same master key
+        byte[] masterKey = new byte[16];
+        byte[] masterSalt = new byte[14];
+        random.nextBytes(masterKey);
+        random.nextBytes(masterSalt);
+        SRTPPolicy policy = new SRTPPolicy(algorithm.split("_"));
+        SRTPTransformer sender = new SRTPTransformer(new SRTPTransformEngine(masterKey, masterSalt, policy, policy, null));
+        SRTPTransformer receiver = new SRTPTransformer(new SRTPTransformEngine(masterKey, masterSalt, policy, policy, null));
+        int tagLength = policy.getAuthTagLength();
+        int length = 12 + PAYLOAD_LENGTH;
+
+        // the packets have room for the authentication tag as in the listenpoints
+        byte[][] packets = new byte[BATCH][length + tagLength];
+        byte[] plain = new byte[length];
+        int roundTripErrors = 0;
+        for (int seq = 0; seq < BATCH; seq++) {
+            random.nextBytes(plain);
+            setHeader(plain, seq);
+            System.arraycopy(plain, 0, packets[seq], 0, length);
+            byte[] ciphered = sender.transform(new RawPacket(packets[seq], 0, length)).toByteArray();
+            RawPacket unprotected = receiver.reverseTransform(new RawPacket(ciphered, 0, ciphered.length));
+            if (unprotected == null || !Arrays.equals(plain, unprotected.toByteArray())) {
+                roundTripErrors++;
+            }
+        }
+        errors += roundTripErrors;
+        System.out.println("protect / unprotect : " + ((roundTripErrors == 0) ? "OK" : "KO " + roundTripErrors + " packets"));
+
+        // throughput by batches of packets : the sequence numbers always increase so none is a replay
+        long protectNanos = 0;
+        long unprotectNanos = 0;
+        int number = 0;
+        for (int seq = BATCH; number < maxIter; ) {
+            long beginTT = System.nanoTime();
+            for (int i = 0; i < BATCH; i++) {
+                setHeader(packets[i], seq + i);
+                sender.transform(new RawPacket(packets[i], 0, length));
+            }
+            long middleTT = System.nanoTime();
+            for (int i = 0; i < BATCH; i++) {
+                if (receiver.reverseTransform(new RawPacket(packets[i], 0, length + tagLength)) == null) {
+                    errors++;
+                }
+            }
+            unprotectNanos += System.nanoTime() - middleTT;
+            protectNanos += middleTT - beginTT;
+            seq += BATCH;
+            number += BATCH;
+        }
+        System.out.println(algorithm + " : " + number + " packets of " + PAYLOAD_LENGTH + " bytes.");
+        System.out.println("protect flow = " + (long) (number * 1e9 / protectNanos) + " packets/s.");
+        System.out.println("unprotect flow = " + (long) (number * 1e9 / unprotectNanos) + " packets/s.");
+        System.exit(errors == 0 ? 0 : 1);
+    }
+
+    private static void setHeader(byte[] packet, int seq) {
+        packet[0] = (byte) 0x80;
+        packet[1] = 0;
+        packet[2] = (byte) (seq >> 8);
+        packet[3] = (byte) seq;
+        packet[8] = 0x12;
+        packet[9] = 0x34;
+        packet[10] = 0x56;
+        packet[11] = 0x78;
+    }
+}
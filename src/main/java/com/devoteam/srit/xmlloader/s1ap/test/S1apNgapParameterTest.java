@@ -0,0 +1,173 @@
+/* 
+ * Copyright 2012 Devoteam http://www.devoteam.com
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ * 
+ * 
+ * This file is part of Multi-Protocol Test Suite (MTS).
+ * 
+ * Multi-Protocol Test Suite (MTS) is free software: you can redistribute
+ * it and/or modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation, either version 3 of the
+ * License.
+ * 
+ * Multi-Protocol Test Suite (MTS) is distributed in the hope that it will
+ * be useful, but WITHOUT ANY WARRANTY; without even the implied warranty 
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with Multi-Protocol Test Suite (MTS).
+ * If not, see <http://www.gnu.org/licenses/>.
+ * 
+ */
+
+package com.devoteam.srit.xmlloader.s1ap.test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.dom4j.Document;
+import org.dom4j.DocumentHelper;
+import org.dom4j.Node;
+import org.dom4j.XPath;
+
+import com.devoteam.srit.xmlloader.core.utils.XPathCache;
+
+/** 
+ * mesure du debit de getParameter() sur les messages S1AP et NGAP (chemins
+ * usuels des scenarios sur un InitialUEMessage et un NGSetupRequest) :
+ * - avant : l'arbre du PDU est reserialise et reparse, et l'expression XPath
+ *   compilee, a chaque appel;
+ * - apres : l'arbre du message et les expressions sont reutilises
+ *   (XPathCache, parcours direct des chemins simples).
+ * Les resultats des deux methodes sont compares pour chaque chemin.
+ * usage : S1apNgapParameterTest [nombre d'appels par chemin]
+ */
+public class S1apNgapParameterTest {
+
+    private static final String INITIAL_UE_MESSAGE =
+        "<S1AP-PDU><initiatingMessage><procedureCode>12</procedureCode><criticality>ignore</criticality><value><InitialUEMessage><protocolIEs>" +
+        "<protocolIEs><id>8</id><criticality>reject</criticality><value><ENB-UE-S1AP-ID>36</ENB-UE-S1AP-ID></value></protocolIEs>" +
+        "<protocolIEs><id>26</id><criticality>reject</criticality><value><NAS-PDU>0741720BF600F110000201030003E605F07000001000050215D011D15200F11000015C0A003103E5E0349011035758A65D0100E0C1</NAS-PDU></value></protocolIEs>" +
+        "<protocolIEs><id>67</id><criticality>reject</criticality><value><TAI><pLMNidentity>00F110</pLMNidentity><tAC>0001</tAC></TAI></value></protocolIEs>" +
+        "<protocolIEs><id>100</id><criticality>ignore</criticality><value><EUTRAN-CGI><pLMNidentity>00F110</pLMNidentity><cell-ID>0000000000000001101000000001</cell-ID></EUTRAN-CGI></value></protocolIEs>" +
+        "<protocolIEs><id>134</id><criticality>ignore</criticality><value><RRC-Establishment-Cause>mo-Signalling</RRC-Establishment-Cause></value></protocolIEs>" +
+        "</protocolIEs></InitialUEMessage></value></initiatingMessage></S1AP-PDU>";
+
+    private static final String[] INITIAL_UE_MESSAGE_PATHS = {
+        "S1AP-PDU.*[1]",
+        "S1AP-PDU.initiatingMessage.value.*[1]",
+        "S1AP-PDU.initiatingMessage.procedureCode.text()",
+        "S1AP-PDU.initiatingMessage.value.InitialUEMessage.protocolIEs.protocolIEs[id=8].value.ENB-UE-S1AP-ID.text()",
+        "S1AP-PDU.initiatingMessage.value.InitialUEMessage.protocolIEs.protocolIEs[id=26].value.NAS-PDU.text()",
+        "S1AP-PDU.initiatingMessage.value.InitialUEMessage.protocolIEs.protocolIEs[id=67].value.TAI.tAC.text()",
+        "S1AP-PDU.initiatingMessage.value.InitialUEMessage.protocolIEs.protocolIEs[id=100].value.*",
+        "S1AP-PDU.initiatingMessage.value.InitialUEMessage.protocolIEs.protocolIEs.id.text()",
+    };
+
+    private static final String NG_SETUP_REQUEST =
+        "<NGAP-PDU><initiatingMessage><procedureCode>21</procedureCode><criticality>reject</criticality><value><NGSetupRequest><protocolIEs>" +
+        "<protocolIEs><id>27</id><criticality>reject</criticality><value><GlobalRANNodeID><globalGNB-ID><pLMNIdentity>00F110</pLMNIdentity>" +
+        "<gNB-ID><gNB-ID>00000000000000000000000000000001</gNB-ID></gNB-ID></globalGNB-ID></GlobalRANNodeID></value></protocolIEs>" +
+        "<protocolIEs><id>82</id><criticality>ignore</criticality><value><RANNodeName>mts-gnb-1</RANNodeName></value></protocolIEs>" +
+        "<protocolIEs><id>102</id><criticality>reject</criticality><value><SupportedTAList>" +
+        "<SupportedTAItem><tAC>000001</tAC><broadcastPLMNList><BroadcastPLMNItem><pLMNIdentity>00F110</pLMNIdentity><tAISliceSupportList>" +
+        "<SliceSupportItem><s-NSSAI><sST>01</sST></s-NSSAI></SliceSupportItem></tAISliceSupportList></BroadcastPLMNItem></broadcastPLMNList></SupportedTAItem>" +
+        "<SupportedTAItem><tAC>000002</tAC><broadcastPLMNList><BroadcastPLMNItem><pLMNIdentity>00F110</pLMNIdentity><tAISliceSupportList>" +
+        "<SliceSupportItem><s-NSSAI><sST>01</sST><sD>000001</sD></s-NSSAI></SliceSupportItem></tAISliceSupportList></BroadcastPLMNItem></broadcastPLMNList></SupportedTAItem>" +
+        "</SupportedTAList></value></protocolIEs>" +
+        "<protocolIEs><id>21</id><criticality>ignore</criticality><value><PagingDRX>v128</PagingDRX></value></protocolIEs>" +
+        "</protocolIEs></NGSetupRequest></value></initiatingMessage></NGAP-PDU>";
+
+    private static final String[] NG_SETUP_REQUEST_PATHS = {
+        "NGAP-PDU.*[1]",
+        "NGAP-PDU.initiatingMessage.value.*[1]",
+        "NGAP-PDU.initiatingMessage.value.NGSetupRequest.protocolIEs.protocolIEs[id=27].value.GlobalRANNodeID.globalGNB-ID.gNB-ID.gNB-ID.text()",
+        "NGAP-PDU.initiatingMessage.value.NGSetupRequest.protocolIEs.protocolIEs[id=82].value.RANNodeName.text()",
+        "NGAP-PDU.initiatingMessage.value.NGSetupRequest.protocolIEs.protocolIEs[id=102].value.SupportedTAList.SupportedTAItem.tAC.text()",
+        "NGAP-PDU.initiatingMessage.value.NGSetupRequest.protocolIEs.protocolIEs[id=102].value.SupportedTAList.SupportedTAItem[2].broadcastPLMNList.BroadcastPLMNItem.tAISliceSupportList.SliceSupportItem.s-NSSAI.*",
+        "NGAP-PDU.initiatingMessage.value.NGSetupRequest.protocolIEs.protocolIEs[id=21].value.PagingDRX.text()",
+    };
+
+    /**
+     * @param args
+     */
+    public static void main(String[] args) throws Exception {
+
+        int maxIter = (args.length > 0) ? Integer.parseInt(args[0]) : 20000;
+
+        boolean ok = test("S1AP InitialUEMessage", INITIAL_UE_MESSAGE, INITIAL_UE_MESSAGE_PATHS, maxIter);
+        ok &= test("NGAP NGSetupRequest", NG_SETUP_REQUEST, NG_SETUP_REQUEST_PATHS, maxIter);
+        System.exit(ok ? 0 : 1);
+    }
+
+    private static boolean test(String name, String xml, String[] paths, int maxIter) throws Exception {
+        // the PDU element as kept by the message (child of the scenario document)
+        Document scenario = DocumentHelper.parseText("<sendMessage>" + xml + "</sendMessage>");
+        org.dom4j.Element pdu = (org.dom4j.Element) scenario.getRootElement().elements().get(0);
+        // the document built once per message (see MsgS1ap.getDocument())
+        Document document = DocumentHelper.createDocument(pdu.createCopy());
+
+        boolean ok = true;
+        for (String path : paths) {
+            List<String> before = getParameterBefore(pdu, path);
+            List<String> after = getParameterAfter(document, path);
+            if (before.isEmpty() || !before.equals(after)) {
+                System.out.println(name + " : different values for " + path + " : " + before + " / " + after);
+                ok = false;
+            }
+        }
+
+        // warm up then measure
+        for (int pass = 0; pass < 2; pass++) {
+            long beginTT = System.nanoTime();
+            for (int i = 0; i < maxIter; i++) {
+                for (String path : paths) {
+                    getParameterBefore(pdu, path);
+                }
+            }
+            float duration = ((float) (System.nanoTime() - beginTT)) / 1000000000;
+
+            beginTT = System.nanoTime();
+            for (int i = 0; i < maxIter; i++) {
+                for (String path : paths) {
+                    getParameterAfter(document, path);
+                }
+            }
+            float durationCache = ((float) (System.nanoTime() - beginTT)) / 1000000000;
+
+            if (pass == 1) {
+                long number = (long) maxIter * paths.length;
+                System.out.println(name + " : before = " + number / duration + " getParameter/s. after = " + number / durationCache + " getParameter/s. speedup = " + duration / durationCache);
+            }
+        }
+        return ok;
+    }
+
+    /** the getParameter() of MsgS1ap/MsgNgap before the XPath cache */
+    private static List<String> getParameterBefore(org.dom4j.Element pdu, String path) throws Exception {
+        path = String.format("/%s", path.replaceAll("\\.", "/"));
+        Document document = DocumentHelper.parseText(pdu.asXML());
+        XPath xpath = DocumentHelper.createXPath(path);
+        return toValues(xpath.selectNodes(document));
+    }
+
+    /** the getParameter() of MsgS1ap/MsgNgap with the XPath cache */
+    private static List<String> getParameterAfter(Document document, String path) throws Exception {
+        path = String.format("/%s", path.replaceAll("\\.", "/"));
+        return toValues(XPathCache.selectNodes(document, path));
+    }
+
+    private static List<String> toValues(List<Node> nodeList) {
+        List<String> values = new ArrayList<String>();
+        for (Node node : nodeList) {
+            if (node.getNodeType() == Node.ELEMENT_NODE) {
+                values.add(node.getName());
+            }
+            else if (node.getNodeType() == Node.TEXT_NODE) {
+                values.add(node.getStringValue());
+            }
+        }
+        return values;
+    }
+}
@@ -23,6 +23,8 @@
 
 package com.devoteam.srit.xmlloader.sigtran.tlv;
 
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
 
 import org.dom4j.Element;
@@ -62,6 +64,21 @@ public class TlvMessage {
 
     private LinkedList<TlvParameter> _parameters = new LinkedList();
 
+    // index of the parameters of a decoded message (tag, offset and length in _messageData);
+    // the parameters are parsed only when they are accessed, null once materialized in _parameters
+    private int[] _indexTags;
+    private int[] _indexOffsets;
+    private int[] _indexLengths;
+    private TlvParameter[] _indexParameters;
+    private int _indexSize;
+
+    // hashed lookup of the parameters by name (lower case) and by tag, giving their position in the index
+    // (or in _positionParameters once materialized); built at parse or on the first lookup, cleared when
+    // the list of parameters is given out or replaced since it may then be modified
+    private HashMap<String, Integer> _positionByName;
+    private HashMap<Integer, Integer> _positionByTag;
+    private TlvParameter[] _positionParameters;
+
     public TlvMessage(Msg msg, TlvDictionary dictionary) {
         _msg = msg;
         _dictionary = dictionary;
@@ -100,19 +117,37 @@ public class TlvMessage {
             _messageLength = new Integer32Array(array.subArray(4, 4));
             _messageData = array.subArray(8);
 
-            // parse all parameters
+            // index all parameters, they will be parsed on demand
+            _indexTags = new int[8];
+            _indexOffsets = new int[8];
+            _indexLengths = new int[8];
+            _indexSize = 0;
             int offset = 0;
             while(offset < _messageData.length){
-                TlvParameter parameter = new TlvParameter(_msg, _dictionary);
-                Array subArray = _messageData.subArray(offset);
-                parameter.parseArray(subArray);
-                _parameters.add(parameter);
-                offset += parameter.getLength();
+                int length = ((_messageData.get(offset + 2) & 0xff) << 8) | (_messageData.get(offset + 3) & 0xff);
+                if(length < 4){
+                    throw new ExecutionException("Invalid length " + length + " for the TLV parameter at offset " + offset);
+                }
+                if(offset + length > _messageData.length){
+                    throw new ExecutionException("The TLV parameter at offset " + offset + " exceeds the message length");
+                }
+                if(_indexSize == _indexTags.length){
+                    _indexTags = Arrays.copyOf(_indexTags, _indexSize * 2);
+                    _indexOffsets = Arrays.copyOf(_indexOffsets, _indexSize * 2);
+                    _indexLengths = Arrays.copyOf(_indexLengths, _indexSize * 2);
+                }
+                _indexTags[_indexSize] = ((_messageData.get(offset) & 0xff) << 8) | (_messageData.get(offset + 1) & 0xff);
+                _indexOffsets[_indexSize] = offset;
+                _indexLengths[_indexSize] = length;
+                _indexSize++;
+                offset += length;
                 // handle padding; go to next multiple of 4 if not already
                 if(offset % 4 != 0){
                     offset += 4 - (offset % 4);
                 }
             }
+            _indexParameters = new TlvParameter[_indexSize];
+            buildPositions();
         }
         catch (Exception e) {
             throw new ExecutionException("The TLV message can't be decoded" + array.toString(), e);
@@ -147,12 +182,75 @@ public class TlvMessage {
         this._messageType.setValue(value);
     }
 
-    public LinkedList<TlvParameter> getParameters() {
+    public LinkedList<TlvParameter> getParameters() throws Exception {
+        // the list may be modified by the caller : parse all indexed parameters
+        if (_indexParameters != null) {
+            for (int i = 0; i < _indexSize; i++) {
+                _parameters.add(getIndexedParameter(i));
+            }
+            _indexParameters = null;
+        }
+        clearPositions();
         return _parameters;
     }
 
     public void setParameters(LinkedList<TlvParameter> parameters) {
         this._parameters = parameters;
+        this._indexParameters = null;
+        clearPositions();
+    }
+
+    /**
+     * Build the hashed positions of the parameters by name and by tag (the first one wins as for a scan)
+     */
+    private void buildPositions() {
+        _positionByName = new HashMap<String, Integer>();
+        _positionByTag = new HashMap<Integer, Integer>();
+        if (_indexParameters != null) {
+            for (int i = 0; i < _indexSize; i++) {
+                addPosition(_dictionary.parameterName(_indexTags[i]), _indexTags[i], i);
+            }
+        }
+        else {
+            _positionParameters = _parameters.toArray(new TlvParameter[_parameters.size()]);
+            for (int i = 0; i < _positionParameters.length; i++) {
+                TlvParameter param = _positionParameters[i];
+                if (param != null) {
+                    addPosition(param.getName(), param.getTag(), i);
+                }
+            }
+        }
+    }
+
+    private void addPosition(String name, int tag, int position) {
+        if (name != null) {
+            String key = name.toLowerCase();
+            if (!_positionByName.containsKey(key)) {
+                _positionByName.put(key, position);
+            }
+        }
+        if (!_positionByTag.containsKey(tag)) {
+            _positionByTag.put(tag, position);
+        }
+    }
+
+    private void clearPositions() {
+        _positionByName = null;
+        _positionByTag = null;
+        _positionParameters = null;
+    }
+
+    /**
+     * Get the indexed parameter at the given position, parse it on first access
+     */
+    private TlvParameter getIndexedParameter(int i) throws Exception {
+        TlvParameter parameter = _indexParameters[i];
+        if (parameter == null) {
+            parameter = new TlvParameter(_msg, _dictionary);
+            parameter.parseArray(_messageData.subArray(_indexOffsets[i], _indexLengths[i]));
+            _indexParameters[i] = parameter;
+        }
+        return parameter;
     }
 
     public int getReserved() {
@@ -171,18 +269,31 @@ public class TlvMessage {
         this._version.setValue(value);
     }
 
-    public TlvParameter getTlvParameter(String name) {
-        TlvParameter param = null;
-        for (int i = 0; i < _parameters.size(); i++) {
-            param = _parameters.get(i);
-            if ((param != null) && (name.equalsIgnoreCase(param.getName()))) {
-                return param;
+    public TlvParameter getTlvParameter(String name) throws Exception {
+        if (_positionByName == null) {
+            buildPositions();
+        }
+        Integer position = _positionByName.get(name.toLowerCase());
+        // the parameter may also be given by its tag value
+        if (name.length() > 0 && Character.isDigit(name.charAt(0))) {
+            try {
+                int tag = Integer.parseInt(name);
+                Integer positionTag = Integer.toString(tag).equals(name) ? _positionByTag.get(tag) : null;
+                if (positionTag != null && (position == null || positionTag < position)) {
+                    position = positionTag;
+                }
             }
-            if ((param != null) && (name.equalsIgnoreCase(((Integer) param.getTag()).toString()))) {
-                return param;
+            catch (NumberFormatException e) {
+                // not a tag value
             }
         }
-        return null;
+        if (position == null) {
+            return null;
+        }
+        if (_indexParameters != null) {
+            return getIndexedParameter(position);
+        }
+        return _positionParameters[position];
     }
 
     /**
@@ -255,8 +366,25 @@ public class TlvMessage {
         supArray.addLast(_messageLength);
 
         // encode and append tlv parameters (padding included)
-        for (TlvParameter tlvParameter:_parameters) {
-            supArray.addLast(tlvParameter.encode());
+        if (_indexParameters != null) {
+            // the parameters which have not been parsed are copied as they were received
+            for (int i = 0; i < _indexSize; i++) {
+                if (_indexParameters[i] != null) {
+                    supArray.addLast(_indexParameters[i].encode());
+                }
+                else {
+                    supArray.addLast(_messageData.subArray(_indexOffsets[i], _indexLengths[i]));
+                    int padding = (4 - (_indexLengths[i] % 4)) % 4;
+                    if (padding > 0) {
+                        supArray.addLast(new ConstantArray((byte) 0, padding));
+                    }
+                }
+            }
+        }
+        else {
+            for (TlvParameter tlvParameter:_parameters) {
+                supArray.addLast(tlvParameter.encode());
+            }
         }
 
         // set the length now that we know it, will change in the encoded array too
@@ -452,9 +580,26 @@ public class TlvMessage {
         }
         messageToString.append("/>");
 
-        for (int i = 0; i < _parameters.size(); i++) 
+        if (_indexParameters != null) 
+        {
+        	for (int i = 0; i < _indexSize; i++) 
+        	{
+        		try 
+        		{
+        			messageToString.append(getIndexedParameter(i).toString());
+        		}
+        		catch (Exception e) 
+        		{
+        			messageToString.append("\n   <parameter tag=\"" + _indexTags[i] + "\" error=\"" + e.getMessage() + "\"/>");
+        		}
+        	}
+        }
+        else 
         {
-        	messageToString.append(_parameters.get(i).toString());
+        	for (int i = 0; i < _parameters.size(); i++) 
+        	{
+        		messageToString.append(_parameters.get(i).toString());
+        	}
         }
         messageToString.append("\n</UA>");
         return messageToString.toString();
@@ -127,6 +127,12 @@ public class ChannelUdpNIO extends Channel
         return true;
     }
 
+    /** Get the socket of the channel, null if it is not opened */
+    public SocketUdpNIO getSocketUdp()
+    {
+        return socketUdp;
+    }
+
     /** Get the transport protocol */
     @Override
     public String getTransport() 
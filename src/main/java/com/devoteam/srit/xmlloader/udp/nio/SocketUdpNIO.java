@@ -49,6 +49,8 @@ public class SocketUdpNIO implements DatagramHandler
 
     private ByteBuffer          currentSendBuffer = ByteBuffer.allocate(MTU);
     private InetSocketAddress   currentRemoteAddress;
+    private String              currentRemoteHost;
+    private int                 currentRemotePort;
     private Exception           currentSendException;
     private Semaphore           currentSendSemaphore = new Semaphore(0);
 
@@ -174,18 +176,25 @@ public class SocketUdpNIO implements DatagramHandler
             currentSendBuffer.flip();
 
             Channel channel = msg.getChannel();
-            // init
-            if (channel.getRemoteHost() != null && channel.getRemotePort() != 0)
+            String remoteHost = channel.getRemoteHost();
+            int remotePort = channel.getRemotePort();
+            // resolve the remote address only when the destination changes (flows send to the same one)
+            if (currentRemoteAddress == null || remotePort != currentRemotePort || !(remoteHost == null ? currentRemoteHost == null : remoteHost.equals(currentRemoteHost)))
             {
-                currentRemoteAddress = new InetSocketAddress(channel.getRemoteHost(), channel.getRemotePort());
-            }
-            else if (channel.getRemoteHost() != null)
-            {
-                currentRemoteAddress = new InetSocketAddress(channel.getRemoteHost(), 0);
-            }
-            else if (channel.getRemotePort() != 0)
-            {
-                currentRemoteAddress = new InetSocketAddress(channel.getRemotePort());
+                if (remoteHost != null && remotePort != 0)
+                {
+                    currentRemoteAddress = new InetSocketAddress(remoteHost, remotePort);
+                }
+                else if (remoteHost != null)
+                {
+                    currentRemoteAddress = new InetSocketAddress(remoteHost, 0);
+                }
+                else if (remotePort != 0)
+                {
+                    currentRemoteAddress = new InetSocketAddress(remotePort);
+                }
+                currentRemoteHost = remoteHost;
+                currentRemotePort = remotePort;
             }
 
             boolean emptyDatagram = (0 == currentSendBuffer.remaining());
@@ -194,12 +203,7 @@ public class SocketUdpNIO implements DatagramHandler
 
             if(res == 0 && !emptyDatagram)
             {
-                currentSendSemaphore.drainPermits();
-                selectionKey.interestOps(selectionKey.interestOps() | SelectionKey.OP_WRITE);
-                selectionKey.selector().wakeup();
-
-                currentSendSemaphore.acquire();
-                if(null != currentSendException) throw currentSendException;
+                waitOutputReady();
             }
         }
         catch (Exception e)
@@ -208,6 +212,51 @@ public class SocketUdpNIO implements DatagramHandler
         }
     }
 
+    /**
+     * Send several datagrams taking the lock of the socket only once (used by
+     * the RTP flow engine); each buffer is sent from its position to its limit
+     */
+    public synchronized void send(ByteBuffer[] datagrams, InetSocketAddress[] remoteAddresses, int number) throws Exception
+    {
+        try
+        {
+            for (int i = 0; i < number; i++)
+            {
+                ByteBuffer datagram = datagrams[i];
+                boolean emptyDatagram = (0 == datagram.remaining());
+
+                int res = dataChannel.send(datagram, remoteAddresses[i]);
+
+                if(res == 0 && !emptyDatagram)
+                {
+                    // the socket buffer is full : the reactor sends it as for a single message
+                    currentSendBuffer.clear();
+                    currentSendBuffer.put(datagram);
+                    currentSendBuffer.flip();
+                    currentRemoteAddress = remoteAddresses[i];
+                    currentRemoteHost = null;
+                    currentRemotePort = -1;
+                    waitOutputReady();
+                }
+            }
+        }
+        catch (Exception e)
+        {
+            throw new ExecutionException("SocketUDP: Error while sending messages", e);
+        }
+    }
+
+    /** wait for the reactor to send the current buffer when the socket is writable */
+    private void waitOutputReady() throws Exception
+    {
+        currentSendSemaphore.drainPermits();
+        selectionKey.interestOps(selectionKey.interestOps() | SelectionKey.OP_WRITE);
+        selectionKey.selector().wakeup();
+
+        currentSendSemaphore.acquire();
+        if(null != currentSendException) throw currentSendException;
+    }
+
     public void outputReady()
     {
         try
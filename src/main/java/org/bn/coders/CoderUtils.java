@@ -21,13 +21,14 @@ import java.io.UnsupportedEncodingException;
 import java.lang.reflect.*;
 
 import java.util.SortedMap;
-import java.util.TreeMap;
 
 import org.bn.annotations.*;
 import org.bn.annotations.constraints.*;
 import org.bn.metadata.*;
 import org.bn.types.*;
 
+import com.devoteam.srit.xmlloader.asn1.ASNClassCache;
+
 public class CoderUtils {
     public static int getIntegerLength(int value) {
         long mask = 0x7f800000L;
@@ -139,19 +140,9 @@ public class CoderUtils {
            return result;
     }    
     
+    // the order is computed once per class; the returned map is shared and read only
     public static SortedMap<Integer,Field> getSetOrder(Class<?> objectClass){
-        SortedMap<Integer, Field> fieldOrder = new TreeMap<Integer,Field>();
-        int tagNA = -1;        
-        for ( Field field : objectClass.getDeclaredFields() ) {
-            ASN1Element element = field.getAnnotation(ASN1Element.class);
-            if(element!=null) {
-                if(element.hasTag())
-                    fieldOrder.put(element.tag(),field);
-                else
-                    fieldOrder.put(tagNA--,field);
-            }
-        }
-        return fieldOrder;
+        return ASNClassCache.getSetOrder(objectClass);
     }
     
     public static  int getStringTagForElement(ElementInfo elementInfo) {
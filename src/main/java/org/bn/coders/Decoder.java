@@ -18,6 +18,8 @@ package org.bn.coders;
 
 import java.io.InputStream;
 import java.lang.reflect.*;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.bn.IDecoder;
 import org.bn.annotations.*;
@@ -25,12 +27,17 @@ import org.bn.coders.DecodedObject;
 import org.bn.metadata.*;
 import org.bn.types.*;
 
+import com.devoteam.srit.xmlloader.asn1.ASNClassCache;
+
 public abstract class Decoder implements IDecoder, IASN1TypesDecoder { 
 
+    // cache of the constructors of the ASN.1 inner classes (the no-arg ones are in the ASN.1 class cache)
+    private static final Map<Class, Constructor> memberConstructors = new ConcurrentHashMap<Class, Constructor>();
+
     public <T> T decode(InputStream stream, Class<T> objectClass) throws Exception {
         ElementInfo elemInfo = new ElementInfo();
         elemInfo.setAnnotatedClass(objectClass);
-        Object objectInstance = objectClass.newInstance();
+        Object objectInstance = newInstance(objectClass);
         
         if(objectInstance instanceof IASN1PreparedElement) {
             elemInfo.setPreparedInstance(objectInstance);
@@ -43,7 +50,9 @@ public abstract class Decoder implements IDecoder, IASN1TypesDecoder {
     }
     
     public DecodedObject decodeClassType(DecodedObject decodedTag, Class objectClass, ElementInfo elementInfo, InputStream stream) throws Exception {
-        if(objectClass.isAnnotationPresent(ASN1PreparedElement.class)) {
+        // the first ASN.1 type annotation of the element is looked up once per class or field
+        Class typeAnnotation = ASNClassCache.getTypeAnnotation(elementInfo.getAnnotatedClass());
+        if(ASNClassCache.isPreparedElement(objectClass)) {
             return decodePreparedElement(decodedTag, objectClass,elementInfo, stream);
         }
         else 
@@ -53,65 +62,65 @@ public abstract class Decoder implements IDecoder, IASN1TypesDecoder {
             );    
         }
         else
-        if( elementInfo.getAnnotatedClass().isAnnotationPresent(ASN1SequenceOf.class) ) {
+        if( typeAnnotation == ASN1SequenceOf.class ) {
             return decodeSequenceOf(decodedTag, objectClass,elementInfo, stream);
         }        
         else    
-        if( elementInfo.getAnnotatedClass().isAnnotationPresent(ASN1Sequence.class) ) {
+        if( typeAnnotation == ASN1Sequence.class ) {
             return decodeSequence(decodedTag,objectClass,elementInfo, stream);
         }
         else
-        if( elementInfo.getAnnotatedClass().isAnnotationPresent(ASN1Choice.class) ) {
+        if( typeAnnotation == ASN1Choice.class ) {
             return decodeChoice(decodedTag,objectClass,elementInfo, stream);
         }
         else
-        if( elementInfo.getAnnotatedClass().isAnnotationPresent(ASN1BoxedType.class) ) {
+        if( typeAnnotation == ASN1BoxedType.class ) {
             return decodeBoxedType(decodedTag,objectClass,elementInfo, stream);
         }
         else
-        if( elementInfo.getAnnotatedClass().isAnnotationPresent(ASN1Enum.class) ) {
+        if( typeAnnotation == ASN1Enum.class ) {
             return decodeEnum(decodedTag, objectClass,elementInfo, stream);
         }
         else
-        if( elementInfo.getAnnotatedClass().isAnnotationPresent(ASN1Boolean.class) ) {            
+        if( typeAnnotation == ASN1Boolean.class ) {            
             return decodeBoolean(decodedTag, objectClass,elementInfo, stream);
         }
         else
-        if( elementInfo.getAnnotatedClass().isAnnotationPresent(ASN1Any.class) ) {
+        if( typeAnnotation == ASN1Any.class ) {
             return decodeAny(decodedTag, objectClass,elementInfo, stream);
         }
         else
-        if( elementInfo.getAnnotatedClass().isAnnotationPresent(ASN1Integer.class) ) {
+        if( typeAnnotation == ASN1Integer.class ) {
             return decodeInteger(decodedTag, objectClass,elementInfo, stream);
         }        
         else
-        if( elementInfo.getAnnotatedClass().isAnnotationPresent(ASN1Real.class) ) {
+        if( typeAnnotation == ASN1Real.class ) {
             return decodeReal(decodedTag, objectClass,elementInfo, stream);
         }        
         else
-        if( elementInfo.getAnnotatedClass().isAnnotationPresent(ASN1OctetString.class) ) {
+        if( typeAnnotation == ASN1OctetString.class ) {
             return decodeOctetString(decodedTag, objectClass,elementInfo, stream);
         }
         else
-        if( elementInfo.getAnnotatedClass().isAnnotationPresent(ASN1BitString.class) 
+        if( typeAnnotation == ASN1BitString.class 
 	        || elementInfo.getAnnotatedClass().equals(BitString.class)) {
             return decodeBitString(decodedTag, objectClass,elementInfo, stream);
         }
         else
-        if( elementInfo.getAnnotatedClass().isAnnotationPresent(ASN1ObjectIdentifier.class) 
+        if( typeAnnotation == ASN1ObjectIdentifier.class 
 		|| elementInfo.getAnnotatedClass().equals(ObjectIdentifier.class) ) {
             return decodeObjectIdentifier ( decodedTag, objectClass,elementInfo, stream );
         }        
         else
-        if( elementInfo.getAnnotatedClass().isAnnotationPresent(ASN1String.class) ) {
+        if( typeAnnotation == ASN1String.class ) {
             return decodeString(decodedTag, objectClass,elementInfo, stream);
         }
         else
-        if( elementInfo.getAnnotatedClass().isAnnotationPresent(ASN1Null.class) ) {
+        if( typeAnnotation == ASN1Null.class ) {
             return decodeNull(decodedTag, objectClass,elementInfo, stream);        
         }
         else
-        if( elementInfo.getAnnotatedClass().isAnnotationPresent(ASN1Element.class) ) {
+        if( typeAnnotation == ASN1Element.class ) {
             return decodeElement(decodedTag, objectClass,elementInfo, stream);
         }
         else
@@ -213,20 +222,18 @@ public abstract class Decoder implements IDecoder, IASN1TypesDecoder {
         else {
             if(elementInfo.hasPreparedInfo()) {                
                 if(elementInfo.getPreparedInfo().isMemberClass() && elementInfo.getParentObject()!=null) {
-                    Constructor decl = objectClass.getDeclaredConstructor(elementInfo.getParentObject().getClass());
-                    result = decl.newInstance(elementInfo.getParentObject());
+                    result = newMemberInstance(objectClass, elementInfo.getParentObject());
                 }
                 else
                     result = elementInfo.getPreparedInfo().newInstance();
             }
             else
             if(objectClass.isMemberClass() && elementInfo.getParentObject()!=null && !Modifier.isStatic(objectClass.getModifiers())) {
-                Constructor decl = objectClass.getDeclaredConstructor(elementInfo.getParentObject().getClass());
-                result = decl.newInstance(elementInfo.getParentObject());
+                result = newMemberInstance(objectClass, elementInfo.getParentObject());
             }
         }
         if(result==null) {
-            result = objectClass.newInstance();
+            result = newInstance(objectClass);
             /*Constructor decl = objectClass.getDeclaredConstructor();
             decl.setAccessible(true);
             result = decl.newInstance();*/
@@ -234,6 +241,19 @@ public abstract class Decoder implements IDecoder, IASN1TypesDecoder {
         return result;
     }
         
+    protected static Object newInstance(Class objectClass) throws Exception {
+        return ASNClassCache.newInstance(objectClass);
+    }
+
+    protected static Object newMemberInstance(Class objectClass, Object parentObject) throws Exception {
+        Constructor decl = memberConstructors.get(objectClass);
+        if(decl==null || decl.getParameterTypes()[0]!=parentObject.getClass()) {
+            decl = objectClass.getDeclaredConstructor(parentObject.getClass());
+            memberConstructors.put(objectClass, decl);
+        }
+        return decl.newInstance(parentObject);
+    }
+
     public DecodedObject decodeSequence(DecodedObject decodedTag, Class objectClass, ElementInfo elementInfo, InputStream stream) throws Exception {
         Object sequence = createInstanceForElement(objectClass, elementInfo);
         initDefaultValues(sequence, elementInfo);
@@ -389,31 +409,15 @@ public abstract class Decoder implements IDecoder, IASN1TypesDecoder {
     }
         
     public DecodedObject decodeEnum(DecodedObject decodedTag,Class objectClass, ElementInfo elementInfo, InputStream stream) throws Exception  {
-        Field field = objectClass.getDeclaredField("value");
-
-        Class enumClass = null;
-        for(Class cls : objectClass.getDeclaredClasses()) {
-            if(cls.isEnum()) {
-                enumClass = cls;
-                break;
-            }
-        };
+        Field field = ASNClassCache.getValueField(objectClass);
+        Class enumClass = ASNClassCache.getEnumClass(objectClass);
 
         DecodedObject itemValue = decodeEnumItem(decodedTag, field.getType(),enumClass, elementInfo, stream );
         
         Field param = null;
         if(itemValue!=null) {
-            Object result = objectClass.newInstance();
-
-            for(Field enumItem: enumClass.getDeclaredFields()) {
-                if(enumItem.isAnnotationPresent(ASN1EnumItem.class)) {
-                    ASN1EnumItem meta = enumItem.getAnnotation(ASN1EnumItem.class);
-                    if(meta.tag() == (Integer)itemValue.getValue()) {
-                        param = enumItem;
-                        break;
-                    }
-                }
-            }
+            Object result = newInstance(objectClass);
+            param = ASNClassCache.getEnumItemField(enumClass, (Integer)itemValue.getValue());
             invokeSetterMethodForField ( field, result, param.get(null), null) ;
 	    return new DecodedObject(result,itemValue.getSize());
         }        
@@ -436,7 +440,7 @@ public abstract class Decoder implements IDecoder, IASN1TypesDecoder {
             field = elementInfo.getPreparedInfo().getValueField();
         }
         else
-            field = objectClass.getDeclaredField("value");
+            field = ASNClassCache.getValueField(objectClass);
         elementInfo.setAnnotatedClass(field);
         elementInfo.setGenericInfo(field.getGenericType());
         //if(field.getType().isMemberClass()) {
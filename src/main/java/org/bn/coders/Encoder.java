@@ -25,6 +25,8 @@ import org.bn.metadata.ASN1ElementMetadata;
 import org.bn.metadata.ASN1Metadata;
 import org.bn.types.*;
 
+import com.devoteam.srit.xmlloader.asn1.ASNClassCache;
+
 public abstract class Encoder<T> implements IEncoder<T>, IASN1TypesEncoder {
     
     public void encode(T object, OutputStream stream) throws Exception {
@@ -49,6 +51,8 @@ public abstract class Encoder<T> implements IEncoder<T>, IASN1TypesEncoder {
 
     public int encodeClassType(Object object, OutputStream stream, ElementInfo elementInfo) throws Exception {
         int resultSize = 0;
+        // the first ASN.1 type annotation of the element is looked up once per class or field
+        Class typeAnnotation = ASNClassCache.getTypeAnnotation(elementInfo.getAnnotatedClass());
         if(elementInfo.hasPreparedInfo()) {
             resultSize+=elementInfo.getPreparedInfo().getTypeMetadata().encode(this,object, stream, elementInfo);
         }        
@@ -57,63 +61,63 @@ public abstract class Encoder<T> implements IEncoder<T>, IASN1TypesEncoder {
             resultSize+=encodePreparedElement(object, stream, elementInfo);
         }
         else
-        if( elementInfo.getAnnotatedClass().isAnnotationPresent(ASN1SequenceOf.class) ) {
+        if( typeAnnotation == ASN1SequenceOf.class ) {
             resultSize+=encodeSequenceOf(object, stream, elementInfo);
         }        
         else        
-        if( elementInfo.getAnnotatedClass().isAnnotationPresent(ASN1Sequence.class) ) {
+        if( typeAnnotation == ASN1Sequence.class ) {
             resultSize+=encodeSequence(object, stream, elementInfo);
         }
         else
-        if( elementInfo.getAnnotatedClass().isAnnotationPresent(ASN1Choice.class) ) {
+        if( typeAnnotation == ASN1Choice.class ) {
             resultSize+=encodeChoice(object, stream, elementInfo);
         }
         else
-        if( elementInfo.getAnnotatedClass().isAnnotationPresent(ASN1BoxedType.class) ) {
+        if( typeAnnotation == ASN1BoxedType.class ) {
             resultSize+=encodeBoxedType(object, stream, elementInfo);
         }        
         else
-        if( elementInfo.getAnnotatedClass().isAnnotationPresent(ASN1Enum.class) ) {
+        if( typeAnnotation == ASN1Enum.class ) {
             resultSize+=encodeEnum(object, stream, elementInfo);
         }
         else
-        if( elementInfo.getAnnotatedClass().isAnnotationPresent(ASN1Boolean.class) ) {            
+        if( typeAnnotation == ASN1Boolean.class ) {            
             resultSize+=encodeBoolean(object, stream, elementInfo);
         }
         else
-        if( elementInfo.getAnnotatedClass().isAnnotationPresent(ASN1Any.class) ) {
+        if( typeAnnotation == ASN1Any.class ) {
             resultSize+=encodeAny(object, stream, elementInfo);
         }
         else
-        if( elementInfo.getAnnotatedClass().isAnnotationPresent(ASN1Integer.class) ) {
+        if( typeAnnotation == ASN1Integer.class ) {
             resultSize+=encodeInteger(object, stream, elementInfo);
         }        
         else
-        if( elementInfo.getAnnotatedClass().isAnnotationPresent(ASN1Real.class) ) {
+        if( typeAnnotation == ASN1Real.class ) {
             resultSize+=encodeReal(object, stream, elementInfo);
         }        
         else
-        if( elementInfo.getAnnotatedClass().isAnnotationPresent(ASN1OctetString.class) ) {
+        if( typeAnnotation == ASN1OctetString.class ) {
             resultSize+=encodeOctetString(object, stream, elementInfo);
         }
         else
-        if( elementInfo.getAnnotatedClass().isAnnotationPresent(ASN1BitString.class) || object.getClass().equals(BitString.class) ) {
+        if( typeAnnotation == ASN1BitString.class || object.getClass().equals(BitString.class) ) {
             resultSize+=encodeBitString(object, stream, elementInfo);
         }
         else
-        if( elementInfo.getAnnotatedClass().isAnnotationPresent(ASN1ObjectIdentifier.class) || object.getClass().equals(ObjectIdentifier.class) ) {
+        if( typeAnnotation == ASN1ObjectIdentifier.class || object.getClass().equals(ObjectIdentifier.class) ) {
             resultSize+=encodeObjectIdentifier ( object, stream, elementInfo );
         }
         else
-        if( elementInfo.getAnnotatedClass().isAnnotationPresent(ASN1String.class) ) {
+        if( typeAnnotation == ASN1String.class ) {
             resultSize+=encodeString(object, stream, elementInfo);
         }
         else
-        if( elementInfo.getAnnotatedClass().isAnnotationPresent(ASN1Null.class) ) {
+        if( typeAnnotation == ASN1Null.class ) {
             resultSize+=encodeNull(object, stream, elementInfo);        
         }
         else
-        if( elementInfo.getAnnotatedClass().isAnnotationPresent(ASN1Element.class) ) {
+        if( typeAnnotation == ASN1Element.class ) {
             resultSize+=encodeElement(object, stream, elementInfo);
         }
         else
@@ -274,24 +278,16 @@ public abstract class Encoder<T> implements IEncoder<T>, IASN1TypesEncoder {
         
     public int encodeEnum(Object object, OutputStream stream, ElementInfo elementInfo) throws Exception  {
         int resultSize = 0;
-        Field field = object.getClass().getDeclaredField("value");
+        Field field = ASNClassCache.getValueField(object.getClass());
         Object result = invokeGetterMethodForField( field, object, null);
        
-        Class enumClass = null;
-        for(Class cls : object.getClass().getDeclaredClasses()) {
-            if(cls.isEnum()) {
-                for(Field enumItem: cls.getDeclaredFields()) {
-                    if(enumItem.isAnnotationPresent(ASN1EnumItem.class)) {
-                        if(enumItem.getName().equals(result.toString())) {
-                            elementInfo.setAnnotatedClass(enumItem);
-                            break;
-                        }
-                    }
-                }
-                enumClass = cls;
-                break;
+        Class enumClass = ASNClassCache.getEnumClass(object.getClass());
+        if(enumClass != null) {
+            Field enumItem = ASNClassCache.getEnumItemField(enumClass, result.toString());
+            if(enumItem != null) {
+                elementInfo.setAnnotatedClass(enumItem);
             }
-        }        
+        }
         resultSize+=encodeEnumItem(result, enumClass, stream, elementInfo);
         return resultSize;
     }
@@ -302,7 +298,7 @@ public abstract class Encoder<T> implements IEncoder<T>, IASN1TypesEncoder {
     }
     
     public int encodeBoxedType(Object object, OutputStream stream, ElementInfo elementInfo) throws Exception  {
-        Field field = object.getClass().getDeclaredField("value");
+        Field field = ASNClassCache.getValueField(object.getClass());
         elementInfo.setAnnotatedClass(field);
         
         if(elementInfo.getASN1ElementInfo()==null) {
@@ -248,7 +248,7 @@ public class BERDecoder extends Decoder {
         if(!checkTagForObject(decodedTag, TagClass.Universal, ElementType.Primitive, UniversalTag.Null, elementInfo))
             return null;
         stream.read ( ); // ignore null length
-        DecodedObject result = new DecodedObject(objectClass.newInstance(),1);
+        DecodedObject result = new DecodedObject(newInstance(objectClass),1);
         return result;
     }
 